@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.grpc.extensions;
+
+import com.sitewhere.grpc.extensions.device.BulkCreateResponse.Outcome;
+
+/**
+ * Result for a single row of a bulk create request as returned to API
+ * clients. Rows are reported in request order.
+ *
+ * @param <T>
+ */
+public class BulkCreateRow<T> {
+
+    /** Index of request in the bulk request */
+    private int index;
+
+    /** Token of entity the request applied to */
+    private String token;
+
+    /** Outcome for the request */
+    private Outcome outcome;
+
+    /** Reason the request failed (null if successful) */
+    private String errorMessage;
+
+    /** Entity that was created or updated (null if failed) */
+    private T entity;
+
+    public int getIndex() {
+	return index;
+    }
+
+    public void setIndex(int index) {
+	this.index = index;
+    }
+
+    public String getToken() {
+	return token;
+    }
+
+    public void setToken(String token) {
+	this.token = token;
+    }
+
+    public Outcome getOutcome() {
+	return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+	this.outcome = outcome;
+    }
+
+    public String getErrorMessage() {
+	return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+	this.errorMessage = errorMessage;
+    }
+
+    public T getEntity() {
+	return entity;
+    }
+
+    public void setEntity(T entity) {
+	this.entity = entity;
+    }
+}
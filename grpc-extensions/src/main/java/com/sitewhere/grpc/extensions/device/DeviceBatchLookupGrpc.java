@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.grpc.extensions.device;
+
+import com.sitewhere.grpc.service.DeviceManagementGrpc;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptor for the batch device lookup method. The method is served as part
+ * of the device management service and uses the messages generated from
+ * device-extensions.proto. Clients call the method with the same descriptor.
+ */
+public final class DeviceBatchLookupGrpc {
+
+    /** Gets devices with active assignments for lists of tokens and ids */
+    public static final MethodDescriptor<DeviceBatchLookupRequest, DeviceBatchLookupResponse> GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS = MethodDescriptor
+	    .<DeviceBatchLookupRequest, DeviceBatchLookupResponse>newBuilder()
+	    .setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME,
+		    "GetDevicesWithActiveAssignments"))
+	    .setRequestMarshaller(ProtoUtils.marshaller(DeviceBatchLookupRequest.getDefaultInstance()))
+	    .setResponseMarshaller(ProtoUtils.marshaller(DeviceBatchLookupResponse.getDefaultInstance())).build();
+
+    private DeviceBatchLookupGrpc() {
+    }
+}
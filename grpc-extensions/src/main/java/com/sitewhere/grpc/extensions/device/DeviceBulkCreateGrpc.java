@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.grpc.extensions.device;
+
+import com.sitewhere.grpc.service.DeviceManagementGrpc;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for bulk device and assignment creation. The methods are served
+ * as part of the device management service and use the messages generated from
+ * device-extensions.proto in the same way as {@link DeviceBatchLookupGrpc}.
+ */
+public final class DeviceBulkCreateGrpc {
+
+    /** Creates or updates many devices in one call */
+    public static final MethodDescriptor<DeviceBulkCreateRequest, BulkCreateResponse> BULK_CREATE_DEVICES = MethodDescriptor
+	    .<DeviceBulkCreateRequest, BulkCreateResponse>newBuilder().setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(
+		    MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME, "BulkCreateDevices"))
+	    .setRequestMarshaller(ProtoUtils.marshaller(DeviceBulkCreateRequest.getDefaultInstance()))
+	    .setResponseMarshaller(ProtoUtils.marshaller(BulkCreateResponse.getDefaultInstance())).build();
+
+    /** Creates or updates many device assignments in one call */
+    public static final MethodDescriptor<DeviceAssignmentBulkCreateRequest, BulkCreateResponse> BULK_CREATE_DEVICE_ASSIGNMENTS = MethodDescriptor
+	    .<DeviceAssignmentBulkCreateRequest, BulkCreateResponse>newBuilder()
+	    .setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME,
+		    "BulkCreateDeviceAssignments"))
+	    .setRequestMarshaller(ProtoUtils.marshaller(DeviceAssignmentBulkCreateRequest.getDefaultInstance()))
+	    .setResponseMarshaller(ProtoUtils.marshaller(BulkCreateResponse.getDefaultInstance())).build();
+
+    private DeviceBulkCreateGrpc() {
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.grpc.extensions.device;
+
+import com.sitewhere.grpc.service.DeviceManagementGrpc;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for device and assignment searches that page by continuation
+ * token. The methods are served as part of the device management service and
+ * use the messages generated from device-extensions.proto. Clients call the
+ * methods with the same descriptors.
+ */
+public final class DeviceCursorSearchGrpc {
+
+    /** Lists a page of devices */
+    public static final MethodDescriptor<DeviceCursorSearchRequest, CursorSearchResponse> LIST_DEVICES_WITH_CURSOR = MethodDescriptor
+	    .<DeviceCursorSearchRequest, CursorSearchResponse>newBuilder().setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(
+		    MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME, "ListDevicesWithCursor"))
+	    .setRequestMarshaller(ProtoUtils.marshaller(DeviceCursorSearchRequest.getDefaultInstance()))
+	    .setResponseMarshaller(ProtoUtils.marshaller(CursorSearchResponse.getDefaultInstance())).build();
+
+    /** Lists a page of device assignments */
+    public static final MethodDescriptor<DeviceAssignmentCursorSearchRequest, CursorSearchResponse> LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR = MethodDescriptor
+	    .<DeviceAssignmentCursorSearchRequest, CursorSearchResponse>newBuilder()
+	    .setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME,
+		    "ListDeviceAssignmentsWithCursor"))
+	    .setRequestMarshaller(ProtoUtils.marshaller(DeviceAssignmentCursorSearchRequest.getDefaultInstance()))
+	    .setResponseMarshaller(ProtoUtils.marshaller(CursorSearchResponse.getDefaultInstance())).build();
+
+    private DeviceCursorSearchGrpc() {
+    }
+}
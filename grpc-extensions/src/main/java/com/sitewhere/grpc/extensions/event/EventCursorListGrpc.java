@@ -0,0 +1,73 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.grpc.extensions.event;
+
+import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for event list methods that page by continuation token. The
+ * methods are served as part of the device event management service. Each
+ * method takes an {@link IndexCursorListRequest} that wraps the request of the
+ * matching list method and returns an {@link IndexCursorListResponse} that
+ * wraps its response. Clients call the methods with the same descriptors.
+ */
+public final class EventCursorListGrpc {
+
+    /** Lists a page of measurements for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_MEASUREMENTS_FOR_INDEX_WITH_CURSOR = create(
+	    "ListMeasurementsForIndexWithCursor");
+
+    /** Lists a page of locations for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_LOCATIONS_FOR_INDEX_WITH_CURSOR = create(
+	    "ListLocationsForIndexWithCursor");
+
+    /** Lists a page of alerts for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_ALERTS_FOR_INDEX_WITH_CURSOR = create(
+	    "ListAlertsForIndexWithCursor");
+
+    /** Lists a page of command invocations for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_COMMAND_INVOCATIONS_FOR_INDEX_WITH_CURSOR = create(
+	    "ListCommandInvocationsForIndexWithCursor");
+
+    /** Lists a page of command responses for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_COMMAND_RESPONSES_FOR_INDEX_WITH_CURSOR = create(
+	    "ListCommandResponsesForIndexWithCursor");
+
+    /** Lists a page of state changes for an index */
+    public static final MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> LIST_STATE_CHANGES_FOR_INDEX_WITH_CURSOR = create(
+	    "ListStateChangesForIndexWithCursor");
+
+    private EventCursorListGrpc() {
+    }
+
+    /**
+     * Create descriptor for a unary cursor list method.
+     * 
+     * @param name
+     * @return
+     */
+    private static MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> create(String name) {
+	return MethodDescriptor.<IndexCursorListRequest, IndexCursorListResponse>newBuilder()
+		.setType(MethodDescriptor.MethodType.UNARY)
+		.setFullMethodName(
+			MethodDescriptor.generateFullMethodName(DeviceEventManagementGrpc.SERVICE_NAME, name))
+		.setRequestMarshaller(ProtoUtils.marshaller(IndexCursorListRequest.getDefaultInstance()))
+		.setResponseMarshaller(ProtoUtils.marshaller(IndexCursorListResponse.getDefaultInstance())).build();
+    }
+}
@@ -15,10 +15,20 @@
  */
 package com.sitewhere.device;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.sitewhere.device.spi.kafka.IDeviceInteractionEventsProducer;
 import com.sitewhere.device.spi.microservice.IDeviceManagementTenantEngine;
+import com.sitewhere.device.persistence.BulkCreateResult;
+import com.sitewhere.device.spi.persistence.BulkCreateOutcome;
+import com.sitewhere.device.spi.persistence.IBatchDeviceLookup;
+import com.sitewhere.device.spi.persistence.IBulkCreateResult;
+import com.sitewhere.device.spi.persistence.IBulkDeviceCreation;
 import com.sitewhere.grpc.event.EventModelMarshaler;
 import com.sitewhere.microservice.api.device.DeviceManagementDecorator;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
@@ -30,11 +40,14 @@ import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
+import com.sitewhere.spi.device.request.IDeviceCreateRequest;
 
 /**
- * Adds triggers for processing related to device management API calls.
+ * Adds triggers for processing related to device management API calls. Batch
+ * lookups and bulk creates are passed to the delegate if it supports them.
  */
-public class DeviceManagementTriggers extends DeviceManagementDecorator {
+public class DeviceManagementTriggers extends DeviceManagementDecorator
+	implements IBatchDeviceLookup, IBulkDeviceCreation {
 
     /** System event source id */
     private static final String SYSTEM_SOURCE_PREFIX = "system:";
@@ -42,10 +55,22 @@ public class DeviceManagementTriggers extends DeviceManagementDecorator {
     /** Device management tenant engine */
     private IDeviceManagementTenantEngine deviceManagementTenantEngine;
 
+    /** Delegate batch lookups (null if not supported) */
+    private IBatchDeviceLookup batchLookup;
+
+    /** Delegate bulk creates (null if not supported) */
+    private IBulkDeviceCreation bulkCreation;
+
     public DeviceManagementTriggers(IDeviceManagement delegate,
 	    IDeviceManagementTenantEngine deviceManagementTenantEngine) {
 	super(delegate);
 	this.deviceManagementTenantEngine = deviceManagementTenantEngine;
+	if (delegate instanceof IBatchDeviceLookup) {
+	    this.batchLookup = (IBatchDeviceLookup) delegate;
+	}
+	if (delegate instanceof IBulkDeviceCreation) {
+	    this.bulkCreation = (IBulkDeviceCreation) delegate;
+	}
     }
 
     /*
@@ -103,6 +128,146 @@ public class DeviceManagementTriggers extends DeviceManagementDecorator {
 	return updated;
     }
 
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#getDevicesByToken(
+     * java.util.Collection)
+     */
+    @Override
+    public Map<String, IDevice> getDevicesByToken(Collection<String> tokens) throws SiteWhereException {
+	if (batchLookup != null) {
+	    return batchLookup.getDevicesByToken(tokens);
+	}
+	Map<String, IDevice> devices = new HashMap<>();
+	for (String token : tokens) {
+	    IDevice device = super.getDeviceByToken(token);
+	    if (device != null) {
+		devices.put(token, device);
+	    }
+	}
+	return devices;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#getDevicesById(java.
+     * util.Collection)
+     */
+    @Override
+    public Map<UUID, IDevice> getDevicesById(Collection<UUID> ids) throws SiteWhereException {
+	if (batchLookup != null) {
+	    return batchLookup.getDevicesById(ids);
+	}
+	Map<UUID, IDevice> devices = new HashMap<>();
+	for (UUID id : ids) {
+	    IDevice device = super.getDevice(id);
+	    if (device != null) {
+		devices.put(id, device);
+	    }
+	}
+	return devices;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#
+     * getActiveDeviceAssignments(java.util.Collection)
+     */
+    @Override
+    public Map<UUID, List<IDeviceAssignment>> getActiveDeviceAssignments(Collection<UUID> deviceIds)
+	    throws SiteWhereException {
+	if (batchLookup != null) {
+	    return batchLookup.getActiveDeviceAssignments(deviceIds);
+	}
+	Map<UUID, List<IDeviceAssignment>> assignments = new HashMap<>();
+	for (UUID deviceId : deviceIds) {
+	    List<? extends IDeviceAssignment> active = super.getActiveDeviceAssignments(deviceId);
+	    if ((active != null) && !active.isEmpty()) {
+		assignments.put(deviceId, new ArrayList<>(active));
+	    }
+	}
+	return assignments;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBulkDeviceCreation#createDevices(java.
+     * util.List, boolean)
+     */
+    @Override
+    public List<IBulkCreateResult<IDevice>> createDevices(List<? extends IDeviceCreateRequest> requests,
+	    boolean upsert) throws SiteWhereException {
+	if (bulkCreation != null) {
+	    return bulkCreation.createDevices(requests, upsert);
+	}
+	List<IBulkCreateResult<IDevice>> results = new ArrayList<>();
+	for (int i = 0; i < requests.size(); i++) {
+	    IDeviceCreateRequest request = requests.get(i);
+	    BulkCreateResult<IDevice> result = new BulkCreateResult<>(i, request.getToken());
+	    try {
+		IDevice existing = upsert ? super.getDeviceByToken(request.getToken()) : null;
+		if (existing != null) {
+		    result.succeeded(BulkCreateOutcome.Updated, super.updateDevice(existing.getId(), request));
+		} else {
+		    result.succeeded(BulkCreateOutcome.Created, super.createDevice(request));
+		}
+	    } catch (SiteWhereException e) {
+		result.failed(e.getMessage());
+	    }
+	    results.add(result);
+	}
+	return results;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkDeviceCreation#
+     * createDeviceAssignments(java.util.List, boolean)
+     */
+    @Override
+    public List<IBulkCreateResult<IDeviceAssignment>> createDeviceAssignments(
+	    List<? extends IDeviceAssignmentCreateRequest> requests, boolean upsert) throws SiteWhereException {
+	if (bulkCreation == null) {
+	    List<IBulkCreateResult<IDeviceAssignment>> results = new ArrayList<>();
+	    for (int i = 0; i < requests.size(); i++) {
+		IDeviceAssignmentCreateRequest request = requests.get(i);
+		BulkCreateResult<IDeviceAssignment> result = new BulkCreateResult<>(i, request.getToken());
+		try {
+		    IDeviceAssignment existing = (upsert && (request.getToken() != null))
+			    ? super.getDeviceAssignmentByToken(request.getToken())
+			    : null;
+		    if (existing != null) {
+			result.succeeded(BulkCreateOutcome.Updated, updateDeviceAssignment(existing.getId(), request));
+		    } else {
+			result.succeeded(BulkCreateOutcome.Created, createDeviceAssignment(request));
+		    }
+		} catch (SiteWhereException e) {
+		    result.failed(e.getMessage());
+		}
+		results.add(result);
+	    }
+	    return results;
+	}
+
+	// Bulk results bypass the single row triggers, so produce state changes here.
+	List<IBulkCreateResult<IDeviceAssignment>> results = bulkCreation.createDeviceAssignments(requests, upsert);
+	List<UUID> deviceIds = new ArrayList<>();
+	for (IBulkCreateResult<IDeviceAssignment> result : results) {
+	    if (result.getOutcome() != BulkCreateOutcome.Failed) {
+		deviceIds.add(result.getEntity().getDeviceId());
+	    }
+	}
+	Map<UUID, IDevice> devices = deviceIds.isEmpty() ? new HashMap<>() : getDevicesById(deviceIds);
+	for (IBulkCreateResult<IDeviceAssignment> result : results) {
+	    if (result.getOutcome() != BulkCreateOutcome.Failed) {
+		DeviceStateChangeCreateRequest state = new DeviceStateChangeCreateRequest();
+		state.setAttribute(IDeviceStateChangeCreateRequest.ATTRIBUTE_ASSIGNMENT);
+		state.setType(result.getOutcome() == BulkCreateOutcome.Created ? "create" : "update");
+		produceEvent(devices.get(result.getEntity().getDeviceId()), state);
+	    }
+	}
+	return results;
+    }
+
     /**
      * Produce event to Kafka topic for creation by event management.
      * 
@@ -23,9 +23,27 @@ import com.sitewhere.spi.microservice.multitenant.ITenantEngineConfiguration;
  */
 public class DeviceManagementTenantConfiguration implements ITenantEngineConfiguration {
 
+    /** Default maximum number of entities of each type held in reference cache */
+    private static final int DEFAULT_ENTITY_CACHE_MAXIMUM_SIZE = 5000;
+
+    /** Default number of seconds a reference cache entry is valid */
+    private static final int DEFAULT_ENTITY_CACHE_EXPIRATION_SECONDS = 300;
+
+    /** Default number of seconds a resolved token to id mapping is valid */
+    private static final int DEFAULT_TOKEN_CACHE_EXPIRATION_SECONDS = 30;
+
     /** Datastore definition */
     private DatastoreDefinition datastore;
 
+    /** Maximum number of entities of each type held in reference cache */
+    private int entityCacheMaximumSize = DEFAULT_ENTITY_CACHE_MAXIMUM_SIZE;
+
+    /** Number of seconds a reference cache entry is valid */
+    private int entityCacheExpirationSeconds = DEFAULT_ENTITY_CACHE_EXPIRATION_SECONDS;
+
+    /** Number of seconds a resolved token to id mapping is valid */
+    private int tokenCacheExpirationSeconds = DEFAULT_TOKEN_CACHE_EXPIRATION_SECONDS;
+
     public DatastoreDefinition getDatastore() {
 	return datastore;
     }
@@ -33,4 +51,28 @@ public class DeviceManagementTenantConfiguration implements ITenantEngineConfigu
     public void setDatastore(DatastoreDefinition datastore) {
 	this.datastore = datastore;
     }
+
+    public int getEntityCacheMaximumSize() {
+	return entityCacheMaximumSize;
+    }
+
+    public void setEntityCacheMaximumSize(int entityCacheMaximumSize) {
+	this.entityCacheMaximumSize = entityCacheMaximumSize;
+    }
+
+    public int getEntityCacheExpirationSeconds() {
+	return entityCacheExpirationSeconds;
+    }
+
+    public void setEntityCacheExpirationSeconds(int entityCacheExpirationSeconds) {
+	this.entityCacheExpirationSeconds = entityCacheExpirationSeconds;
+    }
+
+    public int getTokenCacheExpirationSeconds() {
+	return tokenCacheExpirationSeconds;
+    }
+
+    public void setTokenCacheExpirationSeconds(int tokenCacheExpirationSeconds) {
+	this.tokenCacheExpirationSeconds = tokenCacheExpirationSeconds;
+    }
 }
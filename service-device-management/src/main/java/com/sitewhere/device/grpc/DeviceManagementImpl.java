@@ -15,21 +15,45 @@
  */
 package com.sitewhere.device.grpc;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+import com.sitewhere.device.persistence.DeviceAssignmentCursorSearchCriteria;
+import com.sitewhere.device.persistence.DeviceCursorSearchCriteria;
 import com.sitewhere.device.spi.microservice.IDeviceManagementMicroservice;
+import com.sitewhere.device.spi.persistence.IBatchDeviceLookup;
+import com.sitewhere.device.spi.persistence.IBulkCreateResult;
+import com.sitewhere.device.spi.persistence.IBulkDeviceCreation;
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.common.CommonModelConverter;
 import com.sitewhere.grpc.device.DeviceModelConverter;
+import com.sitewhere.grpc.extensions.CursorSearchResults;
+import com.sitewhere.grpc.extensions.device.BulkCreateResponse;
+import com.sitewhere.grpc.extensions.device.CursorSearchResponse;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentBulkCreateRequest;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentCursorSearchRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupResponse;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateRequest;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchRequest;
 import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GAreaTypeSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GCustomerSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GCustomerTypeSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceAlarmSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentCreateRequest;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignmentSummarySearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceCommandSearchResults;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceCreateRequest;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceGroupElementsSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceGroupSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GDeviceSearchResults;
@@ -39,6 +63,7 @@ import com.sitewhere.grpc.model.DeviceModel.GDeviceTypeSearchResults;
 import com.sitewhere.grpc.model.DeviceModel.GZoneSearchResults;
 import com.sitewhere.grpc.service.*;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.area.IAreaType;
 import com.sitewhere.spi.area.IZone;
@@ -1593,6 +1618,166 @@ public class DeviceManagementImpl extends DeviceManagementGrpc.DeviceManagementI
 	}
     }
 
+    /**
+     * Get devices with their active assignments for lists of tokens and ids. All
+     * devices are loaded with one query per key type and all assignments with a
+     * single query. Results are keyed by device token and keys that do not match a
+     * device are reported as missing.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesWithActiveAssignments(DeviceBatchLookupRequest request,
+	    StreamObserver<DeviceBatchLookupResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS);
+	    if (!(getDeviceManagement() instanceof IBatchDeviceLookup)) {
+		throw new SiteWhereException("Device management implementation does not support batch lookups.");
+	    }
+	    IBatchDeviceLookup lookup = (IBatchDeviceLookup) getDeviceManagement();
+	    DeviceBatchLookupResponse.Builder response = DeviceBatchLookupResponse.newBuilder();
+
+	    // Resolve devices in request order, skipping duplicates.
+	    Map<UUID, IDevice> devices = new LinkedHashMap<>();
+	    Map<String, IDevice> byToken = request.getTokensList().isEmpty() ? Collections.emptyMap()
+		    : lookup.getDevicesByToken(request.getTokensList());
+	    for (String token : request.getTokensList()) {
+		IDevice device = byToken.get(token);
+		if (device != null) {
+		    devices.putIfAbsent(device.getId(), device);
+		} else {
+		    response.addMissingTokens(token);
+		}
+	    }
+	    List<UUID> ids = CommonModelConverter.asApiUuids(request.getDeviceIdsList());
+	    Map<UUID, IDevice> byId = ids.isEmpty() ? Collections.emptyMap() : lookup.getDevicesById(ids);
+	    for (int i = 0; i < ids.size(); i++) {
+		IDevice device = byId.get(ids.get(i));
+		if (device != null) {
+		    devices.putIfAbsent(device.getId(), device);
+		} else {
+		    response.addMissingDeviceIds(request.getDeviceIds(i));
+		}
+	    }
+
+	    Map<UUID, List<IDeviceAssignment>> assignments = devices.isEmpty() ? Collections.emptyMap()
+		    : lookup.getActiveDeviceAssignments(new ArrayList<>(devices.keySet()));
+	    for (IDevice device : devices.values()) {
+		DeviceBatchLookupResponse.Entry.Builder entry = DeviceBatchLookupResponse.Entry.newBuilder();
+		entry.setToken(device.getToken());
+		entry.setDevice(DeviceModelConverter.asGrpcDevice(device));
+		List<IDeviceAssignment> active = assignments.get(device.getId());
+		if (active != null) {
+		    entry.addAllActiveAssignments(DeviceModelConverter.asGrpcDeviceAssignments(active));
+		}
+		response.addEntries(entry.build());
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS, e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS);
+	}
+    }
+
+    /**
+     * Copy fields common to all entity types from an API bulk create result.
+     * Missing token and error message are left empty.
+     * 
+     * @param api
+     * @return
+     */
+    protected static BulkCreateResponse.Result.Builder asGrpcBulkCreateResult(IBulkCreateResult<?> api) {
+	BulkCreateResponse.Result.Builder result = BulkCreateResponse.Result.newBuilder();
+	result.setIndex(api.getIndex());
+	if (api.getToken() != null) {
+	    result.setToken(api.getToken());
+	}
+	result.setOutcome(BulkCreateResponse.Outcome.valueOf(api.getOutcome().name()));
+	if (api.getErrorMessage() != null) {
+	    result.setErrorMessage(api.getErrorMessage());
+	}
+	return result;
+    }
+
+    /**
+     * Create (or update) many devices in one call. Requests are stored in chunks
+     * and the response carries a result for every row in request order so that a
+     * single bad row does not fail the whole batch.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void bulkCreateDevices(DeviceBulkCreateRequest request,
+	    StreamObserver<BulkCreateResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceBulkCreateGrpc.BULK_CREATE_DEVICES);
+	    if (!(getDeviceManagement() instanceof IBulkDeviceCreation)) {
+		throw new SiteWhereException("Device management implementation does not support bulk creation.");
+	    }
+	    List<IDeviceCreateRequest> apiRequests = new ArrayList<>();
+	    for (GDeviceCreateRequest grpc : request.getRequestsList()) {
+		apiRequests.add(DeviceModelConverter.asApiDeviceCreateRequest(grpc));
+	    }
+	    List<IBulkCreateResult<IDevice>> apiResults = ((IBulkDeviceCreation) getDeviceManagement())
+		    .createDevices(apiRequests, request.getUpsert());
+	    BulkCreateResponse.Builder response = BulkCreateResponse.newBuilder();
+	    for (IBulkCreateResult<IDevice> apiResult : apiResults) {
+		BulkCreateResponse.Result.Builder result = asGrpcBulkCreateResult(apiResult);
+		if (apiResult.getEntity() != null) {
+		    result.setDevice(DeviceModelConverter.asGrpcDevice(apiResult.getEntity()));
+		}
+		response.addResults(result.build());
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceBulkCreateGrpc.BULK_CREATE_DEVICES, e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceBulkCreateGrpc.BULK_CREATE_DEVICES);
+	}
+    }
+
+    /**
+     * Create (or update) many device assignments in one call. The response
+     * carries a result for every row in request order.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void bulkCreateDeviceAssignments(DeviceAssignmentBulkCreateRequest request,
+	    StreamObserver<BulkCreateResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS);
+	    if (!(getDeviceManagement() instanceof IBulkDeviceCreation)) {
+		throw new SiteWhereException("Device management implementation does not support bulk creation.");
+	    }
+	    List<IDeviceAssignmentCreateRequest> apiRequests = new ArrayList<>();
+	    for (GDeviceAssignmentCreateRequest grpc : request.getRequestsList()) {
+		apiRequests.add(DeviceModelConverter.asApiDeviceAssignmentCreateRequest(grpc));
+	    }
+	    List<IBulkCreateResult<IDeviceAssignment>> apiResults = ((IBulkDeviceCreation) getDeviceManagement())
+		    .createDeviceAssignments(apiRequests, request.getUpsert());
+	    BulkCreateResponse.Builder response = BulkCreateResponse.newBuilder();
+	    for (IBulkCreateResult<IDeviceAssignment> apiResult : apiResults) {
+		BulkCreateResponse.Result.Builder result = asGrpcBulkCreateResult(apiResult);
+		if (apiResult.getEntity() != null) {
+		    result.setAssignment(DeviceModelConverter.asGrpcDeviceAssignment(apiResult.getEntity()));
+		}
+		response.addResults(result.build());
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS, e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS);
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -1649,6 +1834,86 @@ public class DeviceManagementImpl extends DeviceManagementGrpc.DeviceManagementI
 	}
     }
 
+    /**
+     * List a page of devices that continues from the position returned with the
+     * previous page rather than from a page offset. The total count is only
+     * calculated if requested.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void listDevicesWithCursor(DeviceCursorSearchRequest request,
+	    StreamObserver<CursorSearchResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR);
+	    DeviceCursorSearchCriteria criteria = DeviceCursorSearchCriteria.from(
+		    DeviceModelConverter.asApiDeviceSearchCriteria(request.getCriteria()),
+		    request.getContinuationToken(), request.getCountRequested());
+	    ISearchResults<? extends IDevice> apiResult = getDeviceManagement().listDevices(criteria);
+	    CursorSearchResponse.Builder response = CursorSearchResponse.newBuilder();
+	    for (IDevice apiDevice : apiResult.getResults()) {
+		response.addDevices(DeviceModelConverter.asGrpcDevice(apiDevice));
+	    }
+	    setCursorResult(response, apiResult);
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR, e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR);
+	}
+    }
+
+    /**
+     * List a page of device assignments that continues from the position returned
+     * with the previous page rather than from a page offset. The total count is
+     * only calculated if requested.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void listDeviceAssignmentsWithCursor(DeviceAssignmentCursorSearchRequest request,
+	    StreamObserver<CursorSearchResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR);
+	    DeviceAssignmentCursorSearchCriteria criteria = DeviceAssignmentCursorSearchCriteria.from(
+		    DeviceModelConverter.asApiDeviceAssignmentSearchCriteria(request.getCriteria()),
+		    request.getContinuationToken(), request.getCountRequested());
+	    ISearchResults<? extends IDeviceAssignment> apiResult = getDeviceManagement()
+		    .listDeviceAssignments(criteria);
+	    CursorSearchResponse.Builder response = CursorSearchResponse.newBuilder();
+	    for (IDeviceAssignment api : apiResult.getResults()) {
+		response.addAssignments(DeviceModelConverter.asGrpcDeviceAssignment(api));
+	    }
+	    setCursorResult(response, apiResult);
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR, e,
+		    responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR);
+	}
+    }
+
+    /**
+     * Copy continuation token and count into a cursor response. Implementations
+     * that do not support cursors return a single page with its count. The token
+     * is left empty on the last page.
+     * 
+     * @param response
+     * @param apiResult
+     */
+    protected static void setCursorResult(CursorSearchResponse.Builder response, ISearchResults<?> apiResult) {
+	if (apiResult instanceof CursorSearchResults) {
+	    String token = ((CursorSearchResults<?>) apiResult).getContinuationToken();
+	    if (token != null) {
+		response.setContinuationToken(token);
+	    }
+	}
+	response.setCount(apiResult.getNumResults());
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
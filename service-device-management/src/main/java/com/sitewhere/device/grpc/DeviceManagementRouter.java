@@ -20,10 +20,24 @@ import org.apache.commons.logging.LogFactory;
 
 import com.sitewhere.device.spi.microservice.IDeviceManagementMicroservice;
 import com.sitewhere.device.spi.microservice.IDeviceManagementTenantEngine;
+import com.sitewhere.grpc.extensions.device.BulkCreateResponse;
+import com.sitewhere.grpc.extensions.device.CursorSearchResponse;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentBulkCreateRequest;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentCursorSearchRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupResponse;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateRequest;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchRequest;
 import com.sitewhere.grpc.service.*;
 import com.sitewhere.microservice.grpc.GrpcTenantEngineProvider;
 import com.sitewhere.spi.microservice.grpc.ITenantEngineCallback;
 
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -46,6 +60,37 @@ public class DeviceManagementRouter extends DeviceManagementGrpc.DeviceManagemen
 	this.grpcTenantEngineProvider = new GrpcTenantEngineProvider<>(microservice);
     }
 
+    /*
+     * @see com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
+     * bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	ServerServiceDefinition generated = super.bindService();
+	ServerServiceDefinition.Builder builder = ServerServiceDefinition
+		.builder(generated.getServiceDescriptor().getName());
+	for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+	    builder.addMethod(method);
+	}
+
+	// Add batch lookup method not present in generated service.
+	builder.addMethod(DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS,
+		ServerCalls.asyncUnaryCall(this::getDevicesWithActiveAssignments));
+
+	// Add bulk create methods not present in generated service.
+	builder.addMethod(DeviceBulkCreateGrpc.BULK_CREATE_DEVICES,
+		ServerCalls.asyncUnaryCall(this::bulkCreateDevices));
+	builder.addMethod(DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS,
+		ServerCalls.asyncUnaryCall(this::bulkCreateDeviceAssignments));
+
+	// Add cursor search methods not present in generated service.
+	builder.addMethod(DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR,
+		ServerCalls.asyncUnaryCall(this::listDevicesWithCursor));
+	builder.addMethod(DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR,
+		ServerCalls.asyncUnaryCall(this::listDeviceAssignmentsWithCursor));
+	return builder.build();
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
@@ -1054,6 +1099,60 @@ public class DeviceManagementRouter extends DeviceManagementGrpc.DeviceManagemen
 	}, responseObserver);
     }
 
+    /**
+     * Get devices with their active assignments for lists of tokens and ids.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getDevicesWithActiveAssignments(DeviceBatchLookupRequest request,
+	    StreamObserver<DeviceBatchLookupResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IDeviceManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IDeviceManagementTenantEngine tenantEngine) {
+		((DeviceManagementImpl) tenantEngine.getDeviceManagementImpl())
+			.getDevicesWithActiveAssignments(request, responseObserver);
+	    }
+	}, responseObserver);
+    }
+
+    /**
+     * Create (or update) many devices in one call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void bulkCreateDevices(DeviceBulkCreateRequest request,
+	    StreamObserver<BulkCreateResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IDeviceManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IDeviceManagementTenantEngine tenantEngine) {
+		((DeviceManagementImpl) tenantEngine.getDeviceManagementImpl()).bulkCreateDevices(request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
+    /**
+     * Create (or update) many device assignments in one call.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void bulkCreateDeviceAssignments(DeviceAssignmentBulkCreateRequest request,
+	    StreamObserver<BulkCreateResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IDeviceManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IDeviceManagementTenantEngine tenantEngine) {
+		((DeviceManagementImpl) tenantEngine.getDeviceManagementImpl()).bulkCreateDeviceAssignments(request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
@@ -1088,6 +1187,24 @@ public class DeviceManagementRouter extends DeviceManagementGrpc.DeviceManagemen
 	}, responseObserver);
     }
 
+    /**
+     * List a page of devices that continues from a previous page.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void listDevicesWithCursor(DeviceCursorSearchRequest request,
+	    StreamObserver<CursorSearchResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IDeviceManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IDeviceManagementTenantEngine tenantEngine) {
+		((DeviceManagementImpl) tenantEngine.getDeviceManagementImpl()).listDevicesWithCursor(request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
@@ -1483,6 +1600,24 @@ public class DeviceManagementRouter extends DeviceManagementGrpc.DeviceManagemen
 	}, responseObserver);
     }
 
+    /**
+     * List a page of device assignments that continues from a previous page.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void listDeviceAssignmentsWithCursor(DeviceAssignmentCursorSearchRequest request,
+	    StreamObserver<CursorSearchResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IDeviceManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IDeviceManagementTenantEngine tenantEngine) {
+		((DeviceManagementImpl) tenantEngine.getDeviceManagementImpl()).listDeviceAssignmentsWithCursor(request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
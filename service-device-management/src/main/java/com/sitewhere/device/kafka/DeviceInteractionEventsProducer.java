@@ -44,6 +44,7 @@ public class DeviceInteractionEventsProducer extends MicroserviceKafkaProducer<U
      */
     @Override
     public String getTargetTopicName() throws SiteWhereException {
-	return getMicroservice().getKafkaTopicNaming().getInboundEventsTopic(getTenantEngine().getTenantResource());
+	return getMicroservice().getKafkaTopicNaming()
+		.getInboundReprocessEventsTopic(getTenantEngine().getTenantResource());
     }
 }
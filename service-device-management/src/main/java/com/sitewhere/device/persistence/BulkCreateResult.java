@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence;
+
+import com.sitewhere.device.spi.persistence.BulkCreateOutcome;
+import com.sitewhere.device.spi.persistence.IBulkCreateResult;
+
+/**
+ * Model object for result of a single row of a bulk create request.
+ *
+ * @param <T>
+ */
+public class BulkCreateResult<T> implements IBulkCreateResult<T> {
+
+    /** Index of request */
+    private int index;
+
+    /** Entity token */
+    private String token;
+
+    /** Outcome */
+    private BulkCreateOutcome outcome;
+
+    /** Created or updated entity */
+    private T entity;
+
+    /** Reason for failure */
+    private String errorMessage;
+
+    public BulkCreateResult(int index, String token) {
+	this.index = index;
+	this.token = token;
+    }
+
+    /**
+     * Mark request as successful.
+     * 
+     * @param outcome
+     * @param entity
+     * @return
+     */
+    public BulkCreateResult<T> succeeded(BulkCreateOutcome outcome, T entity) {
+	this.outcome = outcome;
+	this.entity = entity;
+	this.errorMessage = null;
+	return this;
+    }
+
+    /**
+     * Mark request as failed.
+     * 
+     * @param errorMessage
+     * @return
+     */
+    public BulkCreateResult<T> failed(String errorMessage) {
+	this.outcome = BulkCreateOutcome.Failed;
+	this.entity = null;
+	this.errorMessage = errorMessage;
+	return this;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkCreateResult#getIndex()
+     */
+    @Override
+    public int getIndex() {
+	return index;
+    }
+
+    public void setIndex(int index) {
+	this.index = index;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkCreateResult#getToken()
+     */
+    @Override
+    public String getToken() {
+	return token;
+    }
+
+    public void setToken(String token) {
+	this.token = token;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkCreateResult#getOutcome()
+     */
+    @Override
+    public BulkCreateOutcome getOutcome() {
+	return outcome;
+    }
+
+    public void setOutcome(BulkCreateOutcome outcome) {
+	this.outcome = outcome;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkCreateResult#getEntity()
+     */
+    @Override
+    public T getEntity() {
+	return entity;
+    }
+
+    public void setEntity(T entity) {
+	this.entity = entity;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBulkCreateResult#getErrorMessage()
+     */
+    @Override
+    public String getErrorMessage() {
+	return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+	this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence;
+
+import com.sitewhere.device.spi.persistence.ICursorSearchCriteria;
+import com.sitewhere.rest.model.search.device.DeviceAssignmentSearchCriteria;
+import com.sitewhere.spi.search.device.IDeviceAssignmentSearchCriteria;
+
+/**
+ * Device assignment search criteria that page by continuation token instead of
+ * page number.
+ */
+public class DeviceAssignmentCursorSearchCriteria extends DeviceAssignmentSearchCriteria
+	implements ICursorSearchCriteria {
+
+    /** Opaque token returned by previous search or null for first page */
+    private String continuationToken;
+
+    /** Indicates whether total number of matching assignments should be counted */
+    private boolean countRequested;
+
+    public DeviceAssignmentCursorSearchCriteria(int pageSize, String continuationToken) {
+	super(1, pageSize);
+	this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Create cursor criteria with the same filters as existing criteria.
+     * 
+     * @param criteria
+     * @param continuationToken
+     * @param countRequested
+     * @return
+     */
+    public static DeviceAssignmentCursorSearchCriteria from(IDeviceAssignmentSearchCriteria criteria,
+	    String continuationToken, boolean countRequested) {
+	int pageSize = (criteria.getPageSize() != null) ? criteria.getPageSize() : 0;
+	DeviceAssignmentCursorSearchCriteria cursor = new DeviceAssignmentCursorSearchCriteria(pageSize,
+		continuationToken);
+	cursor.setAssignmentStatuses(criteria.getAssignmentStatuses());
+	cursor.setDeviceTokens(criteria.getDeviceTokens());
+	cursor.setCustomerTokens(criteria.getCustomerTokens());
+	cursor.setAreaTokens(criteria.getAreaTokens());
+	cursor.setAssetTokens(criteria.getAssetTokens());
+	cursor.setCountRequested(countRequested);
+	return cursor;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.ICursorSearchCriteria#
+     * getContinuationToken()
+     */
+    @Override
+    public String getContinuationToken() {
+	return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+	this.continuationToken = continuationToken;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.ICursorSearchCriteria#isCountRequested()
+     */
+    @Override
+    public boolean isCountRequested() {
+	return countRequested;
+    }
+
+    public void setCountRequested(boolean countRequested) {
+	this.countRequested = countRequested;
+    }
+}
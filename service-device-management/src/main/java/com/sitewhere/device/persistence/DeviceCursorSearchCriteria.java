@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence;
+
+import java.util.Date;
+
+import com.sitewhere.device.spi.persistence.ICursorSearchCriteria;
+import com.sitewhere.rest.model.search.device.DeviceSearchCriteria;
+import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
+
+/**
+ * Device search criteria that page by continuation token instead of page
+ * number.
+ */
+public class DeviceCursorSearchCriteria extends DeviceSearchCriteria implements ICursorSearchCriteria {
+
+    /** Opaque token returned by previous search or null for first page */
+    private String continuationToken;
+
+    /** Indicates whether total number of matching devices should be counted */
+    private boolean countRequested;
+
+    public DeviceCursorSearchCriteria(int pageSize, Date startDate, Date endDate, String continuationToken) {
+	super(1, pageSize, startDate, endDate);
+	this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Create cursor criteria with the same filters as existing criteria.
+     * 
+     * @param criteria
+     * @param continuationToken
+     * @param countRequested
+     * @return
+     */
+    public static DeviceCursorSearchCriteria from(IDeviceSearchCriteria criteria, String continuationToken,
+	    boolean countRequested) {
+	int pageSize = (criteria.getPageSize() != null) ? criteria.getPageSize() : 0;
+	DeviceCursorSearchCriteria cursor = new DeviceCursorSearchCriteria(pageSize, criteria.getStartDate(),
+		criteria.getEndDate(), continuationToken);
+	cursor.setDeviceTypeToken(criteria.getDeviceTypeToken());
+	cursor.setExcludeAssigned(criteria.isExcludeAssigned());
+	cursor.setCountRequested(countRequested);
+	return cursor;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.ICursorSearchCriteria#
+     * getContinuationToken()
+     */
+    @Override
+    public String getContinuationToken() {
+	return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+	this.continuationToken = continuationToken;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.ICursorSearchCriteria#isCountRequested()
+     */
+    @Override
+    public boolean isCountRequested() {
+	return countRequested;
+    }
+
+    public void setCountRequested(boolean countRequested) {
+	this.countRequested = countRequested;
+    }
+}
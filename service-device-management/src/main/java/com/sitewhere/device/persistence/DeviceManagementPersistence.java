@@ -534,11 +534,11 @@ public class DeviceManagementPersistence extends Persistence {
 	Device device = new Device();
 	Persistence.entityCreateLogic(request, device);
 
-	Matcher matcher = HARDWARE_ID_REGEX.matcher(request.getToken());
+	// Token is taken from the request or generated if not specified.
+	Matcher matcher = HARDWARE_ID_REGEX.matcher(device.getToken());
 	if (!matcher.matches()) {
 	    throw new SiteWhereSystemException(ErrorCode.MalformedHardwareId, ErrorLevel.ERROR);
 	}
-	device.setToken(request.getToken());
 	device.setDeviceTypeId(deviceType.getId());
 	device.setParentDeviceId(parentDevice != null ? parentDevice.getId() : null);
 	device.setComments(request.getComments());
@@ -0,0 +1,187 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence.rdb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import com.sitewhere.device.spi.persistence.ICursorSearchCriteria;
+import com.sitewhere.grpc.extensions.CursorSearchResults;
+import com.sitewhere.rdb.spi.IRdbEntityManagerProvider;
+import com.sitewhere.rdb.spi.IRdbQueryProvider;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.common.IPersistentEntity;
+
+/**
+ * Seek-based paging for entity searches. Results are ordered by created date
+ * and id, newest first, and each page continues below the last row of the
+ * previous page instead of skipping rows with an offset. Paired with an index
+ * on (created_date, id), the cost of a page does not grow with its depth.
+ */
+public class RdbCursorPaging {
+
+    /** Attribute used as sort key */
+    private static final String SORT_ATTRIBUTE = "createdDate";
+
+    /** Attribute used to order rows with the same sort key */
+    private static final String ID_ATTRIBUTE = "id";
+
+    /**
+     * Find one page of entities matching the predicates of a query provider. The
+     * sort order of the query provider is not used. The total count is only
+     * queried when requested by the criteria.
+     * 
+     * @param provider
+     * @param criteria
+     * @param queryProvider
+     * @param clazz
+     * @return
+     * @throws SiteWhereException
+     */
+    public static <T extends IPersistentEntity> CursorSearchResults<T> findWithCursor(
+	    IRdbEntityManagerProvider provider, ICursorSearchCriteria criteria, IRdbQueryProvider<T> queryProvider,
+	    Class<T> clazz) throws SiteWhereException {
+	Position position = decodeContinuationToken(criteria.getContinuationToken());
+	EntityManager entityManager = provider.getEntityManager();
+	CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+	CriteriaQuery<T> query = cb.createQuery(clazz);
+	Root<T> root = query.from(clazz);
+	List<Predicate> predicates = new ArrayList<>();
+	queryProvider.addPredicates(cb, predicates, root);
+	Path<Date> created = root.get(SORT_ATTRIBUTE);
+	Path<UUID> id = root.get(ID_ATTRIBUTE);
+	if (position != null) {
+	    predicates.add(cb.or(cb.lessThan(created, position.getCreatedDate()),
+		    cb.and(cb.equal(created, position.getCreatedDate()), cb.lessThan(id, position.getId()))));
+	}
+	query.select(root).where(predicates.toArray(new Predicate[0])).orderBy(cb.desc(created), cb.desc(id));
+
+	// Read one extra row to find out whether another page exists.
+	int pageSize = ((criteria.getPageSize() != null) && (criteria.getPageSize() > 0)) ? criteria.getPageSize()
+		: 0;
+	TypedQuery<T> typed = entityManager.createQuery(query);
+	if (pageSize > 0) {
+	    typed.setMaxResults(pageSize + 1);
+	}
+	List<T> results = typed.getResultList();
+	String next = null;
+	if ((pageSize > 0) && (results.size() > pageSize)) {
+	    results = new ArrayList<>(results.subList(0, pageSize));
+	    T last = results.get(pageSize - 1);
+	    next = encodeContinuationToken(last.getCreatedDate(), last.getId());
+	}
+
+	long count = -1;
+	if (criteria.isCountRequested()) {
+	    count = count(entityManager, queryProvider, clazz);
+	}
+	return new CursorSearchResults<T>(results, count, next);
+    }
+
+    /**
+     * Count all entities matching the predicates of a query provider.
+     * 
+     * @param entityManager
+     * @param queryProvider
+     * @param clazz
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static <T> long count(EntityManager entityManager, IRdbQueryProvider<T> queryProvider, Class<T> clazz)
+	    throws SiteWhereException {
+	CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+	CriteriaQuery<Long> query = cb.createQuery(Long.class);
+	Root<T> root = query.from(clazz);
+	List<Predicate> predicates = new ArrayList<>();
+	queryProvider.addPredicates(cb, predicates, root);
+	query.select(cb.count(root)).where(predicates.toArray(new Predicate[0]));
+	return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Encode search position as an opaque token.
+     * 
+     * @param createdDate
+     * @param id
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static String encodeContinuationToken(Date createdDate, UUID id) throws SiteWhereException {
+	if (createdDate == null) {
+	    throw new SiteWhereException("Unable to continue search after entity without created date: " + id);
+	}
+	String raw = createdDate.getTime() + ":" + id;
+	return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode search position from a token. Returns null if no token was passed.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static Position decodeContinuationToken(String token) throws SiteWhereException {
+	if ((token == null) || (token.length() == 0)) {
+	    return null;
+	}
+	try {
+	    String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+	    String[] parts = raw.split(":");
+	    return new Position(new Date(Long.parseLong(parts[0])), UUID.fromString(parts[1]));
+	} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+	    throw new SiteWhereException("Invalid continuation token: " + token, e);
+	}
+    }
+
+    /**
+     * Sort key and id of the last entity returned by a search.
+     */
+    protected static class Position {
+
+	/** Created date of last entity */
+	private Date createdDate;
+
+	/** Id of last entity */
+	private UUID id;
+
+	public Position(Date createdDate, UUID id) {
+	    this.createdDate = createdDate;
+	    this.id = id;
+	}
+
+	public Date getCreatedDate() {
+	    return createdDate;
+	}
+
+	public UUID getId() {
+	    return id;
+	}
+    }
+}
@@ -17,9 +17,13 @@ package com.sitewhere.device.persistence.rdb;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.Query;
@@ -31,8 +35,8 @@ import javax.persistence.criteria.Root;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.sitewhere.device.DeviceManagementUtils;
 import com.sitewhere.device.microservice.DeviceManagementMicroservice;
+import com.sitewhere.device.persistence.BulkCreateResult;
 import com.sitewhere.device.persistence.DeviceManagementPersistence;
 import com.sitewhere.device.persistence.TreeBuilder;
 import com.sitewhere.device.persistence.rdb.entity.Queries;
@@ -56,6 +60,11 @@ import com.sitewhere.device.persistence.rdb.entity.RdbLocation;
 import com.sitewhere.device.persistence.rdb.entity.RdbZone;
 import com.sitewhere.device.persistence.rdb.entity.RdbZoneBoundary;
 import com.sitewhere.device.spi.microservice.IDeviceManagementTenantEngine;
+import com.sitewhere.device.spi.persistence.BulkCreateOutcome;
+import com.sitewhere.device.spi.persistence.IBatchDeviceLookup;
+import com.sitewhere.device.spi.persistence.IBulkCreateResult;
+import com.sitewhere.device.spi.persistence.IBulkDeviceCreation;
+import com.sitewhere.device.spi.persistence.ICursorSearchCriteria;
 import com.sitewhere.microservice.api.asset.IAssetManagement;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.rdb.RdbTenantComponent;
@@ -118,6 +127,7 @@ import com.sitewhere.spi.device.request.IDeviceStatusCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceTypeCreateRequest;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.search.ISearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.search.ITreeNode;
@@ -134,7 +144,51 @@ import com.sitewhere.spi.search.device.IZoneSearchCriteria;
  * Device management implementation that uses a relational database for
  * persistence.
  */
-public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceManagement {
+public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceManagement, IBatchDeviceLookup,
+	IBulkDeviceCreation {
+
+    /** Maximum number of values bound to a single IN clause */
+    private static final int MAX_IN_PARAMETERS = 500;
+
+    /** Maximum number of rows written in a single bulk create transaction */
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    /** Cache for reference data looked up by id or token */
+    private RdbReferenceDataCache referenceDataCache;
+
+    /*
+     * @see com.sitewhere.microservice.lifecycle.LifecycleComponent#initialize(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.referenceDataCache = new RdbReferenceDataCache();
+
+	super.initialize(monitor);
+	initializeNestedComponent(getReferenceDataCache(), monitor, true);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.start(monitor);
+	startNestedComponent(getReferenceDataCache(), monitor, true);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.stop(monitor);
+	stopNestedComponent(getReferenceDataCache(), monitor);
+    }
 
     /*
      * @see
@@ -161,7 +215,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceType getDeviceType(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbDeviceType.class);
+	return getReferenceDataCache().getDeviceTypes().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbDeviceType.class));
     }
 
     /*
@@ -171,9 +226,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceType getDeviceTypeByToken(String token) throws SiteWhereException {
-	Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_TYPE_BY_TOKEN);
-	query.setParameter("token", token);
-	return getEntityManagerProvider().findOne(query, RdbDeviceType.class);
+	return getReferenceDataCache().getDeviceTypes().getByToken(token, () -> {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_TYPE_BY_TOKEN);
+	    query.setParameter("token", token);
+	    return getEntityManagerProvider().findOne(query, RdbDeviceType.class);
+	});
     }
 
     /*
@@ -190,7 +247,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    // Use common update logic.
 	    DeviceManagementPersistence.deviceTypeUpdateLogic(request, updates);
 	    RdbDeviceType.copy(updates, existing);
-	    return getEntityManagerProvider().merge(existing);
+	    RdbDeviceType updated = getEntityManagerProvider().merge(existing);
+	    getReferenceDataCache().getDeviceTypes().invalidate(id);
+	    return updated;
 	}
 	return null;
     }
@@ -256,7 +315,13 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    throw new SiteWhereException("Invalid device type id.");
 	}
 	validateNoExistingDevices(existing);
-	return getEntityManagerProvider().remove(id, RdbDeviceType.class);
+	RdbDeviceType deleted = getEntityManagerProvider().remove(id, RdbDeviceType.class);
+
+	// Commands and statuses are removed along with the device type.
+	getReferenceDataCache().getDeviceTypes().invalidate(id);
+	getReferenceDataCache().getDeviceCommands().invalidateAll();
+	getReferenceDataCache().getDeviceStatuses().invalidateAll();
+	return deleted;
     }
 
     /*
@@ -300,7 +365,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceCommand getDeviceCommand(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbDeviceCommand.class);
+	return getReferenceDataCache().getDeviceCommands().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbDeviceCommand.class));
     }
 
     /*
@@ -309,9 +375,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceCommand getDeviceCommandByToken(UUID deviceTypeId, String token) throws SiteWhereException {
-	Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_COMMAND_BY_TOKEN);
-	query.setParameter("token", token);
-	return getEntityManagerProvider().findOne(query, RdbDeviceCommand.class);
+	return getReferenceDataCache().getDeviceCommands().getByToken(token, () -> {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_COMMAND_BY_TOKEN);
+	    query.setParameter("token", token);
+	    return getEntityManagerProvider().findOne(query, RdbDeviceCommand.class);
+	});
     }
 
     /**
@@ -386,17 +454,21 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	ISearchResults<? extends IDeviceCommand> all = listDeviceCommands(criteria);
 
 	// Use common update logic.
-	return getEntityManagerProvider().runInTransaction(new ITransactionCallback<RdbDeviceCommand>() {
+	RdbDeviceCommand updated = getEntityManagerProvider()
+		.runInTransaction(new ITransactionCallback<RdbDeviceCommand>() {
 
-	    @Override
-	    public RdbDeviceCommand process() throws SiteWhereException {
-		DeviceCommand updates = new DeviceCommand();
-		DeviceManagementPersistence.deviceCommandUpdateLogic(deviceType, request, updates, all.getResults());
-		mergeDeviceCommandParameters(request, existing);
-		RdbDeviceCommand.copy(updates, existing);
-		return getEntityManagerProvider().merge(existing);
-	    }
-	});
+		    @Override
+		    public RdbDeviceCommand process() throws SiteWhereException {
+			DeviceCommand updates = new DeviceCommand();
+			DeviceManagementPersistence.deviceCommandUpdateLogic(deviceType, request, updates,
+				all.getResults());
+			mergeDeviceCommandParameters(request, existing);
+			RdbDeviceCommand.copy(updates, existing);
+			return getEntityManagerProvider().merge(existing);
+		    }
+		});
+	getReferenceDataCache().getDeviceCommands().invalidate(id);
+	return updated;
     }
 
     /*
@@ -446,7 +518,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceCommand deleteDeviceCommand(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbDeviceCommand.class);
+	RdbDeviceCommand deleted = getEntityManagerProvider().remove(id, RdbDeviceCommand.class);
+	getReferenceDataCache().getDeviceCommands().invalidate(id);
+	return deleted;
     }
 
     /*
@@ -483,7 +557,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceStatus getDeviceStatus(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbDeviceStatus.class);
+	return getReferenceDataCache().getDeviceStatuses().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbDeviceStatus.class));
     }
 
     /*
@@ -492,9 +567,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceStatus getDeviceStatusByToken(UUID deviceTypeId, String token) throws SiteWhereException {
-	Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_STATUS_BY_TOKEN);
-	query.setParameter("token", token);
-	return getEntityManagerProvider().findOne(query, RdbDeviceStatus.class);
+	return getReferenceDataCache().getDeviceStatuses().getByToken(token, () -> {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_STATUS_BY_TOKEN);
+	    query.setParameter("token", token);
+	    return getEntityManagerProvider().findOne(query, RdbDeviceStatus.class);
+	});
     }
 
     /*
@@ -521,7 +598,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    DeviceStatus updates = new DeviceStatus();
 	    DeviceManagementPersistence.deviceStatusUpdateLogic(deviceType, request, updates, all.getResults());
 	    RdbDeviceStatus.copy(updates, existing);
-	    return getEntityManagerProvider().merge(existing);
+	    RdbDeviceStatus updated = getEntityManagerProvider().merge(existing);
+	    getReferenceDataCache().getDeviceStatuses().invalidate(id);
+	    return updated;
 	}
 	return null;
     }
@@ -576,7 +655,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDeviceStatus deleteDeviceStatus(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbDeviceStatus.class);
+	RdbDeviceStatus deleted = getEntityManagerProvider().remove(id, RdbDeviceStatus.class);
+	getReferenceDataCache().getDeviceStatuses().invalidate(id);
+	return deleted;
     }
 
     /*
@@ -627,6 +708,402 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	return getEntityManagerProvider().findOne(query, RdbDevice.class);
     }
 
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#getDevicesByToken(
+     * java.util.Collection)
+     */
+    @Override
+    public Map<String, IDevice> getDevicesByToken(Collection<String> tokens) throws SiteWhereException {
+	Map<String, IDevice> devices = new HashMap<>();
+	for (List<String> chunk : partition(tokens)) {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICES_BY_TOKENS);
+	    query.setParameter("tokens", chunk);
+	    for (RdbDevice device : getEntityManagerProvider().findMany(query, RdbDevice.class)) {
+		devices.put(device.getToken(), device);
+	    }
+	}
+	return devices;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#getDevicesById(java.
+     * util.Collection)
+     */
+    @Override
+    public Map<UUID, IDevice> getDevicesById(Collection<UUID> ids) throws SiteWhereException {
+	Map<UUID, IDevice> devices = new HashMap<>();
+	for (List<UUID> chunk : partition(ids)) {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICES_BY_IDS);
+	    query.setParameter("ids", chunk);
+	    for (RdbDevice device : getEntityManagerProvider().findMany(query, RdbDevice.class)) {
+		devices.put(device.getId(), device);
+	    }
+	}
+	return devices;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBatchDeviceLookup#
+     * getActiveDeviceAssignments(java.util.Collection)
+     */
+    @Override
+    public Map<UUID, List<IDeviceAssignment>> getActiveDeviceAssignments(Collection<UUID> deviceIds)
+	    throws SiteWhereException {
+	Map<UUID, List<IDeviceAssignment>> assignments = new HashMap<>();
+	for (List<UUID> chunk : partition(deviceIds)) {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_ASSIGNMENTS_BY_DEVICES_AND_STATUS);
+	    query.setParameter("deviceIds", chunk);
+	    query.setParameter("status", DeviceAssignmentStatus.Active);
+	    for (RdbDeviceAssignment assignment : getEntityManagerProvider().findMany(query,
+		    RdbDeviceAssignment.class)) {
+		assignments.computeIfAbsent(assignment.getDeviceId(), id -> new ArrayList<>()).add(assignment);
+	    }
+	}
+	return assignments;
+    }
+
+    /**
+     * Split distinct keys into lists small enough to bind to an IN clause.
+     * 
+     * @param keys
+     * @return
+     */
+    protected static <T> List<List<T>> partition(Collection<T> keys) {
+	List<T> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+	List<List<T>> chunks = new ArrayList<>();
+	for (int i = 0; i < distinct.size(); i += MAX_IN_PARAMETERS) {
+	    chunks.add(distinct.subList(i, Math.min(i + MAX_IN_PARAMETERS, distinct.size())));
+	}
+	return chunks;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.device.spi.persistence.IBulkDeviceCreation#createDevices(java.
+     * util.List, boolean)
+     */
+    @Override
+    public List<IBulkCreateResult<IDevice>> createDevices(List<? extends IDeviceCreateRequest> requests,
+	    boolean upsert) throws SiteWhereException {
+	List<IBulkCreateResult<IDevice>> results = new ArrayList<>();
+	for (int start = 0; start < requests.size(); start += BULK_CHUNK_SIZE) {
+	    List<? extends IDeviceCreateRequest> chunk = requests.subList(start,
+		    Math.min(start + BULK_CHUNK_SIZE, requests.size()));
+	    results.addAll(createDeviceChunk(start, chunk, upsert));
+	}
+	return results;
+    }
+
+    /**
+     * Create or update a chunk of devices in a single transaction. Existing and
+     * parent devices are resolved with one query before any rows are written.
+     * Rows that fail validation are reported without affecting the others, while
+     * a datastore error rolls back the whole chunk.
+     * 
+     * @param offset
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<BulkCreateResult<IDevice>> createDeviceChunk(int offset,
+	    List<? extends IDeviceCreateRequest> requests, boolean upsert) throws SiteWhereException {
+	List<String> tokens = new ArrayList<>();
+	for (IDeviceCreateRequest request : requests) {
+	    if (request.getToken() != null) {
+		tokens.add(request.getToken());
+	    }
+	    if (request.getParentDeviceToken() != null) {
+		tokens.add(request.getParentDeviceToken());
+	    }
+	}
+	Map<String, IDevice> devices = getDevicesByToken(tokens);
+
+	List<BulkCreateResult<IDevice>> results = new ArrayList<>();
+	try {
+	    getEntityManagerProvider().runInTransaction(new ITransactionCallback<Void>() {
+
+		/*
+		 * @see com.sitewhere.rdb.spi.ITransactionCallback#process()
+		 */
+		@Override
+		public Void process() throws SiteWhereException {
+		    Set<String> written = new HashSet<>();
+		    for (int i = 0; i < requests.size(); i++) {
+			IDeviceCreateRequest request = requests.get(i);
+			BulkCreateResult<IDevice> result = new BulkCreateResult<>(offset + i, request.getToken());
+			results.add(result);
+
+			boolean exists = devices.containsKey(request.getToken());
+			RdbDevice device;
+			try {
+			    if (written.contains(request.getToken())) {
+				throw new SiteWhereException(String.format(
+					"Device token '%s' is used more than once in request.", request.getToken()));
+			    }
+			    device = prepareBulkDevice(request, devices, upsert);
+			} catch (SiteWhereException e) {
+			    result.failed(e.getMessage());
+			    continue;
+			}
+			device = exists ? getEntityManagerProvider().merge(device)
+				: getEntityManagerProvider().persist(device);
+			result.setToken(device.getToken());
+			result.succeeded(exists ? BulkCreateOutcome.Updated : BulkCreateOutcome.Created, device);
+			devices.put(device.getToken(), device);
+			written.add(device.getToken());
+		    }
+		    return null;
+		}
+	    });
+	} catch (SiteWhereException e) {
+	    failBulkChunk(results, e);
+	}
+	return results;
+    }
+
+    /**
+     * Validate a bulk device request against pre-fetched devices and build the
+     * entity to be written. As with single creates, a token is generated for
+     * requests that do not include one.
+     * 
+     * @param request
+     * @param devices
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    protected RdbDevice prepareBulkDevice(IDeviceCreateRequest request, Map<String, IDevice> devices,
+	    boolean upsert) throws SiteWhereException {
+	// Device types are served from the reference data cache.
+	RdbDeviceType deviceType = null;
+	if (request.getDeviceTypeToken() != null) {
+	    deviceType = getDeviceTypeByToken(request.getDeviceTypeToken());
+	    if (deviceType == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceTypeToken, ErrorLevel.ERROR);
+	    }
+	}
+
+	IDevice parent = null;
+	if (request.getParentDeviceToken() != null) {
+	    parent = devices.get(request.getParentDeviceToken());
+	    if (parent == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceToken, ErrorLevel.ERROR);
+	    }
+	}
+
+	RdbDevice existing = (RdbDevice) devices.get(request.getToken());
+	if (existing == null) {
+	    if (deviceType == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceTypeToken, ErrorLevel.ERROR);
+	    }
+	    Device device = DeviceManagementPersistence.deviceCreateLogic(request, deviceType, parent);
+	    RdbDevice created = new RdbDevice();
+	    RdbDevice.copy(device, created);
+	    return created;
+	}
+	if (!upsert) {
+	    throw new SiteWhereSystemException(ErrorCode.DuplicateHardwareId, ErrorLevel.ERROR);
+	}
+	Device updates = new Device();
+	DeviceManagementPersistence.deviceUpdateLogic(request, deviceType, parent, updates);
+	RdbDevice.copy(updates, existing);
+	return existing;
+    }
+
+    /*
+     * @see com.sitewhere.device.spi.persistence.IBulkDeviceCreation#
+     * createDeviceAssignments(java.util.List, boolean)
+     */
+    @Override
+    public List<IBulkCreateResult<IDeviceAssignment>> createDeviceAssignments(
+	    List<? extends IDeviceAssignmentCreateRequest> requests, boolean upsert) throws SiteWhereException {
+	List<IBulkCreateResult<IDeviceAssignment>> results = new ArrayList<>();
+	for (int start = 0; start < requests.size(); start += BULK_CHUNK_SIZE) {
+	    List<? extends IDeviceAssignmentCreateRequest> chunk = requests.subList(start,
+		    Math.min(start + BULK_CHUNK_SIZE, requests.size()));
+	    results.addAll(createDeviceAssignmentChunk(start, chunk, upsert));
+	}
+	return results;
+    }
+
+    /**
+     * Create or update a chunk of device assignments in a single transaction.
+     * Devices and existing assignments are resolved with one query each and asset
+     * ids through the reference data cache before any rows are written. A failed
+     * asset lookup is recorded against each row that references the asset.
+     * 
+     * @param offset
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<BulkCreateResult<IDeviceAssignment>> createDeviceAssignmentChunk(int offset,
+	    List<? extends IDeviceAssignmentCreateRequest> requests, boolean upsert) throws SiteWhereException {
+	List<String> deviceTokens = new ArrayList<>();
+	List<String> assignmentTokens = new ArrayList<>();
+	List<String> assetTokens = new ArrayList<>();
+	for (IDeviceAssignmentCreateRequest request : requests) {
+	    if (request.getDeviceToken() != null) {
+		deviceTokens.add(request.getDeviceToken());
+	    }
+	    if (request.getToken() != null) {
+		assignmentTokens.add(request.getToken());
+	    }
+	    if (request.getAssetToken() != null) {
+		assetTokens.add(request.getAssetToken());
+	    }
+	}
+	Map<String, String> assetErrors = new HashMap<>();
+	Map<String, UUID> assetIds = getAssetIdsByToken(assetTokens, assetErrors);
+	Map<String, IDevice> devices = getDevicesByToken(deviceTokens);
+	Map<String, RdbDeviceAssignment> assignments = new HashMap<>();
+	for (List<String> chunk : partition(assignmentTokens)) {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_DEVICE_ASSIGNMENTS_BY_TOKENS);
+	    query.setParameter("tokens", chunk);
+	    for (RdbDeviceAssignment assignment : getEntityManagerProvider().findMany(query,
+		    RdbDeviceAssignment.class)) {
+		assignments.put(assignment.getToken(), assignment);
+	    }
+	}
+
+	List<BulkCreateResult<IDeviceAssignment>> results = new ArrayList<>();
+	try {
+	    getEntityManagerProvider().runInTransaction(new ITransactionCallback<Void>() {
+
+		/*
+		 * @see com.sitewhere.rdb.spi.ITransactionCallback#process()
+		 */
+		@Override
+		public Void process() throws SiteWhereException {
+		    Set<String> written = new HashSet<>();
+		    for (int i = 0; i < requests.size(); i++) {
+			IDeviceAssignmentCreateRequest request = requests.get(i);
+			BulkCreateResult<IDeviceAssignment> result = new BulkCreateResult<>(offset + i,
+				request.getToken());
+			results.add(result);
+
+			boolean exists = (request.getToken() != null) && assignments.containsKey(request.getToken());
+			RdbDeviceAssignment assignment;
+			try {
+			    if ((request.getToken() != null) && written.contains(request.getToken())) {
+				throw new SiteWhereException(
+					String.format("Assignment token '%s' is used more than once in request.",
+						request.getToken()));
+			    }
+			    if ((request.getAssetToken() != null) && assetErrors.containsKey(request.getAssetToken())) {
+				throw new SiteWhereException(assetErrors.get(request.getAssetToken()));
+			    }
+			    assignment = prepareBulkDeviceAssignment(request, devices, assetIds, assignments, upsert);
+			} catch (SiteWhereException e) {
+			    result.failed(e.getMessage());
+			    continue;
+			}
+			assignment = exists ? getEntityManagerProvider().merge(assignment)
+				: getEntityManagerProvider().persist(assignment);
+			result.setToken(assignment.getToken());
+			result.succeeded(exists ? BulkCreateOutcome.Updated : BulkCreateOutcome.Created, assignment);
+			written.add(assignment.getToken());
+		    }
+		    return null;
+		}
+	    });
+	} catch (SiteWhereException e) {
+	    failBulkChunk(results, e);
+	}
+	return results;
+    }
+
+    /**
+     * Validate a bulk assignment request against pre-fetched references and build
+     * the entity to be written.
+     * 
+     * @param request
+     * @param devices
+     * @param assetIds
+     * @param assignments
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    protected RdbDeviceAssignment prepareBulkDeviceAssignment(IDeviceAssignmentCreateRequest request,
+	    Map<String, IDevice> devices, Map<String, UUID> assetIds, Map<String, RdbDeviceAssignment> assignments,
+	    boolean upsert) throws SiteWhereException {
+	IDevice device = null;
+	if (request.getDeviceToken() != null) {
+	    device = devices.get(request.getDeviceToken());
+	    if (device == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceToken, ErrorLevel.ERROR);
+	    }
+	}
+
+	// Customers and areas are served from the reference data cache.
+	ICustomer customer = null;
+	if (request.getCustomerToken() != null) {
+	    customer = getCustomerByToken(request.getCustomerToken());
+	    if (customer == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidCustomerToken, ErrorLevel.ERROR);
+	    }
+	}
+	IArea area = null;
+	if (request.getAreaToken() != null) {
+	    area = getAreaByToken(request.getAreaToken());
+	    if (area == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
+	    }
+	}
+	UUID assetId = null;
+	if (request.getAssetToken() != null) {
+	    assetId = assetIds.get(request.getAssetToken());
+	    if (assetId == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidAssetToken, ErrorLevel.ERROR);
+	    }
+	}
+
+	RdbDeviceAssignment existing = (request.getToken() != null) ? assignments.get(request.getToken()) : null;
+	if (existing == null) {
+	    if (device == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceToken, ErrorLevel.ERROR);
+	    }
+	    DeviceAssignment assignment = DeviceManagementPersistence.deviceAssignmentCreateLogic(request, customer,
+		    area, null, device);
+	    assignment.setAssetId(assetId);
+	    RdbDeviceAssignment created = new RdbDeviceAssignment();
+	    RdbDeviceAssignment.copy(assignment, created);
+	    return created;
+	}
+	if (!upsert) {
+	    throw new SiteWhereException(
+		    String.format("Assignment token '%s' is already in use.", request.getToken()));
+	}
+	DeviceAssignment updates = new DeviceAssignment();
+	DeviceManagementPersistence.deviceAssignmentUpdateLogic(device, customer, area, null, request, updates);
+	if (assetId != null) {
+	    updates.setAssetId(assetId);
+	}
+	RdbDeviceAssignment.copy(updates, existing);
+	return existing;
+    }
+
+    /**
+     * Mark rows of a chunk as failed after its transaction was rolled back.
+     * 
+     * @param results
+     * @param e
+     */
+    protected <T> void failBulkChunk(List<BulkCreateResult<T>> results, SiteWhereException e) {
+	getLogger().error("Bulk create transaction was rolled back.", e);
+	for (BulkCreateResult<T> result : results) {
+	    if (result.getOutcome() != BulkCreateOutcome.Failed) {
+		result.failed(String.format("Not stored because transaction was rolled back: %s", e.getMessage()));
+	    }
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.microservice.api.device.IDeviceManagement#updateDevice(java.
@@ -652,7 +1129,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    Device updates = new Device();
 	    DeviceManagementPersistence.deviceUpdateLogic(request, deviceType, parent, updates);
 	    RdbDevice.copy(updates, existing);
-	    return getEntityManagerProvider().merge(existing);
+	    RdbDevice updated = getEntityManagerProvider().merge(existing);
+	    getReferenceDataCache().getDeviceIds().invalidate(id);
+	    return updated;
 	}
 	throw new SiteWhereSystemException(ErrorCode.InvalidDeviceId, ErrorLevel.ERROR);
     }
@@ -663,7 +1142,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public ISearchResults<RdbDevice> listDevices(IDeviceSearchCriteria criteria) throws SiteWhereException {
-	return getEntityManagerProvider().findWithCriteria(criteria, new IRdbQueryProvider<RdbDevice>() {
+	IRdbQueryProvider<RdbDevice> provider = new IRdbQueryProvider<RdbDevice>() {
 
 	    /*
 	     * @see com.sitewhere.rdb.spi.IRdbQueryProvider#addPredicates(javax.persistence.
@@ -699,7 +1178,12 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 		    CriteriaQuery<RdbDevice> query) {
 		return query.orderBy(cb.desc(root.get("createdDate")));
 	    }
-	}, RdbDevice.class);
+	};
+	if (criteria instanceof ICursorSearchCriteria) {
+	    return RdbCursorPaging.findWithCursor(getEntityManagerProvider(), (ICursorSearchCriteria) criteria,
+		    provider, RdbDevice.class);
+	}
+	return getEntityManagerProvider().findWithCriteria(criteria, provider, RdbDevice.class);
     }
 
     /*
@@ -777,7 +1261,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbDevice deleteDevice(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbDevice.class);
+	RdbDevice deleted = getEntityManagerProvider().remove(id, RdbDevice.class);
+	getReferenceDataCache().getDeviceIds().invalidate(id);
+	return deleted;
     }
 
     /*
@@ -927,7 +1413,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
     @Override
     public ISearchResults<RdbDeviceAssignment> listDeviceAssignments(IDeviceAssignmentSearchCriteria criteria)
 	    throws SiteWhereException {
-	return getEntityManagerProvider().findWithCriteria(criteria, new IRdbQueryProvider<RdbDeviceAssignment>() {
+	IRdbQueryProvider<RdbDeviceAssignment> provider = new IRdbQueryProvider<RdbDeviceAssignment>() {
 
 	    /*
 	     * @see com.sitewhere.rdb.spi.IRdbQueryProvider#addPredicates(javax.persistence.
@@ -942,30 +1428,27 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 		}
 		if ((criteria.getDeviceTokens() != null) && (criteria.getDeviceTokens().size() > 0)) {
 		    try {
-			List<UUID> ids = DeviceManagementUtils.getDeviceIds(criteria.getDeviceTokens(),
-				RdbDeviceManagement.this);
+			List<UUID> ids = getDeviceIds(criteria.getDeviceTokens());
 			Path<UUID> path = root.get("deviceId");
-			predicates.add(path.in(ids));
+			addIdPredicate(cb, predicates, path, ids);
 		    } catch (SiteWhereException e) {
 			throw new SiteWhereException("Unable to look up device ids.", e);
 		    }
 		}
 		if ((criteria.getCustomerTokens() != null) && (criteria.getCustomerTokens().size() > 0)) {
 		    try {
-			List<UUID> ids = DeviceManagementUtils.getCustomerIds(criteria.getCustomerTokens(),
-				RdbDeviceManagement.this);
+			List<UUID> ids = getCustomerIds(criteria.getCustomerTokens());
 			Path<UUID> path = root.get("customerId");
-			predicates.add(path.in(ids));
+			addIdPredicate(cb, predicates, path, ids);
 		    } catch (SiteWhereException e) {
 			throw new SiteWhereException("Unable to look up customer ids.", e);
 		    }
 		}
 		if ((criteria.getAreaTokens() != null) && (criteria.getAreaTokens().size() > 0)) {
 		    try {
-			List<UUID> ids = DeviceManagementUtils.getAreaIds(criteria.getAreaTokens(),
-				RdbDeviceManagement.this);
+			List<UUID> ids = getAreaIds(criteria.getAreaTokens());
 			Path<UUID> path = root.get("areaId");
-			predicates.add(path.in(ids));
+			addIdPredicate(cb, predicates, path, ids);
 		    } catch (SiteWhereException e) {
 			throw new SiteWhereException("Unable to look up area ids.", e);
 		    }
@@ -974,7 +1457,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 		    try {
 			List<UUID> ids = getAssetIds(criteria.getAssetTokens());
 			Path<UUID> path = root.get("assetId");
-			predicates.add(path.in(ids));
+			addIdPredicate(cb, predicates, path, ids);
 		    } catch (SiteWhereException e) {
 			throw new SiteWhereException("Unable to look up asset ids.", e);
 		    }
@@ -992,7 +1475,12 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 		    CriteriaQuery<RdbDeviceAssignment> query) {
 		return query.orderBy(cb.desc(root.get("createdDate")));
 	    }
-	}, RdbDeviceAssignment.class);
+	};
+	if (criteria instanceof ICursorSearchCriteria) {
+	    return RdbCursorPaging.findWithCursor(getEntityManagerProvider(), (ICursorSearchCriteria) criteria,
+		    provider, RdbDeviceAssignment.class);
+	}
+	return getEntityManagerProvider().findWithCriteria(criteria, provider, RdbDeviceAssignment.class);
     }
 
     /*
@@ -1020,30 +1508,27 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 			}
 			if ((criteria.getDeviceTokens() != null) && (criteria.getDeviceTokens().size() > 0)) {
 			    try {
-				List<UUID> ids = DeviceManagementUtils.getDeviceIds(criteria.getDeviceTokens(),
-					RdbDeviceManagement.this);
+				List<UUID> ids = getDeviceIds(criteria.getDeviceTokens());
 				Path<UUID> path = root.get("deviceId");
-				predicates.add(path.in(ids));
+				addIdPredicate(cb, predicates, path, ids);
 			    } catch (SiteWhereException e) {
 				throw new SiteWhereException("Unable to look up device ids.", e);
 			    }
 			}
 			if ((criteria.getCustomerTokens() != null) && (criteria.getCustomerTokens().size() > 0)) {
 			    try {
-				List<UUID> ids = DeviceManagementUtils.getCustomerIds(criteria.getCustomerTokens(),
-					RdbDeviceManagement.this);
+				List<UUID> ids = getCustomerIds(criteria.getCustomerTokens());
 				Path<UUID> path = root.get("customerId");
-				predicates.add(path.in(ids));
+				addIdPredicate(cb, predicates, path, ids);
 			    } catch (SiteWhereException e) {
 				throw new SiteWhereException("Unable to look up customer ids.", e);
 			    }
 			}
 			if ((criteria.getAreaTokens() != null) && (criteria.getAreaTokens().size() > 0)) {
 			    try {
-				List<UUID> ids = DeviceManagementUtils.getAreaIds(criteria.getAreaTokens(),
-					RdbDeviceManagement.this);
+				List<UUID> ids = getAreaIds(criteria.getAreaTokens());
 				Path<UUID> path = root.get("areaId");
-				predicates.add(path.in(ids));
+				addIdPredicate(cb, predicates, path, ids);
 			    } catch (SiteWhereException e) {
 				throw new SiteWhereException("Unable to look up area ids.", e);
 			    }
@@ -1052,7 +1537,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 			    try {
 				List<UUID> ids = getAssetIds(criteria.getAssetTokens());
 				Path<UUID> path = root.get("assetId");
-				predicates.add(path.in(ids));
+				addIdPredicate(cb, predicates, path, ids);
 			    } catch (SiteWhereException e) {
 				throw new SiteWhereException("Unable to look up asset ids.", e);
 			    }
@@ -1228,7 +1713,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	List<RdbCustomerType> contained = new ArrayList<>();
 	if (request.getContainedCustomerTypeTokens() != null) {
 	    for (String token : request.getContainedCustomerTypeTokens()) {
-		contained.add(getCustomerTypeByToken(token));
+		contained.add(loadCustomerTypeByToken(token));
 	    }
 	}
 
@@ -1247,7 +1732,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public ICustomerType getCustomerType(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbCustomerType.class);
+	return getReferenceDataCache().getCustomerTypes().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbCustomerType.class));
     }
 
     /*
@@ -1256,6 +1742,19 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbCustomerType getCustomerTypeByToken(String token) throws SiteWhereException {
+	return getReferenceDataCache().getCustomerTypes().getByToken(token, () -> loadCustomerTypeByToken(token));
+    }
+
+    /**
+     * Load customer type by token directly from the datastore. Used where the
+     * entity becomes part of a persisted relationship and must not be shared
+     * via the reference data cache.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    protected RdbCustomerType loadCustomerTypeByToken(String token) throws SiteWhereException {
 	Query query = getEntityManagerProvider().query(Queries.QUERY_CUSTOMER_TYPE_BY_TOKEN);
 	query.setParameter("token", token);
 	return getEntityManagerProvider().findOne(query, RdbCustomerType.class);
@@ -1275,7 +1774,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    if (request.getContainedCustomerTypeTokens() != null) {
 		contained = new ArrayList<>();
 		for (String token : request.getContainedCustomerTypeTokens()) {
-		    contained.add(getCustomerTypeByToken(token));
+		    contained.add(loadCustomerTypeByToken(token));
 		}
 	    }
 
@@ -1286,7 +1785,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    if (contained != null) {
 		existing.setContainedCustomerTypes(contained);
 	    }
-	    return getEntityManagerProvider().merge(existing);
+	    RdbCustomerType updated = getEntityManagerProvider().merge(existing);
+
+	    // Containment may change for other types, so drop all cached types.
+	    getReferenceDataCache().getCustomerTypes().invalidateAll();
+	    return updated;
 	}
 	throw new SiteWhereSystemException(ErrorCode.InvalidCustomerTypeToken, ErrorLevel.ERROR);
     }
@@ -1343,7 +1846,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public ICustomerType deleteCustomerType(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbCustomerType.class);
+	ICustomerType deleted = getEntityManagerProvider().remove(id, RdbCustomerType.class);
+
+	// Contained types are cascaded, so drop all cached types.
+	getReferenceDataCache().getCustomerTypes().invalidateAll();
+	return deleted;
     }
 
     /*
@@ -1382,7 +1889,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public ICustomer getCustomer(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbCustomer.class);
+	return getReferenceDataCache().getCustomers().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbCustomer.class));
     }
 
     /*
@@ -1392,9 +1900,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbCustomer getCustomerByToken(String token) throws SiteWhereException {
-	Query query = getEntityManagerProvider().query(Queries.QUERY_CUSTOMER_BY_TOKEN);
-	query.setParameter("token", token);
-	return getEntityManagerProvider().findOne(query, RdbCustomer.class);
+	return getReferenceDataCache().getCustomers().getByToken(token, () -> {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_CUSTOMER_BY_TOKEN);
+	    query.setParameter("token", token);
+	    return getEntityManagerProvider().findOne(query, RdbCustomer.class);
+	});
     }
 
     /*
@@ -1444,7 +1954,10 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    Customer updates = new Customer();
 	    DeviceManagementPersistence.customerUpdateLogic(request, customerType, parentCustomer, updates);
 	    RdbCustomer.copy(updates, existing);
-	    return getEntityManagerProvider().merge(existing);
+	    RdbCustomer updated = getEntityManagerProvider().merge(existing);
+	    getReferenceDataCache().getCustomers().invalidate(id);
+	    getReferenceDataCache().getCustomerIds().invalidate(id);
+	    return updated;
 	}
 	throw new SiteWhereSystemException(ErrorCode.InvalidCustomerToken, ErrorLevel.ERROR);
     }
@@ -1517,7 +2030,10 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbCustomer deleteCustomer(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbCustomer.class);
+	RdbCustomer deleted = getEntityManagerProvider().remove(id, RdbCustomer.class);
+	getReferenceDataCache().getCustomers().invalidate(id);
+	getReferenceDataCache().getCustomerIds().invalidate(id);
+	return deleted;
     }
 
     /*
@@ -1530,7 +2046,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	List<RdbAreaType> contained = new ArrayList<>();
 	if (request.getContainedAreaTypeTokens() != null) {
 	    for (String token : request.getContainedAreaTypeTokens()) {
-		contained.add(getAreaTypeByToken(token));
+		contained.add(loadAreaTypeByToken(token));
 	    }
 	}
 
@@ -1549,7 +2065,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public IAreaType getAreaType(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbAreaType.class);
+	return getReferenceDataCache().getAreaTypes().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbAreaType.class));
     }
 
     /*
@@ -1559,6 +2076,19 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbAreaType getAreaTypeByToken(String token) throws SiteWhereException {
+	return getReferenceDataCache().getAreaTypes().getByToken(token, () -> loadAreaTypeByToken(token));
+    }
+
+    /**
+     * Load area type by token directly from the datastore. Used where the
+     * entity becomes part of a persisted relationship and must not be shared
+     * via the reference data cache.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    protected RdbAreaType loadAreaTypeByToken(String token) throws SiteWhereException {
 	Query query = getEntityManagerProvider().query(Queries.QUERY_AREA_TYPE_BY_TOKEN);
 	query.setParameter("token", token);
 	return getEntityManagerProvider().findOne(query, RdbAreaType.class);
@@ -1577,7 +2107,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    if (request.getContainedAreaTypeTokens() != null) {
 		contained = new ArrayList<>();
 		for (String token : request.getContainedAreaTypeTokens()) {
-		    contained.add(getAreaTypeByToken(token));
+		    contained.add(loadAreaTypeByToken(token));
 		}
 	    }
 
@@ -1588,7 +2118,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	    if (contained != null) {
 		existing.setContainedAreaTypes(contained);
 	    }
-	    return getEntityManagerProvider().merge(existing);
+	    RdbAreaType updated = getEntityManagerProvider().merge(existing);
+
+	    // Containment may change for other types, so drop all cached types.
+	    getReferenceDataCache().getAreaTypes().invalidateAll();
+	    return updated;
 	}
 	throw new SiteWhereSystemException(ErrorCode.InvalidAreaTypeToken, ErrorLevel.ERROR);
     }
@@ -1646,7 +2180,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public IAreaType deleteAreaType(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbAreaType.class);
+	IAreaType deleted = getEntityManagerProvider().remove(id, RdbAreaType.class);
+
+	// Contained types are cascaded, so drop all cached types.
+	getReferenceDataCache().getAreaTypes().invalidateAll();
+	return deleted;
     }
 
     /*
@@ -1693,7 +2231,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbArea getArea(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().findById(id, RdbArea.class);
+	return getReferenceDataCache().getAreas().getById(id,
+		() -> getEntityManagerProvider().findById(id, RdbArea.class));
     }
 
     /*
@@ -1703,9 +2242,11 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbArea getAreaByToken(String token) throws SiteWhereException {
-	Query query = getEntityManagerProvider().query(Queries.QUERY_AREA_BY_TOKEN);
-	query.setParameter("token", token);
-	return getEntityManagerProvider().findOne(query, RdbArea.class);
+	return getReferenceDataCache().getAreas().getByToken(token, () -> {
+	    Query query = getEntityManagerProvider().query(Queries.QUERY_AREA_BY_TOKEN);
+	    query.setParameter("token", token);
+	    return getEntityManagerProvider().findOne(query, RdbArea.class);
+	});
     }
 
     /*
@@ -1731,7 +2272,7 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public RdbArea updateArea(UUID id, IAreaCreateRequest request) throws SiteWhereException {
-	return getEntityManagerProvider().runInTransaction(new ITransactionCallback<RdbArea>() {
+	RdbArea updated = getEntityManagerProvider().runInTransaction(new ITransactionCallback<RdbArea>() {
 
 	    /*
 	     * @see com.sitewhere.rdb.spi.ITransactionCallback#process()
@@ -1782,6 +2323,9 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 		throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
 	    }
 	});
+	getReferenceDataCache().getAreas().invalidate(id);
+	getReferenceDataCache().getAreaIds().invalidate(id);
+	return updated;
     }
 
     /*
@@ -1850,7 +2394,10 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
      */
     @Override
     public IArea deleteArea(UUID id) throws SiteWhereException {
-	return getEntityManagerProvider().remove(id, RdbArea.class);
+	IArea deleted = getEntityManagerProvider().remove(id, RdbArea.class);
+	getReferenceDataCache().getAreas().invalidate(id);
+	getReferenceDataCache().getAreaIds().invalidate(id);
+	return deleted;
     }
 
     /*
@@ -2257,20 +2804,134 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
 	return ((DeviceManagementMicroservice) getTenantEngine().getMicroservice()).getAssetManagementApiChannel();
     }
 
+    /**
+     * Look up a list of device tokens to get the corresponding list of device
+     * ids. Tokens not found in cache are resolved in a single query and tokens
+     * that do not match a device are ignored.
+     *
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<UUID> getDeviceIds(List<String> tokens) throws SiteWhereException {
+	return getReferenceDataCache().getDeviceIds().resolve(tokens, uncached -> {
+	    Map<String, UUID> ids = new HashMap<>();
+	    for (IDevice device : getDevicesByToken(uncached).values()) {
+		ids.put(device.getToken(), device.getId());
+	    }
+	    return ids;
+	});
+    }
+
+    /**
+     * Look up a list of customer tokens to get the corresponding list of customer
+     * ids. Tokens not found in cache are resolved in a single query and tokens
+     * that do not match a customer are ignored.
+     *
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<UUID> getCustomerIds(List<String> tokens) throws SiteWhereException {
+	return getReferenceDataCache().getCustomerIds().resolve(tokens, uncached -> {
+	    Map<String, UUID> ids = new HashMap<>();
+	    for (List<String> chunk : partition(uncached)) {
+		Query query = getEntityManagerProvider().query(Queries.QUERY_CUSTOMERS_BY_TOKENS);
+		query.setParameter("tokens", chunk);
+		for (RdbCustomer customer : getEntityManagerProvider().findMany(query, RdbCustomer.class)) {
+		    ids.put(customer.getToken(), customer.getId());
+		}
+	    }
+	    return ids;
+	});
+    }
+
+    /**
+     * Look up a list of area tokens to get the corresponding list of area ids.
+     * Tokens not found in cache are resolved in a single query and tokens that do
+     * not match an area are ignored.
+     *
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<UUID> getAreaIds(List<String> tokens) throws SiteWhereException {
+	return getReferenceDataCache().getAreaIds().resolve(tokens, uncached -> {
+	    Map<String, UUID> ids = new HashMap<>();
+	    for (List<String> chunk : partition(uncached)) {
+		Query query = getEntityManagerProvider().query(Queries.QUERY_AREAS_BY_TOKENS);
+		query.setParameter("tokens", chunk);
+		for (RdbArea area : getEntityManagerProvider().findMany(query, RdbArea.class)) {
+		    ids.put(area.getToken(), area.getId());
+		}
+	    }
+	    return ids;
+	});
+    }
+
     /**
      * Look up a list of asset tokens to get the corresponding list of asset ids.
+     * Assets are owned by asset management, which only supports lookups by a
+     * single token, so each distinct token is requested at most once per cache
+     * period. Tokens that do not match an asset are ignored and remembered.
      *
      * @param tokens
      * @return
      * @throws SiteWhereException
      */
     protected List<UUID> getAssetIds(List<String> tokens) throws SiteWhereException {
-	List<UUID> result = new ArrayList<>();
-	for (String token : tokens) {
-	    IAsset asset = getAssetManagement().getAssetByToken(token);
-	    result.add(asset.getId());
+	return new ArrayList<>(getAssetIdsByToken(tokens, null).values());
+    }
+
+    /**
+     * Look up asset ids for a list of tokens through the reference data cache.
+     * If a map of errors is passed, a token whose lookup fails is recorded there
+     * and left out of the result rather than failing the whole call. Failed
+     * lookups are not remembered as missing.
+     *
+     * @param tokens
+     * @param errors
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<String, UUID> getAssetIdsByToken(Collection<String> tokens, Map<String, String> errors)
+	    throws SiteWhereException {
+	return getReferenceDataCache().getAssetIds().resolveByToken(tokens, uncached -> {
+	    Map<String, UUID> ids = new HashMap<>();
+	    for (String token : uncached) {
+		try {
+		    IAsset asset = getAssetManagement().getAssetByToken(token);
+		    if (asset != null) {
+			ids.put(token, asset.getId());
+		    }
+		} catch (SiteWhereException e) {
+		    if (errors == null) {
+			throw e;
+		    }
+		    errors.put(token, String.format("Unable to look up asset '%s'. %s", token, e.getMessage()));
+		    ids.put(token, null);
+		}
+	    }
+	    return ids;
+	});
+    }
+
+    /**
+     * Add a predicate restricting a path to a list of resolved ids. An empty list
+     * matches nothing rather than producing an empty IN clause.
+     *
+     * @param cb
+     * @param predicates
+     * @param path
+     * @param ids
+     */
+    protected static void addIdPredicate(CriteriaBuilder cb, List<Predicate> predicates, Path<UUID> path,
+	    List<UUID> ids) {
+	if (ids.isEmpty()) {
+	    predicates.add(cb.disjunction());
+	} else {
+	    predicates.add(path.in(ids));
 	}
-	return result;
     }
 
     /**
@@ -2320,4 +2981,8 @@ public class RdbDeviceManagement extends RdbTenantComponent implements IDeviceMa
     public IRdbEntityManagerProvider getEntityManagerProvider() {
 	return ((IDeviceManagementTenantEngine) getTenantEngine()).getRdbEntityManagerProvider();
     }
+
+    protected RdbReferenceDataCache getReferenceDataCache() {
+	return referenceDataCache;
+    }
 }
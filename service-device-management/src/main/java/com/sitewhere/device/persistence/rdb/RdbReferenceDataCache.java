@@ -0,0 +1,525 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence.rdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sitewhere.device.configuration.DeviceManagementTenantConfiguration;
+import com.sitewhere.device.persistence.rdb.entity.RdbArea;
+import com.sitewhere.device.persistence.rdb.entity.RdbAreaBoundary;
+import com.sitewhere.device.persistence.rdb.entity.RdbAreaType;
+import com.sitewhere.device.persistence.rdb.entity.RdbCommandParameter;
+import com.sitewhere.device.persistence.rdb.entity.RdbCustomer;
+import com.sitewhere.device.persistence.rdb.entity.RdbCustomerType;
+import com.sitewhere.device.persistence.rdb.entity.RdbDeviceCommand;
+import com.sitewhere.device.persistence.rdb.entity.RdbDeviceStatus;
+import com.sitewhere.device.persistence.rdb.entity.RdbDeviceType;
+import com.sitewhere.device.persistence.rdb.entity.RdbLocation;
+import com.sitewhere.device.spi.microservice.IDeviceManagementTenantEngine;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.common.IPersistentEntity;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Per-tenant, read-through cache for reference data (device types, commands,
+ * statuses, areas, customers and their types) which is read on nearly every
+ * device management call but rarely written. Entities are cached by id with a
+ * secondary index from token to id. Loaded entities are copied into new
+ * instances holding only their columns and eagerly fetched collections, so a
+ * cached entity never refers to the persistence context that loaded it and
+ * lazy associations are simply absent. Lookups that find nothing are not cached
+ * so that new entities are seen at once. Updates and deletes invalidate
+ * entries explicitly, while expiration bounds staleness for changes made by
+ * other instances sharing the same datastore.
+ * 
+ * Token to id mappings used to resolve search filters are held in separate
+ * caches with a shorter expiration so that a filter on hundreds of tokens costs
+ * at most one lookup for the tokens not seen recently.
+ */
+public class RdbReferenceDataCache extends TenantEngineLifecycleComponent {
+
+    /** Counter for cache hits */
+    private static final Counter CACHE_HITS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "device_management_entity_cache_hit_count", "Count of reference data lookups served from cache", "entity");
+
+    /** Counter for cache misses */
+    private static final Counter CACHE_MISSES = TenantEngineLifecycleComponent.createCounterMetric(
+	    "device_management_entity_cache_miss_count", "Count of reference data lookups not found in cache",
+	    "entity");
+
+    /** Histogram for number of entries cached when a new entry is added */
+    private static final Histogram CACHE_SIZE = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "device_management_entity_cache_size", "Number of reference data entities held in cache", "entity");
+
+    /** Cached device types */
+    private EntityCache<RdbDeviceType> deviceTypes;
+
+    /** Cached device commands */
+    private EntityCache<RdbDeviceCommand> deviceCommands;
+
+    /** Cached device statuses */
+    private EntityCache<RdbDeviceStatus> deviceStatuses;
+
+    /** Cached customer types */
+    private EntityCache<RdbCustomerType> customerTypes;
+
+    /** Cached customers */
+    private EntityCache<RdbCustomer> customers;
+
+    /** Cached area types */
+    private EntityCache<RdbAreaType> areaTypes;
+
+    /** Cached areas */
+    private EntityCache<RdbArea> areas;
+
+    /** Device ids by token */
+    private TokenIdCache deviceIds;
+
+    /** Customer ids by token */
+    private TokenIdCache customerIds;
+
+    /** Area ids by token */
+    private TokenIdCache areaIds;
+
+    /** Asset ids by token */
+    private TokenIdCache assetIds;
+
+    /*
+     * @see com.sitewhere.microservice.lifecycle.LifecycleComponent#initialize(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.initialize(monitor);
+
+	DeviceManagementTenantConfiguration config = getConfiguration();
+	this.deviceTypes = new EntityCache<>("device_type", config, RdbDeviceType::new, RdbDeviceType::copy);
+	this.deviceCommands = new EntityCache<>("device_command", config, RdbDeviceCommand::new,
+		RdbReferenceDataCache::copyDeviceCommand);
+	this.deviceStatuses = new EntityCache<>("device_status", config, RdbDeviceStatus::new, RdbDeviceStatus::copy);
+	this.customerTypes = new EntityCache<>("customer_type", config, RdbCustomerType::new, RdbCustomerType::copy);
+	this.customers = new EntityCache<>("customer", config, RdbCustomer::new, RdbCustomer::copy);
+	this.areaTypes = new EntityCache<>("area_type", config, RdbAreaType::new, RdbAreaType::copy);
+	this.areas = new EntityCache<>("area", config, RdbArea::new, RdbReferenceDataCache::copyArea);
+	this.deviceIds = new TokenIdCache("device_id", config, false);
+	this.customerIds = new TokenIdCache("customer_id", config, false);
+	this.areaIds = new TokenIdCache("area_id", config, false);
+	this.assetIds = new TokenIdCache("asset_id", config, true);
+	getLogger().info(String.format("Reference data cache will hold up to %d entities per type for %d seconds.",
+		config.getEntityCacheMaximumSize(), config.getEntityCacheExpirationSeconds()));
+	getLogger().info(String.format("Token lookups will be cached for %d seconds.",
+		config.getTokenCacheExpirationSeconds()));
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	invalidateAll();
+	super.stop(monitor);
+    }
+
+    /**
+     * Drop all cached entities.
+     */
+    public void invalidateAll() {
+	if (getDeviceTypes() == null) {
+	    return;
+	}
+	getDeviceTypes().invalidateAll();
+	getDeviceCommands().invalidateAll();
+	getDeviceStatuses().invalidateAll();
+	getCustomerTypes().invalidateAll();
+	getCustomers().invalidateAll();
+	getAreaTypes().invalidateAll();
+	getAreas().invalidateAll();
+	getDeviceIds().invalidateAll();
+	getCustomerIds().invalidateAll();
+	getAreaIds().invalidateAll();
+	getAssetIds().invalidateAll();
+    }
+
+    /**
+     * Copy a device command along with its parameters.
+     * 
+     * @param source
+     * @param target
+     */
+    protected static void copyDeviceCommand(RdbDeviceCommand source, RdbDeviceCommand target) {
+	RdbDeviceCommand.copy(source, target);
+	List<RdbCommandParameter> parameters = new ArrayList<>();
+	for (RdbCommandParameter parameter : source.getParameters()) {
+	    parameters.add(new RdbCommandParameter(parameter.getId(), parameter.getName(), parameter.getType(),
+		    parameter.isRequired()));
+	}
+	target.setParameters(parameters);
+    }
+
+    /**
+     * Copy an area along with its boundaries.
+     * 
+     * @param source
+     * @param target
+     */
+    protected static void copyArea(RdbArea source, RdbArea target) {
+	RdbArea.copy(source, target);
+	List<RdbAreaBoundary> bounds = new ArrayList<>();
+	for (RdbAreaBoundary bound : source.getBounds()) {
+	    RdbAreaBoundary boundary = new RdbAreaBoundary();
+	    RdbLocation.copy(bound, boundary);
+	    boundary.setId(bound.getId());
+	    boundary.setAreaId(bound.getAreaId());
+	    bounds.add(boundary);
+	}
+	target.setBounds(bounds);
+    }
+
+    /**
+     * Get device management tenant configuration.
+     * 
+     * @return
+     */
+    protected DeviceManagementTenantConfiguration getConfiguration() {
+	return ((IDeviceManagementTenantEngine) getTenantEngine()).getActiveConfiguration();
+    }
+
+    /**
+     * Loads an entity from the datastore when it is not found in cache.
+     */
+    @FunctionalInterface
+    public static interface IEntityLoader<T> {
+
+	/**
+	 * Load the entity.
+	 * 
+	 * @return entity or null if not found
+	 * @throws SiteWhereException
+	 */
+	public T load() throws SiteWhereException;
+    }
+
+    /**
+     * Copies a loaded entity into a new instance to be held in cache.
+     */
+    @FunctionalInterface
+    public static interface IEntityCopier<T> {
+
+	/**
+	 * Copy columns and eagerly fetched collections from source to target.
+	 * 
+	 * @param source
+	 * @param target
+	 */
+	public void copy(T source, T target);
+    }
+
+    /**
+     * Resolves ids for a list of tokens that were not found in cache.
+     */
+    @FunctionalInterface
+    public static interface ITokenIdLoader {
+
+	/**
+	 * Load ids for the given tokens.
+	 * 
+	 * @param tokens
+	 * @return map of token to id which omits tokens that were not found. Tokens
+	 *         that could not be looked up may be mapped to null so they are not
+	 *         remembered as missing.
+	 * @throws SiteWhereException
+	 */
+	public Map<String, UUID> load(List<String> tokens) throws SiteWhereException;
+    }
+
+    /**
+     * Cache of token to id mappings for a single entity type.
+     */
+    public class TokenIdCache {
+
+	/** Marker for a token known not to exist */
+	private final UUID missing = new UUID(0L, 0L);
+
+	/** Entity name used as metric label */
+	private String entity;
+
+	/** Indicates whether tokens that were not found are cached */
+	private boolean cacheMissing;
+
+	/** Entity ids by token */
+	private Cache<String, UUID> ids;
+
+	public TokenIdCache(String entity, DeviceManagementTenantConfiguration config, boolean cacheMissing) {
+	    this.entity = entity;
+	    this.cacheMissing = cacheMissing;
+	    this.ids = CacheBuilder.newBuilder().maximumSize(config.getEntityCacheMaximumSize())
+		    .expireAfterWrite(config.getTokenCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+	}
+
+	/**
+	 * Resolve ids for a list of tokens. Tokens not found in cache are passed to
+	 * the loader in a single call. Tokens that do not match an entity are left
+	 * out of the result.
+	 * 
+	 * @param tokens
+	 * @param loader
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public List<UUID> resolve(Collection<String> tokens, ITokenIdLoader loader) throws SiteWhereException {
+	    return new ArrayList<>(resolveByToken(tokens, loader).values());
+	}
+
+	/**
+	 * Resolve ids for a list of tokens, keeping the token each id belongs to.
+	 * Tokens not found in cache are passed to the loader in a single call.
+	 * Tokens that do not match an entity are left out of the result.
+	 * 
+	 * @param tokens
+	 * @param loader
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public Map<String, UUID> resolveByToken(Collection<String> tokens, ITokenIdLoader loader)
+		throws SiteWhereException {
+	    Map<String, UUID> result = new LinkedHashMap<>();
+	    List<String> uncached = new ArrayList<>();
+	    for (String token : new LinkedHashSet<>(tokens)) {
+		UUID id = (token != null) ? ids.getIfPresent(token) : null;
+		if (id != null) {
+		    CACHE_HITS.labels(buildLabels(entity)).inc();
+		    if (!missing.equals(id)) {
+			result.put(token, id);
+		    }
+		} else if (token != null) {
+		    CACHE_MISSES.labels(buildLabels(entity)).inc();
+		    uncached.add(token);
+		}
+	    }
+	    if (!uncached.isEmpty()) {
+		Map<String, UUID> loaded = loader.load(uncached);
+		for (String token : uncached) {
+		    UUID id = loaded.get(token);
+		    if (id != null) {
+			ids.put(token, id);
+			result.put(token, id);
+		    } else if (cacheMissing && !loaded.containsKey(token)) {
+			ids.put(token, missing);
+		    }
+		}
+		CACHE_SIZE.labels(buildLabels(entity)).observe(ids.size());
+	    }
+	    return result;
+	}
+
+	/**
+	 * Remove mappings to an entity after it has been updated or deleted.
+	 * 
+	 * @param id
+	 */
+	public void invalidate(UUID id) {
+	    ids.asMap().values().removeIf(id::equals);
+	}
+
+	/**
+	 * Remove all mappings.
+	 */
+	public void invalidateAll() {
+	    ids.invalidateAll();
+	}
+    }
+
+    /**
+     * Cache for a single entity type keyed by id with a token index.
+     *
+     * @param <T>
+     */
+    public class EntityCache<T extends IPersistentEntity> {
+
+	/** Entity name used as metric label */
+	private String entity;
+
+	/** Entities by unique id */
+	private Cache<UUID, T> byId;
+
+	/** Entity ids by token */
+	private Cache<String, UUID> idsByToken;
+
+	/** Creates instances to be cached */
+	private Supplier<T> factory;
+
+	/** Copies loaded entities into cached instances */
+	private IEntityCopier<T> copier;
+
+	public EntityCache(String entity, DeviceManagementTenantConfiguration config, Supplier<T> factory,
+		IEntityCopier<T> copier) {
+	    this.entity = entity;
+	    this.factory = factory;
+	    this.copier = copier;
+	    this.byId = CacheBuilder.newBuilder().maximumSize(config.getEntityCacheMaximumSize())
+		    .expireAfterWrite(config.getEntityCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+	    this.idsByToken = CacheBuilder.newBuilder().maximumSize(config.getEntityCacheMaximumSize())
+		    .expireAfterWrite(config.getEntityCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+	}
+
+	/**
+	 * Get entity by id, loading it on a cache miss.
+	 * 
+	 * @param id
+	 * @param loader
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public T getById(UUID id, IEntityLoader<T> loader) throws SiteWhereException {
+	    if (id == null) {
+		return loader.load();
+	    }
+	    T cached = byId.getIfPresent(id);
+	    if (cached != null) {
+		CACHE_HITS.labels(buildLabels(entity)).inc();
+		return cached;
+	    }
+	    CACHE_MISSES.labels(buildLabels(entity)).inc();
+	    return put(loader.load());
+	}
+
+	/**
+	 * Get entity by token, loading it on a cache miss. The cached entity is
+	 * checked against the token so an index entry left behind by a token
+	 * change is never served.
+	 * 
+	 * @param token
+	 * @param loader
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public T getByToken(String token, IEntityLoader<T> loader) throws SiteWhereException {
+	    if (token == null) {
+		return loader.load();
+	    }
+	    UUID id = idsByToken.getIfPresent(token);
+	    T cached = (id != null) ? byId.getIfPresent(id) : null;
+	    if ((cached != null) && token.equals(cached.getToken())) {
+		CACHE_HITS.labels(buildLabels(entity)).inc();
+		return cached;
+	    }
+	    CACHE_MISSES.labels(buildLabels(entity)).inc();
+	    idsByToken.invalidate(token);
+	    return put(loader.load());
+	}
+
+	/**
+	 * Add a copy of a loaded entity to the cache.
+	 * 
+	 * @param loaded
+	 * @return cached copy or null if nothing was loaded
+	 */
+	protected T put(T loaded) {
+	    if (loaded == null) {
+		return null;
+	    }
+	    T cached = factory.get();
+	    copier.copy(loaded, cached);
+	    byId.put(cached.getId(), cached);
+	    if (cached.getToken() != null) {
+		idsByToken.put(cached.getToken(), cached.getId());
+	    }
+	    CACHE_SIZE.labels(buildLabels(entity)).observe(byId.size());
+	    return cached;
+	}
+
+	/**
+	 * Remove an entity after it has been updated or deleted.
+	 * 
+	 * @param id
+	 */
+	public void invalidate(UUID id) {
+	    T cached = byId.getIfPresent(id);
+	    if ((cached != null) && (cached.getToken() != null)) {
+		idsByToken.invalidate(cached.getToken());
+	    }
+	    byId.invalidate(id);
+	}
+
+	/**
+	 * Remove all entities.
+	 */
+	public void invalidateAll() {
+	    byId.invalidateAll();
+	    idsByToken.invalidateAll();
+	}
+    }
+
+    public EntityCache<RdbDeviceType> getDeviceTypes() {
+	return deviceTypes;
+    }
+
+    public EntityCache<RdbDeviceCommand> getDeviceCommands() {
+	return deviceCommands;
+    }
+
+    public EntityCache<RdbDeviceStatus> getDeviceStatuses() {
+	return deviceStatuses;
+    }
+
+    public EntityCache<RdbCustomerType> getCustomerTypes() {
+	return customerTypes;
+    }
+
+    public EntityCache<RdbCustomer> getCustomers() {
+	return customers;
+    }
+
+    public EntityCache<RdbAreaType> getAreaTypes() {
+	return areaTypes;
+    }
+
+    public EntityCache<RdbArea> getAreas() {
+	return areas;
+    }
+
+    public TokenIdCache getDeviceIds() {
+	return deviceIds;
+    }
+
+    public TokenIdCache getCustomerIds() {
+	return customerIds;
+    }
+
+    public TokenIdCache getAreaIds() {
+	return areaIds;
+    }
+
+    public TokenIdCache getAssetIds() {
+	return assetIds;
+    }
+}
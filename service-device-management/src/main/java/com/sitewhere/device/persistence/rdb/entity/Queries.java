@@ -29,18 +29,33 @@ public class Queries {
     /** Get device by token */
     public static final String QUERY_DEVICE_BY_TOKEN = "devices_findByToken";
 
+    /** Get devices for a list of tokens */
+    public static final String QUERY_DEVICES_BY_TOKENS = "devices_findByTokens";
+
+    /** Get devices for a list of ids */
+    public static final String QUERY_DEVICES_BY_IDS = "devices_findByIds";
+
     /** Get device assignment by token */
     public static final String QUERY_DEVICE_ASSIGNMENT_BY_TOKEN = "deviceAssignments_findByToken";
 
+    /** Get device assignments for a list of tokens */
+    public static final String QUERY_DEVICE_ASSIGNMENTS_BY_TOKENS = "deviceAssignments_findByTokens";
+
     /** Get device assignment by device id and status */
     public static final String QUERY_DEVICE_ASSIGNMENT_BY_DEVICE_AND_STATUS = "deviceAssignments_findByDeviceAndStatus";
 
+    /** Get device assignments for a list of device ids and status */
+    public static final String QUERY_DEVICE_ASSIGNMENTS_BY_DEVICES_AND_STATUS = "deviceAssignments_findByDevicesAndStatus";
+
     /** Get customer type by token */
     public static final String QUERY_CUSTOMER_TYPE_BY_TOKEN = "customerTypes_findByToken";
 
     /** Get customers by token */
     public static final String QUERY_CUSTOMER_BY_TOKEN = "customers_findByToken";
 
+    /** Get customers for a list of tokens */
+    public static final String QUERY_CUSTOMERS_BY_TOKENS = "customers_findByTokens";
+
     /** Get customers by parent id */
     public static final String QUERY_CUSTOMER_BY_PARENT_ID = "customers_findByParentId";
 
@@ -50,6 +65,9 @@ public class Queries {
     /** Get area by token */
     public static final String QUERY_AREA_BY_TOKEN = "areas_findByToken";
 
+    /** Get areas for a list of tokens */
+    public static final String QUERY_AREAS_BY_TOKENS = "areas_findByTokens";
+
     /** Get areas by parent id */
     public static final String QUERY_AREA_BY_PARENT_ID = "areas_findByParentId";
 
@@ -50,6 +50,7 @@ import com.sitewhere.spi.area.IArea;
 @Table(name = "area", uniqueConstraints = @UniqueConstraint(columnNames = { "token" }))
 @NamedQueries({
 	@NamedQuery(name = Queries.QUERY_AREA_BY_TOKEN, query = "SELECT a FROM RdbArea a WHERE a.token = :token"),
+	@NamedQuery(name = Queries.QUERY_AREAS_BY_TOKENS, query = "SELECT a FROM RdbArea a WHERE a.token IN :tokens"),
 	@NamedQuery(name = Queries.QUERY_AREA_BY_PARENT_ID, query = "SELECT a FROM RdbArea a WHERE a.parentId = :parentId") })
 public class RdbArea extends RdbBrandedEntity implements IArea {
 
@@ -46,6 +46,7 @@ import com.sitewhere.spi.customer.ICustomer;
 @Table(name = "customer", uniqueConstraints = @UniqueConstraint(columnNames = { "token" }))
 @NamedQueries({
 	@NamedQuery(name = Queries.QUERY_CUSTOMER_BY_TOKEN, query = "SELECT c FROM RdbCustomer c WHERE c.token = :token"),
+	@NamedQuery(name = Queries.QUERY_CUSTOMERS_BY_TOKENS, query = "SELECT c FROM RdbCustomer c WHERE c.token IN :tokens"),
 	@NamedQuery(name = Queries.QUERY_CUSTOMER_BY_PARENT_ID, query = "SELECT c FROM RdbCustomer c WHERE c.parentId = :parentId") })
 public class RdbCustomer extends RdbBrandedEntity implements ICustomer {
 
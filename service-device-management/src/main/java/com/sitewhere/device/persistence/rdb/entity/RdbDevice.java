@@ -33,6 +33,7 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.MapKeyColumn;
+import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
@@ -47,7 +48,10 @@ import com.sitewhere.spi.device.IDevice;
 
 @Entity
 @Table(name = "device", uniqueConstraints = @UniqueConstraint(columnNames = { "token" }))
-@NamedQuery(name = Queries.QUERY_DEVICE_BY_TOKEN, query = "SELECT d FROM RdbDevice d WHERE d.token = :token")
+@NamedQueries({
+	@NamedQuery(name = Queries.QUERY_DEVICE_BY_TOKEN, query = "SELECT d FROM RdbDevice d WHERE d.token = :token"),
+	@NamedQuery(name = Queries.QUERY_DEVICES_BY_TOKENS, query = "SELECT d FROM RdbDevice d WHERE d.token IN :tokens"),
+	@NamedQuery(name = Queries.QUERY_DEVICES_BY_IDS, query = "SELECT d FROM RdbDevice d WHERE d.id IN :ids") })
 public class RdbDevice extends RdbPersistentEntity implements IDevice {
 
     /** Serialization version identifier */
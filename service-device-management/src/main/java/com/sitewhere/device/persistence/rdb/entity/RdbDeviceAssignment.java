@@ -50,7 +50,9 @@ import com.sitewhere.spi.device.IDeviceAssignment;
 @Table(name = "device_assignment", uniqueConstraints = @UniqueConstraint(columnNames = { "token" }))
 @NamedQueries({
 	@NamedQuery(name = Queries.QUERY_DEVICE_ASSIGNMENT_BY_TOKEN, query = "SELECT a FROM RdbDeviceAssignment a WHERE a.token = :token"),
-	@NamedQuery(name = Queries.QUERY_DEVICE_ASSIGNMENT_BY_DEVICE_AND_STATUS, query = "SELECT a FROM RdbDeviceAssignment a WHERE a.deviceId = :deviceId AND a.status = :status") })
+	@NamedQuery(name = Queries.QUERY_DEVICE_ASSIGNMENTS_BY_TOKENS, query = "SELECT a FROM RdbDeviceAssignment a WHERE a.token IN :tokens"),
+	@NamedQuery(name = Queries.QUERY_DEVICE_ASSIGNMENT_BY_DEVICE_AND_STATUS, query = "SELECT a FROM RdbDeviceAssignment a WHERE a.deviceId = :deviceId AND a.status = :status"),
+	@NamedQuery(name = Queries.QUERY_DEVICE_ASSIGNMENTS_BY_DEVICES_AND_STATUS, query = "SELECT a FROM RdbDeviceAssignment a WHERE a.deviceId IN :deviceIds AND a.status = :status") })
 public class RdbDeviceAssignment extends RdbPersistentEntity implements IDeviceAssignment {
 
     /** Serial version UID */
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.spi.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+/**
+ * Resolves devices and their active assignments for many keys at once, so that
+ * callers working on batches of events do not need one lookup per device.
+ */
+public interface IBatchDeviceLookup {
+
+    /**
+     * Get devices for a list of tokens. Tokens that do not match a device are
+     * not included in the result.
+     * 
+     * @param tokens
+     * @return devices indexed by token
+     * @throws SiteWhereException
+     */
+    Map<String, IDevice> getDevicesByToken(Collection<String> tokens) throws SiteWhereException;
+
+    /**
+     * Get devices for a list of ids. Ids that do not match a device are not
+     * included in the result.
+     * 
+     * @param ids
+     * @return devices indexed by id
+     * @throws SiteWhereException
+     */
+    Map<UUID, IDevice> getDevicesById(Collection<UUID> ids) throws SiteWhereException;
+
+    /**
+     * Get active assignments for a list of devices. Devices without active
+     * assignments are not included in the result.
+     * 
+     * @param deviceIds
+     * @return active assignments indexed by device id
+     * @throws SiteWhereException
+     */
+    Map<UUID, List<IDeviceAssignment>> getActiveDeviceAssignments(Collection<UUID> deviceIds)
+	    throws SiteWhereException;
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.spi.persistence;
+
+/**
+ * Result for a single row of a bulk create request.
+ *
+ * @param <T>
+ */
+public interface IBulkCreateResult<T> {
+
+    /**
+     * Get index of request in the bulk request.
+     * 
+     * @return
+     */
+    int getIndex();
+
+    /**
+     * Get token of entity the request applied to.
+     * 
+     * @return
+     */
+    String getToken();
+
+    /**
+     * Get outcome for the request.
+     * 
+     * @return
+     */
+    BulkCreateOutcome getOutcome();
+
+    /**
+     * Get entity that was created or updated (null if failed).
+     * 
+     * @return
+     */
+    T getEntity();
+
+    /**
+     * Get reason the request failed (null if successful).
+     * 
+     * @return
+     */
+    String getErrorMessage();
+}
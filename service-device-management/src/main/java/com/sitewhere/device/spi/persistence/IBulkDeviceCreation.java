@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.spi.persistence;
+
+import java.util.List;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
+import com.sitewhere.spi.device.request.IDeviceCreateRequest;
+
+/**
+ * Creates (or updates) many devices and assignments in one call. References
+ * are resolved for the whole batch up front and rows are written in chunks
+ * that each share a transaction. A result is returned for every request so
+ * that invalid rows do not prevent the rest of the batch from being stored.
+ */
+public interface IBulkDeviceCreation {
+
+    /**
+     * Create devices. If upsert is enabled, requests for tokens that already
+     * exist update the existing device rather than failing.
+     * 
+     * @param requests
+     * @param upsert
+     * @return results in request order
+     * @throws SiteWhereException
+     */
+    List<IBulkCreateResult<IDevice>> createDevices(List<? extends IDeviceCreateRequest> requests, boolean upsert)
+	    throws SiteWhereException;
+
+    /**
+     * Create device assignments. If upsert is enabled, requests for tokens that
+     * already exist update the existing assignment rather than failing.
+     * 
+     * @param requests
+     * @param upsert
+     * @return results in request order
+     * @throws SiteWhereException
+     */
+    List<IBulkCreateResult<IDeviceAssignment>> createDeviceAssignments(
+	    List<? extends IDeviceAssignmentCreateRequest> requests, boolean upsert) throws SiteWhereException;
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.spi.persistence;
+
+import com.sitewhere.spi.search.ISearchCriteria;
+
+/**
+ * Search criteria that continue from the position returned by a previous search
+ * rather than from a page offset. Results are ordered newest first and the page
+ * size limits the number of results returned. Total counts are only calculated
+ * when requested.
+ */
+public interface ICursorSearchCriteria extends ISearchCriteria {
+
+    /**
+     * Get opaque token returned by the previous search.
+     * 
+     * @return token or null for the first page
+     */
+    String getContinuationToken();
+
+    /**
+     * Indicates whether the total number of matches should be counted.
+     * 
+     * @return
+     */
+    boolean isCountRequested();
+}
@@ -0,0 +1,5 @@
+create index if not exists device_created_date_id 
+	on devicemanagement.device (created_date desc, id desc);
+
+create index if not exists device_assignment_created_date_id 
+	on devicemanagement.device_assignment (created_date desc, id desc);
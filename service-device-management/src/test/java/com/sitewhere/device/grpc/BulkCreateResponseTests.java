@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.grpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sitewhere.device.persistence.BulkCreateResult;
+import com.sitewhere.device.spi.persistence.BulkCreateOutcome;
+import com.sitewhere.grpc.extensions.device.BulkCreateResponse;
+import com.sitewhere.grpc.model.DeviceModel.GDevice;
+
+/**
+ * Tests for conversion and serialization of per-row bulk create results.
+ */
+public class BulkCreateResponseTests {
+
+    @Test
+    public void testOutcomesConvert() {
+	for (BulkCreateOutcome outcome : BulkCreateOutcome.values()) {
+	    BulkCreateResult<Object> api = new BulkCreateResult<>(0, "token");
+	    api.setOutcome(outcome);
+	    BulkCreateResponse.Result.Builder result = DeviceManagementImpl.asGrpcBulkCreateResult(api);
+	    assertEquals(outcome.name(), result.getOutcome().name());
+	}
+    }
+
+    @Test
+    public void testRowsKeepOrderAndOutcome() throws Exception {
+	List<BulkCreateResult<Object>> api = new ArrayList<>();
+	api.add(new BulkCreateResult<>(0, "device-0").succeeded(BulkCreateOutcome.Created, "entity"));
+	api.add(new BulkCreateResult<>(1, "device-1").failed("Invalid device type."));
+	api.add(new BulkCreateResult<>(2, "device-2").succeeded(BulkCreateOutcome.Updated, "entity"));
+
+	BulkCreateResponse.Builder response = BulkCreateResponse.newBuilder();
+	for (BulkCreateResult<Object> row : api) {
+	    BulkCreateResponse.Result.Builder result = DeviceManagementImpl.asGrpcBulkCreateResult(row);
+	    if (row.getEntity() != null) {
+		result.setDevice(GDevice.getDefaultInstance());
+	    }
+	    response.addResults(result);
+	}
+
+	BulkCreateResponse decoded = BulkCreateResponse.parseFrom(response.build().toByteArray());
+	assertEquals(3, decoded.getResultsCount());
+	for (int i = 0; i < 3; i++) {
+	    assertEquals(i, decoded.getResults(i).getIndex());
+	    assertEquals("device-" + i, decoded.getResults(i).getToken());
+	}
+
+	BulkCreateResponse.Result created = decoded.getResults(0);
+	assertEquals(BulkCreateResponse.Outcome.Created, created.getOutcome());
+	assertTrue(created.hasDevice());
+	assertEquals("", created.getErrorMessage());
+
+	BulkCreateResponse.Result failed = decoded.getResults(1);
+	assertEquals(BulkCreateResponse.Outcome.Failed, failed.getOutcome());
+	assertEquals("Invalid device type.", failed.getErrorMessage());
+	assertFalse(failed.hasDevice());
+
+	assertEquals(BulkCreateResponse.Outcome.Updated, decoded.getResults(2).getOutcome());
+    }
+}
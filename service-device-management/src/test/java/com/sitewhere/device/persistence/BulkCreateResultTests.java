@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.sitewhere.device.spi.persistence.BulkCreateOutcome;
+
+/**
+ * Tests for per-row results of bulk create requests.
+ */
+public class BulkCreateResultTests {
+
+    @Test
+    public void testNewResultHasNoOutcome() {
+	BulkCreateResult<String> result = new BulkCreateResult<>(3, "device-3");
+	assertEquals(3, result.getIndex());
+	assertEquals("device-3", result.getToken());
+	assertNull(result.getOutcome());
+	assertNull(result.getEntity());
+	assertNull(result.getErrorMessage());
+    }
+
+    @Test
+    public void testSucceeded() {
+	String entity = "entity";
+	BulkCreateResult<String> result = new BulkCreateResult<String>(0, "device-0")
+		.succeeded(BulkCreateOutcome.Created, entity);
+	assertEquals(BulkCreateOutcome.Created, result.getOutcome());
+	assertSame(entity, result.getEntity());
+	assertNull(result.getErrorMessage());
+    }
+
+    @Test
+    public void testFailedClearsEntity() {
+	BulkCreateResult<String> result = new BulkCreateResult<String>(1, "device-1")
+		.succeeded(BulkCreateOutcome.Updated, "entity");
+	result.failed("Not stored because transaction was rolled back.");
+	assertEquals(BulkCreateOutcome.Failed, result.getOutcome());
+	assertNull(result.getEntity());
+	assertEquals("Not stored because transaction was rolled back.", result.getErrorMessage());
+    }
+
+    @Test
+    public void testSucceededClearsError() {
+	BulkCreateResult<String> result = new BulkCreateResult<String>(2, "device-2").failed("Invalid device type.");
+	result.succeeded(BulkCreateOutcome.Created, "entity");
+	assertEquals(BulkCreateOutcome.Created, result.getOutcome());
+	assertNull(result.getErrorMessage());
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.device.persistence.rdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.sitewhere.device.persistence.rdb.RdbCursorPaging.Position;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Tests for encoding and decoding of continuation tokens.
+ */
+public class RdbCursorPagingTests {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+	Date created = new Date(1589470861123L);
+	UUID id = UUID.randomUUID();
+	String token = RdbCursorPaging.encodeContinuationToken(created, id);
+	Position position = RdbCursorPaging.decodeContinuationToken(token);
+	assertEquals(created, position.getCreatedDate());
+	assertEquals(id, position.getId());
+    }
+
+    @Test
+    public void testTokenIsUrlSafe() throws Exception {
+	for (int i = 0; i < 100; i++) {
+	    String token = RdbCursorPaging.encodeContinuationToken(new Date(), UUID.randomUUID());
+	    assertFalse("Token should not need escaping: " + token, token.matches(".*[+/=].*"));
+	}
+    }
+
+    @Test
+    public void testMissingTokenStartsAtFirstPage() throws Exception {
+	assertNull(RdbCursorPaging.decodeContinuationToken(null));
+	assertNull(RdbCursorPaging.decodeContinuationToken(""));
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testMissingCreatedDateRejected() throws Exception {
+	RdbCursorPaging.encodeContinuationToken(null, UUID.randomUUID());
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testInvalidBase64Rejected() throws Exception {
+	RdbCursorPaging.decodeContinuationToken("not a token!");
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testMissingIdRejected() throws Exception {
+	RdbCursorPaging.decodeContinuationToken(encode("1589470861123"));
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testInvalidDateRejected() throws Exception {
+	RdbCursorPaging.decodeContinuationToken(encode("yesterday:" + UUID.randomUUID()));
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testInvalidIdRejected() throws Exception {
+	RdbCursorPaging.decodeContinuationToken(encode("1589470861123:device-1"));
+    }
+
+    /**
+     * Encode raw token content the same way as the paging implementation.
+     * 
+     * @param raw
+     * @return
+     */
+    protected static String encode(String raw) {
+	return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.processing;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.kafka.ProcessedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Compares building and serializing an outbound payload through the REST model
+ * with building it directly from a gRPC context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OutboundPayloadEnrichmentBenchmark {
+
+    /** Event context */
+    private DeviceEventContext context;
+
+    /** Event context in gRPC form, as received from inbound processing */
+    private GDeviceEventContext grpcContext;
+
+    /** Persisted event */
+    private DeviceMeasurement event;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	Map<String, String> metadata = new HashMap<>();
+	metadata.put("firmware", "1.0.3");
+	metadata.put("location", "building-7");
+
+	this.context = new DeviceEventContext();
+	context.setSourceId("benchmark");
+	context.setDeviceToken("device-001");
+	context.setDeviceId(UUID.randomUUID());
+	context.setDeviceTypeId(UUID.randomUUID());
+	context.setDeviceMetadata(metadata);
+	context.setDeviceAssignmentId(UUID.randomUUID());
+	context.setCustomerId(UUID.randomUUID());
+	context.setAreaId(UUID.randomUUID());
+	context.setAssetId(UUID.randomUUID());
+	context.setDeviceAssignmentMetadata(metadata);
+	this.grpcContext = EventModelConverter.asGrpcDeviceEventContext(context);
+
+	this.event = new DeviceMeasurement();
+	event.setId(UUID.randomUUID());
+	event.setDeviceId(context.getDeviceId());
+	event.setDeviceAssignmentId(context.getDeviceAssignmentId());
+	event.setCustomerId(context.getCustomerId());
+	event.setAreaId(context.getAreaId());
+	event.setAssetId(context.getAssetId());
+	event.setEventDate(new Date());
+	event.setReceivedDate(new Date());
+	event.setName("temperature");
+	event.setValue(21.5);
+    }
+
+    /**
+     * Previous path: wrap in REST payload, convert all of it, then marshal.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    @Benchmark
+    public byte[] viaRestModel() throws SiteWhereException {
+	ProcessedEventPayload enriched = new ProcessedEventPayload();
+	enriched.setEventContext(context);
+	enriched.setEvent(event);
+	return EventModelMarshaler
+		.buildProcessedEventPayloadMessage(EventModelConverter.asGrpcProcessedEventPayload(enriched));
+    }
+
+    /**
+     * Current path with a context that is converted once per batch.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    @Benchmark
+    public byte[] viaGrpcContext() throws SiteWhereException {
+	return OutboundPayloadEnrichmentLogic.buildProcessedEventPayload(grpcContext, event).toByteArray();
+    }
+
+    /**
+     * Current path for a single event, including context conversion.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    @Benchmark
+    public byte[] viaRestContext() throws SiteWhereException {
+	GDeviceEventContext converted = EventModelConverter.asGrpcDeviceEventContext(context);
+	return OutboundPayloadEnrichmentLogic.buildProcessedEventPayload(converted, event).toByteArray();
+    }
+}
@@ -26,12 +26,55 @@ public class EventManagementTenantConfiguration implements ITenantEngineConfigur
     /** Default number of threads used for concurrent processing of events */
     private static final int DEFAULT_PROCESSING_THREAD_COUNT = 10;
 
+    /** Default number of events persisted per batch (batching disabled) */
+    private static final int DEFAULT_PERSISTENCE_BATCH_SIZE = 1;
+
+    /** Default number of milliseconds an event waits for its batch */
+    private static final int DEFAULT_PERSISTENCE_BATCH_LINGER_MS = 100;
+
+    /** Default number of times a batched event is tried before it is dropped */
+    private static final int DEFAULT_PERSISTENCE_BATCH_MAX_ATTEMPTS = 5;
+
+    /** Default maximum number of events held in datastore lookup caches */
+    private static final int DEFAULT_EVENT_CACHE_SIZE = 10000;
+
+    /** Default number of minutes events are held in datastore lookup caches */
+    private static final int DEFAULT_EVENT_CACHE_EXPIRATION_MINUTES = 10;
+
+    /** Default maximum number of rows fetched per page when searching */
+    private static final int DEFAULT_SEARCH_FETCH_SIZE = 500;
+
     /** Datastore definition */
     private DatastoreDefinition datastore;
 
     /** Number of threads used for concurrent processing of events */
     private int processingThreadCount = DEFAULT_PROCESSING_THREAD_COUNT;
 
+    /** Number of events persisted per batch */
+    private int persistenceBatchSize = DEFAULT_PERSISTENCE_BATCH_SIZE;
+
+    /** Number of milliseconds an event waits for its batch */
+    private int persistenceBatchLingerMs = DEFAULT_PERSISTENCE_BATCH_LINGER_MS;
+
+    /** Number of times a batched event is tried before it is dropped */
+    private int persistenceBatchMaxAttempts = DEFAULT_PERSISTENCE_BATCH_MAX_ATTEMPTS;
+
+    /** Maximum number of events held in datastore lookup caches */
+    private int eventCacheSize = DEFAULT_EVENT_CACHE_SIZE;
+
+    /** Number of minutes events are held in datastore lookup caches */
+    private int eventCacheExpirationMinutes = DEFAULT_EVENT_CACHE_EXPIRATION_MINUTES;
+
+    /** Maximum number of rows fetched per page when searching */
+    private int searchFetchSize = DEFAULT_SEARCH_FETCH_SIZE;
+
+    /**
+     * Indicates whether searches read every matching event to report an exact
+     * total. Otherwise datastores that support it stop reading once the page is
+     * filled and report a lower bound.
+     */
+    private boolean exactSearchCounts = false;
+
     public DatastoreDefinition getDatastore() {
 	return datastore;
     }
@@ -47,4 +90,60 @@ public class EventManagementTenantConfiguration implements ITenantEngineConfigur
     public void setProcessingThreadCount(int processingThreadCount) {
 	this.processingThreadCount = processingThreadCount;
     }
+
+    public int getPersistenceBatchSize() {
+	return persistenceBatchSize;
+    }
+
+    public void setPersistenceBatchSize(int persistenceBatchSize) {
+	this.persistenceBatchSize = persistenceBatchSize;
+    }
+
+    public int getPersistenceBatchLingerMs() {
+	return persistenceBatchLingerMs;
+    }
+
+    public void setPersistenceBatchLingerMs(int persistenceBatchLingerMs) {
+	this.persistenceBatchLingerMs = persistenceBatchLingerMs;
+    }
+
+    public int getPersistenceBatchMaxAttempts() {
+	return persistenceBatchMaxAttempts;
+    }
+
+    public void setPersistenceBatchMaxAttempts(int persistenceBatchMaxAttempts) {
+	this.persistenceBatchMaxAttempts = persistenceBatchMaxAttempts;
+    }
+
+    public int getEventCacheSize() {
+	return eventCacheSize;
+    }
+
+    public void setEventCacheSize(int eventCacheSize) {
+	this.eventCacheSize = eventCacheSize;
+    }
+
+    public int getEventCacheExpirationMinutes() {
+	return eventCacheExpirationMinutes;
+    }
+
+    public void setEventCacheExpirationMinutes(int eventCacheExpirationMinutes) {
+	this.eventCacheExpirationMinutes = eventCacheExpirationMinutes;
+    }
+
+    public int getSearchFetchSize() {
+	return searchFetchSize;
+    }
+
+    public void setSearchFetchSize(int searchFetchSize) {
+	this.searchFetchSize = searchFetchSize;
+    }
+
+    public boolean isExactSearchCounts() {
+	return exactSearchCounts;
+    }
+
+    public void setExactSearchCounts(boolean exactSearchCounts) {
+	this.exactSearchCounts = exactSearchCounts;
+    }
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.grpc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sitewhere.event.spi.grpc.IEventExportExecutor;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.microservice.security.SystemUserRunnable;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
+
+/**
+ * Fixed pool of threads that run event export queries for a tenant. Exports
+ * block on datastore queries, so they are kept off the gRPC transport threads
+ * and limited to a bounded number of concurrent queries per tenant.
+ */
+public class EventExportExecutor extends TenantEngineLifecycleComponent implements IEventExportExecutor {
+
+    /** Number of threads used for event exports */
+    private static final int EXPORT_THREAD_COUNT = 4;
+
+    /** Executor service for export threads */
+    private ExecutorService executor;
+
+    public EventExportExecutor() {
+	super(LifecycleComponentType.Other);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.executor = Executors.newFixedThreadPool(EXPORT_THREAD_COUNT, new ExportThreadFactory());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (executor != null) {
+	    executor.shutdownNow();
+	    executor = null;
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.event.spi.grpc.IEventExportExecutor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable task) throws SiteWhereException {
+	ExecutorService current = executor;
+	if (current == null) {
+	    throw new SiteWhereException("Event export executor is not started.");
+	}
+	try {
+	    current.execute(new SystemUserRunnable(this) {
+
+		@Override
+		public void runAsSystemUser() throws SiteWhereException {
+		    task.run();
+		}
+	    });
+	} catch (RejectedExecutionException e) {
+	    throw new SiteWhereException("Event export executor is shutting down.", e);
+	}
+    }
+
+    /** Used for naming event export threads */
+    private class ExportThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Event Export " + counter.incrementAndGet());
+	}
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.grpc;
+
+import com.google.protobuf.Message;
+import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
+import com.sitewhere.grpc.service.GListAlertsForIndexRequest;
+import com.sitewhere.grpc.service.GListAlertsForIndexResponse;
+import com.sitewhere.grpc.service.GListCommandInvocationsForIndexRequest;
+import com.sitewhere.grpc.service.GListCommandInvocationsForIndexResponse;
+import com.sitewhere.grpc.service.GListCommandResponsesForIndexRequest;
+import com.sitewhere.grpc.service.GListCommandResponsesForIndexResponse;
+import com.sitewhere.grpc.service.GListLocationsForIndexRequest;
+import com.sitewhere.grpc.service.GListLocationsForIndexResponse;
+import com.sitewhere.grpc.service.GListMeasurementsForIndexRequest;
+import com.sitewhere.grpc.service.GListMeasurementsForIndexResponse;
+import com.sitewhere.grpc.service.GListStateChangesForIndexRequest;
+import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Descriptors for server-streaming event export methods. The methods are served
+ * as part of the device event management service and reuse the request and
+ * response messages of the matching list methods. Each streamed response holds
+ * one chunk of results. Clients call them with the same descriptors.
+ */
+public final class EventExportGrpc {
+
+    /** Streams measurements for an index */
+    public static final MethodDescriptor<GListMeasurementsForIndexRequest, GListMeasurementsForIndexResponse> STREAM_MEASUREMENTS_FOR_INDEX = create(
+	    "StreamMeasurementsForIndex", GListMeasurementsForIndexRequest.getDefaultInstance(),
+	    GListMeasurementsForIndexResponse.getDefaultInstance());
+
+    /** Streams locations for an index */
+    public static final MethodDescriptor<GListLocationsForIndexRequest, GListLocationsForIndexResponse> STREAM_LOCATIONS_FOR_INDEX = create(
+	    "StreamLocationsForIndex", GListLocationsForIndexRequest.getDefaultInstance(),
+	    GListLocationsForIndexResponse.getDefaultInstance());
+
+    /** Streams alerts for an index */
+    public static final MethodDescriptor<GListAlertsForIndexRequest, GListAlertsForIndexResponse> STREAM_ALERTS_FOR_INDEX = create(
+	    "StreamAlertsForIndex", GListAlertsForIndexRequest.getDefaultInstance(),
+	    GListAlertsForIndexResponse.getDefaultInstance());
+
+    /** Streams command invocations for an index */
+    public static final MethodDescriptor<GListCommandInvocationsForIndexRequest, GListCommandInvocationsForIndexResponse> STREAM_COMMAND_INVOCATIONS_FOR_INDEX = create(
+	    "StreamCommandInvocationsForIndex", GListCommandInvocationsForIndexRequest.getDefaultInstance(),
+	    GListCommandInvocationsForIndexResponse.getDefaultInstance());
+
+    /** Streams command responses for an index */
+    public static final MethodDescriptor<GListCommandResponsesForIndexRequest, GListCommandResponsesForIndexResponse> STREAM_COMMAND_RESPONSES_FOR_INDEX = create(
+	    "StreamCommandResponsesForIndex", GListCommandResponsesForIndexRequest.getDefaultInstance(),
+	    GListCommandResponsesForIndexResponse.getDefaultInstance());
+
+    /** Streams state changes for an index */
+    public static final MethodDescriptor<GListStateChangesForIndexRequest, GListStateChangesForIndexResponse> STREAM_STATE_CHANGES_FOR_INDEX = create(
+	    "StreamStateChangesForIndex", GListStateChangesForIndexRequest.getDefaultInstance(),
+	    GListStateChangesForIndexResponse.getDefaultInstance());
+
+    private EventExportGrpc() {
+    }
+
+    /**
+     * Create descriptor for a server-streaming method.
+     * 
+     * @param name
+     * @param request
+     * @param response
+     * @return
+     */
+    private static <Q extends Message, R extends Message> MethodDescriptor<Q, R> create(String name, Q request,
+	    R response) {
+	return MethodDescriptor.<Q, R>newBuilder().setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+		.setFullMethodName(
+			MethodDescriptor.generateFullMethodName(DeviceEventManagementGrpc.SERVICE_NAME, name))
+		.setRequestMarshaller(ProtoUtils.marshaller(request))
+		.setResponseMarshaller(ProtoUtils.marshaller(response)).build();
+    }
+}
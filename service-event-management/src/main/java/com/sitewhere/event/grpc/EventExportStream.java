@@ -0,0 +1,203 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.grpc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sitewhere.event.persistence.EventCursorSearchCriteria;
+import com.sitewhere.event.persistence.EventCursorSearchResults;
+import com.sitewhere.event.spi.grpc.IEventExportExecutor;
+import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+import com.sitewhere.spi.search.ISearchResults;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Streams search results to a client one chunk at a time. A chunk is only
+ * queried when the transport is ready to send, so at most one chunk is held in
+ * memory regardless of the size of the result set. Chunks are queried on the
+ * tenant export executor rather than on the gRPC transport thread that signals
+ * readiness.
+ * 
+ * Exports are paged by continuation token. Datastores that only support page
+ * numbers would have to rescan all earlier rows for every chunk, so exports are
+ * refused for them before anything is sent.
+ *
+ * @param <T> event type
+ * @param <R> response message type
+ */
+public class EventExportStream<T, R> {
+
+    /** Default number of events per chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** Implementation that owns the call */
+    private IGrpcApiImplementation implementation;
+
+    /** Streaming method */
+    private MethodDescriptor<?, ?> method;
+
+    /** Executor that runs chunk queries */
+    private IEventExportExecutor executor;
+
+    /** Observer for the call */
+    private ServerCallStreamObserver<R> observer;
+
+    /** Original criteria */
+    private IDateRangeSearchCriteria criteria;
+
+    /** Queries a single chunk */
+    private IChunkQuery<T> query;
+
+    /** Converts a chunk into a response */
+    private IChunkConverter<T, R> converter;
+
+    /** Number of events per chunk */
+    private int chunkSize;
+
+    /** Continuation token returned with last chunk */
+    private String continuationToken;
+
+    /** Indicates a drain has been submitted and has not started yet */
+    private AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Indicates stream has been completed or cancelled */
+    private volatile boolean done;
+
+    public EventExportStream(IGrpcApiImplementation implementation, MethodDescriptor<?, ?> method,
+	    IEventExportExecutor executor, StreamObserver<R> observer, IDateRangeSearchCriteria criteria,
+	    IChunkQuery<T> query, IChunkConverter<T, R> converter) {
+	this.implementation = implementation;
+	this.method = method;
+	this.executor = executor;
+	this.observer = (ServerCallStreamObserver<R>) observer;
+	this.criteria = criteria;
+	this.query = query;
+	this.converter = converter;
+	this.chunkSize = ((criteria.getPageSize() != null) && (criteria.getPageSize() > 0)) ? criteria.getPageSize()
+		: DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Start sending chunks. Further chunks are sent as the transport signals that
+     * it is ready.
+     */
+    public void start() {
+	observer.setOnCancelHandler(() -> cancel());
+	observer.setOnReadyHandler(() -> schedule());
+	schedule();
+    }
+
+    /**
+     * Submit a drain to the export executor unless one is already waiting to run.
+     */
+    protected void schedule() {
+	if (done || !scheduled.compareAndSet(false, true)) {
+	    return;
+	}
+	try {
+	    executor.execute(() -> {
+		scheduled.set(false);
+		drain();
+	    });
+	} catch (Throwable e) {
+	    done = true;
+	    GrpcUtils.handleServerMethodException(method, e, observer);
+	}
+    }
+
+    /**
+     * Send chunks for as long as the transport is ready.
+     */
+    protected synchronized void drain() {
+	if (done) {
+	    return;
+	}
+	try {
+	    GrpcUtils.handleServerMethodEntry(implementation, method);
+	    while (!done && observer.isReady()) {
+		ISearchResults<T> chunk = query.query(new EventCursorSearchCriteria(1, chunkSize,
+			criteria.getStartDate(), criteria.getEndDate(), continuationToken));
+		if (!(chunk instanceof EventCursorSearchResults)) {
+		    throw new SiteWhereException(
+			    "Event export requires a datastore that supports continuation tokens.");
+		}
+		if (!chunk.getResults().isEmpty()) {
+		    observer.onNext(converter.convert(chunk));
+		}
+		continuationToken = ((EventCursorSearchResults<T>) chunk).getContinuationToken();
+		done = (continuationToken == null);
+		if (done) {
+		    observer.onCompleted();
+		}
+	    }
+	} catch (Throwable e) {
+	    done = true;
+	    GrpcUtils.handleServerMethodException(method, e, observer);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(method);
+	}
+    }
+
+    /**
+     * Stop sending chunks when the client cancels the call.
+     */
+    protected void cancel() {
+	done = true;
+    }
+
+    /**
+     * Queries a single chunk of results.
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public static interface IChunkQuery<T> {
+
+	/**
+	 * Query results for the given criteria.
+	 * 
+	 * @param criteria
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public ISearchResults<T> query(IDateRangeSearchCriteria criteria) throws SiteWhereException;
+    }
+
+    /**
+     * Converts a chunk of results into a response message.
+     *
+     * @param <T>
+     * @param <R>
+     */
+    @FunctionalInterface
+    public static interface IChunkConverter<T, R> {
+
+	/**
+	 * Convert results to a response message.
+	 * 
+	 * @param chunk
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public R convert(ISearchResults<T> chunk) throws SiteWhereException;
+    }
+}
@@ -0,0 +1,383 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.grpc;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.google.protobuf.MessageLite;
+import com.sitewhere.grpc.common.CommonModelConverter;
+import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.extensions.event.EventCursorListGrpc;
+import com.sitewhere.grpc.extensions.event.IndexCursorListRequest;
+import com.sitewhere.grpc.extensions.event.IndexCursorListResponse;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceAlertSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandInvocationSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandResponseSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceLocationSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceMeasurementSearchResults;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceStateChangeSearchResults;
+import com.sitewhere.grpc.service.GListAlertsForIndexRequest;
+import com.sitewhere.grpc.service.GListAlertsForIndexResponse;
+import com.sitewhere.grpc.service.GListCommandInvocationsForIndexRequest;
+import com.sitewhere.grpc.service.GListCommandInvocationsForIndexResponse;
+import com.sitewhere.grpc.service.GListCommandResponsesForIndexRequest;
+import com.sitewhere.grpc.service.GListCommandResponsesForIndexResponse;
+import com.sitewhere.grpc.service.GListLocationsForIndexRequest;
+import com.sitewhere.grpc.service.GListLocationsForIndexResponse;
+import com.sitewhere.grpc.service.GListMeasurementsForIndexRequest;
+import com.sitewhere.grpc.service.GListMeasurementsForIndexResponse;
+import com.sitewhere.grpc.service.GListStateChangesForIndexRequest;
+import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
+import com.sitewhere.microservice.api.event.IDeviceEventManagement;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.IDeviceAlert;
+import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
+import com.sitewhere.spi.device.event.IDeviceCommandResponse;
+import com.sitewhere.spi.device.event.IDeviceLocation;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceStateChange;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+import com.sitewhere.spi.search.ISearchResults;
+
+import io.grpc.MethodDescriptor;
+
+/**
+ * Describes how an event type is listed for an index over gRPC: how the list
+ * request is parsed, which event management query is run and how results are
+ * converted into the list response. Streaming exports and lists that page by
+ * continuation token use a single generic implementation driven by one listing
+ * per event type. Cursor lists carry the list request and response in a field
+ * of the shared {@link IndexCursorListRequest} and
+ * {@link IndexCursorListResponse} messages.
+ *
+ * @param <Q> list request message type
+ * @param <R> list response message type
+ * @param <T> event type
+ */
+public class EventIndexListing<Q extends MessageLite, R extends MessageLite, T> {
+
+    /** Lists measurements for an index */
+    public static final EventIndexListing<GListMeasurementsForIndexRequest, GListMeasurementsForIndexResponse, IDeviceMeasurement> MEASUREMENTS = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_MEASUREMENTS_FOR_INDEX, EventCursorListGrpc.LIST_MEASUREMENTS_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.MEASUREMENTS, IndexCursorListRequest::getMeasurements,
+	    IndexCursorListResponse.Builder::setMeasurements,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceMeasurementsForIndex, EventIndexListing::asMeasurementsResponse);
+
+    /** Lists locations for an index */
+    public static final EventIndexListing<GListLocationsForIndexRequest, GListLocationsForIndexResponse, IDeviceLocation> LOCATIONS = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_LOCATIONS_FOR_INDEX, EventCursorListGrpc.LIST_LOCATIONS_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.LOCATIONS, IndexCursorListRequest::getLocations,
+	    IndexCursorListResponse.Builder::setLocations,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceLocationsForIndex, EventIndexListing::asLocationsResponse);
+
+    /** Lists alerts for an index */
+    public static final EventIndexListing<GListAlertsForIndexRequest, GListAlertsForIndexResponse, IDeviceAlert> ALERTS = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_ALERTS_FOR_INDEX, EventCursorListGrpc.LIST_ALERTS_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.ALERTS, IndexCursorListRequest::getAlerts,
+	    IndexCursorListResponse.Builder::setAlerts,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceAlertsForIndex, EventIndexListing::asAlertsResponse);
+
+    /** Lists command invocations for an index */
+    public static final EventIndexListing<GListCommandInvocationsForIndexRequest, GListCommandInvocationsForIndexResponse, IDeviceCommandInvocation> COMMAND_INVOCATIONS = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_COMMAND_INVOCATIONS_FOR_INDEX,
+	    EventCursorListGrpc.LIST_COMMAND_INVOCATIONS_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.COMMANDINVOCATIONS, IndexCursorListRequest::getCommandInvocations,
+	    IndexCursorListResponse.Builder::setCommandInvocations,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceCommandInvocationsForIndex,
+	    EventIndexListing::asCommandInvocationsResponse);
+
+    /** Lists command responses for an index */
+    public static final EventIndexListing<GListCommandResponsesForIndexRequest, GListCommandResponsesForIndexResponse, IDeviceCommandResponse> COMMAND_RESPONSES = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_COMMAND_RESPONSES_FOR_INDEX,
+	    EventCursorListGrpc.LIST_COMMAND_RESPONSES_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.COMMANDRESPONSES, IndexCursorListRequest::getCommandResponses,
+	    IndexCursorListResponse.Builder::setCommandResponses,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceCommandResponsesForIndex, EventIndexListing::asCommandResponsesResponse);
+
+    /** Lists state changes for an index */
+    public static final EventIndexListing<GListStateChangesForIndexRequest, GListStateChangesForIndexResponse, IDeviceStateChange> STATE_CHANGES = new EventIndexListing<>(
+	    EventExportGrpc.STREAM_STATE_CHANGES_FOR_INDEX,
+	    EventCursorListGrpc.LIST_STATE_CHANGES_FOR_INDEX_WITH_CURSOR,
+	    IndexCursorListRequest.RequestCase.STATECHANGES, IndexCursorListRequest::getStateChanges,
+	    IndexCursorListResponse.Builder::setStateChanges,
+	    (request) -> new IndexQuery(EventModelConverter.asApiDeviceEventIndex(request.getIndex()),
+		    CommonModelConverter.asApiUuids(request.getEntityIdsList()),
+		    CommonModelConverter.asDateRangeSearchCriteria(request.getCriteria())),
+	    IDeviceEventManagement::listDeviceStateChangesForIndex, EventIndexListing::asStateChangesResponse);
+
+    /** Server-streaming export method */
+    private MethodDescriptor<Q, R> streamMethod;
+
+    /** Unary list method that pages by continuation token */
+    private MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> cursorMethod;
+
+    /** Field of cursor list request that holds list request */
+    private IndexCursorListRequest.RequestCase cursorRequestCase;
+
+    /** Gets list request from cursor list request */
+    private Function<IndexCursorListRequest, Q> cursorRequest;
+
+    /** Sets list response on cursor list response */
+    private BiConsumer<IndexCursorListResponse.Builder, R> cursorResponse;
+
+    /** Parses list requests */
+    private IRequestParser<Q> parser;
+
+    /** Runs the event management query */
+    private IIndexSearch<T> search;
+
+    /** Converts results into a list response */
+    private EventExportStream.IChunkConverter<T, R> converter;
+
+    public EventIndexListing(MethodDescriptor<Q, R> streamMethod,
+	    MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> cursorMethod,
+	    IndexCursorListRequest.RequestCase cursorRequestCase, Function<IndexCursorListRequest, Q> cursorRequest,
+	    BiConsumer<IndexCursorListResponse.Builder, R> cursorResponse, IRequestParser<Q> parser,
+	    IIndexSearch<T> search, EventExportStream.IChunkConverter<T, R> converter) {
+	this.streamMethod = streamMethod;
+	this.cursorMethod = cursorMethod;
+	this.cursorRequestCase = cursorRequestCase;
+	this.cursorRequest = cursorRequest;
+	this.cursorResponse = cursorResponse;
+	this.parser = parser;
+	this.search = search;
+	this.converter = converter;
+    }
+
+    /**
+     * Parse index, entity ids and criteria from a list request.
+     * 
+     * @param request
+     * @return
+     * @throws SiteWhereException
+     */
+    public IndexQuery parse(Q request) throws SiteWhereException {
+	return parser.parse(request);
+    }
+
+    /**
+     * Get list request from a cursor list request.
+     * 
+     * @param request
+     * @return
+     * @throws SiteWhereException
+     */
+    public Q unwrap(IndexCursorListRequest request) throws SiteWhereException {
+	if (request.getRequestCase() != cursorRequestCase) {
+	    throw new SiteWhereException("Cursor list request does not contain a " + cursorRequestCase + " request.");
+	}
+	return cursorRequest.apply(request);
+    }
+
+    /**
+     * Set list response on a cursor list response.
+     * 
+     * @param builder
+     * @param response
+     */
+    public void wrap(IndexCursorListResponse.Builder builder, R response) {
+	cursorResponse.accept(builder, response);
+    }
+
+    /**
+     * Run the query for an index with the given criteria.
+     * 
+     * @param management
+     * @param query
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public ISearchResults<T> search(IDeviceEventManagement management, IndexQuery query,
+	    IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	return search.search(management, query.getIndex(), query.getEntityIds(), criteria);
+    }
+
+    /**
+     * Convert results into a list response.
+     * 
+     * @param results
+     * @return
+     * @throws SiteWhereException
+     */
+    public R convert(ISearchResults<T> results) throws SiteWhereException {
+	return converter.convert(results);
+    }
+
+    public MethodDescriptor<Q, R> getStreamMethod() {
+	return streamMethod;
+    }
+
+    public MethodDescriptor<IndexCursorListRequest, IndexCursorListResponse> getCursorMethod() {
+	return cursorMethod;
+    }
+
+    public EventExportStream.IChunkConverter<T, R> getConverter() {
+	return converter;
+    }
+
+    protected static GListMeasurementsForIndexResponse asMeasurementsResponse(
+	    ISearchResults<IDeviceMeasurement> apiResult) throws SiteWhereException {
+	GDeviceMeasurementSearchResults.Builder results = GDeviceMeasurementSearchResults.newBuilder();
+	for (IDeviceMeasurement api : apiResult.getResults()) {
+	    results.addMeasurements(EventModelConverter.asGrpcDeviceMeasurement(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListMeasurementsForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    protected static GListLocationsForIndexResponse asLocationsResponse(ISearchResults<IDeviceLocation> apiResult)
+	    throws SiteWhereException {
+	GDeviceLocationSearchResults.Builder results = GDeviceLocationSearchResults.newBuilder();
+	for (IDeviceLocation api : apiResult.getResults()) {
+	    results.addLocations(EventModelConverter.asGrpcDeviceLocation(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListLocationsForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    protected static GListAlertsForIndexResponse asAlertsResponse(ISearchResults<IDeviceAlert> apiResult)
+	    throws SiteWhereException {
+	GDeviceAlertSearchResults.Builder results = GDeviceAlertSearchResults.newBuilder();
+	for (IDeviceAlert api : apiResult.getResults()) {
+	    results.addAlerts(EventModelConverter.asGrpcDeviceAlert(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListAlertsForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    protected static GListCommandInvocationsForIndexResponse asCommandInvocationsResponse(
+	    ISearchResults<IDeviceCommandInvocation> apiResult) throws SiteWhereException {
+	GDeviceCommandInvocationSearchResults.Builder results = GDeviceCommandInvocationSearchResults.newBuilder();
+	for (IDeviceCommandInvocation api : apiResult.getResults()) {
+	    results.addInvocations(EventModelConverter.asGrpcDeviceCommandInvocation(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListCommandInvocationsForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    protected static GListCommandResponsesForIndexResponse asCommandResponsesResponse(
+	    ISearchResults<IDeviceCommandResponse> apiResult) throws SiteWhereException {
+	GDeviceCommandResponseSearchResults.Builder results = GDeviceCommandResponseSearchResults.newBuilder();
+	for (IDeviceCommandResponse api : apiResult.getResults()) {
+	    results.addResponses(EventModelConverter.asGrpcDeviceCommandResponse(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListCommandResponsesForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    protected static GListStateChangesForIndexResponse asStateChangesResponse(
+	    ISearchResults<IDeviceStateChange> apiResult) throws SiteWhereException {
+	GDeviceStateChangeSearchResults.Builder results = GDeviceStateChangeSearchResults.newBuilder();
+	for (IDeviceStateChange api : apiResult.getResults()) {
+	    results.addStateChanges(EventModelConverter.asGrpcDeviceStateChange(api));
+	}
+	results.setCount(apiResult.getNumResults());
+	return GListStateChangesForIndexResponse.newBuilder().setResults(results.build()).build();
+    }
+
+    /**
+     * Index, entity ids and criteria parsed from a list request.
+     */
+    public static class IndexQuery {
+
+	/** Event index */
+	private DeviceEventIndex index;
+
+	/** Ids of indexed entities */
+	private List<UUID> entityIds;
+
+	/** Search criteria */
+	private IDateRangeSearchCriteria criteria;
+
+	public IndexQuery(DeviceEventIndex index, List<UUID> entityIds, IDateRangeSearchCriteria criteria) {
+	    this.index = index;
+	    this.entityIds = entityIds;
+	    this.criteria = criteria;
+	}
+
+	public DeviceEventIndex getIndex() {
+	    return index;
+	}
+
+	public List<UUID> getEntityIds() {
+	    return entityIds;
+	}
+
+	public IDateRangeSearchCriteria getCriteria() {
+	    return criteria;
+	}
+    }
+
+    /**
+     * Parses a list request.
+     *
+     * @param <Q>
+     */
+    @FunctionalInterface
+    public static interface IRequestParser<Q> {
+
+	/**
+	 * Parse index, entity ids and criteria from a request.
+	 * 
+	 * @param request
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public IndexQuery parse(Q request) throws SiteWhereException;
+    }
+
+    /**
+     * Runs an event management query for an index.
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public static interface IIndexSearch<T> {
+
+	/**
+	 * Search events for an index.
+	 * 
+	 * @param management
+	 * @param index
+	 * @param entityIds
+	 * @param criteria
+	 * @return
+	 * @throws SiteWhereException
+	 */
+	public ISearchResults<T> search(IDeviceEventManagement management, DeviceEventIndex index,
+		List<UUID> entityIds, IDateRangeSearchCriteria criteria) throws SiteWhereException;
+    }
+}
@@ -17,11 +17,17 @@ package com.sitewhere.event.grpc;
 
 import java.util.List;
 
+import com.google.protobuf.MessageLite;
+import com.sitewhere.event.persistence.EventCursorSearchCriteria;
+import com.sitewhere.event.persistence.EventCursorSearchResults;
+import com.sitewhere.event.spi.grpc.IEventExportExecutor;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.common.CommonModelConverter;
 import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.extensions.event.IndexCursorListRequest;
+import com.sitewhere.grpc.extensions.event.IndexCursorListResponse;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceAlertSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandInvocationSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandResponseSearchResults;
@@ -63,6 +69,7 @@ import com.sitewhere.grpc.service.GListStateChangesForIndexRequest;
 import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
 import com.sitewhere.microservice.api.event.IDeviceEventManagement;
 import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
@@ -78,6 +85,7 @@ import com.sitewhere.spi.device.event.request.IDeviceLocationCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
 import com.sitewhere.spi.microservice.IMicroservice;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 
 import io.grpc.stub.StreamObserver;
@@ -88,16 +96,23 @@ import io.grpc.stub.StreamObserver;
 public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventManagementImplBase
 	implements IGrpcApiImplementation {
 
+    /** Page size used for cursor lists if criteria does not specify one */
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 100;
+
     /** Parent microservice */
     private IEventManagementMicroservice microservice;
 
     /** Device management persistence */
     private IDeviceEventManagement deviceEventManagement;
 
-    public EventManagementImpl(IEventManagementMicroservice microservice,
-	    IDeviceEventManagement deviceEventManagement) {
+    /** Runs event export queries */
+    private IEventExportExecutor exportExecutor;
+
+    public EventManagementImpl(IEventManagementMicroservice microservice, IDeviceEventManagement deviceEventManagement,
+	    IEventExportExecutor exportExecutor) {
 	this.microservice = microservice;
 	this.deviceEventManagement = deviceEventManagement;
+	this.exportExecutor = exportExecutor;
     }
 
     public IDeviceEventManagement getDeviceEventManagement() {
@@ -576,6 +591,65 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
 	}
     }
 
+    /**
+     * Stream events for an index in chunks. Chunks are queried on the tenant
+     * export executor as the transport becomes ready.
+     * 
+     * @param listing
+     * @param request
+     * @param responseObserver
+     */
+    public <Q extends MessageLite, R extends MessageLite, T> void streamForIndex(EventIndexListing<Q, R, T> listing,
+	    Q request, StreamObserver<R> responseObserver) {
+	try {
+	    EventIndexListing.IndexQuery query = listing.parse(request);
+	    new EventExportStream<T, R>(this, listing.getStreamMethod(), getExportExecutor(), responseObserver,
+		    query.getCriteria(), (criteria) -> listing.search(getDeviceEventManagement(), query, criteria),
+		    listing.getConverter()).start();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(listing.getStreamMethod(), e, responseObserver);
+	}
+    }
+
+    /**
+     * List a page of events for an index, continuing from the position returned
+     * with the previous page. The total count is only calculated if requested.
+     * 
+     * @param listing
+     * @param request
+     * @param responseObserver
+     */
+    public <Q extends MessageLite, R extends MessageLite, T> void listForIndexWithCursor(
+	    EventIndexListing<Q, R, T> listing, IndexCursorListRequest request,
+	    StreamObserver<IndexCursorListResponse> responseObserver) {
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, listing.getCursorMethod());
+	    EventIndexListing.IndexQuery query = listing.parse(listing.unwrap(request));
+	    IDateRangeSearchCriteria criteria = query.getCriteria();
+	    int pageSize = ((criteria.getPageSize() != null) && (criteria.getPageSize() > 0)) ? criteria.getPageSize()
+		    : DEFAULT_CURSOR_PAGE_SIZE;
+	    EventCursorSearchCriteria cursor = new EventCursorSearchCriteria(pageSize, criteria.getStartDate(),
+		    criteria.getEndDate(), request.getContinuationToken());
+	    cursor.setCountRequested(request.getCountRequested());
+	    ISearchResults<T> apiResult = listing.search(getDeviceEventManagement(), query, cursor);
+	    if (!(apiResult instanceof EventCursorSearchResults)) {
+		throw new SiteWhereException("Listing by continuation token is not supported by the event datastore.");
+	    }
+	    IndexCursorListResponse.Builder response = IndexCursorListResponse.newBuilder();
+	    listing.wrap(response, listing.convert(apiResult));
+	    String token = ((EventCursorSearchResults<T>) apiResult).getContinuationToken();
+	    if (token != null) {
+		response.setContinuationToken(token);
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(listing.getCursorMethod(), e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(listing.getCursorMethod());
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation#getMicroservice()
@@ -588,4 +662,8 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
     public void setDeviceEventManagement(IDeviceEventManagement deviceEventManagement) {
 	this.deviceEventManagement = deviceEventManagement;
     }
+
+    public IEventExportExecutor getExportExecutor() {
+	return exportExecutor;
+    }
 }
\ No newline at end of file
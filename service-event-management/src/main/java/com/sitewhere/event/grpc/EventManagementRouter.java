@@ -18,8 +18,11 @@ package com.sitewhere.event.grpc;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.google.protobuf.MessageLite;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
+import com.sitewhere.grpc.extensions.event.IndexCursorListRequest;
+import com.sitewhere.grpc.extensions.event.IndexCursorListResponse;
 import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
 import com.sitewhere.grpc.service.GAddAlertsRequest;
 import com.sitewhere.grpc.service.GAddAlertsResponse;
@@ -56,6 +59,9 @@ import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
 import com.sitewhere.microservice.grpc.GrpcTenantEngineProvider;
 import com.sitewhere.spi.microservice.grpc.ITenantEngineCallback;
 
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -78,6 +84,29 @@ public class EventManagementRouter extends DeviceEventManagementGrpc.DeviceEvent
 	this.grpcTenantEngineProvider = new GrpcTenantEngineProvider<>(microservice);
     }
 
+    /*
+     * @see com.sitewhere.grpc.service.DeviceEventManagementGrpc.
+     * DeviceEventManagementImplBase#bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	ServerServiceDefinition generated = super.bindService();
+	ServerServiceDefinition.Builder builder = ServerServiceDefinition
+		.builder(generated.getServiceDescriptor().getName());
+	for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+	    builder.addMethod(method);
+	}
+
+	// Add export and cursor list methods not present in generated service.
+	addListingMethods(builder, EventIndexListing.MEASUREMENTS);
+	addListingMethods(builder, EventIndexListing.LOCATIONS);
+	addListingMethods(builder, EventIndexListing.ALERTS);
+	addListingMethods(builder, EventIndexListing.COMMAND_INVOCATIONS);
+	addListingMethods(builder, EventIndexListing.COMMAND_RESPONSES);
+	addListingMethods(builder, EventIndexListing.STATE_CHANGES);
+	return builder.build();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -359,6 +388,62 @@ public class EventManagementRouter extends DeviceEventManagementGrpc.DeviceEvent
 	}, responseObserver);
     }
 
+    /**
+     * Stream events for an index in chunks.
+     * 
+     * @param listing
+     * @param request
+     * @param responseObserver
+     */
+    public <Q extends MessageLite, R extends MessageLite, T> void streamForIndex(EventIndexListing<Q, R, T> listing,
+	    Q request, StreamObserver<R> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IEventManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IEventManagementTenantEngine tenantEngine) {
+		((EventManagementImpl) tenantEngine.getEventManagementImpl()).streamForIndex(listing, request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
+    /**
+     * List a page of events for an index that continues from a previous page.
+     * 
+     * @param listing
+     * @param request
+     * @param responseObserver
+     */
+    public <Q extends MessageLite, R extends MessageLite, T> void listForIndexWithCursor(
+	    EventIndexListing<Q, R, T> listing, IndexCursorListRequest request,
+	    StreamObserver<IndexCursorListResponse> responseObserver) {
+	getGrpcTenantEngineProvider().executeInTenantEngine(new ITenantEngineCallback<IEventManagementTenantEngine>() {
+
+	    @Override
+	    public void executeInTenantEngine(IEventManagementTenantEngine tenantEngine) {
+		((EventManagementImpl) tenantEngine.getEventManagementImpl()).listForIndexWithCursor(listing, request,
+			responseObserver);
+	    }
+	}, responseObserver);
+    }
+
+    /**
+     * Add the server-streaming export method and the cursor list method for an
+     * event type to the service definition.
+     * 
+     * @param builder
+     * @param listing
+     */
+    protected <Q extends MessageLite, R extends MessageLite, T> void addListingMethods(
+	    ServerServiceDefinition.Builder builder, EventIndexListing<Q, R, T> listing) {
+	builder.addMethod(listing.getStreamMethod(), ServerCalls.asyncServerStreamingCall(
+		(Q request, StreamObserver<R> responseObserver) -> streamForIndex(listing, request, responseObserver)));
+	builder.addMethod(listing.getCursorMethod(),
+		ServerCalls.asyncUnaryCall((IndexCursorListRequest request,
+			StreamObserver<IndexCursorListResponse> responseObserver) -> listForIndexWithCursor(listing,
+				request, responseObserver)));
+    }
+
     protected IEventManagementMicroservice getMicroservice() {
 	return microservice;
     }
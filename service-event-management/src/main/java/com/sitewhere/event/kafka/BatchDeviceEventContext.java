@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.kafka;
+
+import java.util.List;
+
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+
+/**
+ * Context passed to the persistence API for a group of events that share event
+ * type and assignment context. Besides the shared values, it holds the original
+ * context of each event in request order so that events forwarded after
+ * persistence keep their own source id.
+ */
+public class BatchDeviceEventContext extends DeviceEventContext {
+
+    /** Original context for each event in the group */
+    private List<GDeviceEventContext> eventContexts;
+
+    public BatchDeviceEventContext(IDeviceEventContext shared, List<GDeviceEventContext> eventContexts) {
+	setSourceId(shared.getSourceId());
+	setDeviceToken(shared.getDeviceToken());
+	setDeviceId(shared.getDeviceId());
+	setDeviceTypeId(shared.getDeviceTypeId());
+	setParentDeviceId(shared.getParentDeviceId());
+	setDeviceStatus(shared.getDeviceStatus());
+	setDeviceMetadata(shared.getDeviceMetadata());
+	setDeviceAssignmentId(shared.getDeviceAssignmentId());
+	setCustomerId(shared.getCustomerId());
+	setAreaId(shared.getAreaId());
+	setAssetId(shared.getAssetId());
+	setDeviceAssignmentStatus(shared.getDeviceAssignmentStatus());
+	setDeviceAssignmentMetadata(shared.getDeviceAssignmentMetadata());
+	this.eventContexts = eventContexts;
+    }
+
+    public List<GDeviceEventContext> getEventContexts() {
+	return eventContexts;
+    }
+}
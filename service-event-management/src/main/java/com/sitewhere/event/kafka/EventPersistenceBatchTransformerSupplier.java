@@ -0,0 +1,398 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.kafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import com.sitewhere.event.configuration.EventManagementTenantConfiguration;
+import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
+import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.model.DeviceEventModel.GAnyDeviceEventCreateRequest;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventContext;
+import com.sitewhere.grpc.model.DeviceEventModel.GPreprocessedEventPayload;
+import com.sitewhere.microservice.api.event.IDeviceEventManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.microservice.security.SystemUserCallable;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventContext;
+import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceLocationCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
+import com.sitewhere.spi.microservice.lifecycle.ITenantEngineLifecycleComponent;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Supplies transformers that persist preprocessed events in windowed batches.
+ * Events are buffered in a changelogged state store until the configured
+ * number of events is reached or the oldest event has waited for the
+ * configured linger time. Buffered events are grouped by event type and
+ * assignment context and each group is passed to the persistence API in a
+ * single call.
+ * 
+ * Since the buffer is a state store, Kafka Streams flushes it before offsets
+ * are committed. Events that were consumed but not yet persisted are restored
+ * from the changelog after a failure, so offsets effectively only advance past
+ * events once their batch is durable. Events are removed from the store only
+ * after their group was persisted. Groups that fail stay in the store and are
+ * retried on the next flush. On its last attempt an event is persisted on its
+ * own so that a single bad event does not hold back the rest of its group.
+ * Events that still fail after the configured number of attempts are logged,
+ * counted and removed from the store so that commits can resume. A commit is
+ * requested only after a flush that leaves the store empty.
+ */
+public class EventPersistenceBatchTransformerSupplier extends TenantEngineLifecycleComponent
+	implements TransformerSupplier<UUID, GPreprocessedEventPayload, KeyValue<UUID, GPreprocessedEventPayload>> {
+
+    /** Name of state store used to buffer events */
+    public static final String STORE_NAME = "persistence-batch";
+
+    /** Histogram for batch persistence */
+    private static final Histogram BATCH_PERSISTENCE_TIMER = TenantEngineLifecycleComponent
+	    .createHistogramMetric("event_persistence_batch_timer", "Timer for persisting a batch of inbound events");
+
+    /** Histogram for number of events in each persistence call */
+    private static final Histogram BATCH_PERSISTENCE_GROUP_SIZE = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "event_persistence_group_size", "Number of events passed to each batched persistence call");
+
+    /** Counter for events dropped after repeated persistence failures */
+    private static final Counter DROPPED_EVENTS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "event_persistence_dropped_count", "Count of batched events dropped after repeated persistence failures");
+
+    /** Configuration */
+    private EventManagementTenantConfiguration configuration;
+
+    public EventPersistenceBatchTransformerSupplier(EventManagementTenantConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see org.apache.kafka.streams.kstream.TransformerSupplier#get()
+     */
+    @Override
+    public Transformer<UUID, GPreprocessedEventPayload, KeyValue<UUID, GPreprocessedEventPayload>> get() {
+	return new Transformer<UUID, GPreprocessedEventPayload, KeyValue<UUID, GPreprocessedEventPayload>>() {
+
+	    /** Processor context */
+	    private ProcessorContext context;
+
+	    /** Store that holds buffered events keyed by arrival sequence */
+	    private KeyValueStore<Long, GPreprocessedEventPayload> store;
+
+	    /** Next sequence number */
+	    private long sequence;
+
+	    /** Number of events in buffer */
+	    private int buffered;
+
+	    /** Time at which oldest event in buffer was received */
+	    private long firstBufferedTime;
+
+	    /** Number of failed attempts for buffered events that have failed */
+	    private Map<Long, Integer> attempts = new HashMap<>();
+
+	    /*
+	     * @see
+	     * org.apache.kafka.streams.kstream.Transformer#init(org.apache.kafka.streams.
+	     * processor.ProcessorContext)
+	     */
+	    @Override
+	    @SuppressWarnings("unchecked")
+	    public void init(ProcessorContext context) {
+		this.context = context;
+		this.store = (KeyValueStore<Long, GPreprocessedEventPayload>) context.getStateStore(STORE_NAME);
+
+		// Pick up events restored from changelog so they are flushed first.
+		try (KeyValueIterator<Long, GPreprocessedEventPayload> it = store.all()) {
+		    while (it.hasNext()) {
+			sequence = Math.max(sequence, it.next().key + 1);
+			buffered++;
+		    }
+		}
+		if (buffered > 0) {
+		    getLogger().info(String.format("Restored %d unpersisted events from batch buffer.", buffered));
+		}
+
+		long linger = getConfiguration().getPersistenceBatchLingerMs();
+		context.schedule(Duration.ofMillis(linger), PunctuationType.WALL_CLOCK_TIME, (timestamp) -> {
+		    if ((buffered > 0) && (timestamp - firstBufferedTime >= linger)) {
+			flush();
+		    }
+		});
+	    }
+
+	    /*
+	     * @see org.apache.kafka.streams.kstream.Transformer#transform(java.lang.Object,
+	     * java.lang.Object)
+	     */
+	    @Override
+	    public KeyValue<UUID, GPreprocessedEventPayload> transform(UUID key, GPreprocessedEventPayload payload) {
+		if (buffered == 0) {
+		    firstBufferedTime = System.currentTimeMillis();
+		}
+		store.put(sequence++, payload);
+		buffered++;
+		if (buffered >= getConfiguration().getPersistenceBatchSize()) {
+		    flush();
+		}
+		return null;
+	    }
+
+	    /**
+	     * Persist all buffered events and remove the ones that were persisted or
+	     * have used up their attempts. A commit is only requested if nothing is
+	     * left in the buffer.
+	     */
+	    protected void flush() {
+		int maxAttempts = Math.max(1, getConfiguration().getPersistenceBatchMaxAttempts());
+		List<KeyValue<Long, GPreprocessedEventPayload>> batch = new ArrayList<>(buffered);
+		Set<Long> lastAttempt = new HashSet<>();
+		try (KeyValueIterator<Long, GPreprocessedEventPayload> it = store.all()) {
+		    while (it.hasNext()) {
+			KeyValue<Long, GPreprocessedEventPayload> entry = it.next();
+			batch.add(entry);
+			if (attempts.getOrDefault(entry.key, 0) >= maxAttempts - 1) {
+			    lastAttempt.add(entry.key);
+			}
+		    }
+		}
+
+		Set<Long> persisted = new HashSet<>();
+		for (KeyValue<Long, GPreprocessedEventPayload> entry : persist(batch, lastAttempt)) {
+		    persisted.add(entry.key);
+		}
+		buffered = 0;
+		for (KeyValue<Long, GPreprocessedEventPayload> entry : batch) {
+		    if (persisted.contains(entry.key)) {
+			store.delete(entry.key);
+			attempts.remove(entry.key);
+			continue;
+		    }
+		    int failures = attempts.merge(entry.key, 1, Integer::sum);
+		    if (failures >= maxAttempts) {
+			drop(entry.value, failures);
+			store.delete(entry.key);
+			attempts.remove(entry.key);
+		    } else {
+			buffered++;
+		    }
+		}
+		if (buffered == 0) {
+		    context.commit();
+		} else {
+		    // Retry failed groups once the linger time has passed again.
+		    firstBufferedTime = System.currentTimeMillis();
+		}
+	    }
+
+	    /*
+	     * @see org.apache.kafka.streams.kstream.Transformer#close()
+	     */
+	    @Override
+	    public void close() {
+	    }
+	};
+    }
+
+    /**
+     * Group buffered entries by event type and assignment context, then persist
+     * each group with a single call. Entries on their last attempt are persisted
+     * one at a time.
+     * 
+     * @param entries
+     * @param isolated
+     * @return entries that were persisted
+     */
+    protected List<KeyValue<Long, GPreprocessedEventPayload>> persist(
+	    List<KeyValue<Long, GPreprocessedEventPayload>> entries, Set<Long> isolated) {
+	final Histogram.Timer batchTime = BATCH_PERSISTENCE_TIMER.labels(buildLabels()).startTimer();
+	try {
+	    Map<BatchKey, List<KeyValue<Long, GPreprocessedEventPayload>>> groups = new LinkedHashMap<>();
+	    List<List<KeyValue<Long, GPreprocessedEventPayload>>> singles = new ArrayList<>();
+	    for (KeyValue<Long, GPreprocessedEventPayload> entry : entries) {
+		if (isolated.contains(entry.key)) {
+		    singles.add(Collections.singletonList(entry));
+		    continue;
+		}
+		BatchKey key = new BatchKey(entry.value);
+		List<KeyValue<Long, GPreprocessedEventPayload>> group = groups.get(key);
+		if (group == null) {
+		    group = new ArrayList<>();
+		    groups.put(key, group);
+		}
+		group.add(entry);
+	    }
+	    List<List<KeyValue<Long, GPreprocessedEventPayload>>> all = new ArrayList<>(groups.values());
+	    all.addAll(singles);
+	    List<KeyValue<Long, GPreprocessedEventPayload>> persisted = new ArrayList<>(entries.size());
+	    for (List<KeyValue<Long, GPreprocessedEventPayload>> group : all) {
+		List<GPreprocessedEventPayload> payloads = new ArrayList<>(group.size());
+		for (KeyValue<Long, GPreprocessedEventPayload> entry : group) {
+		    payloads.add(entry.value);
+		}
+		try {
+		    BATCH_PERSISTENCE_GROUP_SIZE.labels(buildLabels()).observe(payloads.size());
+		    new BatchPersistenceProcessor(this, payloads).call();
+		    persisted.addAll(group);
+		} catch (Exception e) {
+		    getLogger().error(String.format("Unable to persist group of %d device events.", payloads.size()),
+			    e);
+		}
+	    }
+	    return persisted;
+	} finally {
+	    batchTime.close();
+	}
+    }
+
+    /**
+     * Give up on an event that could not be persisted.
+     * 
+     * @param payload
+     * @param attempts
+     */
+    protected void drop(GPreprocessedEventPayload payload, int attempts) {
+	DROPPED_EVENTS.labels(buildLabels()).inc();
+	getLogger().error(String.format("Dropping %s event for device '%s' after %d failed persistence attempts.",
+		payload.getEvent().getEventCase().name(), payload.getContext().getDeviceToken(), attempts));
+    }
+
+    /**
+     * Key used to group events that can be persisted in a single call. The source
+     * id is unique per event, so it is excluded from the context comparison. Each
+     * event keeps its own context through {@link BatchDeviceEventContext}.
+     */
+    private static class BatchKey {
+
+	/** Event type */
+	private GAnyDeviceEventCreateRequest.EventCase eventCase;
+
+	/** Context without source id */
+	private GDeviceEventContext context;
+
+	public BatchKey(GPreprocessedEventPayload payload) {
+	    this.eventCase = payload.getEvent().getEventCase();
+	    this.context = payload.getContext().toBuilder().clearSourceId().build();
+	}
+
+	/*
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+	    return 31 * eventCase.hashCode() + context.hashCode();
+	}
+
+	/*
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof BatchKey)) {
+		return false;
+	    }
+	    BatchKey other = (BatchKey) obj;
+	    return eventCase == other.eventCase && context.equals(other.context);
+	}
+    }
+
+    /**
+     * Persists a group of events sharing type and context in system user context.
+     * The shared values are taken from the first event, while the original
+     * context of every event is passed along for forwarding.
+     */
+    private class BatchPersistenceProcessor extends SystemUserCallable<List<? extends IDeviceEvent>> {
+
+	private List<GPreprocessedEventPayload> group;
+
+	public BatchPersistenceProcessor(ITenantEngineLifecycleComponent component,
+		List<GPreprocessedEventPayload> group) {
+	    super(component);
+	    this.group = group;
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public List<? extends IDeviceEvent> runAsSystemUser() throws SiteWhereException {
+	    List<GDeviceEventContext> contexts = new ArrayList<>(group.size());
+	    List<IDeviceEventCreateRequest> requests = new ArrayList<>(group.size());
+	    for (GPreprocessedEventPayload payload : group) {
+		contexts.add(payload.getContext());
+		requests.add(EventModelConverter.asApiDeviceEventCreateRequest(payload.getEvent()));
+	    }
+	    IDeviceEventContext context = new BatchDeviceEventContext(
+		    EventModelConverter.asApiDeviceEventContext(group.get(0).getContext()), contexts);
+	    EventPersistenceMapper.PROCESSED_EVENTS.labels(buildLabels()).inc(requests.size());
+	    switch (requests.get(0).getEventType()) {
+	    case Measurement:
+		return getDeviceEventManagement().addDeviceMeasurements(context,
+			requests.toArray(new IDeviceMeasurementCreateRequest[0]));
+	    case Alert:
+		return getDeviceEventManagement().addDeviceAlerts(context,
+			requests.toArray(new IDeviceAlertCreateRequest[0]));
+	    case CommandInvocation:
+		return getDeviceEventManagement().addDeviceCommandInvocations(context,
+			requests.toArray(new IDeviceCommandInvocationCreateRequest[0]));
+	    case CommandResponse:
+		return getDeviceEventManagement().addDeviceCommandResponses(context,
+			requests.toArray(new IDeviceCommandResponseCreateRequest[0]));
+	    case Location:
+		return getDeviceEventManagement().addDeviceLocations(context,
+			requests.toArray(new IDeviceLocationCreateRequest[0]));
+	    case StateChange:
+		return getDeviceEventManagement().addDeviceStateChanges(context,
+			requests.toArray(new IDeviceStateChangeCreateRequest[0]));
+	    default:
+		getLogger().warn(String.format("Unknown event type sent for storage: %s",
+			requests.get(0).getEventType().name()));
+		return new ArrayList<>();
+	    }
+	}
+
+	protected IDeviceEventManagement getDeviceEventManagement() {
+	    return ((IEventManagementTenantEngine) getTenantEngine()).getEventManagement();
+	}
+    }
+
+    protected EventManagementTenantConfiguration getConfiguration() {
+	return configuration;
+    }
+}
@@ -52,7 +52,7 @@ public class EventPersistenceMapper
 	extends KeyValueMapperComponent<UUID, GPreprocessedEventPayload, KeyValue<UUID, GPreprocessedEventPayload>> {
 
     /** Counter for processed events */
-    private static final Counter PROCESSED_EVENTS = TenantEngineLifecycleComponent
+    static final Counter PROCESSED_EVENTS = TenantEngineLifecycleComponent
 	    .createCounterMetric("inbound_events_event_count", "Count of total events processed by pipeline");
 
     /** Configuration */
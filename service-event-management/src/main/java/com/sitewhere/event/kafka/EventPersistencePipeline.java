@@ -17,14 +17,18 @@ package com.sitewhere.event.kafka;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.state.Stores;
 
 import com.sitewhere.event.spi.kafka.IEventPersistencePipeline;
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
 import com.sitewhere.grpc.kafka.serdes.SiteWhereSerdes;
+import com.sitewhere.grpc.model.DeviceEventModel.GPreprocessedEventPayload;
 import com.sitewhere.microservice.kafka.KafkaStreamPipeline;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
@@ -38,6 +42,9 @@ public class EventPersistencePipeline extends KafkaStreamPipeline implements IEv
     /** Applies event persistence logic to preprocessed event streams */
     private EventPersistenceMapper eventPersistenceMapper;
 
+    /** Supplies transformers that persist events in batches */
+    private EventPersistenceBatchTransformerSupplier eventPersistenceBatchTransformerSupplier;
+
     /*
      * @see com.sitewhere.microservice.kafka.KafkaStreamPipeline#getPipelineName()
      */
@@ -67,9 +74,19 @@ public class EventPersistencePipeline extends KafkaStreamPipeline implements IEv
     @Override
     public void buildStreams(StreamsBuilder builder) {
 	// Pipeline handles both event source decoded events and reprocess events.
-	builder.stream(getSourceTopicNames(),
-		Consumed.with(Serdes.UUID(), SiteWhereSerdes.forPreprocessedEventPayload()))
-		.map(getEventPersistenceMapper());
+	KStream<UUID, GPreprocessedEventPayload> input = builder.stream(getSourceTopicNames(),
+		Consumed.with(Serdes.UUID(), SiteWhereSerdes.forPreprocessedEventPayload()));
+
+	// Batched mode buffers events in a state store until they are persisted.
+	if (isBatchedPersistence()) {
+	    builder.addStateStore(Stores.keyValueStoreBuilder(
+		    Stores.inMemoryKeyValueStore(EventPersistenceBatchTransformerSupplier.STORE_NAME), Serdes.Long(),
+		    SiteWhereSerdes.forPreprocessedEventPayload()));
+	    input.transform(getEventPersistenceBatchTransformerSupplier(),
+		    EventPersistenceBatchTransformerSupplier.STORE_NAME);
+	} else {
+	    input.map(getEventPersistenceMapper());
+	}
     }
 
     /*
@@ -81,9 +98,12 @@ public class EventPersistencePipeline extends KafkaStreamPipeline implements IEv
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	this.eventPersistenceMapper = new EventPersistenceMapper(
 		((IEventManagementTenantEngine) getTenantEngine()).getActiveConfiguration());
+	this.eventPersistenceBatchTransformerSupplier = new EventPersistenceBatchTransformerSupplier(
+		((IEventManagementTenantEngine) getTenantEngine()).getActiveConfiguration());
 
 	super.initialize(monitor);
 	initializeNestedComponent(getEventPersistenceMapper(), monitor, true);
+	initializeNestedComponent(getEventPersistenceBatchTransformerSupplier(), monitor, true);
     }
 
     /*
@@ -95,6 +115,7 @@ public class EventPersistencePipeline extends KafkaStreamPipeline implements IEv
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.start(monitor);
 	startNestedComponent(getEventPersistenceMapper(), monitor, true);
+	startNestedComponent(getEventPersistenceBatchTransformerSupplier(), monitor, true);
     }
 
     /*
@@ -105,10 +126,25 @@ public class EventPersistencePipeline extends KafkaStreamPipeline implements IEv
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.stop(monitor);
+	stopNestedComponent(getEventPersistenceBatchTransformerSupplier(), monitor);
 	stopNestedComponent(getEventPersistenceMapper(), monitor);
     }
 
+    /**
+     * Indicates whether events are persisted in batches.
+     * 
+     * @return
+     */
+    protected boolean isBatchedPersistence() {
+	return ((IEventManagementTenantEngine) getTenantEngine()).getActiveConfiguration()
+		.getPersistenceBatchSize() > 1;
+    }
+
     protected EventPersistenceMapper getEventPersistenceMapper() {
 	return eventPersistenceMapper;
     }
+
+    protected EventPersistenceBatchTransformerSupplier getEventPersistenceBatchTransformerSupplier() {
+	return eventPersistenceBatchTransformerSupplier;
+    }
 }
@@ -20,6 +20,8 @@ import java.util.List;
 import com.sitewhere.event.DeviceEventManagementDecorator;
 import com.sitewhere.event.processing.OutboundPayloadEnrichmentLogic;
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
+import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventContext;
 import com.sitewhere.microservice.api.event.IDeviceEventManagement;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceAlert;
@@ -48,7 +50,9 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
     }
 
     /**
-     * Forward the given event to the Kafka persisted events topic.
+     * Forward the given events to the Kafka persisted events topic. The context is
+     * converted to gRPC form once and shared by all events in the list. Events
+     * persisted as a batch are forwarded with their own original context.
      * 
      * @param context
      * @param events
@@ -57,10 +61,24 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
      */
     protected <T extends IDeviceEvent> List<T> forwardEvents(IDeviceEventContext context, List<T> events)
 	    throws SiteWhereException {
+	if (events.isEmpty()) {
+	    return events;
+	}
 	getLogger().debug(String.format("Forwarding %d events to outbound topic.", events.size()));
-	for (T event : events) {
-	    OutboundPayloadEnrichmentLogic.enrichAndDeliver(getEventManagementTenantEngine(), context, event);
+	if (context instanceof BatchDeviceEventContext) {
+	    List<GDeviceEventContext> contexts = ((BatchDeviceEventContext) context).getEventContexts();
+	    if (contexts.size() == events.size()) {
+		for (int i = 0; i < events.size(); i++) {
+		    OutboundPayloadEnrichmentLogic.enrichAndDeliver(getEventManagementTenantEngine(), contexts.get(i),
+			    events.get(i));
+		}
+		return events;
+	    }
+	    getLogger().warn(String.format("Batch returned %d events for %d requests. Using shared context.",
+		    events.size(), contexts.size()));
 	}
+	GDeviceEventContext grpcContext = EventModelConverter.asGrpcDeviceEventContext(context);
+	OutboundPayloadEnrichmentLogic.enrichAndDeliver(getEventManagementTenantEngine(), grpcContext, events);
 	return events;
     }
 
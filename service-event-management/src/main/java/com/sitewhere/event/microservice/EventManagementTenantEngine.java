@@ -17,11 +17,13 @@ package com.sitewhere.event.microservice;
 
 import com.sitewhere.event.configuration.EventManagementTenantConfiguration;
 import com.sitewhere.event.configuration.EventManagementTenantEngineModule;
+import com.sitewhere.event.grpc.EventExportExecutor;
 import com.sitewhere.event.grpc.EventManagementImpl;
 import com.sitewhere.event.kafka.KafkaEventPersistenceTriggers;
 import com.sitewhere.event.kafka.OutboundCommandInvocationsProducer;
 import com.sitewhere.event.kafka.OutboundEventsProducer;
 import com.sitewhere.event.kafka.EventPersistencePipeline;
+import com.sitewhere.event.spi.grpc.IEventExportExecutor;
 import com.sitewhere.event.spi.kafka.IOutboundCommandInvocationsProducer;
 import com.sitewhere.event.spi.kafka.IOutboundEventsProducer;
 import com.sitewhere.event.spi.kafka.IEventPersistencePipeline;
@@ -56,6 +58,9 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
     /** Event management persistence API */
     private IDeviceEventManagement eventManagement;
 
+    /** Runs event export queries */
+    private IEventExportExecutor eventExportExecutor;
+
     /** Responds to event management GRPC requests */
     private DeviceEventManagementGrpc.DeviceEventManagementImplBase eventManagementImpl;
 
@@ -99,8 +104,9 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
 	// Create API implementation and gRPC server.
 	IDeviceEventManagement implementation = getInjector().getInstance(IDeviceEventManagement.class);
 	this.eventManagement = new KafkaEventPersistenceTriggers(this, implementation);
+	this.eventExportExecutor = new EventExportExecutor();
 	this.eventManagementImpl = new EventManagementImpl((IEventManagementMicroservice) getMicroservice(),
-		getEventManagement());
+		getEventManagement(), getEventExportExecutor());
 
 	// Create Kafka components.
 	this.preprocessedEventsPipeline = new EventPersistencePipeline();
@@ -142,6 +148,9 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
 	// Initialize event management persistence.
 	init.addInitializeStep(this, getEventManagement(), true);
 
+	// Initialize event export executor.
+	init.addInitializeStep(this, getEventExportExecutor(), true);
+
 	// Initialize outbound events producer.
 	init.addInitializeStep(this, getOutboundEventsProducer(), true);
 
@@ -168,6 +177,9 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
 	// Start event management persistence.
 	start.addStartStep(this, getEventManagement(), true);
 
+	// Start event export executor.
+	start.addStartStep(this, getEventExportExecutor(), true);
+
 	// Start outbound events producer.
 	start.addStartStep(this, getOutboundEventsProducer(), true);
 
@@ -191,6 +203,9 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
 	// Create step that will stop components.
 	ICompositeLifecycleStep stop = new CompositeLifecycleStep("Stop " + getComponentName());
 
+	// Stop event export executor.
+	stop.addStopStep(this, getEventExportExecutor());
+
 	// Stop event management persistence.
 	stop.addStopStep(this, getEventManagement());
 
@@ -218,6 +233,15 @@ public class EventManagementTenantEngine extends MicroserviceTenantEngine<EventM
 	return eventManagement;
     }
 
+    /*
+     * @see com.sitewhere.event.spi.microservice.IEventManagementTenantEngine#
+     * getEventExportExecutor()
+     */
+    @Override
+    public IEventExportExecutor getEventExportExecutor() {
+	return eventExportExecutor;
+    }
+
     /*
      * (non-Javadoc)
      * 
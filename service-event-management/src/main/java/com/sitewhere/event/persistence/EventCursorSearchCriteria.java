@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.persistence;
+
+import java.util.Date;
+
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
+
+/**
+ * Date range criteria for event searches that continue from a position
+ * returned by a previous search rather than from a page offset. The page size
+ * limits the number of events returned. The page number is only used by
+ * datastores that do not support continuation tokens. Total counts are only
+ * calculated when requested.
+ */
+public class EventCursorSearchCriteria extends DateRangeSearchCriteria {
+
+    /** Opaque token returned by previous search or null for first page */
+    private String continuationToken;
+
+    /** Indicates whether total number of matching events should be counted */
+    private boolean countRequested;
+
+    public EventCursorSearchCriteria(int pageSize, Date startDate, Date endDate, String continuationToken) {
+	this(1, pageSize, startDate, endDate, continuationToken);
+    }
+
+    public EventCursorSearchCriteria(int pageNumber, int pageSize, Date startDate, Date endDate,
+	    String continuationToken) {
+	super(pageNumber, pageSize, startDate, endDate);
+	this.continuationToken = continuationToken;
+    }
+
+    public String getContinuationToken() {
+	return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+	this.continuationToken = continuationToken;
+    }
+
+    public boolean isCountRequested() {
+	return countRequested;
+    }
+
+    public void setCountRequested(boolean countRequested) {
+	this.countRequested = countRequested;
+    }
+}
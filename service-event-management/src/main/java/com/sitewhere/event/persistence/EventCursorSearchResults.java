@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.persistence;
+
+import java.util.List;
+
+import com.sitewhere.rest.model.search.SearchResults;
+
+/**
+ * Results of an event search using {@link EventCursorSearchCriteria}. The
+ * number of results is only meaningful if a count was requested, otherwise it
+ * is -1.
+ *
+ * @param <T>
+ */
+public class EventCursorSearchResults<T> extends SearchResults<T> {
+
+    /** Token used to continue search or null if no more results */
+    private String continuationToken;
+
+    public EventCursorSearchResults(List<T> results, long numResults, String continuationToken) {
+	super(results, numResults);
+	this.continuationToken = continuationToken;
+    }
+
+    public String getContinuationToken() {
+	return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+	this.continuationToken = continuationToken;
+    }
+}
@@ -16,20 +16,17 @@
 package com.sitewhere.event.persistence.cassandra;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
-import com.datastax.driver.core.Row;
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.Inject;
 import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.event.configuration.EventManagementTenantConfiguration;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
@@ -71,6 +68,13 @@ import com.sitewhere.spi.search.ISearchResults;
 /**
  * Implementation of {@link IDeviceEventManagement} that stores events in Apache
  * Cassandra.
+ * 
+ * Searches stop reading once the requested page is filled, so by default the
+ * total in search results is a lower bound. When more events match than were
+ * read, the total is one more than the number of events read, which is enough
+ * for a caller to know another page exists. Tenants that need exact totals can
+ * enable exactSearchCounts in the event management configuration, at the cost
+ * of reading every matching event.
  */
 public class CassandraDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
 
@@ -80,8 +84,20 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     /** Cassandra event management client */
     private CassandraEventManagementClient cassandraEventManagementClient;
 
-    public CassandraDeviceEventManagement() {
+    /** Writer for batched event inserts */
+    private CassandraEventWriter eventWriter;
+
+    /** Maximum number of rows fetched per page when searching */
+    private int searchFetchSize;
+
+    /** Indicates whether searches read all matching events to count them */
+    private boolean exactSearchCounts;
+
+    @Inject
+    public CassandraDeviceEventManagement(EventManagementTenantConfiguration configuration) {
 	super(LifecycleComponentType.DataStore);
+	this.searchFetchSize = configuration.getSearchFetchSize();
+	this.exactSearchCounts = configuration.isExactSearchCounts();
     }
 
     /*
@@ -99,6 +115,10 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	// Initialize event management client wrapper.
 	this.cassandraEventManagementClient = new CassandraEventManagementClient(getClient());
 	getCassandraEventManagementClient().initialize(monitor);
+
+	// Initialize writer used for batched inserts.
+	this.eventWriter = new CassandraEventWriter(getClient());
+	initializeNestedComponent(getEventWriter(), monitor, true);
     }
 
     /*
@@ -110,6 +130,7 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	getClient().start(monitor);
 	getCassandraEventManagementClient().start(monitor);
+	startNestedComponent(getEventWriter(), monitor, true);
     }
 
     /*
@@ -119,6 +140,9 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (getEventWriter() != null) {
+	    stopNestedComponent(getEventWriter(), monitor);
+	}
 	getCassandraEventManagementClient().stop(monitor);
 	getClient().stop(monitor);
     }
@@ -162,11 +186,13 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceMeasurement> addDeviceMeasurements(IDeviceEventContext context,
 	    IDeviceMeasurementCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceMeasurement> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceMeasurementCreateRequest request : requests) {
 	    DeviceMeasurement mx = DeviceEventManagementPersistence.deviceMeasurementCreateLogic(context, request);
-	    storeDeviceEvent(context, mx, CassandraDeviceMeasurement.INSTANCE);
+	    addEventInserts(context, mx, CassandraDeviceMeasurement.INSTANCE, inserts);
 	    result.add(mx);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -191,11 +217,13 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceLocation> addDeviceLocations(IDeviceEventContext context,
 	    IDeviceLocationCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceLocation> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceLocationCreateRequest request : requests) {
 	    DeviceLocation location = DeviceEventManagementPersistence.deviceLocationCreateLogic(context, request);
-	    storeDeviceEvent(context, location, CassandraDeviceLocation.INSTANCE);
+	    addEventInserts(context, location, CassandraDeviceLocation.INSTANCE, inserts);
 	    result.add(location);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -220,11 +248,13 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceAlert> addDeviceAlerts(IDeviceEventContext context, IDeviceAlertCreateRequest... requests)
 	    throws SiteWhereException {
 	List<IDeviceAlert> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceAlertCreateRequest request : requests) {
 	    DeviceAlert alert = DeviceEventManagementPersistence.deviceAlertCreateLogic(context, request);
-	    storeDeviceEvent(context, alert, CassandraDeviceAlert.INSTANCE);
+	    addEventInserts(context, alert, CassandraDeviceAlert.INSTANCE, inserts);
 	    result.add(alert);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -250,14 +280,16 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceCommandInvocation> addDeviceCommandInvocations(IDeviceEventContext context,
 	    IDeviceCommandInvocationCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceCommandInvocation> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceCommandInvocationCreateRequest request : requests) {
 	    IDeviceCommand command = getDeviceManagement().getDeviceCommandByToken(context.getDeviceTypeId(),
 		    request.getCommandToken());
 	    DeviceCommandInvocation invocation = DeviceEventManagementPersistence
 		    .deviceCommandInvocationCreateLogic(context, command, request);
-	    storeDeviceEvent(context, invocation, CassandraDeviceCommandInvocation.INSTANCE);
+	    addEventInserts(context, invocation, CassandraDeviceCommandInvocation.INSTANCE, inserts);
 	    result.add(invocation);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -292,12 +324,14 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceCommandResponse> addDeviceCommandResponses(IDeviceEventContext context,
 	    IDeviceCommandResponseCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceCommandResponse> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceCommandResponseCreateRequest request : requests) {
 	    DeviceCommandResponse response = DeviceEventManagementPersistence.deviceCommandResponseCreateLogic(context,
 		    request);
-	    storeDeviceEvent(context, response, CassandraDeviceCommandResponse.INSTANCE);
+	    addEventInserts(context, response, CassandraDeviceCommandResponse.INSTANCE, inserts);
 	    result.add(response);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -322,11 +356,13 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public List<IDeviceStateChange> addDeviceStateChanges(IDeviceEventContext context,
 	    IDeviceStateChangeCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceStateChange> result = new ArrayList<>();
+	List<BoundStatement> inserts = new ArrayList<>();
 	for (IDeviceStateChangeCreateRequest request : requests) {
 	    DeviceStateChange state = DeviceEventManagementPersistence.deviceStateChangeCreateLogic(context, request);
-	    storeDeviceEvent(context, state, CassandraDeviceStateChange.INSTANCE);
+	    addEventInserts(context, state, CassandraDeviceStateChange.INSTANCE, inserts);
 	    result.add(state);
 	}
+	store(inserts);
 	return result;
     }
 
@@ -343,65 +379,88 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     }
 
     /**
-     * Store a device event using various indexing strategies.
+     * Build inserts that store a device event using various indexing strategies.
      * 
      * @param context
      * @param event
      * @param binder
+     * @param inserts
      * @throws SiteWhereException
      */
-    protected <I extends IDeviceEvent> void storeDeviceEvent(IDeviceEventContext context, I event,
-	    ICassandraEventBinder<I> binder) throws SiteWhereException {
+    protected <I extends IDeviceEvent> void addEventInserts(IDeviceEventContext context, I event,
+	    ICassandraEventBinder<I> binder, List<BoundStatement> inserts) throws SiteWhereException {
+	int bucket = getClient().getBucketValue(event.getEventDate().getTime());
+
 	// Build insert for event by id.
 	BoundStatement eventById = getCassandraEventManagementClient().getInsertDeviceEventById().bind();
 	binder.bind(getCassandraEventManagementClient(), eventById, event);
-	process(eventById, event);
+	inserts.add(eventById);
 
 	// Build insert for event by alternate id.
 	if (event.getAlternateId() != null) {
 	    BoundStatement eventByAltId = getCassandraEventManagementClient().getInsertDeviceEventByAltId().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByAltId, event);
-	    process(eventByAltId, event);
+	    inserts.add(eventByAltId);
 	}
 
 	// Build insert for event by assignment.
 	BoundStatement eventByAssn = getCassandraEventManagementClient().getInsertDeviceEventByAssignment().bind();
 	binder.bind(getCassandraEventManagementClient(), eventByAssn, event);
-	eventByAssn.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	process(eventByAssn, event);
+	eventByAssn.setInt("bucket", bucket);
+	inserts.add(eventByAssn);
 
 	// Build insert for event by customer.
 	if (context.getCustomerId() != null) {
 	    BoundStatement eventByCustomer = getCassandraEventManagementClient().getInsertDeviceEventByCustomer()
 		    .bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByCustomer, event);
-	    eventByCustomer.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByCustomer, event);
+	    eventByCustomer.setInt("bucket", bucket);
+	    inserts.add(eventByCustomer);
 	}
 
 	// Build insert for event by area.
 	if (context.getAreaId() != null) {
 	    BoundStatement eventByArea = getCassandraEventManagementClient().getInsertDeviceEventByArea().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByArea, event);
-	    eventByArea.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByArea, event);
+	    eventByArea.setInt("bucket", bucket);
+	    inserts.add(eventByArea);
 	}
 
 	// Build insert for event by asset.
 	if (context.getAssetId() != null) {
 	    BoundStatement eventByAsset = getCassandraEventManagementClient().getInsertDeviceEventByAsset().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByAsset, event);
-	    eventByAsset.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByAsset, event);
+	    eventByAsset.setInt("bucket", bucket);
+	    inserts.add(eventByAsset);
 	}
     }
 
     /**
-     * Search events by a given index.
+     * Write inserts and wait until Cassandra acknowledges all of them.
+     * 
+     * @param inserts
+     * @throws SiteWhereException
+     */
+    protected void store(List<BoundStatement> inserts) throws SiteWhereException {
+	try {
+	    getEventWriter().write(inserts).get();
+	} catch (ExecutionException e) {
+	    throw new SiteWhereException("Unable to persist Cassandra events.", e.getCause());
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while persisting Cassandra events.", e);
+	}
+    }
+
+    /**
+     * Search events by a given index. Buckets are visited newest first and the
+     * per-entity results for each bucket are merged by event date, so reading
+     * stops as soon as the requested page has been filled. Unless exact counts
+     * are enabled, the total is a lower bound that exceeds the number of events
+     * read by one when more events are available.
      * 
      * @param index
      * @param entityIds
-     * @param eventType
      * @param criteria
      * @param binder
      * @return
@@ -412,47 +471,45 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	    throws SiteWhereException {
 	PreparedStatement query = getQueryForIndex(index);
 	Pager<I> pager = new Pager<>(criteria);
-	List<Integer> buckets = getBucketsForDateRange(criteria);
-	for (int bucket : buckets) {
-	    List<ResultSet> perBucket = listResultsForBucket(query, entityIds, criteria, binder.getEventType(), bucket);
-	    List<I> bucketEvents = new ArrayList<>();
-	    for (ResultSet perKey : perBucket) {
-		for (Row row : perKey) {
-		    bucketEvents.add(binder.load(getCassandraEventManagementClient(), row));
+	int limit = getSearchLimit(criteria);
+	int fetchSize = Math.min(limit, Math.max(1, getSearchFetchSize()));
+	long processed = 0;
+	boolean more = false;
+	for (int bucket : getBucketsForDateRange(criteria)) {
+	    if (more) {
+		break;
+	    }
+	    List<ResultSet> perBucket = listResultsForBucket(query, entityIds, criteria, binder.getEventType(), bucket,
+		    fetchSize);
+	    CassandraEventMerger<I> merger = new CassandraEventMerger<>(getCassandraEventManagementClient(), binder,
+		    perBucket);
+	    while (merger.hasNext()) {
+		if ((processed >= limit) && !isExactSearchCounts()) {
+		    more = true;
+		    break;
 		}
+		pager.process(merger.next());
+		processed++;
 	    }
-	    addSortedEventsToPager(pager, bucketEvents, bucket);
+	    getLogger().debug("Processed " + processed + " events through bucket " + bucket + ".");
 	}
-	return new SearchResults<I>(pager.getResults(), pager.getTotal());
+	long total = more ? processed + 1 : pager.getTotal();
+	return new SearchResults<I>(pager.getResults(), total);
     }
 
     /**
-     * Process a Cassandra query and handle failures.
+     * Get number of events that must be read to fill the requested page.
      * 
-     * @param statement
-     * @param event
-     * @throws SiteWhereException
+     * @param criteria
+     * @return
      */
-    protected void process(BoundStatement statement, IDeviceEvent event) throws SiteWhereException {
-	ResultSetFuture future = getClient().getSession().executeAsync(statement);
-	Futures.addCallback(future, new FutureCallback<ResultSet>() {
-	    /*
-	     * @see
-	     * com.google.common.util.concurrent.FutureCallback#onSuccess(java.lang.Object)
-	     */
-	    @Override
-	    public void onSuccess(ResultSet result) {
-	    }
-
-	    /*
-	     * @see com.google.common.util.concurrent.FutureCallback#onFailure(java.lang.
-	     * Throwable)
-	     */
-	    @Override
-	    public void onFailure(Throwable t) {
-		getLogger().error("Failed to persist Cassandra event: " + event.getId(), t);
-	    }
-	}, MoreExecutors.directExecutor());
+    protected int getSearchLimit(IDateRangeSearchCriteria criteria) {
+	if ((criteria.getPageSize() == null) || (criteria.getPageSize() <= 0)) {
+	    return Integer.MAX_VALUE;
+	}
+	int page = ((criteria.getPageNumber() == null) || (criteria.getPageNumber() < 1)) ? 1
+		: criteria.getPageNumber();
+	return (int) Math.min((long) page * criteria.getPageSize(), Integer.MAX_VALUE);
     }
 
     /**
@@ -508,11 +565,13 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
      * @param criteria
      * @param eventType
      * @param bucket
+     * @param fetchSize
      * @return
      * @throws SiteWhereException
      */
     protected List<ResultSet> listResultsForBucket(PreparedStatement statement, List<UUID> keys,
-	    IDateRangeSearchCriteria criteria, DeviceEventType eventType, int bucket) throws SiteWhereException {
+	    IDateRangeSearchCriteria criteria, DeviceEventType eventType, int bucket, int fetchSize)
+	    throws SiteWhereException {
 	List<ResultSetFuture> futures = new ArrayList<>();
 	for (UUID key : keys) {
 	    BoundStatement query = statement.bind();
@@ -521,6 +580,7 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	    query.setInt(2, bucket);
 	    query.setTimestamp(3, criteria.getStartDate());
 	    query.setTimestamp(4, criteria.getEndDate());
+	    query.setFetchSize(fetchSize);
 	    ResultSetFuture resultSetFuture = getClient().getSession().executeAsync(query);
 	    futures.add(resultSetFuture);
 	}
@@ -531,26 +591,6 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	return results;
     }
 
-    /**
-     * Sort the list of device events, then add them to the pager.
-     * 
-     * @param pager
-     * @param events
-     */
-    protected <T extends IDeviceEvent> void addSortedEventsToPager(Pager<T> pager, List<T> events, int bucket) {
-	Collections.sort(events, new Comparator<T>() {
-
-	    @Override
-	    public int compare(IDeviceEvent o1, IDeviceEvent o2) {
-		return 1 - (o1.getEventDate().compareTo(o2.getEventDate()));
-	    }
-	});
-	for (T event : events) {
-	    pager.process(event);
-	}
-	getLogger().debug("Processed " + events.size() + " events for bucket " + bucket + ".");
-    }
-
     protected IDeviceManagement getDeviceManagement() {
 	return ((IEventManagementMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
     }
@@ -570,4 +610,24 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     protected void setCassandraEventManagementClient(CassandraEventManagementClient cassandraEventManagementClient) {
 	this.cassandraEventManagementClient = cassandraEventManagementClient;
     }
-}
\ No newline at end of file
+
+    protected CassandraEventWriter getEventWriter() {
+	return eventWriter;
+    }
+
+    public int getSearchFetchSize() {
+	return searchFetchSize;
+    }
+
+    public void setSearchFetchSize(int searchFetchSize) {
+	this.searchFetchSize = searchFetchSize;
+    }
+
+    public boolean isExactSearchCounts() {
+	return exactSearchCounts;
+    }
+
+    public void setExactSearchCounts(boolean exactSearchCounts) {
+	this.exactSearchCounts = exactSearchCounts;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.persistence.cassandra;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+/**
+ * Merges events from multiple result sets into a single stream ordered by
+ * event date (newest first). Each result set must already be ordered newest
+ * first, which is guaranteed by the clustering order of the index tables. Only
+ * the head row of each result set is held in memory and rows are fetched from
+ * the driver one page at a time.
+ *
+ * @param <I>
+ */
+public class CassandraEventMerger<I extends IDeviceEvent> {
+
+    /** Event management client */
+    private CassandraEventManagementClient client;
+
+    /** Binder used to load events from rows */
+    private ICassandraEventBinder<I> binder;
+
+    /** Heads of result sets that have not been exhausted */
+    private PriorityQueue<Head> heads = new PriorityQueue<>();
+
+    public CassandraEventMerger(CassandraEventManagementClient client, ICassandraEventBinder<I> binder,
+	    List<ResultSet> results) throws SiteWhereException {
+	this.client = client;
+	this.binder = binder;
+	for (ResultSet result : results) {
+	    advance(new Head(result));
+	}
+    }
+
+    /**
+     * Indicates whether more events are available.
+     *
+     * @return
+     */
+    public boolean hasNext() {
+	return !heads.isEmpty();
+    }
+
+    /**
+     * Get the newest event not yet returned.
+     *
+     * @return
+     * @throws SiteWhereException
+     */
+    public I next() throws SiteWhereException {
+	Head head = heads.poll();
+	I event = head.event;
+	advance(head);
+	return event;
+    }
+
+    /**
+     * Load the next event from a result set and requeue it, or drop it if the
+     * result set is exhausted.
+     *
+     * @param head
+     * @throws SiteWhereException
+     */
+    protected void advance(Head head) throws SiteWhereException {
+	ResultSet result = head.result;
+
+	// Fetch the next page in the background before the current one runs out.
+	if (result.getAvailableWithoutFetching() == 1 && !result.isFullyFetched()) {
+	    result.fetchMoreResults();
+	}
+	Row row = result.one();
+	if (row != null) {
+	    head.event = binder.load(client, row);
+	    heads.add(head);
+	}
+    }
+
+    /**
+     * Current event for a single result set.
+     */
+    private class Head implements Comparable<Head> {
+
+	/** Result set rows are read from */
+	private ResultSet result;
+
+	/** Event loaded from current row */
+	private I event;
+
+	public Head(ResultSet result) {
+	    this.result = result;
+	}
+
+	/*
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(Head other) {
+	    int byDate = other.event.getEventDate().compareTo(event.getEventDate());
+	    return (byDate != 0) ? byDate : event.getId().compareTo(other.event.getId());
+	}
+    }
+}
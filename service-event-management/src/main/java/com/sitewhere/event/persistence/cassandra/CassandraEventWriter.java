@@ -0,0 +1,312 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.persistence.cassandra;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+
+import io.prometheus.client.Histogram;
+
+/**
+ * Writes event inserts to Cassandra. Statements that target the same partition
+ * of the same table are combined into unlogged batches so that each batch is
+ * routed by the token-aware policy to a replica owning the partition. The
+ * number of requests in flight is capped by a semaphore, so callers block when
+ * Cassandra falls behind rather than queueing unbounded work in the driver.
+ */
+public class CassandraEventWriter extends TenantEngineLifecycleComponent {
+
+    /** Default maximum number of requests in flight */
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 256;
+
+    /** Default maximum number of statements in a single unlogged batch */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    /** Number of seconds to wait for requests in flight on stop */
+    private static final int DRAIN_TIMEOUT_SECONDS = 30;
+
+    /** Histogram for Cassandra write latency */
+    private static final Histogram WRITE_TIMER = TenantEngineLifecycleComponent
+	    .createHistogramMetric("cassandra_event_write_timer", "Timer for Cassandra event write requests");
+
+    /** Histogram for number of statements in each write request */
+    private static final Histogram WRITE_BATCH_SIZE = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "cassandra_event_write_batch_size", "Number of statements in each Cassandra event write request");
+
+    /** Histogram for number of requests in flight when a request is sent */
+    private static final Histogram WRITES_IN_FLIGHT = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "cassandra_event_writes_in_flight", "Number of Cassandra event write requests in flight");
+
+    /** Cassandra client */
+    private CassandraClient client;
+
+    /** Maximum number of requests in flight */
+    private int maxInFlightRequests;
+
+    /** Maximum number of statements in a single unlogged batch */
+    private int maxBatchSize;
+
+    /** Limits number of requests in flight */
+    private Semaphore inFlightPermits;
+
+    /** Number of requests currently in flight */
+    private AtomicInteger inFlight = new AtomicInteger();
+
+    public CassandraEventWriter(CassandraClient client) {
+	this(client, DEFAULT_MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public CassandraEventWriter(CassandraClient client, int maxInFlightRequests, int maxBatchSize) {
+	this.client = client;
+	this.maxInFlightRequests = maxInFlightRequests;
+	this.maxBatchSize = maxBatchSize;
+	this.inFlightPermits = new Semaphore(maxInFlightRequests);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	// Wait for requests in flight to complete before the session is closed.
+	try {
+	    if (getInFlightPermits().tryAcquire(getMaxInFlightRequests(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+		getInFlightPermits().release(getMaxInFlightRequests());
+	    } else {
+		getLogger().warn(String.format("Stopped with %d Cassandra event write request(s) in flight.",
+			getInFlightCount()));
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	super.stop(monitor);
+    }
+
+    /**
+     * Write a list of statements. Statements are grouped by table and partition
+     * key and each group is sent as one or more unlogged batches. Blocks while the
+     * maximum number of requests is already in flight.
+     *
+     * @param statements
+     * @return future that completes when all statements have been written
+     * @throws SiteWhereException
+     */
+    public ListenableFuture<List<ResultSet>> write(List<BoundStatement> statements) throws SiteWhereException {
+	List<ListenableFuture<ResultSet>> futures = new ArrayList<>();
+	for (List<BoundStatement> group : groupByPartition(statements)) {
+	    for (int i = 0; i < group.size(); i += getMaxBatchSize()) {
+		List<BoundStatement> chunk = group.subList(i, Math.min(i + getMaxBatchSize(), group.size()));
+		futures.add(execute(chunk));
+	    }
+	}
+	return Futures.allAsList(futures);
+    }
+
+    /**
+     * Group statements by prepared statement and routing key. Statements without
+     * a routing key are placed in their own group.
+     *
+     * @param statements
+     * @return
+     */
+    protected List<List<BoundStatement>> groupByPartition(List<BoundStatement> statements) {
+	Configuration config = getClient().getSession().getCluster().getConfiguration();
+	ProtocolVersion protocol = config.getProtocolOptions().getProtocolVersion();
+	CodecRegistry codecs = config.getCodecRegistry();
+
+	List<List<BoundStatement>> groups = new ArrayList<>();
+	Map<PartitionKey, List<BoundStatement>> byPartition = new LinkedHashMap<>();
+	for (BoundStatement statement : statements) {
+	    ByteBuffer routingKey = statement.getRoutingKey(protocol, codecs);
+	    if (routingKey == null) {
+		List<BoundStatement> single = new ArrayList<>();
+		single.add(statement);
+		groups.add(single);
+		continue;
+	    }
+	    PartitionKey key = new PartitionKey(statement.preparedStatement().getQueryString(), routingKey);
+	    List<BoundStatement> group = byPartition.get(key);
+	    if (group == null) {
+		group = new ArrayList<>();
+		byPartition.put(key, group);
+	    }
+	    group.add(statement);
+	}
+	groups.addAll(byPartition.values());
+	return groups;
+    }
+
+    /**
+     * Execute statements for a single partition once a permit is available.
+     *
+     * @param statements
+     * @return
+     * @throws SiteWhereException
+     */
+    protected ListenableFuture<ResultSet> execute(List<BoundStatement> statements) throws SiteWhereException {
+	Statement request;
+	if (statements.size() == 1) {
+	    request = statements.get(0);
+	} else {
+	    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+	    batch.addAll(statements);
+	    request = batch;
+	}
+
+	try {
+	    getInFlightPermits().acquire();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while waiting to write Cassandra events.", e);
+	}
+	WRITES_IN_FLIGHT.labels(buildLabels()).observe(getInFlight().incrementAndGet());
+	WRITE_BATCH_SIZE.labels(buildLabels()).observe(statements.size());
+	final Histogram.Timer writeTime = WRITE_TIMER.labels(buildLabels()).startTimer();
+
+	ResultSetFuture future;
+	try {
+	    future = getClient().getSession().executeAsync(request);
+	} catch (RuntimeException e) {
+	    release(writeTime);
+	    throw new SiteWhereException("Unable to send Cassandra event write request.", e);
+	}
+	Futures.addCallback(future, new FutureCallback<ResultSet>() {
+
+	    /*
+	     * @see
+	     * com.google.common.util.concurrent.FutureCallback#onSuccess(java.lang.Object)
+	     */
+	    @Override
+	    public void onSuccess(ResultSet result) {
+		release(writeTime);
+	    }
+
+	    /*
+	     * @see com.google.common.util.concurrent.FutureCallback#onFailure(java.lang.
+	     * Throwable)
+	     */
+	    @Override
+	    public void onFailure(Throwable t) {
+		release(writeTime);
+		getLogger().error(String.format("Failed to write %d Cassandra event statement(s).", statements.size()),
+			t);
+	    }
+	}, MoreExecutors.directExecutor());
+	return future;
+    }
+
+    /**
+     * Release permit and record latency for a completed request.
+     *
+     * @param writeTime
+     */
+    protected void release(Histogram.Timer writeTime) {
+	writeTime.close();
+	getInFlight().decrementAndGet();
+	getInFlightPermits().release();
+    }
+
+    /**
+     * Identifies a partition of a given table.
+     */
+    private static class PartitionKey {
+
+	/** Query for prepared statement */
+	private String query;
+
+	/** Serialized partition key */
+	private ByteBuffer routingKey;
+
+	public PartitionKey(String query, ByteBuffer routingKey) {
+	    this.query = query;
+	    this.routingKey = routingKey;
+	}
+
+	/*
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+	    return 31 * query.hashCode() + routingKey.hashCode();
+	}
+
+	/*
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof PartitionKey)) {
+		return false;
+	    }
+	    PartitionKey other = (PartitionKey) obj;
+	    return query.equals(other.query) && routingKey.equals(other.routingKey);
+	}
+    }
+
+    /**
+     * Get number of requests currently in flight.
+     *
+     * @return
+     */
+    public int getInFlightCount() {
+	return getInFlight().get();
+    }
+
+    protected CassandraClient getClient() {
+	return client;
+    }
+
+    protected int getMaxInFlightRequests() {
+	return maxInFlightRequests;
+    }
+
+    protected int getMaxBatchSize() {
+	return maxBatchSize;
+    }
+
+    protected Semaphore getInFlightPermits() {
+	return inFlightPermits;
+    }
+
+    protected AtomicInteger getInFlight() {
+	return inFlight;
+    }
+}
@@ -15,7 +15,9 @@
  */
 package com.sitewhere.event.persistence.influxdb;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +34,8 @@ import org.influxdb.dto.QueryResult.Result;
 import org.influxdb.dto.QueryResult.Series;
 import org.joda.time.format.ISODateTimeFormat;
 
+import com.sitewhere.event.persistence.EventCursorSearchCriteria;
+import com.sitewhere.event.persistence.EventCursorSearchResults;
 import com.sitewhere.influxdb.InfluxDbClient;
 import com.sitewhere.microservice.util.MarshalUtils;
 import com.sitewhere.rest.model.device.event.DeviceEvent;
@@ -152,12 +156,25 @@ public class InfluxDbDeviceEvent {
      */
     public static <T> SearchResults<T> searchByIndex(DeviceEventIndex index, List<UUID> entityIds, DeviceEventType type,
 	    ISearchCriteria criteria, InfluxDbClient client, Class<T> clazz) throws SiteWhereException {
+	if (criteria instanceof EventCursorSearchCriteria) {
+	    return searchByIndexWithCursor(index, entityIds, type, (EventCursorSearchCriteria) criteria, client, clazz);
+	}
 	Query query = InfluxDbDeviceEvent.queryEventsOfTypeForIndex(index, type, entityIds, criteria,
 		client.getConfiguration().getDatabase());
 	LOGGER.debug("Query: " + query.getCommand());
 	QueryResult response = client.getInflux().query(query, TimeUnit.MILLISECONDS);
 	List<T> results = InfluxDbDeviceEvent.eventsOfType(response, clazz);
 
+	// A page that is not full is the last page, so the total is already known.
+	// An empty page past the end says nothing about the total, so it is counted.
+	int rows = countRows(response);
+	long offset = getPageOffset(criteria);
+	boolean lastPage = (criteria == null) || (criteria.getPageSize() == null)
+		|| ((rows < criteria.getPageSize()) && ((rows > 0) || (offset == 0)));
+	if (lastPage) {
+	    return new SearchResults<T>(results, offset + rows);
+	}
+
 	Query countQuery = InfluxDbDeviceEvent.queryEventsOfTypeForIndexCount(index, type, entityIds, criteria,
 		client.getConfiguration().getDatabase());
 	LOGGER.debug("Count: " + countQuery.getCommand());
@@ -166,6 +183,134 @@ public class InfluxDbDeviceEvent {
 	return new SearchResults<T>(results, count);
     }
 
+    /**
+     * Search for events of a given type continuing from the position encoded in
+     * the continuation token. Events are ordered by time descending. Since tags
+     * may only be compared for equality, events sharing the timestamp of the last
+     * event returned are skipped by position, which keeps the offset bounded by
+     * the number of events with the same timestamp rather than the page depth.
+     * 
+     * @param index
+     * @param entityIds
+     * @param type
+     * @param criteria
+     * @param client
+     * @param clazz
+     * @return
+     * @throws SiteWhereException
+     */
+    public static <T> EventCursorSearchResults<T> searchByIndexWithCursor(DeviceEventIndex index,
+	    List<UUID> entityIds, DeviceEventType type, EventCursorSearchCriteria criteria, InfluxDbClient client,
+	    Class<T> clazz) throws SiteWhereException {
+	long[] cursor = decodeContinuationToken(criteria.getContinuationToken());
+	String cursorClause = "";
+	String pagingClause = "";
+	if (cursor != null) {
+	    cursorClause = " and time < '" + ISODateTimeFormat.dateTime().print(cursor[0] + 1) + "'";
+	}
+	boolean limited = (criteria.getPageSize() != null) && (criteria.getPageSize() > 0);
+	if (limited) {
+	    pagingClause = " LIMIT " + criteria.getPageSize();
+	    if ((cursor != null) && (cursor[1] > 0)) {
+		pagingClause += " OFFSET " + cursor[1];
+	    }
+	}
+	Query query = new Query("SELECT * FROM " + InfluxDbDeviceEvent.COLLECTION_EVENTS + " where type='"
+		+ type.name() + "' and " + buildInClause(index, entityIds) + buildDateRangeCriteria(criteria)
+		+ cursorClause + " ORDER BY time DESC" + pagingClause, client.getConfiguration().getDatabase());
+	LOGGER.debug("Query: " + query.getCommand());
+	QueryResult response = client.getInflux().query(query, TimeUnit.MILLISECONDS);
+	List<IDeviceEvent> events = parse(response);
+
+	// Only a full page may be followed by more events.
+	String next = null;
+	if (limited && (countRows(response) >= criteria.getPageSize()) && !events.isEmpty()) {
+	    long last = events.get(events.size() - 1).getEventDate().getTime();
+	    long skip = ((cursor != null) && (cursor[0] == last)) ? cursor[1] : 0;
+	    for (IDeviceEvent event : events) {
+		if (event.getEventDate().getTime() == last) {
+		    skip++;
+		}
+	    }
+	    next = encodeContinuationToken(last, skip);
+	}
+
+	long count = -1;
+	if (criteria.isCountRequested()) {
+	    Query countQuery = InfluxDbDeviceEvent.queryEventsOfTypeForIndexCount(index, type, entityIds, criteria,
+		    client.getConfiguration().getDatabase());
+	    LOGGER.debug("Count: " + countQuery.getCommand());
+	    count = parseCount(client.getInflux().query(countQuery));
+	}
+	return new EventCursorSearchResults<T>(eventsOfType(events, clazz), count, next);
+    }
+
+    /**
+     * Encode search position as an opaque token.
+     * 
+     * @param time
+     * @param skip
+     * @return
+     */
+    protected static String encodeContinuationToken(long time, long skip) {
+	String raw = time + ":" + skip;
+	return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode search position from a token. Returns null if no token was passed.
+     * 
+     * @param token
+     * @return array containing time in milliseconds and number of events to skip
+     *         at that time
+     * @throws SiteWhereException
+     */
+    protected static long[] decodeContinuationToken(String token) throws SiteWhereException {
+	if ((token == null) || (token.length() == 0)) {
+	    return null;
+	}
+	try {
+	    String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+	    String[] parts = raw.split(":");
+	    return new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[1]) };
+	} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+	    throw new SiteWhereException("Invalid continuation token: " + token, e);
+	}
+    }
+
+    /**
+     * Get number of events skipped before the requested page.
+     * 
+     * @param criteria
+     * @return
+     */
+    protected static long getPageOffset(ISearchCriteria criteria) {
+	if ((criteria == null) || (criteria.getPageNumber() == null) || (criteria.getPageSize() == null)) {
+	    return 0;
+	}
+	return Math.max(0, (long) (criteria.getPageNumber() - 1) * criteria.getPageSize());
+    }
+
+    /**
+     * Count rows returned by a query.
+     * 
+     * @param response
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static int countRows(QueryResult response) throws SiteWhereException {
+	handleError(response);
+	int rows = 0;
+	for (Result result : response.getResults()) {
+	    if (result.getSeries() != null) {
+		for (Series series : result.getSeries()) {
+		    rows += series.getValues().size();
+		}
+	    }
+	}
+	return rows;
+    }
+
     /**
      * Get a query for events of a given type associated with one or more entities
      * for a given index and that meet the search criteria.
@@ -257,10 +402,20 @@ public class InfluxDbDeviceEvent {
      * @return
      * @throws SiteWhereException
      */
-    @SuppressWarnings("unchecked")
     protected static <T> List<T> eventsOfType(QueryResult response, Class<T> clazz) throws SiteWhereException {
+	return eventsOfType(parse(response), clazz);
+    }
+
+    /**
+     * Filter parsed events to those of the given type.
+     * 
+     * @param events
+     * @param clazz
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T> List<T> eventsOfType(List<IDeviceEvent> events, Class<T> clazz) {
 	List<T> results = new ArrayList<T>();
-	List<IDeviceEvent> events = parse(response);
 	for (IDeviceEvent event : events) {
 	    if (clazz.isAssignableFrom(event.getClass())) {
 		results.add((T) event);
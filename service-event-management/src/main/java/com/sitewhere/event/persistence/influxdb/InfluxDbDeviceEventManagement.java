@@ -73,6 +73,9 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     /** Client */
     private InfluxDbClient client;
 
+    /** Writer for batched point writes */
+    private InfluxDbEventWriter eventWriter;
+
     /**
      * Prefix to compare against when adding user defined tags from assignment meta
      * data
@@ -105,6 +108,10 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     @Override
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	getClient().initialize(monitor);
+
+	// Initialize writer used for batched point writes.
+	this.eventWriter = new InfluxDbEventWriter(getClient());
+	initializeNestedComponent(getEventWriter(), monitor, true);
     }
 
     /*
@@ -117,6 +124,20 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	getClient().start(monitor);
+	startNestedComponent(getEventWriter(), monitor, true);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (getEventWriter() != null) {
+	    stopNestedComponent(getEventWriter(), monitor);
+	}
+	getClient().stop(monitor);
     }
 
     /*
@@ -212,15 +233,17 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceMeasurement> addDeviceMeasurements(IDeviceEventContext context,
 	    IDeviceMeasurementCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceMeasurement> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceMeasurementCreateRequest request : requests) {
 	    DeviceMeasurement mxs = DeviceEventManagementPersistence.deviceMeasurementCreateLogic(context, request);
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceMeasurement.saveToBuilder(mxs, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(mxs);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -246,15 +269,17 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceLocation> addDeviceLocations(IDeviceEventContext context,
 	    IDeviceLocationCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceLocation> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceLocationCreateRequest request : requests) {
 	    DeviceLocation location = DeviceEventManagementPersistence.deviceLocationCreateLogic(context, request);
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceLocation.saveToBuilder(location, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(location);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -280,15 +305,17 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceAlert> addDeviceAlerts(IDeviceEventContext context, IDeviceAlertCreateRequest... requests)
 	    throws SiteWhereException {
 	List<IDeviceAlert> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceAlertCreateRequest request : requests) {
 	    DeviceAlert alert = DeviceEventManagementPersistence.deviceAlertCreateLogic(context, request);
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceAlert.saveToBuilder(alert, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(alert);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -315,6 +342,7 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceCommandInvocation> addDeviceCommandInvocations(IDeviceEventContext context,
 	    IDeviceCommandInvocationCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceCommandInvocation> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceCommandInvocationCreateRequest request : requests) {
 	    IDeviceCommand command = getDeviceManagement().getDeviceCommandByToken(context.getDeviceTypeId(),
 		    request.getCommandToken());
@@ -323,10 +351,11 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceCommandInvocation.saveToBuilder(ci, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(ci);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -363,16 +392,18 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceCommandResponse> addDeviceCommandResponses(IDeviceEventContext context,
 	    IDeviceCommandResponseCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceCommandResponse> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceCommandResponseCreateRequest request : requests) {
 	    DeviceCommandResponse cr = DeviceEventManagementPersistence.deviceCommandResponseCreateLogic(context,
 		    request);
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceCommandResponse.saveToBuilder(cr, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(cr);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -398,15 +429,17 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public List<IDeviceStateChange> addDeviceStateChanges(IDeviceEventContext context,
 	    IDeviceStateChangeCreateRequest... requests) throws SiteWhereException {
 	List<IDeviceStateChange> result = new ArrayList<>();
+	List<Point> points = new ArrayList<>(requests.length);
 	for (IDeviceStateChangeCreateRequest request : requests) {
 	    DeviceStateChange sc = DeviceEventManagementPersistence.deviceStateChangeCreateLogic(context, request);
 	    Point.Builder builder = InfluxDbDeviceEvent.createBuilder();
 	    InfluxDbDeviceStateChange.saveToBuilder(sc, builder);
 	    addUserDefinedTags(context, builder);
-	    getClient().getInflux().write(getClient().getConfiguration().getDatabase(),
-		    getAssignmentSpecificRetentionPolicy(context), builder.build());
+	    points.add(builder.build());
 	    result.add(sc);
 	}
+	getEventWriter().write(getClient().getConfiguration().getDatabase(),
+		getAssignmentSpecificRetentionPolicy(context), points);
 	return result;
     }
 
@@ -449,4 +482,8 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
     public void setClient(InfluxDbClient client) {
 	this.client = client;
     }
-}
\ No newline at end of file
+
+    protected InfluxDbEventWriter getEventWriter() {
+	return eventWriter;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.event.persistence.influxdb;
+
+import java.util.List;
+
+import org.influxdb.dto.BatchPoints;
+import org.influxdb.dto.Point;
+
+import com.sitewhere.influxdb.InfluxDbClient;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Writes points for a database and retention policy to InfluxDB as
+ * {@link BatchPoints}, using one request per maximum batch size rather than one
+ * request per point. Points are written before the call returns and a failed
+ * write is reported to the caller, so events are never acknowledged before they
+ * are stored. Callers that persist events in batches get one write per batch.
+ */
+public class InfluxDbEventWriter extends TenantEngineLifecycleComponent {
+
+    /** Default maximum number of points in a single batch */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    /** Histogram for number of points in each batch write */
+    private static final Histogram FLUSH_SIZE = TenantEngineLifecycleComponent
+	    .createHistogramMetric("influxdb_event_flush_size", "Number of points in each InfluxDB batch write");
+
+    /** Histogram for InfluxDB batch write latency */
+    private static final Histogram FLUSH_TIMER = TenantEngineLifecycleComponent
+	    .createHistogramMetric("influxdb_event_flush_timer", "Timer for InfluxDB batch writes");
+
+    /** Counter for points that could not be written */
+    private static final Counter FAILED_POINTS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "influxdb_event_failed_point_count", "Count of points that failed to write to InfluxDB");
+
+    /** Client */
+    private InfluxDbClient client;
+
+    /** Maximum number of points in a single batch */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    public InfluxDbEventWriter(InfluxDbClient client) {
+	this.client = client;
+    }
+
+    /**
+     * Write points for a database and retention policy.
+     *
+     * @param database
+     * @param retentionPolicy
+     * @param points
+     * @throws SiteWhereException
+     */
+    public void write(String database, String retentionPolicy, List<Point> points) throws SiteWhereException {
+	for (int start = 0; start < points.size(); start += getMaxBatchSize()) {
+	    List<Point> chunk = points.subList(start, Math.min(points.size(), start + getMaxBatchSize()));
+	    flush(database, retentionPolicy, chunk);
+	}
+    }
+
+    /**
+     * Write a single batch of points.
+     *
+     * @param database
+     * @param retentionPolicy
+     * @param points
+     * @throws SiteWhereException
+     */
+    protected void flush(String database, String retentionPolicy, List<Point> points) throws SiteWhereException {
+	BatchPoints batch = BatchPoints.database(database).retentionPolicy(retentionPolicy).build();
+	for (Point point : points) {
+	    batch.point(point);
+	}
+	FLUSH_SIZE.labels(buildLabels()).observe(points.size());
+	final Histogram.Timer flushTime = FLUSH_TIMER.labels(buildLabels()).startTimer();
+	try {
+	    getClient().getInflux().write(batch);
+	} catch (Throwable t) {
+	    FAILED_POINTS.labels(buildLabels()).inc(points.size());
+	    throw new SiteWhereException(String.format("Failed to write %d points to InfluxDB.", points.size()), t);
+	} finally {
+	    flushTime.close();
+	}
+    }
+
+    protected InfluxDbClient getClient() {
+	return client;
+    }
+
+    public int getMaxBatchSize() {
+	return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+	this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -18,9 +18,13 @@ package com.sitewhere.event.persistence.warp10;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
+import com.sitewhere.event.configuration.EventManagementTenantConfiguration;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
@@ -69,13 +73,26 @@ import com.sitewhere.warp10.rest.QueryParams;
  */
 public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
 
+    /** Maximum number of GTS inputs sent in a single update request */
+    public static final int DEFAULT_INGEST_BATCH_SIZE = 1000;
+
     /** Warp 10 client */
     private Warp10Client client;
 
+    /** Tenant engine configuration */
+    private EventManagementTenantConfiguration configuration;
+
+    /** Recently written or read events by id */
+    private Cache<UUID, IDeviceEvent> eventsById;
+
+    /** Recently written or read events by alternate id */
+    private Cache<String, IDeviceEvent> eventsByAlternateId;
+
     @Inject
-    public Warp10DeviceEventManagement(Warp10Client client) {
+    public Warp10DeviceEventManagement(Warp10Client client, EventManagementTenantConfiguration configuration) {
 	super(LifecycleComponentType.DataStore);
 	this.client = client;
+	this.configuration = configuration;
     }
 
     /*
@@ -95,12 +112,18 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
      */
     @Override
     public IDeviceEvent getDeviceEventById(UUID eventId) throws SiteWhereException {
+	IDeviceEvent cached = getEventsById().getIfPresent(eventId);
+	if (cached != null) {
+	    return cached;
+	}
 	QueryParams queryParams = QueryParams.builder();
 	queryParams.addParameter(Warp10DeviceEvent.PROP_ID, eventId.toString());
 	List<GTSOutput> founds = getClient().findGTS(queryParams);
 
 	if (founds != null && founds.size() > 0) {
-	    return Warp10DeviceEventManagementPersistence.unmarshalEvent(founds.get(0));
+	    IDeviceEvent event = Warp10DeviceEventManagementPersistence.unmarshalEvent(founds.get(0));
+	    cacheEvent(event);
+	    return event;
 	}
 	return null;
     }
@@ -111,12 +134,18 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
      */
     @Override
     public IDeviceEvent getDeviceEventByAlternateId(String alternateId) throws SiteWhereException {
+	IDeviceEvent cached = getEventsByAlternateId().getIfPresent(alternateId);
+	if (cached != null) {
+	    return cached;
+	}
 	QueryParams queryParams = QueryParams.builder();
 	queryParams.addParameter(Warp10DeviceEvent.PROP_ALTERNATE_ID, alternateId);
 	List<GTSOutput> founds = getClient().findGTS(queryParams);
 
 	if (founds != null && founds.size() > 0) {
-	    return Warp10DeviceEventManagementPersistence.unmarshalEvent(founds.get(0));
+	    IDeviceEvent event = Warp10DeviceEventManagementPersistence.unmarshalEvent(founds.get(0));
+	    cacheEvent(event);
+	    return event;
 	}
 	return null;
     }
@@ -129,17 +158,15 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceMeasurement> addDeviceMeasurements(IDeviceEventContext context,
 	    IDeviceMeasurementCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceMeasurement> result = new ArrayList<>();
+	List<IDeviceMeasurement> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceMeasurementCreateRequest request : requests) {
 	    DeviceMeasurement measurements = DeviceEventManagementPersistence.deviceMeasurementCreateLogic(context,
 		    request);
-	    GTSInput gtsMeasurement = Warp10DeviceMeasurement.toGTS(measurements, false);
-	    int ingress = getClient().insertGTS(gtsMeasurement);
-	    if (ingress == 200) {
-		result.add(measurements);
-	    }
+	    inputs.add(Warp10DeviceMeasurement.toGTS(measurements, false));
+	    events.add(measurements);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -175,16 +202,14 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceLocation> addDeviceLocations(IDeviceEventContext context,
 	    IDeviceLocationCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceLocation> result = new ArrayList<>();
+	List<IDeviceLocation> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceLocationCreateRequest request : requests) {
 	    DeviceLocation location = DeviceEventManagementPersistence.deviceLocationCreateLogic(context, request);
-	    GTSInput gtsLocations = Warp10DeviceLocation.toGTS(location, false);
-	    int ingress = getClient().insertGTS(gtsLocations);
-	    if (ingress == 200) {
-		result.add(location);
-	    }
+	    inputs.add(Warp10DeviceLocation.toGTS(location, false));
+	    events.add(location);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -219,16 +244,14 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceAlert> addDeviceAlerts(IDeviceEventContext context, IDeviceAlertCreateRequest... requests)
 	    throws SiteWhereException {
-	List<IDeviceAlert> result = new ArrayList<>();
+	List<IDeviceAlert> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceAlertCreateRequest request : requests) {
 	    DeviceAlert alert = DeviceEventManagementPersistence.deviceAlertCreateLogic(context, request);
-	    GTSInput gtsAlert = Warp10DeviceAlert.toGTS(alert, false);
-	    int ingress = getClient().insertGTS(gtsAlert);
-	    if (ingress == 200) {
-		result.add(alert);
-	    }
+	    inputs.add(Warp10DeviceAlert.toGTS(alert, false));
+	    events.add(alert);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -264,20 +287,17 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceCommandInvocation> addDeviceCommandInvocations(IDeviceEventContext context,
 	    IDeviceCommandInvocationCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceCommandInvocation> result = new ArrayList<>();
+	List<IDeviceCommandInvocation> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceCommandInvocationCreateRequest request : requests) {
 	    IDeviceCommand command = getDeviceManagement().getDeviceCommandByToken(context.getDeviceTypeId(),
 		    request.getCommandToken());
 	    DeviceCommandInvocation ci = DeviceEventManagementPersistence.deviceCommandInvocationCreateLogic(context,
 		    command, request);
-
-	    GTSInput gtsCi = Warp10DeviceCommandInvocation.toGTS(ci);
-	    int ingress = getClient().insertGTS(gtsCi);
-	    if (ingress == 200) {
-		result.add(ci);
-	    }
+	    inputs.add(Warp10DeviceCommandInvocation.toGTS(ci));
+	    events.add(ci);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -313,18 +333,15 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceCommandResponse> addDeviceCommandResponses(IDeviceEventContext context,
 	    IDeviceCommandResponseCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceCommandResponse> result = new ArrayList<>();
+	List<IDeviceCommandResponse> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceCommandResponseCreateRequest request : requests) {
 	    DeviceCommandResponse response = DeviceEventManagementPersistence.deviceCommandResponseCreateLogic(context,
 		    request);
-
-	    GTSInput gtsResponse = Warp10DeviceCommandResponse.toGTS(response);
-	    int ingress = getClient().insertGTS(gtsResponse);
-	    if (ingress == 200) {
-		result.add(response);
-	    }
+	    inputs.add(Warp10DeviceCommandResponse.toGTS(response));
+	    events.add(response);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -380,17 +397,14 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public List<IDeviceStateChange> addDeviceStateChanges(IDeviceEventContext context,
 	    IDeviceStateChangeCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceStateChange> result = new ArrayList<>();
+	List<IDeviceStateChange> events = new ArrayList<>();
+	List<GTSInput> inputs = new ArrayList<>();
 	for (IDeviceStateChangeCreateRequest request : requests) {
 	    DeviceStateChange state = DeviceEventManagementPersistence.deviceStateChangeCreateLogic(context, request);
-
-	    GTSInput gtsState = Warp10DeviceStateChange.toGTS(state);
-	    int ingress = getClient().insertGTS(gtsState);
-	    if (ingress == 200) {
-		result.add(state);
-	    }
+	    inputs.add(Warp10DeviceStateChange.toGTS(state));
+	    events.add(state);
 	}
-	return result;
+	return insertBatch(inputs, events);
     }
 
     /*
@@ -426,6 +440,8 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
      */
     @Override
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.eventsById = buildEventCache();
+	this.eventsByAlternateId = buildEventCache();
 	initializeNestedComponent(getClient(), monitor, true);
     }
 
@@ -447,12 +463,77 @@ public class Warp10DeviceEventManagement extends TenantEngineLifecycleComponent
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	stopNestedComponent(getClient(), monitor);
+	getEventsById().invalidateAll();
+	getEventsByAlternateId().invalidateAll();
+    }
+
+    /**
+     * Insert GTS inputs for a list of events. Inputs are sent in as few update
+     * requests as the batch size allows. Events are returned only if the request
+     * containing them was accepted.
+     * 
+     * @param inputs
+     * @param events
+     * @return
+     * @throws SiteWhereException
+     */
+    protected <T extends IDeviceEvent> List<T> insertBatch(List<GTSInput> inputs, List<T> events)
+	    throws SiteWhereException {
+	List<T> result = new ArrayList<>();
+	for (int i = 0; i < inputs.size(); i += DEFAULT_INGEST_BATCH_SIZE) {
+	    int end = Math.min(i + DEFAULT_INGEST_BATCH_SIZE, inputs.size());
+	    int ingress = getClient().insertGTS(inputs.subList(i, end));
+	    if (ingress == 200) {
+		for (T event : events.subList(i, end)) {
+		    cacheEvent(event);
+		    result.add(event);
+		}
+	    } else {
+		getLogger().warn(
+			String.format("Warp 10 rejected batch of %d events with status %d.", end - i, ingress));
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Add an event to the lookup caches.
+     * 
+     * @param event
+     */
+    protected void cacheEvent(IDeviceEvent event) {
+	getEventsById().put(event.getId(), event);
+	if (event.getAlternateId() != null) {
+	    getEventsByAlternateId().put(event.getAlternateId(), event);
+	}
+    }
+
+    /**
+     * Build a lookup cache sized according to tenant configuration.
+     * 
+     * @return
+     */
+    protected <K> Cache<K, IDeviceEvent> buildEventCache() {
+	return CacheBuilder.newBuilder().maximumSize(getConfiguration().getEventCacheSize())
+		.expireAfterWrite(getConfiguration().getEventCacheExpirationMinutes(), TimeUnit.MINUTES).build();
     }
 
     public Warp10Client getClient() {
 	return client;
     }
 
+    protected EventManagementTenantConfiguration getConfiguration() {
+	return configuration;
+    }
+
+    protected Cache<UUID, IDeviceEvent> getEventsById() {
+	return eventsById;
+    }
+
+    protected Cache<String, IDeviceEvent> getEventsByAlternateId() {
+	return eventsByAlternateId;
+    }
+
     protected IDeviceManagement getDeviceManagement() {
 	return ((IEventManagementMicroservice) getMicroservice()).getDeviceManagement();
     }
@@ -15,14 +15,17 @@
  */
 package com.sitewhere.event.processing;
 
+import java.util.List;
+import java.util.UUID;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
+import com.sitewhere.grpc.common.CommonModelConverter;
 import com.sitewhere.grpc.event.EventModelConverter;
-import com.sitewhere.grpc.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GDeviceEventContext;
 import com.sitewhere.grpc.model.DeviceEventModel.GProcessedEventPayload;
-import com.sitewhere.rest.model.device.event.kafka.ProcessedEventPayload;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.DeviceEventType;
 import com.sitewhere.spi.device.event.IDeviceEvent;
@@ -31,6 +34,11 @@ import com.sitewhere.spi.device.event.IDeviceEventContext;
 /**
  * Logic for taking a persisted event payload, enriching it with extra
  * device/assignment data, then forwarding it to a topic for further processing.
+ * 
+ * The outbound payload is built directly as a protobuf message from the gRPC
+ * context and the persisted event, so the context is converted at most once
+ * per batch of events rather than once per event. Each payload is serialized
+ * exactly once and the same bytes are sent to every topic it is delivered to.
  */
 public class OutboundPayloadEnrichmentLogic {
 
@@ -41,27 +49,56 @@ public class OutboundPayloadEnrichmentLogic {
      * Process a persited event payload by enriching it and forwarding to a topic
      * for further processing.
      * 
+     * @param engine
+     * @param context
      * @param event
      * @throws SiteWhereException
      */
     public static void enrichAndDeliver(IEventManagementTenantEngine engine, IDeviceEventContext context,
 	    IDeviceEvent event) throws SiteWhereException {
+	enrichAndDeliver(engine, EventModelConverter.asGrpcDeviceEventContext(context), event);
+    }
+
+    /**
+     * Process a list of persisted events that share a context by enriching them
+     * and forwarding to a topic for further processing.
+     * 
+     * @param engine
+     * @param context
+     * @param events
+     * @throws SiteWhereException
+     */
+    public static void enrichAndDeliver(IEventManagementTenantEngine engine, GDeviceEventContext context,
+	    List<? extends IDeviceEvent> events) throws SiteWhereException {
+	for (IDeviceEvent event : events) {
+	    enrichAndDeliver(engine, context, event);
+	}
+    }
+
+    /**
+     * Process a persisted event using a context that is already in gRPC form.
+     * 
+     * @param engine
+     * @param context
+     * @param event
+     * @throws SiteWhereException
+     */
+    public static void enrichAndDeliver(IEventManagementTenantEngine engine, GDeviceEventContext context,
+	    IDeviceEvent event) throws SiteWhereException {
 	try {
-	    // Build processed payload.
-	    ProcessedEventPayload enriched = new ProcessedEventPayload();
-	    enriched.setEventContext(context);
-	    enriched.setEvent(event);
+	    // Build processed payload and serialize it once for all topics.
+	    byte[] message = buildProcessedEventPayload(context, event).toByteArray();
+	    UUID deviceId = CommonModelConverter.asApiUuid(context.getDeviceId());
 
 	    // Send enriched payload to topic.
-	    GProcessedEventPayload grpc = EventModelConverter.asGrpcProcessedEventPayload(enriched);
-	    byte[] message = EventModelMarshaler.buildProcessedEventPayloadMessage(grpc);
-	    engine.getOutboundEventsProducer().send(context.getDeviceId(), message);
-	    LOGGER.debug("Delivered payload to outbound events producer.");
+	    engine.getOutboundEventsProducer().send(deviceId, message);
 
 	    // Send enriched command invocations to topic.
 	    if (event.getEventType() == DeviceEventType.CommandInvocation) {
-		engine.getOutboundCommandInvocationsProducer().send(context.getDeviceId(), message);
-		LOGGER.debug("Delivered payload to outbound command invocations producer.");
+		engine.getOutboundCommandInvocationsProducer().send(deviceId, message);
+	    }
+	    if (LOGGER.isDebugEnabled()) {
+		LOGGER.debug("Delivered payload to outbound producer(s).");
 	    }
 	} catch (SiteWhereException e) {
 	    throw e;
@@ -69,4 +106,21 @@ public class OutboundPayloadEnrichmentLogic {
 	    throw new SiteWhereException("Unhandled exception in event enrichment logic.", t);
 	}
     }
-}
\ No newline at end of file
+
+    /**
+     * Build processed payload from a gRPC context and a persisted event. The
+     * context message is reused as-is, so only the event itself is converted.
+     * 
+     * @param context
+     * @param event
+     * @return
+     * @throws SiteWhereException
+     */
+    public static GProcessedEventPayload buildProcessedEventPayload(GDeviceEventContext context, IDeviceEvent event)
+	    throws SiteWhereException {
+	GProcessedEventPayload.Builder grpc = GProcessedEventPayload.newBuilder();
+	grpc.setContext(context);
+	grpc.setEvent(EventModelConverter.asGrpcGenericDeviceEvent(event));
+	return grpc.build();
+    }
+}
@@ -16,6 +16,7 @@
 package com.sitewhere.event.spi.microservice;
 
 import com.sitewhere.event.configuration.EventManagementTenantConfiguration;
+import com.sitewhere.event.spi.grpc.IEventExportExecutor;
 import com.sitewhere.event.spi.kafka.IEventPersistencePipeline;
 import com.sitewhere.event.spi.kafka.IOutboundCommandInvocationsProducer;
 import com.sitewhere.event.spi.kafka.IOutboundEventsProducer;
@@ -36,6 +37,13 @@ public interface IEventManagementTenantEngine extends IMicroserviceTenantEngine<
      */
     public IDeviceEventManagement getEventManagement();
 
+    /**
+     * Get executor that runs event export queries.
+     * 
+     * @return
+     */
+    public IEventExportExecutor getEventExportExecutor();
+
     /**
      * Get implementation class that wraps event management with GRPC conversions.
      * 
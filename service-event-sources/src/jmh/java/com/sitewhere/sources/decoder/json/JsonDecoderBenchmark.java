@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.decoder.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitewhere.rest.model.device.communication.DeviceRequest.Type;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Compares JSON decoders. Batches are decoded by binding the whole
+ * {@link com.sitewhere.rest.model.device.event.DeviceEventBatch} and by
+ * streaming events from the token stream. Single requests are decoded through
+ * an intermediate tree and by binding the request from the token stream. Run
+ * with the 'gc' profiler (enabled in the build) to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonDecoderBenchmark {
+
+    /** Number of measurements in batch payload */
+    private static final int BATCH_SIZE = 10000;
+
+    /** Used to build trees for single requests */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Single measurement request */
+    private static final byte[] SINGLE = ("{\"deviceToken\":\"device-001\",\"type\":\"DeviceMeasurement\","
+	    + "\"request\":{\"name\":\"temperature\",\"value\":\"21.5\",\"updateState\":true}}")
+		    .getBytes(StandardCharsets.UTF_8);
+
+    /** Batch of measurements */
+    private byte[] batch;
+
+    /** Decoder binding whole batch */
+    private JsonBatchEventDecoder batchDecoder;
+
+    /** Decoder streaming batch events */
+    private JsonStreamingBatchEventDecoder streamingDecoder;
+
+    /** Decoder for single requests */
+    private JsonDeviceRequestDecoder requestDecoder;
+
+    @Setup
+    public void setup() {
+	StringBuilder json = new StringBuilder("{\"deviceToken\":\"device-001\",\"measurements\":[");
+	for (int i = 0; i < BATCH_SIZE; i++) {
+	    if (i > 0) {
+		json.append(',');
+	    }
+	    json.append("{\"name\":\"temperature\",\"value\":").append(20 + (i % 10)).append(",\"eventDate\":")
+		    .append(1600000000000L + i).append('}');
+	}
+	json.append("]}");
+	this.batch = json.toString().getBytes(StandardCharsets.UTF_8);
+	this.batchDecoder = new JsonBatchEventDecoder();
+	this.streamingDecoder = new JsonStreamingBatchEventDecoder();
+	this.requestDecoder = new JsonDeviceRequestDecoder();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<IDecodedDeviceRequest<?>> batchBound() throws SiteWhereException {
+	return batchDecoder.decode(batch, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchStreamed(Blackhole blackhole) throws SiteWhereException {
+	streamingDecoder.decode(batch, null, decoded -> blackhole.consume(decoded));
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public DecodedDeviceRequest<?> singleTree() throws IOException {
+	JsonNode node = MAPPER.readTree(SINGLE);
+	return JsonDeviceRequestMarshaler.unmarshal(node.get("deviceToken").textValue(), null,
+		Type.valueOf(node.get("type").asText()), node.get("request"));
+    }
+
+    @Benchmark
+    public List<IDecodedDeviceRequest<?>> singleStreamed() throws SiteWhereException {
+	return requestDecoder.decode(SINGLE, null);
+    }
+}
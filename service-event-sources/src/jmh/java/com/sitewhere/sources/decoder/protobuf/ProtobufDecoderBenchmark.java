@@ -0,0 +1,153 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.decoder.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.protobuf.CodedOutputStream;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.DeviceEvent;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.DeviceEvent.Command;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalDouble;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalFixed64;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalString;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Compares decoding of protobuf measurement payloads using streams over the
+ * payload with decoding using a coded input stream over the raw array,
+ * for single events and for the batch envelope. Run with the 'gc' profiler
+ * (enabled in the build) to compare bytes allocated per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProtobufDecoderBenchmark {
+
+    /** Number of events in batch payload */
+    private static final int BATCH_SIZE = 100;
+
+    /** Payload with a single measurement */
+    private byte[] single;
+
+    /** Payload with a batch of measurements */
+    private byte[] batch;
+
+    /** Decoder for single payloads */
+    private ProtobufDeviceEventDecoder singleDecoder;
+
+    /** Decoder for batch payloads */
+    private ProtobufDeviceEventDecoder batchDecoder;
+
+    @Setup
+    public void setup() throws IOException {
+	this.single = encode(1, false);
+	this.batch = encode(BATCH_SIZE, true);
+	this.singleDecoder = new ProtobufDeviceEventDecoder();
+	this.batchDecoder = new ProtobufDeviceEventDecoder(true);
+    }
+
+    @Benchmark
+    public List<IDecodedDeviceRequest<?>> streamSingle() throws IOException {
+	return decodeWithStream(single);
+    }
+
+    @Benchmark
+    public List<IDecodedDeviceRequest<?>> codedSingle() throws SiteWhereException {
+	return singleDecoder.decode(single, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<IDecodedDeviceRequest<?>> codedBatch() throws SiteWhereException {
+	return batchDecoder.decode(batch, null);
+    }
+
+    /**
+     * Decode a single measurement the way payloads were decoded before the
+     * decoder read directly from the payload array.
+     * 
+     * @param payload
+     * @return
+     * @throws IOException
+     */
+    protected static List<IDecodedDeviceRequest<?>> decodeWithStream(byte[] payload) throws IOException {
+	ByteArrayInputStream stream = new ByteArrayInputStream(payload);
+	DeviceEvent.Header header = DeviceEvent.Header.parseDelimitedFrom(stream);
+	DeviceEvent.DeviceMeasurement dm = DeviceEvent.DeviceMeasurement.parseDelimitedFrom(stream);
+
+	List<IDecodedDeviceRequest<?>> results = new ArrayList<IDecodedDeviceRequest<?>>();
+	DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
+	request.setName(dm.getMeasurementName().getValue());
+	request.setValue(new BigDecimal(dm.getMeasurementValue().getValue()));
+	request.setMetadata(dm.getMetadataMap());
+	request.setEventDate(new Date(dm.getEventDate().getValue()));
+	DecodedDeviceRequest<DeviceMeasurementCreateRequest> decoded = new DecodedDeviceRequest<>();
+	decoded.setDeviceToken(header.getDeviceToken().getValue());
+	decoded.setRequest(request);
+	results.add(decoded);
+	return results;
+    }
+
+    /**
+     * Encode measurements for a single device.
+     * 
+     * @param count
+     * @param envelope
+     * @return
+     * @throws IOException
+     */
+    protected static byte[] encode(int count, boolean envelope) throws IOException {
+	DeviceEvent.Header header = DeviceEvent.Header.newBuilder().setCommand(Command.SendMeasurement)
+		.setDeviceToken(GOptionalString.newBuilder().setValue("device-001")).build();
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	CodedOutputStream coded = CodedOutputStream.newInstance(out);
+	coded.writeUInt32NoTag(header.getSerializedSize());
+	header.writeTo(coded);
+	for (int i = 0; i < count; i++) {
+	    DeviceEvent.DeviceMeasurement measurement = DeviceEvent.DeviceMeasurement.newBuilder()
+		    .setMeasurementName(GOptionalString.newBuilder().setValue("temperature"))
+		    .setMeasurementValue(GOptionalDouble.newBuilder().setValue(20.0 + (i % 10) * 0.1))
+		    .setEventDate(GOptionalFixed64.newBuilder().setValue(System.currentTimeMillis())).build();
+	    if (envelope) {
+		coded.writeEnumNoTag(Command.SendMeasurement.getNumber());
+	    }
+	    coded.writeUInt32NoTag(measurement.getSerializedSize());
+	    measurement.writeTo(coded);
+	}
+	coded.flush();
+	return out.toByteArray();
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.sitewhere.sources.configuration.EventSourcesTenantConfiguration;
+import com.sitewhere.sources.decoder.json.JsonDeviceRequestDecoder;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Measures events per second from an encoded payload received by an event
+ * source to a record handed to Kafka by {@link DecodedEventsProducer}. The
+ * producer sends to an in-memory Kafka producer so that results reflect
+ * processing in this microservice rather than the broker. Sends are never
+ * completed, since completion callbacks report metrics for a tenant engine.
+ * Compares a random UUID per event with the sequence-based source id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecodedEventsThroughputBenchmark {
+
+    /** Number of records kept by in-memory producer before it is cleared */
+    private static final int CLEAR_INTERVAL = 10000;
+
+    /** Encoded payload as received from a device */
+    private static final byte[] PAYLOAD = ("{\"deviceToken\":\"device-001\",\"type\":\"DeviceMeasurement\","
+	    + "\"request\":{\"name\":\"temperature\",\"value\":\"21.5\",\"updateState\":true}}")
+		    .getBytes(StandardCharsets.UTF_8);
+
+    /** Decoder */
+    private JsonDeviceRequestDecoder decoder;
+
+    /** In-memory producer */
+    private MockProducer<String, byte[]> records;
+
+    /** Decoded events producer under test */
+    private DecodedEventsProducer producer;
+
+    /** Number of records sent */
+    private AtomicLong sent = new AtomicLong();
+
+    /** Sequence for source ids */
+    private AtomicLong sequence = new AtomicLong();
+
+    /** Prefix for source ids */
+    private String prefix = UUID.randomUUID().toString();
+
+    @Setup
+    public void setup() {
+	this.decoder = new JsonDeviceRequestDecoder();
+	this.records = new MockProducer<>(false, new StringSerializer(), new ByteArraySerializer());
+	this.producer = new InMemoryDecodedEventsProducer(new EventSourcesTenantConfiguration(), records);
+    }
+
+    @Benchmark
+    public int randomSourceId() throws SiteWhereException {
+	return process("benchmark:" + UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public int sequenceSourceId() throws SiteWhereException {
+	return process("benchmark:" + prefix + "-" + Long.toHexString(sequence.incrementAndGet()));
+    }
+
+    /**
+     * Decode payload and send decoded events through the producer.
+     * 
+     * @param sourceUnique
+     * @return
+     * @throws SiteWhereException
+     */
+    protected int process(String sourceUnique) throws SiteWhereException {
+	List<IDecodedDeviceRequest<?>> requests = decoder.decode(PAYLOAD, null);
+	for (IDecodedDeviceRequest<?> decoded : requests) {
+	    producer.sendDecodedEvent(sourceUnique, decoded);
+	}
+	if (sent.addAndGet(requests.size()) % CLEAR_INTERVAL == 0) {
+	    records.clear();
+	}
+	return requests.size();
+    }
+
+    /**
+     * Decoded events producer that sends to an in-memory producer.
+     */
+    private static class InMemoryDecodedEventsProducer extends DecodedEventsProducer {
+
+	/** In-memory producer */
+	private Producer<String, byte[]> records;
+
+	public InMemoryDecodedEventsProducer(EventSourcesTenantConfiguration configuration,
+		Producer<String, byte[]> records) {
+	    super(configuration);
+	    this.records = records;
+	}
+
+	/*
+	 * @see com.sitewhere.sources.kafka.DecodedEventsProducer#getRecordProducer()
+	 */
+	@Override
+	protected Producer<String, byte[]> getRecordProducer() {
+	    return records;
+	}
+
+	/*
+	 * @see com.sitewhere.sources.kafka.DecodedEventsProducer#getTargetTopicName()
+	 */
+	@Override
+	public String getTargetTopicName() throws SiteWhereException {
+	    return "decoded-events";
+	}
+    }
+}
@@ -22,12 +22,15 @@ import java.util.Map;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.util.MarshalUtils;
 import com.sitewhere.sources.spi.EventDecodeException;
+import com.sitewhere.sources.spi.IBatchDeviceEventDecoder;
 import com.sitewhere.sources.spi.IDecodedDeviceRequest;
 import com.sitewhere.sources.spi.IDeviceEventDecoder;
 import com.sitewhere.sources.spi.IDeviceEventDeduplicator;
 import com.sitewhere.sources.spi.IEventSourcesManager;
 import com.sitewhere.sources.spi.IInboundEventReceiver;
 import com.sitewhere.sources.spi.IInboundEventSource;
+import com.sitewhere.sources.spi.IStreamingDeviceEventDecoder;
+import com.sitewhere.sources.spi.PartialEventDecodeException;
 import com.sitewhere.sources.spi.microservice.IEventSourcesTenantEngine;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
@@ -197,22 +200,114 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	    getLogger()
 		    .info(String.format("Received encoded event payload on receiver '%s'.", receiver.getDisplayName()));
 	}
+	if (getDeviceEventDecoder() instanceof IStreamingDeviceEventDecoder) {
+	    decodeStreaming(encoded, metadata);
+	    return;
+	}
 	List<IDecodedDeviceRequest<?>> requests = decodeEvent(encoded, metadata);
 	if (requests != null) {
 	    if (getLogger().isDebugEnabled()) {
 		getLogger().debug(String.format("Encoded request parsed into %d events.", requests.size()));
 	    }
 	    for (IDecodedDeviceRequest<?> decoded : requests) {
-		DECODED_EVENTS.labels(buildLabels(getSourceId())).inc();
-		if (getLogger().isDebugEnabled()) {
-		    getLogger().debug(String.format("Decoded event payload was:\n\n%s\n\n",
-			    MarshalUtils.marshalJsonAsPrettyString(decoded)));
-		}
-		if (shouldProcess(decoded)) {
-		    handleDecodedRequest(encoded, metadata, decoded);
-		}
+		onDecodedRequest(encoded, metadata, decoded);
+	    }
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.IInboundEventSource#onEncodedEventsReceived(com.
+     * sitewhere.sources.spi.IInboundEventReceiver, java.util.List, java.util.List)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onEncodedEventsReceived(IInboundEventReceiver<T> receiver, List<T> encodedEvents,
+	    List<Map<String, Object>> metadata) {
+	if ((encodedEvents.size() > 1) && (getDeviceEventDecoder() instanceof IBatchDeviceEventDecoder)
+		&& ((IBatchDeviceEventDecoder<T>) getDeviceEventDecoder()).isBatchSupported()) {
+	    if (decodeBatch(encodedEvents, metadata)) {
+		return;
 	    }
 	}
+	for (int i = 0; i < encodedEvents.size(); i++) {
+	    try {
+		onEncodedEventReceived(receiver, encodedEvents.get(i), (metadata != null) ? metadata.get(i) : null);
+	    } catch (RuntimeException e) {
+		getLogger().error("Unhandled exception processing encoded event.", e);
+		getEventSourcesManager().getDecodedEventsProducer().recordFailure();
+	    }
+	}
+    }
+
+    /**
+     * Decode a batch of events in a single call. If the batch can not be decoded,
+     * false is returned so that events are decoded individually and failures are
+     * reported for the payloads that caused them.
+     * 
+     * @param encodedEvents
+     * @param metadata
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean decodeBatch(List<T> encodedEvents, List<Map<String, Object>> metadata) {
+	IBatchDeviceEventDecoder<T> decoder = (IBatchDeviceEventDecoder<T>) getDeviceEventDecoder();
+	List<IDecodedDeviceRequest<?>> requests;
+	try {
+	    requests = decoder.decodeBatch(encodedEvents, metadata);
+	} catch (EventDecodeException e) {
+	    getLogger().warn("Unable to decode batch of events. Decoding events individually.", e);
+	    return false;
+	}
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug(String.format("Batch of %d encoded requests parsed into %d events.",
+		    encodedEvents.size(), requests.size()));
+	}
+	for (IDecodedDeviceRequest<?> decoded : requests) {
+	    onDecodedRequest(null, null, decoded);
+	}
+	return true;
+    }
+
+    /**
+     * Decode an event with a streaming decoder, processing each request as soon
+     * as it is decoded.
+     * If decoding fails after some requests were processed, only the part of the
+     * payload that was not processed is reported as failed.
+     * 
+     * @param encoded
+     * @param metadata
+     */
+    @SuppressWarnings("unchecked")
+    protected void decodeStreaming(T encoded, Map<String, Object> metadata) {
+	IStreamingDeviceEventDecoder<T> decoder = (IStreamingDeviceEventDecoder<T>) getDeviceEventDecoder();
+	try {
+	    decoder.decode(encoded, metadata, decoded -> onDecodedRequest(encoded, metadata, decoded));
+	} catch (PartialEventDecodeException e) {
+	    getLogger().warn(String.format("Payload failed to decode after %d requests were processed.",
+		    e.getProcessedCount()));
+	    onEventDecodeFailed((T) e.getRemainingPayload(), metadata, e);
+	} catch (EventDecodeException e) {
+	    onEventDecodeFailed(encoded, metadata, e);
+	}
+    }
+
+    /**
+     * Process a single decoded request.
+     * 
+     * @param encoded
+     * @param metadata
+     * @param decoded
+     */
+    protected void onDecodedRequest(T encoded, Map<String, Object> metadata, IDecodedDeviceRequest<?> decoded) {
+	DECODED_EVENTS.labels(buildLabels(getSourceId())).inc();
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug(String.format("Decoded event payload was:\n\n%s\n\n",
+		    MarshalUtils.marshalJsonAsPrettyString(decoded)));
+	}
+	if (shouldProcess(decoded)) {
+	    handleDecodedRequest(encoded, metadata, decoded);
+	}
     }
 
     /**
@@ -266,9 +361,11 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	    getLogger().debug("Event decoded successfully.");
 	}
 	try {
-	    getEventSourcesManager().handleDecodedEvent(getSourceId(), getRawPayload(encoded), metadata, decoded);
+	    byte[] raw = (encoded != null) ? getRawPayload(encoded) : null;
+	    getEventSourcesManager().handleDecodedEvent(getSourceId(), raw, metadata, decoded);
 	} catch (SiteWhereException e) {
 	    getLogger().error("Unable to handle decoded event.", e);
+	    getEventSourcesManager().getDecodedEventsProducer().recordFailure();
 	}
     }
 
@@ -289,6 +386,7 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
 	    getEventSourcesManager().handleFailedDecode(getSourceId(), getRawPayload(encoded), metadata, t);
 	} catch (SiteWhereException e) {
 	    getLogger().error("Unable to handle failed event decode.", e);
+	    getEventSourcesManager().getDecodedEventsProducer().recordFailure();
 	}
     }
 
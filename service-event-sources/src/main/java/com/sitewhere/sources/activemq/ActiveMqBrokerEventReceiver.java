@@ -23,17 +23,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.jms.BytesMessage;
-import javax.jms.Connection;
-import javax.jms.Destination;
-import javax.jms.ExceptionListener;
-import javax.jms.JMSException;
-import javax.jms.Message;
-import javax.jms.MessageConsumer;
-import javax.jms.Session;
-import javax.jms.TextMessage;
-
-import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.TransportConnector;
 
@@ -56,7 +45,7 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
     private BrokerService brokerService;
 
     /** List of consumers reading messages */
-    private List<Consumer> consumers = new ArrayList<Consumer>();
+    private List<ActiveMqConsumer> consumers = new ArrayList<ActiveMqConsumer>();
 
     /** Thread pool for consumer processing */
     private ExecutorService consumersPool;
@@ -128,7 +117,9 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
 	this.consumersPool = Executors.newFixedThreadPool(getConfiguration().getNumConsumers(),
 		new ConsumersThreadFactory());
 	for (int i = 0; i < getConfiguration().getNumConsumers(); i++) {
-	    Consumer consumer = new Consumer();
+	    ActiveMqConsumer consumer = new ActiveMqConsumer(this, "vm://" + getConfiguration().getBrokerName(),
+		    getConfiguration().getQueueName(), getConfiguration().getPrefetchSize(),
+		    getConfiguration().getAckBatchSize(), getConfiguration().getAckIntervalMs());
 	    consumer.start();
 	    getConsumersPool().execute(consumer);
 	    getConsumers().add(consumer);
@@ -145,6 +136,7 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	stopConsumers();
 	if (getBrokerService() != null) {
 	    try {
 		getBrokerService().stop();
@@ -152,7 +144,6 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
 		throw new SiteWhereException("Error stopping ActiveMQ broker.", e);
 	    }
 	}
-	stopConsumers();
     }
 
     /**
@@ -162,7 +153,7 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
      */
     protected void stopConsumers() throws SiteWhereException {
 	getConsumersPool().shutdownNow();
-	for (Consumer consumer : consumers) {
+	for (ActiveMqConsumer consumer : consumers) {
 	    consumer.stop();
 	}
     }
@@ -179,107 +170,6 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
 	}
     }
 
-    /**
-     * Reads messages from the ActiveMQ queue and puts the binary content on a queue
-     * for SiteWhere to use.
-     */
-    private class Consumer implements Runnable, ExceptionListener {
-
-	/** Connection to ActiveMQ */
-	private Connection connection;
-
-	/** JMS session */
-	private Session session;
-
-	/** Consumer for reading data */
-	private MessageConsumer consumer;
-
-	public void start() throws SiteWhereException {
-	    try {
-		// Create a VM connection to the broker.
-		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(
-			"vm://" + getConfiguration().getBrokerName());
-		this.connection = connectionFactory.createConnection();
-		getConnection().setExceptionListener(this);
-		getConnection().start();
-
-		// Create a Session
-		this.session = getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
-
-		Destination destination = getSession().createQueue(getConfiguration().getQueueName());
-		this.consumer = getSession().createConsumer(destination);
-	    } catch (Exception e) {
-		throw new SiteWhereException("Error starting ActiveMQ consumer.", e);
-	    }
-	}
-
-	public void stop() throws SiteWhereException {
-	    try {
-		getConsumer().close();
-		getSession().close();
-		getConnection().close();
-	    } catch (Exception e) {
-		throw new SiteWhereException("Error shutting down ActiveMQ consumer.", e);
-	    }
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.lang.Runnable#run()
-	 */
-	@Override
-	public void run() {
-	    while (true) {
-		try {
-		    Message message = consumer.receive();
-		    if (message == null) {
-			break;
-		    }
-		    if (message instanceof TextMessage) {
-			TextMessage textMessage = (TextMessage) message;
-			onEventPayloadReceived(textMessage.getText().getBytes(), null);
-		    } else if (message instanceof BytesMessage) {
-			BytesMessage bytesMessage = (BytesMessage) message;
-			byte[] buffer = new byte[(int) bytesMessage.getBodyLength()];
-			bytesMessage.readBytes(buffer);
-			onEventPayloadReceived(buffer, null);
-		    } else {
-			getLogger().warn("Ignoring unknown JMS message type: " + message.getClass().getName());
-		    }
-		} catch (Throwable e) {
-		    getLogger().error("Error in ActiveMQ message processing.", e);
-		    return;
-		}
-	    }
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see javax.jms.ExceptionListener#onException(javax.jms.JMSException)
-	 */
-	@Override
-	public void onException(JMSException e) {
-	    try {
-		stop();
-	    } catch (SiteWhereException e1) {
-	    }
-	}
-
-	protected Connection getConnection() {
-	    return connection;
-	}
-
-	protected Session getSession() {
-	    return session;
-	}
-
-	protected MessageConsumer getConsumer() {
-	    return consumer;
-	}
-    }
-
     protected ActiveMqBrokerConfiguration getConfiguration() {
 	return configuration;
     }
@@ -292,7 +182,7 @@ public class ActiveMqBrokerEventReceiver extends InboundEventReceiver<byte[]> {
 	return consumersPool;
     }
 
-    protected List<Consumer> getConsumers() {
+    protected List<ActiveMqConsumer> getConsumers() {
 	return consumers;
     }
 }
\ No newline at end of file
@@ -22,18 +22,6 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.jms.BytesMessage;
-import javax.jms.Connection;
-import javax.jms.Destination;
-import javax.jms.ExceptionListener;
-import javax.jms.JMSException;
-import javax.jms.Message;
-import javax.jms.MessageConsumer;
-import javax.jms.Session;
-import javax.jms.TextMessage;
-
-import org.apache.activemq.ActiveMQConnectionFactory;
-
 import com.sitewhere.sources.InboundEventReceiver;
 import com.sitewhere.sources.configuration.eventsource.activemq.ActiveMqClientConfiguration;
 import com.sitewhere.sources.spi.IInboundEventReceiver;
@@ -42,7 +30,8 @@ import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 
 /**
  * Implementation of {@link IInboundEventReceiver} that creates multiple
- * ActiveMQ consumer threads to ingest remote data.
+ * ActiveMQ consumer threads to ingest remote data. Consumers share a connection
+ * with other event sources of the tenant that use the same broker.
  */
 public class ActiveMqClientEventReceiver extends InboundEventReceiver<byte[]> {
 
@@ -50,7 +39,7 @@ public class ActiveMqClientEventReceiver extends InboundEventReceiver<byte[]> {
     private ActiveMqClientConfiguration configuration;
 
     /** List of consumers reading messages */
-    private List<Consumer> consumers = new ArrayList<Consumer>();
+    private List<ActiveMqConsumer> consumers = new ArrayList<ActiveMqConsumer>();
 
     /** Thread pool for consumer processing */
     private ExecutorService consumersPool;
@@ -87,7 +76,9 @@ public class ActiveMqClientEventReceiver extends InboundEventReceiver<byte[]> {
 	consumersPool = Executors.newFixedThreadPool(getConfiguration().getNumConsumers(),
 		new ConsumersThreadFactory());
 	for (int i = 0; i < getConfiguration().getNumConsumers(); i++) {
-	    Consumer consumer = new Consumer();
+	    ActiveMqConsumer consumer = new ActiveMqConsumer(this, getConfiguration().getRemoteUri(),
+		    getConfiguration().getQueueName(), getConfiguration().getPrefetchSize(),
+		    getConfiguration().getAckBatchSize(), getConfiguration().getAckIntervalMs());
 	    consumer.start();
 	    getConsumersPool().execute(consumer);
 	    getConsumers().add(consumer);
@@ -105,7 +96,7 @@ public class ActiveMqClientEventReceiver extends InboundEventReceiver<byte[]> {
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	getConsumersPool().shutdownNow();
-	for (Consumer consumer : getConsumers()) {
+	for (ActiveMqConsumer consumer : getConsumers()) {
 	    consumer.stop();
 	}
     }
@@ -133,111 +124,11 @@ public class ActiveMqClientEventReceiver extends InboundEventReceiver<byte[]> {
 	}
     }
 
-    /**
-     * Reads messages from the ActiveMQ queue and puts the binary content on a queue
-     * for SiteWhere to use.
-     */
-    private class Consumer implements Runnable, ExceptionListener {
-
-	/** Connection to remote broker */
-	private Connection connection;
-
-	/** JMS session */
-	private Session session;
-
-	/** Consumer for reading data */
-	private MessageConsumer consumer;
-
-	public void start() throws SiteWhereException {
-	    try {
-		// Create a connection to the broker.
-		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(
-			getConfiguration().getRemoteUri());
-		this.connection = connectionFactory.createConnection();
-		getConnection().setExceptionListener(this);
-		getConnection().start();
-
-		// Create a Session
-		this.session = getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
-
-		Destination destination = getSession().createQueue(getConfiguration().getQueueName());
-		this.consumer = getSession().createConsumer(destination);
-	    } catch (Exception e) {
-		throw new SiteWhereException("Error starting ActiveMQ consumer.", e);
-	    }
-	}
-
-	public void stop() throws SiteWhereException {
-	    try {
-		getConsumer().close();
-		getSession().close();
-		getConnection().close();
-	    } catch (Exception e) {
-		throw new SiteWhereException("Error shutting down ActiveMQ consumer.", e);
-	    }
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.lang.Runnable#run()
-	 */
-	@Override
-	public void run() {
-	    while (true) {
-		try {
-		    Message message = consumer.receive();
-		    if (message == null) {
-			break;
-		    }
-		    if (message instanceof TextMessage) {
-			TextMessage textMessage = (TextMessage) message;
-			onEventPayloadReceived(textMessage.getText().getBytes(), null);
-		    } else if (message instanceof BytesMessage) {
-			BytesMessage bytesMessage = (BytesMessage) message;
-			byte[] buffer = new byte[(int) bytesMessage.getBodyLength()];
-			onEventPayloadReceived(buffer, null);
-		    } else {
-			getLogger().warn("Ignoring unknown JMS message type: " + message.getClass().getName());
-		    }
-		} catch (Throwable e) {
-		    getLogger().error("Error in ActiveMQ message processing.", e);
-		    return;
-		}
-	    }
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see javax.jms.ExceptionListener#onException(javax.jms.JMSException)
-	 */
-	@Override
-	public void onException(JMSException e) {
-	    try {
-		stop();
-	    } catch (SiteWhereException e1) {
-	    }
-	}
-
-	protected Connection getConnection() {
-	    return connection;
-	}
-
-	protected Session getSession() {
-	    return session;
-	}
-
-	protected MessageConsumer getConsumer() {
-	    return consumer;
-	}
-    }
-
     protected ActiveMqClientConfiguration getConfiguration() {
 	return configuration;
     }
 
-    protected List<Consumer> getConsumers() {
+    protected List<ActiveMqConsumer> getConsumers() {
 	return consumers;
     }
 
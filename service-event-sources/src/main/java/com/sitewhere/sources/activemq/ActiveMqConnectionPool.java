@@ -0,0 +1,111 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.activemq;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+/**
+ * Shares ActiveMQ connections between the consumers of all event sources in a
+ * tenant that read from the same broker. Each consumer uses its own session on
+ * the shared connection. Connections are reference counted and closed when the
+ * last consumer releases them.
+ */
+public class ActiveMqConnectionPool {
+
+    /** Shared connections by tenant and broker URL */
+    private static final Map<String, SharedConnection> CONNECTIONS = new HashMap<>();
+
+    /**
+     * Get a started connection to a broker, creating it if no usable connection
+     * is shared for the tenant.
+     * 
+     * @param tenant
+     * @param brokerUrl
+     * @return
+     * @throws JMSException
+     */
+    public static synchronized Connection acquire(String tenant, String brokerUrl) throws JMSException {
+	String key = getKey(tenant, brokerUrl);
+	SharedConnection shared = CONNECTIONS.get(key);
+	if ((shared == null) || shared.isFailed()) {
+	    Connection connection = new ActiveMQConnectionFactory(brokerUrl).createConnection();
+	    connection.start();
+	    shared = new SharedConnection(connection);
+	    CONNECTIONS.put(key, shared);
+	}
+	shared.references++;
+	return shared.connection;
+    }
+
+    /**
+     * Release a connection acquired from the pool. The connection is closed once
+     * no consumers reference it.
+     * 
+     * @param tenant
+     * @param brokerUrl
+     * @param connection
+     * @throws JMSException
+     */
+    public static synchronized void release(String tenant, String brokerUrl, Connection connection)
+	    throws JMSException {
+	String key = getKey(tenant, brokerUrl);
+	SharedConnection shared = CONNECTIONS.get(key);
+	if ((shared == null) || (shared.connection != connection)) {
+	    // Connection was replaced after failure.
+	    connection.close();
+	    return;
+	}
+	if (--shared.references == 0) {
+	    CONNECTIONS.remove(key);
+	    connection.close();
+	}
+    }
+
+    protected static String getKey(String tenant, String brokerUrl) {
+	return tenant + "|" + brokerUrl;
+    }
+
+    /**
+     * Connection with count of consumers using it.
+     */
+    private static class SharedConnection {
+
+	/** Connection */
+	private Connection connection;
+
+	/** Number of consumers using connection */
+	private int references;
+
+	public SharedConnection(Connection connection) {
+	    this.connection = connection;
+	}
+
+	public boolean isFailed() {
+	    if (connection instanceof ActiveMQConnection) {
+		ActiveMQConnection amq = (ActiveMQConnection) connection;
+		return amq.isClosed() || amq.isClosing() || amq.isTransportFailed();
+	    }
+	    return false;
+	}
+    }
+}
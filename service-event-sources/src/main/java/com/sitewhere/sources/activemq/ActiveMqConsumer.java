@@ -0,0 +1,184 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.activemq;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import com.sitewhere.sources.InboundEventReceiver;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Reads messages from an ActiveMQ queue and passes the binary content to a
+ * receiver. Consumers use a connection from {@link ActiveMqConnectionPool} and
+ * a session of their own.
+ * 
+ * If an acknowledgement batch size is set, the session uses client
+ * acknowledgement and all messages consumed so far are acknowledged together
+ * once the batch is full or the acknowledgement interval has passed. Otherwise
+ * each message is acknowledged as it is received. The prefetch size limits the
+ * number of unacknowledged messages the broker pushes to the consumer.
+ */
+public class ActiveMqConsumer implements Runnable {
+
+    /** Receiver that processes payloads */
+    private InboundEventReceiver<byte[]> receiver;
+
+    /** Broker URL */
+    private String brokerUrl;
+
+    /** Queue name */
+    private String queueName;
+
+    /** Number of messages the broker sends before waiting for acknowledgement */
+    private int prefetchSize;
+
+    /** Number of messages acknowledged together (zero for individual) */
+    private int ackBatchSize;
+
+    /** Maximum time in milliseconds a consumed message waits for acknowledgement */
+    private long ackIntervalMs;
+
+    /** Tenant that owns the shared connection */
+    private String tenant;
+
+    /** Connection to broker */
+    private Connection connection;
+
+    /** JMS session */
+    private Session session;
+
+    /** Consumer for reading data */
+    private MessageConsumer consumer;
+
+    /** Set when consumer is stopped */
+    private volatile boolean stopped;
+
+    public ActiveMqConsumer(InboundEventReceiver<byte[]> receiver, String brokerUrl, String queueName,
+	    int prefetchSize, int ackBatchSize, long ackIntervalMs) {
+	this.receiver = receiver;
+	this.brokerUrl = brokerUrl;
+	this.queueName = queueName;
+	this.prefetchSize = prefetchSize;
+	this.ackBatchSize = ackBatchSize;
+	this.ackIntervalMs = ackIntervalMs;
+    }
+
+    public void start() throws SiteWhereException {
+	try {
+	    this.tenant = receiver.getTenantEngine().getTenantResource().getMetadata().getName();
+	    this.connection = ActiveMqConnectionPool.acquire(tenant, brokerUrl);
+	    this.session = connection.createSession(false,
+		    isBatchAcknowledge() ? Session.CLIENT_ACKNOWLEDGE : Session.AUTO_ACKNOWLEDGE);
+
+	    Destination destination = session.createQueue(queueName + "?consumer.prefetchSize=" + prefetchSize);
+	    this.consumer = session.createConsumer(destination);
+	} catch (Exception e) {
+	    throw new SiteWhereException("Error starting ActiveMQ consumer.", e);
+	}
+    }
+
+    public void stop() throws SiteWhereException {
+	stopped = true;
+	try {
+	    if (consumer != null) {
+		consumer.close();
+	    }
+	    if (session != null) {
+		session.close();
+	    }
+	    if (connection != null) {
+		ActiveMqConnectionPool.release(tenant, brokerUrl, connection);
+	    }
+	} catch (Exception e) {
+	    throw new SiteWhereException("Error shutting down ActiveMQ consumer.", e);
+	}
+    }
+
+    /*
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+	Message unacknowledged = null;
+	int pending = 0;
+	long ackDeadline = 0;
+	while (!stopped) {
+	    try {
+		Message message;
+		if (pending == 0) {
+		    message = consumer.receive();
+		} else {
+		    message = consumer.receive(Math.max(1, ackDeadline - System.currentTimeMillis()));
+		}
+		if (message == null) {
+		    if (pending == 0 || stopped) {
+			break;
+		    }
+		    // Acknowledgement interval elapsed.
+		    unacknowledged.acknowledge();
+		    pending = 0;
+		    continue;
+		}
+		processMessage(message);
+		if (isBatchAcknowledge()) {
+		    if (pending++ == 0) {
+			ackDeadline = System.currentTimeMillis() + ackIntervalMs;
+		    }
+		    unacknowledged = message;
+		    if ((pending >= ackBatchSize) || (System.currentTimeMillis() >= ackDeadline)) {
+			message.acknowledge();
+			pending = 0;
+		    }
+		}
+	    } catch (Throwable e) {
+		if (!stopped) {
+		    receiver.getLogger().error("Error in ActiveMQ message processing.", e);
+		}
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Pass message content to the receiver.
+     * 
+     * @param message
+     * @throws Exception
+     */
+    protected void processMessage(Message message) throws Exception {
+	if (message instanceof TextMessage) {
+	    TextMessage textMessage = (TextMessage) message;
+	    receiver.onEventPayloadReceived(textMessage.getText().getBytes(), null);
+	} else if (message instanceof BytesMessage) {
+	    BytesMessage bytesMessage = (BytesMessage) message;
+	    byte[] buffer = new byte[(int) bytesMessage.getBodyLength()];
+	    bytesMessage.readBytes(buffer);
+	    receiver.onEventPayloadReceived(buffer, null);
+	} else {
+	    receiver.getLogger().warn("Ignoring unknown JMS message type: " + message.getClass().getName());
+	}
+    }
+
+    protected boolean isBatchAcknowledge() {
+	return ackBatchSize > 0;
+    }
+}
@@ -24,9 +24,33 @@ import com.sitewhere.spi.microservice.multitenant.ITenantEngineConfiguration;
  */
 public class EventSourcesTenantConfiguration implements ITenantEngineConfiguration {
 
+    /** Default number of milliseconds decoded events wait for a producer batch */
+    private static final int DEFAULT_DECODED_EVENTS_LINGER_MS = 5;
+
+    /** Default maximum producer batch size in bytes for decoded events */
+    private static final int DEFAULT_DECODED_EVENTS_BATCH_SIZE = 64 * 1024;
+
+    /** Default compression for decoded events */
+    private static final String DEFAULT_DECODED_EVENTS_COMPRESSION_TYPE = "lz4";
+
     /** Event source configurations */
     private List<EventSourceGenericConfiguration> eventSources;
 
+    /**
+     * Indicates whether the decoded events producer uses the linger time, batch
+     * size and compression below. Otherwise the shared producer defaults apply.
+     */
+    private boolean decodedEventsThroughputProfile = false;
+
+    /** Number of milliseconds decoded events wait for a producer batch */
+    private int decodedEventsLingerMs = DEFAULT_DECODED_EVENTS_LINGER_MS;
+
+    /** Maximum producer batch size in bytes for decoded events */
+    private int decodedEventsBatchSize = DEFAULT_DECODED_EVENTS_BATCH_SIZE;
+
+    /** Compression for decoded events (none, gzip, snappy or lz4) */
+    private String decodedEventsCompressionType = DEFAULT_DECODED_EVENTS_COMPRESSION_TYPE;
+
     public List<EventSourceGenericConfiguration> getEventSources() {
 	return eventSources;
     }
@@ -34,4 +58,36 @@ public class EventSourcesTenantConfiguration implements ITenantEngineConfigurati
     public void setEventSources(List<EventSourceGenericConfiguration> eventSources) {
 	this.eventSources = eventSources;
     }
+
+    public boolean isDecodedEventsThroughputProfile() {
+	return decodedEventsThroughputProfile;
+    }
+
+    public void setDecodedEventsThroughputProfile(boolean decodedEventsThroughputProfile) {
+	this.decodedEventsThroughputProfile = decodedEventsThroughputProfile;
+    }
+
+    public int getDecodedEventsLingerMs() {
+	return decodedEventsLingerMs;
+    }
+
+    public void setDecodedEventsLingerMs(int decodedEventsLingerMs) {
+	this.decodedEventsLingerMs = decodedEventsLingerMs;
+    }
+
+    public int getDecodedEventsBatchSize() {
+	return decodedEventsBatchSize;
+    }
+
+    public void setDecodedEventsBatchSize(int decodedEventsBatchSize) {
+	this.decodedEventsBatchSize = decodedEventsBatchSize;
+    }
+
+    public String getDecodedEventsCompressionType() {
+	return decodedEventsCompressionType;
+    }
+
+    public void setDecodedEventsCompressionType(String decodedEventsCompressionType) {
+	this.decodedEventsCompressionType = decodedEventsCompressionType;
+    }
 }
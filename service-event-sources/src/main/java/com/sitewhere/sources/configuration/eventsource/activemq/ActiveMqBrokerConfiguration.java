@@ -37,6 +37,15 @@ public class ActiveMqBrokerConfiguration extends EventSourceConfiguration {
     /** Defatult number of consumers */
     private static final int DEFAULT_NUM_CONSUMERS = 3;
 
+    /** Default number of messages sent by the broker before waiting for acknowledgement */
+    private static final int DEFAULT_PREFETCH_SIZE = 1000;
+
+    /** Default number of messages acknowledged together (zero acknowledges each message) */
+    private static final int DEFAULT_ACK_BATCH_SIZE = 0;
+
+    /** Default maximum time in milliseconds before consumed messages are acknowledged */
+    private static final int DEFAULT_ACK_INTERVAL_MS = 100;
+
     /** Unique name of ActiveMQ broker */
     private String brokerName = DEFAULT_BROKER_NAME;
 
@@ -49,6 +58,15 @@ public class ActiveMqBrokerConfiguration extends EventSourceConfiguration {
     /** Number of consumers used to read messages from the queue */
     private int numConsumers = DEFAULT_NUM_CONSUMERS;
 
+    /** Number of messages sent by the broker before waiting for acknowledgement */
+    private int prefetchSize = DEFAULT_PREFETCH_SIZE;
+
+    /** Number of messages acknowledged together */
+    private int ackBatchSize = DEFAULT_ACK_BATCH_SIZE;
+
+    /** Maximum time in milliseconds before consumed messages are acknowledged */
+    private int ackIntervalMs = DEFAULT_ACK_INTERVAL_MS;
+
     public ActiveMqBrokerConfiguration(ITenantEngineLifecycleComponent component) {
 	super(component);
     }
@@ -64,6 +82,9 @@ public class ActiveMqBrokerConfiguration extends EventSourceConfiguration {
 	this.transportUri = configurableString("transportUri", json, DEFAULT_TRANSPORT_URI);
 	this.queueName = configurableString("queueName", json, DEFAULT_QUEUE_NAME);
 	this.numConsumers = configurableInt("numConsumers", json, DEFAULT_NUM_CONSUMERS);
+	this.prefetchSize = configurableInt("prefetchSize", json, DEFAULT_PREFETCH_SIZE);
+	this.ackBatchSize = configurableInt("ackBatchSize", json, DEFAULT_ACK_BATCH_SIZE);
+	this.ackIntervalMs = configurableInt("ackIntervalMs", json, DEFAULT_ACK_INTERVAL_MS);
     }
 
     public String getBrokerName() {
@@ -97,4 +118,28 @@ public class ActiveMqBrokerConfiguration extends EventSourceConfiguration {
     public void setNumConsumers(int numConsumers) {
 	this.numConsumers = numConsumers;
     }
+
+    public int getPrefetchSize() {
+	return prefetchSize;
+    }
+
+    public void setPrefetchSize(int prefetchSize) {
+	this.prefetchSize = prefetchSize;
+    }
+
+    public int getAckBatchSize() {
+	return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+	this.ackBatchSize = ackBatchSize;
+    }
+
+    public int getAckIntervalMs() {
+	return ackIntervalMs;
+    }
+
+    public void setAckIntervalMs(int ackIntervalMs) {
+	this.ackIntervalMs = ackIntervalMs;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.configuration.eventsource.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sitewhere.sources.configuration.eventsource.EventSourceConfiguration;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Configuration for an HTTP event source that accepts bulk uploads of
+ * delimited events.
+ */
+public class HttpBulkConfiguration extends EventSourceConfiguration {
+
+    /** Default bind address */
+    public static final String DEFAULT_BIND_ADDRESS = "0.0.0.0";
+
+    /** Default port */
+    public static final int DEFAULT_PORT = 8585;
+
+    /** Default context path for uploads */
+    public static final String DEFAULT_PATH = "/events";
+
+    /** Default number of request threads (zero uses one per available processor) */
+    public static final int DEFAULT_NUM_THREADS = 0;
+
+    /** Default event delimiter */
+    public static final String DEFAULT_DELIMITER = "\n";
+
+    /** Default maximum event size in bytes */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    /** Default size of request read buffer in bytes */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    /** Default maximum upload size in bytes */
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+
+    /** Default number of seconds to wait for events to be written */
+    public static final int DEFAULT_SEND_TIMEOUT_SECONDS = 30;
+
+    /** Default number of unacknowledged decoded events before uploads are refused */
+    public static final int DEFAULT_MAX_IN_FLIGHT_EVENTS = 100000;
+
+    /** Default number of seconds clients are asked to wait when refused */
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    /** Bind address */
+    private String bindAddress;
+
+    /** Port */
+    private int port;
+
+    /** Context path for uploads */
+    private String path;
+
+    /** Number of request threads */
+    private int numThreads;
+
+    /** Event delimiter */
+    private String delimiter;
+
+    /** Maximum event size in bytes */
+    private int maxFrameSize;
+
+    /** Size of request read buffer in bytes */
+    private int bufferSize;
+
+    /** Maximum upload size in bytes */
+    private int maxRequestSize;
+
+    /** Number of seconds to wait for events to be written */
+    private int sendTimeoutSeconds;
+
+    /** Number of unacknowledged decoded events before uploads are refused */
+    private int maxInFlightEvents;
+
+    /** Number of seconds clients are asked to wait when refused */
+    private int retryAfterSeconds;
+
+    public HttpBulkConfiguration(ITenantEngineLifecycleComponent component) {
+	super(component);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.configuration.eventsource.EventSourceConfiguration#
+     * loadFrom(com.fasterxml.jackson.databind.JsonNode)
+     */
+    @Override
+    public void loadFrom(JsonNode json) throws SiteWhereException {
+	this.bindAddress = configurableString("bindAddress", json, DEFAULT_BIND_ADDRESS);
+	this.port = configurableInt("port", json, DEFAULT_PORT);
+	this.path = configurableString("path", json, DEFAULT_PATH);
+	this.numThreads = configurableInt("numThreads", json, DEFAULT_NUM_THREADS);
+	this.delimiter = configurableString("delimiter", json, DEFAULT_DELIMITER);
+	this.maxFrameSize = configurableInt("maxFrameSize", json, DEFAULT_MAX_FRAME_SIZE);
+	this.bufferSize = configurableInt("bufferSize", json, DEFAULT_BUFFER_SIZE);
+	this.maxRequestSize = configurableInt("maxRequestSize", json, DEFAULT_MAX_REQUEST_SIZE);
+	this.sendTimeoutSeconds = configurableInt("sendTimeoutSeconds", json, DEFAULT_SEND_TIMEOUT_SECONDS);
+	this.maxInFlightEvents = configurableInt("maxInFlightEvents", json, DEFAULT_MAX_IN_FLIGHT_EVENTS);
+	this.retryAfterSeconds = configurableInt("retryAfterSeconds", json, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    public String getBindAddress() {
+	return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+	this.bindAddress = bindAddress;
+    }
+
+    public int getPort() {
+	return port;
+    }
+
+    public void setPort(int port) {
+	this.port = port;
+    }
+
+    public String getPath() {
+	return path;
+    }
+
+    public void setPath(String path) {
+	this.path = path;
+    }
+
+    public int getNumThreads() {
+	return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+	this.numThreads = numThreads;
+    }
+
+    public String getDelimiter() {
+	return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+	this.delimiter = delimiter;
+    }
+
+    public int getMaxFrameSize() {
+	return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+	this.maxFrameSize = maxFrameSize;
+    }
+
+    public int getBufferSize() {
+	return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+	this.bufferSize = bufferSize;
+    }
+
+    public int getMaxRequestSize() {
+	return maxRequestSize;
+    }
+
+    public void setMaxRequestSize(int maxRequestSize) {
+	this.maxRequestSize = maxRequestSize;
+    }
+
+    public int getSendTimeoutSeconds() {
+	return sendTimeoutSeconds;
+    }
+
+    public void setSendTimeoutSeconds(int sendTimeoutSeconds) {
+	this.sendTimeoutSeconds = sendTimeoutSeconds;
+    }
+
+    public int getMaxInFlightEvents() {
+	return maxInFlightEvents;
+    }
+
+    public void setMaxInFlightEvents(int maxInFlightEvents) {
+	this.maxInFlightEvents = maxInFlightEvents;
+    }
+
+    public int getRetryAfterSeconds() {
+	return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+	this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -35,6 +35,15 @@ public class MqttConfiguration extends EventSourceConfiguration implements IMqtt
     /** Default quality of service */
     public static final int DEFAULT_QOS = 0;
 
+    /** Default maximum number of messages queued for processing */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /** Default maximum number of messages acknowledged together */
+    public static final int DEFAULT_ACK_BATCH_SIZE = 100;
+
+    /** Default number of seconds to wait for events to be written */
+    public static final int DEFAULT_SEND_TIMEOUT_SECONDS = 30;
+
     /** Communication protocol */
     private String protocol;
 
@@ -77,6 +86,15 @@ public class MqttConfiguration extends EventSourceConfiguration implements IMqtt
     /** Quality of service */
     private int qos;
 
+    /** Maximum number of messages queued for processing */
+    private int queueCapacity;
+
+    /** Maximum number of messages acknowledged together */
+    private int ackBatchSize;
+
+    /** Number of seconds to wait for events to be written before acknowledging */
+    private int sendTimeoutSeconds;
+
     public MqttConfiguration(ITenantEngineLifecycleComponent component) {
 	super(component);
     }
@@ -94,6 +112,9 @@ public class MqttConfiguration extends EventSourceConfiguration implements IMqtt
 	this.topic = configurableString("topic", json, DEFAULT_TOPIC);
 	this.numThreads = configurableInt("numThreads", json, DEFAULT_NUM_THREADS);
 	this.qos = configurableInt("qos", json, DEFAULT_QOS);
+	this.queueCapacity = configurableInt("queueCapacity", json, DEFAULT_QUEUE_CAPACITY);
+	this.ackBatchSize = configurableInt("ackBatchSize", json, DEFAULT_ACK_BATCH_SIZE);
+	this.sendTimeoutSeconds = configurableInt("sendTimeoutSeconds", json, DEFAULT_SEND_TIMEOUT_SECONDS);
 	this.trustStorePath = configurableString("trustStorePath", json, null);
 	this.trustStorePassword = configurableString("trustStorePassword", json, null);
 	this.keyStorePath = configurableString("keyStorePath", json, null);
@@ -261,4 +282,28 @@ public class MqttConfiguration extends EventSourceConfiguration implements IMqtt
     public void setQos(int qos) {
 	this.qos = qos;
     }
+
+    public int getQueueCapacity() {
+	return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+	this.queueCapacity = queueCapacity;
+    }
+
+    public int getAckBatchSize() {
+	return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+	this.ackBatchSize = ackBatchSize;
+    }
+
+    public int getSendTimeoutSeconds() {
+	return sendTimeoutSeconds;
+    }
+
+    public void setSendTimeoutSeconds(int sendTimeoutSeconds) {
+	this.sendTimeoutSeconds = sendTimeoutSeconds;
+    }
 }
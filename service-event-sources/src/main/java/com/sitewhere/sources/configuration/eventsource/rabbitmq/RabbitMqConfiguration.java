@@ -37,6 +37,18 @@ public class RabbitMqConfiguration extends EventSourceConfiguration {
     /** Default period in which to attempt connects/re-connects to RabbitMQ */
     private static final int DEFAULT_RECONNECT_INTERVAL = 10;
 
+    /** Default number of messages sent by the broker before waiting for acknowledgement */
+    private static final int DEFAULT_PREFETCH_COUNT = 250;
+
+    /** Default number of messages acknowledged together (zero acknowledges each message) */
+    private static final int DEFAULT_ACK_BATCH_SIZE = 0;
+
+    /** Default maximum time in milliseconds before consumed messages are acknowledged */
+    private static final int DEFAULT_ACK_INTERVAL_MS = 100;
+
+    /** Default for sharing connections with other event sources of the tenant */
+    private static final boolean DEFAULT_SHARED_CONNECTION = true;
+
     /** Connection URI */
     private String connectionUri = DEFAULT_CONNECTION_URI;
 
@@ -49,6 +61,18 @@ public class RabbitMqConfiguration extends EventSourceConfiguration {
     /** Reconnect interval */
     private int reconnectInterval = DEFAULT_RECONNECT_INTERVAL;
 
+    /** Number of messages sent by the broker before waiting for acknowledgement */
+    private int prefetchCount = DEFAULT_PREFETCH_COUNT;
+
+    /** Number of messages acknowledged together */
+    private int ackBatchSize = DEFAULT_ACK_BATCH_SIZE;
+
+    /** Maximum time in milliseconds before consumed messages are acknowledged */
+    private int ackIntervalMs = DEFAULT_ACK_INTERVAL_MS;
+
+    /** Indicates if connection is shared with other event sources of the tenant */
+    private boolean sharedConnection = DEFAULT_SHARED_CONNECTION;
+
     /** Indicates if queue should be durable */
     private boolean durable = false;
 
@@ -67,6 +91,10 @@ public class RabbitMqConfiguration extends EventSourceConfiguration {
 	this.queueName = configurableString("queueName", json, DEFAULT_QUEUE_NAME);
 	this.numConsumers = configurableInt("numConsumers", json, DEFAULT_NUM_CONSUMERS);
 	this.reconnectInterval = configurableInt("reconnectInterval", json, DEFAULT_RECONNECT_INTERVAL);
+	this.prefetchCount = configurableInt("prefetchCount", json, DEFAULT_PREFETCH_COUNT);
+	this.ackBatchSize = configurableInt("ackBatchSize", json, DEFAULT_ACK_BATCH_SIZE);
+	this.ackIntervalMs = configurableInt("ackIntervalMs", json, DEFAULT_ACK_INTERVAL_MS);
+	this.sharedConnection = configurableBoolean("sharedConnection", json, DEFAULT_SHARED_CONNECTION);
 	this.durable = configurableBoolean("durable", json, false);
     }
 
@@ -109,4 +137,36 @@ public class RabbitMqConfiguration extends EventSourceConfiguration {
     public void setDurable(boolean durable) {
 	this.durable = durable;
     }
+
+    public int getPrefetchCount() {
+	return prefetchCount;
+    }
+
+    public void setPrefetchCount(int prefetchCount) {
+	this.prefetchCount = prefetchCount;
+    }
+
+    public int getAckBatchSize() {
+	return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+	this.ackBatchSize = ackBatchSize;
+    }
+
+    public int getAckIntervalMs() {
+	return ackIntervalMs;
+    }
+
+    public void setAckIntervalMs(int ackIntervalMs) {
+	this.ackIntervalMs = ackIntervalMs;
+    }
+
+    public boolean isSharedConnection() {
+	return sharedConnection;
+    }
+
+    public void setSharedConnection(boolean sharedConnection) {
+	this.sharedConnection = sharedConnection;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.configuration.eventsource.socket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sitewhere.sources.configuration.eventsource.EventSourceConfiguration;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Configuration for a non-blocking socket server event source.
+ */
+public class SocketServerConfiguration extends EventSourceConfiguration {
+
+    /** Frames prefixed with a length field */
+    public static final String FRAMING_LENGTH_PREFIX = "length-prefix";
+
+    /** Frames terminated by a delimiter */
+    public static final String FRAMING_DELIMITER = "delimiter";
+
+    /** One frame per connection, complete when the connection is closed */
+    public static final String FRAMING_READ_TO_CLOSE = "read-to-close";
+
+    /** Default bind address */
+    public static final String DEFAULT_BIND_ADDRESS = "0.0.0.0";
+
+    /** Default port */
+    public static final int DEFAULT_PORT = 8484;
+
+    /** Default number of event loops (zero uses one per available processor) */
+    public static final int DEFAULT_NUM_EVENT_LOOPS = 0;
+
+    /** Default number of threads that process received frames */
+    public static final int DEFAULT_NUM_THREADS = 3;
+
+    /** Default maximum number of frames queued for processing */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /** Default framing */
+    public static final String DEFAULT_FRAMING = FRAMING_READ_TO_CLOSE;
+
+    /** Default size of length field in bytes */
+    public static final int DEFAULT_LENGTH_FIELD_SIZE = 4;
+
+    /** Default frame delimiter */
+    public static final String DEFAULT_DELIMITER = "\n";
+
+    /** Default maximum frame size in bytes */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    /** Default size of pooled read buffers in bytes */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    /** Default maximum number of idle pooled buffers */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 1024;
+
+    /** Bind address */
+    private String bindAddress;
+
+    /** Port */
+    private int port;
+
+    /** Number of event loops */
+    private int numEventLoops;
+
+    /** Number of threads that process received frames */
+    private int numThreads;
+
+    /** Maximum number of frames queued for processing */
+    private int queueCapacity;
+
+    /** Framing */
+    private String framing;
+
+    /** Size of length field in bytes */
+    private int lengthFieldSize;
+
+    /** Frame delimiter */
+    private String delimiter;
+
+    /** Maximum frame size in bytes */
+    private int maxFrameSize;
+
+    /** Size of pooled read buffers in bytes */
+    private int bufferSize;
+
+    /** Maximum number of idle pooled buffers */
+    private int maxPooledBuffers;
+
+    public SocketServerConfiguration(ITenantEngineLifecycleComponent component) {
+	super(component);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.configuration.eventsource.EventSourceConfiguration#
+     * loadFrom(com.fasterxml.jackson.databind.JsonNode)
+     */
+    @Override
+    public void loadFrom(JsonNode json) throws SiteWhereException {
+	this.bindAddress = configurableString("bindAddress", json, DEFAULT_BIND_ADDRESS);
+	this.port = configurableInt("port", json, DEFAULT_PORT);
+	this.numEventLoops = configurableInt("numEventLoops", json, DEFAULT_NUM_EVENT_LOOPS);
+	this.numThreads = configurableInt("numThreads", json, DEFAULT_NUM_THREADS);
+	this.queueCapacity = configurableInt("queueCapacity", json, DEFAULT_QUEUE_CAPACITY);
+	this.framing = configurableString("framing", json, DEFAULT_FRAMING);
+	this.lengthFieldSize = configurableInt("lengthFieldSize", json, DEFAULT_LENGTH_FIELD_SIZE);
+	this.delimiter = configurableString("delimiter", json, DEFAULT_DELIMITER);
+	this.maxFrameSize = configurableInt("maxFrameSize", json, DEFAULT_MAX_FRAME_SIZE);
+	this.bufferSize = configurableInt("bufferSize", json, DEFAULT_BUFFER_SIZE);
+	this.maxPooledBuffers = configurableInt("maxPooledBuffers", json, DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    public String getBindAddress() {
+	return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+	this.bindAddress = bindAddress;
+    }
+
+    public int getPort() {
+	return port;
+    }
+
+    public void setPort(int port) {
+	this.port = port;
+    }
+
+    public int getNumEventLoops() {
+	return numEventLoops;
+    }
+
+    public void setNumEventLoops(int numEventLoops) {
+	this.numEventLoops = numEventLoops;
+    }
+
+    public int getNumThreads() {
+	return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+	this.numThreads = numThreads;
+    }
+
+    public int getQueueCapacity() {
+	return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+	this.queueCapacity = queueCapacity;
+    }
+
+    public String getFraming() {
+	return framing;
+    }
+
+    public void setFraming(String framing) {
+	this.framing = framing;
+    }
+
+    public int getLengthFieldSize() {
+	return lengthFieldSize;
+    }
+
+    public void setLengthFieldSize(int lengthFieldSize) {
+	this.lengthFieldSize = lengthFieldSize;
+    }
+
+    public String getDelimiter() {
+	return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+	this.delimiter = delimiter;
+    }
+
+    public int getMaxFrameSize() {
+	return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+	this.maxFrameSize = maxFrameSize;
+    }
+
+    public int getBufferSize() {
+	return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+	this.bufferSize = bufferSize;
+    }
+
+    public int getMaxPooledBuffers() {
+	return maxPooledBuffers;
+    }
+
+    public void setMaxPooledBuffers(int maxPooledBuffers) {
+	this.maxPooledBuffers = maxPooledBuffers;
+    }
+}
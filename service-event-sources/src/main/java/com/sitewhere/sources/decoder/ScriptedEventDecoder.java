@@ -16,6 +16,7 @@
 package com.sitewhere.sources.decoder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,27 +24,66 @@ import com.sitewhere.microservice.api.device.DeviceManagementRequestBuilder;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.microservice.api.event.DeviceEventRequestBuilder;
 import com.sitewhere.microservice.api.event.IDeviceEventManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.scripting.Binding;
 import com.sitewhere.microservice.scripting.ScriptingComponent;
 import com.sitewhere.sources.spi.EventDecodeException;
+import com.sitewhere.sources.spi.IBatchDeviceEventDecoder;
 import com.sitewhere.sources.spi.IDecodedDeviceRequest;
 import com.sitewhere.sources.spi.IDeviceEventDecoder;
 import com.sitewhere.sources.spi.microservice.IEventSourcesMicroservice;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 import com.sitewhere.spi.microservice.scripting.IScriptVariables;
 
+import io.prometheus.client.Histogram;
+
 /**
  * Implementation of {@link IDeviceEventDecoder} that uses a script to decode a
- * binary payload.
+ * binary payload. Each call runs the script with a new binding. Request builders
+ * are created once for each thread and reused.
+ * 
+ * If batch support is enabled, a list of payloads is decoded in a single script
+ * execution. The script is given the payloads and their metadata as lists and
+ * adds events decoded from all of them to the list of decoded events.
  */
 public class ScriptedEventDecoder extends ScriptingComponent<List<IDecodedDeviceRequest<?>>>
-	implements IDeviceEventDecoder<byte[]> {
+	implements IBatchDeviceEventDecoder<byte[]> {
+
+    /** Variable holding list of payloads when decoding a batch */
+    public static final String VAR_PAYLOADS = "payloads";
+
+    /** Variable holding list of payload metadata when decoding a batch */
+    public static final String VAR_PAYLOADS_METADATA = "payloadsMetadata";
+
+    /** Histogram for script execution time */
+    private static final Histogram SCRIPT_TIMER = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "scripted_decoder_timer", "Timer for event decoder script execution", "script_id");
+
+    /** Indicates if script decodes batches of payloads */
+    private boolean batchSupported = false;
+
+    /** Variables shared by bindings created on each thread */
+    private ThreadLocal<Map<String, Object>> sharedVariables = new ThreadLocal<>();
 
     public ScriptedEventDecoder() {
 	super(LifecycleComponentType.DeviceEventDecoder);
     }
 
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.start(monitor);
+
+	// Drop request builders that reference APIs from a previous start.
+	this.sharedVariables = new ThreadLocal<>();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -53,23 +93,89 @@ public class ScriptedEventDecoder extends ScriptingComponent<List<IDecodedDevice
     @Override
     public List<IDecodedDeviceRequest<?>> decode(byte[] payload, Map<String, Object> metadata)
 	    throws EventDecodeException {
-	try {
-	    Binding binding = new Binding();
+	Binding binding = createBinding();
+	binding.setVariable(IScriptVariables.VAR_DECODED_EVENTS, new ArrayList<IDecodedDeviceRequest<?>>());
+	binding.setVariable(IScriptVariables.VAR_PAYLOAD, payload);
+	binding.setVariable(IScriptVariables.VAR_PAYLOAD_METADATA, metadata);
+	return execute(binding);
+    }
+
+    /*
+     * @see com.sitewhere.sources.spi.IBatchDeviceEventDecoder#decodeBatch(java.util.
+     * List, java.util.List)
+     */
+    @Override
+    public List<IDecodedDeviceRequest<?>> decodeBatch(List<byte[]> payloads, List<Map<String, Object>> metadata)
+	    throws EventDecodeException {
+	if (!isBatchSupported()) {
 	    List<IDecodedDeviceRequest<?>> events = new ArrayList<IDecodedDeviceRequest<?>>();
-	    binding.setVariable(IScriptVariables.VAR_DEVICE_MANAGEMENT_BUILDER,
-		    new DeviceManagementRequestBuilder(getDeviceManagement()));
-	    binding.setVariable(IScriptVariables.VAR_EVENT_MANAGEMENT_BUILDER,
-		    new DeviceEventRequestBuilder(getDeviceManagement(), getDeviceEventManagement()));
-	    binding.setVariable(IScriptVariables.VAR_DECODED_EVENTS, events);
-	    binding.setVariable(IScriptVariables.VAR_PAYLOAD, payload);
-	    binding.setVariable(IScriptVariables.VAR_PAYLOAD_METADATA, metadata);
-	    binding.setVariable(IScriptVariables.VAR_LOGGER, getLogger());
+	    for (int i = 0; i < payloads.size(); i++) {
+		events.addAll(decode(payloads.get(i), (metadata != null) ? metadata.get(i) : null));
+	    }
+	    return events;
+	}
+	Binding binding = createBinding();
+	binding.setVariable(IScriptVariables.VAR_DECODED_EVENTS, new ArrayList<IDecodedDeviceRequest<?>>());
+	binding.setVariable(VAR_PAYLOADS, payloads);
+	binding.setVariable(VAR_PAYLOADS_METADATA, metadata);
+	return execute(binding);
+    }
+
+    /**
+     * Run script and record execution time.
+     * 
+     * @param binding
+     * @return
+     * @throws EventDecodeException
+     */
+    protected List<IDecodedDeviceRequest<?>> execute(Binding binding) throws EventDecodeException {
+	Histogram.Timer timer = SCRIPT_TIMER.labels(buildLabels(getScriptId())).startTimer();
+	try {
 	    return run(binding);
 	} catch (SiteWhereException e) {
 	    throw new EventDecodeException("Unable to execute event decoder script.", e);
+	} finally {
+	    timer.close();
 	}
     }
 
+    /**
+     * Create a binding for a single script run. Variables set by a previous run
+     * are not visible. Request builders are created once for each thread and
+     * shared by its bindings.
+     * 
+     * @return
+     */
+    protected Binding createBinding() {
+	Map<String, Object> shared = sharedVariables.get();
+	if (shared == null) {
+	    shared = new HashMap<>();
+	    shared.put(IScriptVariables.VAR_DEVICE_MANAGEMENT_BUILDER,
+		    new DeviceManagementRequestBuilder(getDeviceManagement()));
+	    shared.put(IScriptVariables.VAR_EVENT_MANAGEMENT_BUILDER,
+		    new DeviceEventRequestBuilder(getDeviceManagement(), getDeviceEventManagement()));
+	    shared.put(IScriptVariables.VAR_LOGGER, getLogger());
+	    sharedVariables.set(shared);
+	}
+	Binding binding = new Binding();
+	for (Map.Entry<String, Object> variable : shared.entrySet()) {
+	    binding.setVariable(variable.getKey(), variable.getValue());
+	}
+	return binding;
+    }
+
+    /*
+     * @see com.sitewhere.sources.spi.IBatchDeviceEventDecoder#isBatchSupported()
+     */
+    @Override
+    public boolean isBatchSupported() {
+	return batchSupported;
+    }
+
+    public void setBatchSupported(boolean batchSupported) {
+	this.batchSupported = batchSupported;
+    }
+
     private IDeviceManagement getDeviceManagement() {
 	return ((IEventSourcesMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
     }
@@ -20,6 +20,9 @@ public class ScriptedEventDecoderConfiguration {
     /** Script id */
     private String scriptId;
 
+    /** Indicates if script decodes batches of payloads */
+    private boolean batchSupported;
+
     public String getScriptId() {
 	return scriptId;
     }
@@ -27,4 +30,12 @@ public class ScriptedEventDecoderConfiguration {
     public void setScriptId(String scriptId) {
 	this.scriptId = scriptId;
     }
+
+    public boolean isBatchSupported() {
+	return batchSupported;
+    }
+
+    public void setBatchSupported(boolean batchSupported) {
+	this.batchSupported = batchSupported;
+    }
 }
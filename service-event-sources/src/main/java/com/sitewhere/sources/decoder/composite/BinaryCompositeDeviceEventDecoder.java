@@ -17,23 +17,81 @@ package com.sitewhere.sources.decoder.composite;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.sources.spi.ICompositeDeviceEventDecoder;
+import com.sitewhere.sources.spi.microservice.IEventSourcesMicroservice;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceType;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+
+import io.prometheus.client.Counter;
 
 /**
  * Concrete implementation of {@link ICompositeDeviceEventDecoder} for binary
- * data.
+ * data. Devices and device types are held in a bounded cache for the tenant so
+ * that building a context does not require remote calls for every payload.
  */
 public class BinaryCompositeDeviceEventDecoder extends CompositeDeviceEventDecoder<byte[]> {
 
+    /** Default maximum number of devices in context cache */
+    public static final int DEFAULT_CONTEXT_CACHE_MAXIMUM_SIZE = 10000;
+
+    /** Default number of seconds a cached device is used */
+    public static final int DEFAULT_CONTEXT_CACHE_EXPIRATION_SECONDS = 60;
+
+    /** Counter for device contexts built from cache */
+    private static final Counter CONTEXT_CACHE_HITS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "composite_context_cache_hit_count", "Count of composite decoder device lookups served from cache");
+
+    /** Counter for device contexts that required remote lookups */
+    private static final Counter CONTEXT_CACHE_MISSES = TenantEngineLifecycleComponent.createCounterMetric(
+	    "composite_context_cache_miss_count", "Count of composite decoder device lookups not found in cache");
+
+    /** Maximum number of devices in context cache */
+    private int contextCacheMaximumSize = DEFAULT_CONTEXT_CACHE_MAXIMUM_SIZE;
+
+    /** Number of seconds a cached device is used */
+    private int contextCacheExpirationSeconds = DEFAULT_CONTEXT_CACHE_EXPIRATION_SECONDS;
+
+    /** Cache of device and device type by device token */
+    private Cache<String, CachedDevice> devicesByToken;
+
     /** Metadata extractor implementation */
     private IMessageMetadataExtractor<byte[]> metadataExtractor;
 
     /** List of decoder choices */
     private List<ICompositeDeviceEventDecoder.IDecoderChoice<byte[]>> decoderChoices = new ArrayList<ICompositeDeviceEventDecoder.IDecoderChoice<byte[]>>();
 
+    /*
+     * @see com.sitewhere.microservice.lifecycle.LifecycleComponent#initialize(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.initialize(monitor);
+	this.devicesByToken = CacheBuilder.newBuilder().maximumSize(getContextCacheMaximumSize())
+		.expireAfterWrite(getContextCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.decoder.composite.CompositeDeviceEventDecoder#stop(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.stop(monitor);
+	if (getDevicesByToken() != null) {
+	    getDevicesByToken().invalidateAll();
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -43,21 +101,43 @@ public class BinaryCompositeDeviceEventDecoder extends CompositeDeviceEventDecod
      */
     @Override
     public IDeviceContext<byte[]> buildContext(IMessageMetadata<byte[]> metadata) throws SiteWhereException {
-	BinaryDeviceContext context = new BinaryDeviceContext();
-
-	IDeviceManagement devices = getDeviceManagement();
-	context.setDevice(devices.getDeviceByToken(metadata.getDeviceToken()));
-	if (context.getDevice() == null) {
-	    throw new SiteWhereException(
-		    "Unable to build device context. Device not found for token: " + metadata.getDeviceToken());
+	CachedDevice cached = getDevicesByToken().getIfPresent(metadata.getDeviceToken());
+	if (cached != null) {
+	    CONTEXT_CACHE_HITS.labels(buildLabels()).inc();
+	} else {
+	    CONTEXT_CACHE_MISSES.labels(buildLabels()).inc();
+	    cached = lookupDevice(metadata.getDeviceToken());
+	    getDevicesByToken().put(metadata.getDeviceToken(), cached);
 	}
 
-	context.setDeviceType(devices.getDeviceType(context.getDevice().getDeviceTypeId()));
-
+	BinaryDeviceContext context = new BinaryDeviceContext();
+	context.setDevice(cached.device);
+	context.setDeviceType(cached.deviceType);
 	context.setPayload(metadata.getPayload());
 	return context;
     }
 
+    /**
+     * Look up device and device type from device management. Devices that are not
+     * found are not cached so that registration is seen at once.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    protected CachedDevice lookupDevice(String token) throws SiteWhereException {
+	IDeviceManagement devices = getDeviceManagement();
+	IDevice device = devices.getDeviceByToken(token);
+	if (device == null) {
+	    throw new SiteWhereException("Unable to build device context. Device not found for token: " + token);
+	}
+	IDeviceType deviceType = devices.getDeviceType(device.getDeviceTypeId());
+	if (deviceType == null) {
+	    throw new SiteWhereException("Unable to build device context. Device type not found for device: " + token);
+	}
+	return new CachedDevice(device, deviceType);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -86,7 +166,44 @@ public class BinaryCompositeDeviceEventDecoder extends CompositeDeviceEventDecod
 	this.decoderChoices = decoderChoices;
     }
 
+    public int getContextCacheMaximumSize() {
+	return contextCacheMaximumSize;
+    }
+
+    public void setContextCacheMaximumSize(int contextCacheMaximumSize) {
+	this.contextCacheMaximumSize = contextCacheMaximumSize;
+    }
+
+    public int getContextCacheExpirationSeconds() {
+	return contextCacheExpirationSeconds;
+    }
+
+    public void setContextCacheExpirationSeconds(int contextCacheExpirationSeconds) {
+	this.contextCacheExpirationSeconds = contextCacheExpirationSeconds;
+    }
+
+    protected Cache<String, CachedDevice> getDevicesByToken() {
+	return devicesByToken;
+    }
+
+    /**
+     * Device and device type cached for a device token.
+     */
+    protected static class CachedDevice {
+
+	/** Device */
+	private final IDevice device;
+
+	/** Device type */
+	private final IDeviceType deviceType;
+
+	public CachedDevice(IDevice device, IDeviceType deviceType) {
+	    this.device = device;
+	    this.deviceType = deviceType;
+	}
+    }
+
     private IDeviceManagement getDeviceManagement() {
-	return null;
+	return ((IEventSourcesMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
     }
 }
\ No newline at end of file
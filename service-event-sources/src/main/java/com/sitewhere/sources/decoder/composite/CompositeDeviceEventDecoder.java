@@ -16,6 +16,7 @@
 package com.sitewhere.sources.decoder.composite;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,14 +32,22 @@ import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 
 /**
  * Basic logic for a composite decoder. Extracts metadata from initial payload,
- * looks up device management data to build a context, then loops through a list
- * of potential decoders, returning the first one that applies to the context.
+ * looks up device management data to build a context, then chooses the first
+ * decoder that applies to the context. Device type choices are indexed by
+ * device type token when the decoder is started, so most payloads are
+ * dispatched with a single map lookup rather than a scan of the choice list.
  *
  * @param <T>
  */
 public abstract class CompositeDeviceEventDecoder<T> extends TenantEngineLifecycleComponent
 	implements ICompositeDeviceEventDecoder<T> {
 
+    /** Decoders for leading device type choices indexed by device type token */
+    private Map<String, IDeviceEventDecoder<T>> decodersByDeviceType = Collections.emptyMap();
+
+    /** Remaining choices evaluated in configured order */
+    private List<ICompositeDeviceEventDecoder.IDecoderChoice<T>> fallbackChoices = Collections.emptyList();
+
     public CompositeDeviceEventDecoder() {
 	super(LifecycleComponentType.DeviceEventDecoder);
     }
@@ -65,28 +74,18 @@ public abstract class CompositeDeviceEventDecoder<T> extends TenantEngineLifecyc
 
 	// Parse metadata from payload.
 	IMessageMetadata<T> metadata = getMetadataExtractor().extractMetadata(payload, eventSourceMetadata);
-	getLogger().info("Extracted payload metadata: DeviceToken: " + metadata.getDeviceToken() + " Payload: "
-		+ metadata.getPayload().toString());
 
 	try {
 	    IDeviceContext<T> context = buildContext(metadata);
-	    getLogger().debug("Built context: Device: " + context.getDevice().getToken() + " Device type: "
-		    + context.getDeviceType().getToken());
-
-	    // Add context metadata to event source metadata.
-	    Map<String, Object> combined = new HashMap<String, Object>();
-	    if (eventSourceMetadata != null) {
-		combined.putAll(eventSourceMetadata);
+	    if (getLogger().isDebugEnabled()) {
+		getLogger().debug(String.format("Built context: Device: %s Device type: %s",
+			context.getDevice().getToken(), context.getDeviceType().getToken()));
 	    }
-	    combined.put(IDeviceEventDecoder.META_DEVICE, context.getDevice());
-	    combined.put(IDeviceEventDecoder.META_DEVICE_TYPE, context.getDeviceType());
-
-	    // Loop through choices and use first one that applies.
-	    for (ICompositeDeviceEventDecoder.IDecoderChoice<T> choice : getDecoderChoices()) {
 
-		if (choice.appliesTo(context)) {
-		    return choice.getDeviceEventDecoder().decode(context.getPayload(), combined);
-		}
+	    // Pass context to chosen decoder as a view over event source metadata.
+	    IDeviceEventDecoder<T> decoder = chooseDecoder(context);
+	    if (decoder != null) {
+		return decoder.decode(context.getPayload(), new DeviceContextMetadata(eventSourceMetadata, context));
 	    }
 	} catch (SiteWhereException e) {
 	    throw new EventDecodeException("Exception in composite decoder.", e);
@@ -98,6 +97,50 @@ public abstract class CompositeDeviceEventDecoder<T> extends TenantEngineLifecyc
 	return new ArrayList<IDecodedDeviceRequest<?>>();
     }
 
+    /**
+     * Choose decoder for a device context. Returns null if no choice applies.
+     * 
+     * @param context
+     * @return
+     */
+    protected IDeviceEventDecoder<T> chooseDecoder(IDeviceContext<T> context) {
+	IDeviceEventDecoder<T> decoder = getDecodersByDeviceType().get(context.getDeviceType().getToken());
+	if (decoder != null) {
+	    return decoder;
+	}
+	for (ICompositeDeviceEventDecoder.IDecoderChoice<T> choice : getFallbackChoices()) {
+	    if (choice.appliesTo(context)) {
+		return choice.getDeviceEventDecoder();
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Build dispatch table from configured choices. Device type choices are only
+     * indexed until the first choice of another kind is found. Choices after that
+     * point are evaluated in order so that the first choice that applies still
+     * wins.
+     */
+    protected void buildDispatchTable() {
+	Map<String, IDeviceEventDecoder<T>> byDeviceType = new HashMap<>();
+	List<ICompositeDeviceEventDecoder.IDecoderChoice<T>> fallback = new ArrayList<>();
+	for (ICompositeDeviceEventDecoder.IDecoderChoice<T> choice : getDecoderChoices()) {
+	    if (fallback.isEmpty() && (choice instanceof DeviceTypeDecoderChoice)) {
+		String token = ((DeviceTypeDecoderChoice<T>) choice).getDeviceTypeToken();
+		if (token != null) {
+		    byDeviceType.putIfAbsent(token, choice.getDeviceEventDecoder());
+		}
+	    } else {
+		fallback.add(choice);
+	    }
+	}
+	this.decodersByDeviceType = byDeviceType;
+	this.fallbackChoices = fallback;
+	getLogger().info(String.format("Composite decoder indexed %d device type(s) with %d fallback choice(s).",
+		byDeviceType.size(), fallback.size()));
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -118,6 +161,7 @@ public abstract class CompositeDeviceEventDecoder<T> extends TenantEngineLifecyc
 	for (ICompositeDeviceEventDecoder.IDecoderChoice<T> choice : getDecoderChoices()) {
 	    startNestedComponent(choice, monitor, true);
 	}
+	buildDispatchTable();
     }
 
     /*
@@ -136,4 +180,12 @@ public abstract class CompositeDeviceEventDecoder<T> extends TenantEngineLifecyc
 	    choice.lifecycleStop(monitor);
 	}
     }
+
+    protected Map<String, IDeviceEventDecoder<T>> getDecodersByDeviceType() {
+	return decodersByDeviceType;
+    }
+
+    protected List<ICompositeDeviceEventDecoder.IDecoderChoice<T>> getFallbackChoices() {
+	return fallbackChoices;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.decoder.composite;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.sitewhere.sources.spi.ICompositeDeviceEventDecoder.IDeviceContext;
+import com.sitewhere.sources.spi.IDeviceEventDecoder;
+
+/**
+ * Read-only view of event source metadata with the device and device type from
+ * a device context added. Single entry lookups do not copy the event source
+ * metadata, which is only merged if the entries are iterated.
+ */
+class DeviceContextMetadata extends AbstractMap<String, Object> {
+
+    /** Event source metadata (may be null) */
+    private Map<String, Object> eventSourceMetadata;
+
+    /** Device context */
+    private IDeviceContext<?> context;
+
+    /** Merged entries, created on first iteration */
+    private Set<Map.Entry<String, Object>> entries;
+
+    public DeviceContextMetadata(Map<String, Object> eventSourceMetadata, IDeviceContext<?> context) {
+	this.eventSourceMetadata = eventSourceMetadata;
+	this.context = context;
+    }
+
+    /*
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public Object get(Object key) {
+	if (IDeviceEventDecoder.META_DEVICE.equals(key)) {
+	    return context.getDevice();
+	}
+	if (IDeviceEventDecoder.META_DEVICE_TYPE.equals(key)) {
+	    return context.getDeviceType();
+	}
+	return (eventSourceMetadata != null) ? eventSourceMetadata.get(key) : null;
+    }
+
+    /*
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey(Object key) {
+	if (IDeviceEventDecoder.META_DEVICE.equals(key) || IDeviceEventDecoder.META_DEVICE_TYPE.equals(key)) {
+	    return true;
+	}
+	return (eventSourceMetadata != null) && eventSourceMetadata.containsKey(key);
+    }
+
+    /*
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+	if (entries == null) {
+	    Map<String, Object> merged = new HashMap<String, Object>();
+	    if (eventSourceMetadata != null) {
+		merged.putAll(eventSourceMetadata);
+	    }
+	    merged.put(IDeviceEventDecoder.META_DEVICE, context.getDevice());
+	    merged.put(IDeviceEventDecoder.META_DEVICE_TYPE, context.getDeviceType());
+	    this.entries = Collections.unmodifiableMap(merged).entrySet();
+	}
+	return entries;
+    }
+}
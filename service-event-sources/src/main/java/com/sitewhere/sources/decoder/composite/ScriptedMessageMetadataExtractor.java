@@ -17,6 +17,7 @@ package com.sitewhere.sources.decoder.composite;
 
 import java.util.Map;
 
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.scripting.Binding;
 import com.sitewhere.microservice.scripting.ScriptingComponent;
 import com.sitewhere.sources.spi.EventDecodeException;
@@ -26,13 +27,20 @@ import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 import com.sitewhere.spi.microservice.scripting.IScriptVariables;
 
+import io.prometheus.client.Histogram;
+
 /**
  * Implements {@link IMessageMetadataExtractor} by using a script to extract
- * message metadata from a binary payload.
+ * message metadata from a binary payload. Each call runs the script with a new
+ * binding.
  */
 public class ScriptedMessageMetadataExtractor extends ScriptingComponent<IMessageMetadata<byte[]>>
 	implements IMessageMetadataExtractor<byte[]> {
 
+    /** Histogram for script execution time */
+    private static final Histogram SCRIPT_TIMER = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "scripted_metadata_extractor_timer", "Timer for metadata extractor script execution", "script_id");
+
     public ScriptedMessageMetadataExtractor() {
 	super(LifecycleComponentType.Other);
     }
@@ -44,15 +52,16 @@ public class ScriptedMessageMetadataExtractor extends ScriptingComponent<IMessag
     @Override
     public IMessageMetadata<byte[]> extractMetadata(byte[] payload, Map<String, Object> eventSourceMetadata)
 	    throws EventDecodeException {
+	Histogram.Timer timer = SCRIPT_TIMER.labels(buildLabels(getScriptId())).startTimer();
 	try {
 	    Binding binding = createBindingFor(this);
-	    // binding.setVariable(IScriptVariables.VAR_DEVICE_MANAGEMENT,
-	    // getDeviceManagement());
 	    binding.setVariable(IScriptVariables.VAR_PAYLOAD, payload);
 	    binding.setVariable(IScriptVariables.VAR_PAYLOAD_METADATA, eventSourceMetadata);
-	    return (IMessageMetadata<byte[]>) run(binding);
+	    return run(binding);
 	} catch (SiteWhereException e) {
 	    throw new EventDecodeException("Unable to run metadata extractor.", e);
+	} finally {
+	    timer.close();
 	}
     }
 }
\ No newline at end of file
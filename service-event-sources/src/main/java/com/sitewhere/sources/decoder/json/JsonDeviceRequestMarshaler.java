@@ -19,11 +19,13 @@ import java.io.IOException;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.sitewhere.rest.model.device.communication.DeviceRequest.Type;
 import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
 import com.sitewhere.rest.model.device.event.request.DeviceCommandResponseCreateRequest;
@@ -43,7 +45,8 @@ import com.sitewhere.spi.device.streaming.request.IDeviceStreamDataCreateRequest
 
 /**
  * Custom marshaler for converting JSON payloads to {@link DecodedDeviceRequest}
- * objects.
+ * objects. Payloads are read from the token stream and the request is bound
+ * directly to its model class without building an intermediate tree.
  */
 public class JsonDeviceRequestMarshaler extends JsonDeserializer<DecodedDeviceRequest<?>> {
 
@@ -59,36 +62,124 @@ public class JsonDeviceRequestMarshaler extends JsonDeserializer<DecodedDeviceRe
      * com.fasterxml.jackson.databind.DeserializationContext)
      */
     @Override
-    @SuppressWarnings("deprecation")
     public DecodedDeviceRequest<?> deserialize(JsonParser parser, DeserializationContext context)
 	    throws IOException, JsonProcessingException {
-	JsonNode node = parser.getCodec().readTree(parser);
+	Type type = null;
+	String deviceToken = null;
+	String originator = null;
+	Object request = null;
+	TokenBuffer buffered = null;
 
-	// Get type and validate its in the enum.
-	JsonNode typeNode = node.get("type");
-	if (typeNode == null) {
-	    throw new JsonMappingException("Event type is required.");
+	// Read fields from token stream. The request is bound as soon as it is read
+	// if the type is already known, otherwise its tokens are buffered.
+	JsonToken token = parser.getCurrentToken();
+	if (token == JsonToken.START_OBJECT) {
+	    token = parser.nextToken();
 	}
-	try {
-	    Type type = Type.valueOf(typeNode.asText());
-	    JsonNode request = node.get("request");
-	    if (request == null) {
-		throw new IOException("Request is missing.");
+	for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+	    String field = parser.getCurrentName();
+	    parser.nextToken();
+	    switch (field) {
+	    case "type": {
+		type = parseType(parser.getValueAsString());
+		break;
+	    }
+	    case "deviceToken": {
+		deviceToken = parser.getValueAsString();
+		break;
+	    }
+	    case "originator": {
+		originator = parser.getValueAsString();
+		break;
 	    }
+	    case "request": {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+		    break;
+		}
+		if (type != null) {
+		    request = context.readValue(parser, getRequestClass(type));
+		} else {
+		    buffered = new TokenBuffer(parser, context);
+		    buffered.copyCurrentStructure(parser);
+		}
+		break;
+	    }
+	    default: {
+		parser.skipChildren();
+	    }
+	    }
+	}
 
-	    JsonNode deviceToken = node.get("deviceToken");
-	    if (deviceToken == null) {
-		throw new IOException("Device token is missing.");
+	if (type == null) {
+	    throw new JsonMappingException("Event type is required.");
+	}
+	if (buffered != null) {
+	    try (JsonParser requestParser = buffered.asParser(parser.getCodec())) {
+		requestParser.nextToken();
+		request = context.readValue(requestParser, getRequestClass(type));
 	    }
+	}
+	if (request == null) {
+	    throw new IOException("Request is missing.");
+	}
+	if (deviceToken == null) {
+	    throw new IOException("Device token is missing.");
+	}
+	DecodedDeviceRequest<Object> decoded = new DecodedDeviceRequest<Object>();
+	decoded.setDeviceToken(deviceToken);
+	decoded.setOriginator(originator);
+	decoded.setRequest(request);
+	return decoded;
+    }
 
-	    JsonNode originator = node.get("originator");
-	    return unmarshal(deviceToken.textValue(), (originator == null) ? null : originator.textValue(), type,
-		    request);
+    /**
+     * Parse type indicator and validate it is in the enum.
+     * 
+     * @param value
+     * @return
+     * @throws JsonMappingException
+     */
+    @SuppressWarnings("deprecation")
+    protected static Type parseType(String value) throws JsonMappingException {
+	if (value == null) {
+	    throw new JsonMappingException("Event type is required.");
+	}
+	try {
+	    return Type.valueOf(value);
 	} catch (IllegalArgumentException e) {
 	    throw new JsonMappingException("Event type is not valid.");
 	}
     }
 
+    /**
+     * Get class of request for a type indicator.
+     * 
+     * @param type
+     * @return
+     * @throws JsonMappingException
+     */
+    @SuppressWarnings("deprecation")
+    protected static Class<?> getRequestClass(Type type) throws JsonMappingException {
+	switch (type) {
+	case RegisterDevice:
+	    return DeviceRegistrationRequest.class;
+	case DeviceLocation:
+	    return DeviceLocationCreateRequest.class;
+	case DeviceMeasurement:
+	    return DeviceMeasurementCreateRequest.class;
+	case DeviceAlert:
+	    return DeviceAlertCreateRequest.class;
+	case DeviceStream:
+	    return DeviceStreamCreateRequest.class;
+	case DeviceStreamData:
+	    return DeviceStreamDataCreateRequest.class;
+	case Acknowledge:
+	    return DeviceCommandResponseCreateRequest.class;
+	default:
+	    throw new JsonMappingException("Unhandled event type: " + type.name());
+	}
+    }
+
     /**
      * Unmarshal payload based on type indicator.
      * 
@@ -0,0 +1,288 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.decoder.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.spi.EventDecodeException;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.sources.spi.IStreamingDeviceEventDecoder;
+import com.sitewhere.sources.spi.PartialEventDecodeException;
+import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
+
+/**
+ * Decodes payloads in {@link DeviceEventBatch} format by reading tokens from
+ * the payload and binding each location, measurement and alert as soon as it is
+ * reached. Neither the batch nor a tree of the payload is built, so memory use
+ * does not grow with the number of events when used as a streaming decoder.
+ * Events are emitted in the order they appear in the payload.
+ * 
+ * The device token should come before the event arrays. Events that appear
+ * before the device token are held until it has been read, and a payload
+ * without a device token fails to decode. If the payload fails after events
+ * were passed on, the failure holds only the device token and the part of the
+ * payload that was not processed.
+ */
+public class JsonStreamingBatchEventDecoder extends TenantEngineLifecycleComponent
+	implements IStreamingDeviceEventDecoder<byte[]> {
+
+    /** Field holding device token */
+    private static final String FIELD_DEVICE_TOKEN = "deviceToken";
+
+    /** Field holding array of locations */
+    private static final String FIELD_LOCATIONS = "locations";
+
+    /** Field holding array of measurements */
+    private static final String FIELD_MEASUREMENTS = "measurements";
+
+    /** Field holding array of alerts */
+    private static final String FIELD_ALERTS = "alerts";
+
+    /** Used to create parsers and readers */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Reader for location requests */
+    private static final ObjectReader LOCATION_READER = MAPPER.readerFor(DeviceLocationCreateRequest.class);
+
+    /** Reader for measurement requests */
+    private static final ObjectReader MEASUREMENT_READER = MAPPER.readerFor(DeviceMeasurementCreateRequest.class);
+
+    /** Reader for alert requests */
+    private static final ObjectReader ALERT_READER = MAPPER.readerFor(DeviceAlertCreateRequest.class);
+
+    public JsonStreamingBatchEventDecoder() {
+	super(LifecycleComponentType.DeviceEventDecoder);
+    }
+
+    /*
+     * @see com.sitewhere.sources.spi.IDeviceEventDecoder#decode(java.lang.Object,
+     * java.util.Map)
+     */
+    @Override
+    public List<IDecodedDeviceRequest<?>> decode(byte[] payload, Map<String, Object> metadata)
+	    throws EventDecodeException {
+	List<IDecodedDeviceRequest<?>> events = new ArrayList<IDecodedDeviceRequest<?>>();
+	decode(payload, metadata, decoded -> events.add(decoded));
+	return events;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.IStreamingDeviceEventDecoder#decode(java.lang.
+     * Object, java.util.Map, com.sitewhere.sources.spi.
+     * IStreamingDeviceEventDecoder.IDecodedRequestHandler)
+     */
+    @Override
+    public void decode(byte[] payload, Map<String, Object> metadata, IDecodedRequestHandler handler)
+	    throws EventDecodeException {
+	DecodeState state = new DecodeState(handler);
+	try (JsonParser parser = MAPPER.getFactory().createParser(payload)) {
+	    if (parser.nextToken() != JsonToken.START_OBJECT) {
+		throw new EventDecodeException("Event batch payload is not a JSON object.");
+	    }
+	    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+		state.resumeAt(null, parser.getTokenLocation().getByteOffset());
+		String field = parser.getCurrentName();
+		parser.nextToken();
+		switch (field) {
+		case FIELD_DEVICE_TOKEN: {
+		    String deviceToken = parser.getValueAsString();
+		    if ((deviceToken == null) || (deviceToken.isEmpty())) {
+			throw new JsonParseException(parser, "Device token must not be empty.");
+		    }
+		    state.setDeviceToken(deviceToken);
+		    break;
+		}
+		case FIELD_LOCATIONS: {
+		    readEvents(parser, field, LOCATION_READER, state);
+		    break;
+		}
+		case FIELD_MEASUREMENTS: {
+		    readEvents(parser, field, MEASUREMENT_READER, state);
+		    break;
+		}
+		case FIELD_ALERTS: {
+		    readEvents(parser, field, ALERT_READER, state);
+		    break;
+		}
+		default: {
+		    parser.skipChildren();
+		}
+		}
+		state.resumeAt(null, parser.getCurrentLocation().getByteOffset());
+	    }
+	} catch (IOException e) {
+	    throw state.failed(payload, e);
+	}
+	if (state.getDeviceToken() == null) {
+	    throw new EventDecodeException("Event batch payload does not include a device token.");
+	}
+    }
+
+    /**
+     * Read an array of events, passing each to the handler as soon as it has been
+     * bound. Events are held if the device token has not been read yet.
+     * 
+     * @param parser
+     * @param field
+     * @param reader
+     * @param state
+     * @throws IOException
+     */
+    protected void readEvents(JsonParser parser, String field, ObjectReader reader, DecodeState state)
+	    throws IOException {
+	if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+	    return;
+	}
+	if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+	    throw new JsonParseException(parser, "Expected array of events.");
+	}
+	state.resumeAt(field, parser.getCurrentLocation().getByteOffset());
+	while (parser.nextToken() != JsonToken.END_ARRAY) {
+	    DecodedDeviceRequest<Object> decoded = new DecodedDeviceRequest<Object>();
+	    decoded.setRequest(reader.readValue(parser));
+	    state.add(decoded);
+	    state.resumeAt(field, parser.getCurrentLocation().getByteOffset());
+	}
+    }
+
+    /**
+     * Tracks the device token, requests waiting for it and the point after the
+     * last part of the payload that was fully processed.
+     */
+    private static class DecodeState {
+
+	/** Receives decoded requests */
+	private IDecodedRequestHandler handler;
+
+	/** Device token if it has been read */
+	private String deviceToken;
+
+	/** Requests read before the device token */
+	private List<DecodedDeviceRequest<Object>> pending = new ArrayList<>();
+
+	/** Number of requests passed to the handler */
+	private int processedCount;
+
+	/** Event array being read at the resume point, or null if none */
+	private String resumeField;
+
+	/** Byte offset after the last fully processed part of the payload */
+	private long resumeOffset;
+
+	public DecodeState(IDecodedRequestHandler handler) {
+	    this.handler = handler;
+	}
+
+	/**
+	 * Set the device token and pass on any requests that were waiting for it.
+	 * 
+	 * @param deviceToken
+	 */
+	public void setDeviceToken(String deviceToken) {
+	    this.deviceToken = deviceToken;
+	    for (DecodedDeviceRequest<Object> decoded : pending) {
+		add(decoded);
+	    }
+	    pending.clear();
+	}
+
+	/**
+	 * Pass a request to the handler, or hold it if the device token has not been
+	 * read yet.
+	 * 
+	 * @param decoded
+	 */
+	public void add(DecodedDeviceRequest<Object> decoded) {
+	    if (deviceToken == null) {
+		pending.add(decoded);
+		return;
+	    }
+	    decoded.setDeviceToken(deviceToken);
+	    handler.onDecodedRequest(decoded);
+	    processedCount++;
+	}
+
+	/**
+	 * Record the point decoding would resume from if the rest of the payload
+	 * fails.
+	 * 
+	 * @param field
+	 * @param offset
+	 */
+	public void resumeAt(String field, long offset) {
+	    this.resumeField = field;
+	    this.resumeOffset = offset;
+	}
+
+	/**
+	 * Build the exception for a decoding failure. If requests were already passed
+	 * on, the exception holds a payload made up of the device token and the part
+	 * that was not processed.
+	 * 
+	 * @param payload
+	 * @param cause
+	 * @return
+	 */
+	public EventDecodeException failed(byte[] payload, IOException cause) {
+	    if (processedCount == 0) {
+		return new EventDecodeException(cause);
+	    }
+	    int start = (int) Math.min(resumeOffset, payload.length);
+	    while ((start < payload.length) && (Character.isWhitespace(payload[start]) || (payload[start] == ','))) {
+		start++;
+	    }
+	    try {
+		StringBuilder prefix = new StringBuilder();
+		prefix.append("{\"").append(FIELD_DEVICE_TOKEN).append("\":")
+			.append(MAPPER.writeValueAsString(deviceToken));
+		boolean objectClosed = (start < payload.length) && (payload[start] == '}');
+		if ((resumeField != null) || !objectClosed) {
+		    prefix.append(",");
+		}
+		if (resumeField != null) {
+		    prefix.append("\"").append(resumeField).append("\":[");
+		}
+		byte[] head = prefix.toString().getBytes(StandardCharsets.UTF_8);
+		byte[] remaining = new byte[head.length + payload.length - start];
+		System.arraycopy(head, 0, remaining, 0, head.length);
+		System.arraycopy(payload, start, remaining, head.length, payload.length - start);
+		return new PartialEventDecodeException(cause.getMessage(), cause, remaining, processedCount);
+	    } catch (IOException e) {
+		return new PartialEventDecodeException(cause.getMessage(), cause, payload, processedCount);
+	    }
+	}
+
+	public String getDeviceToken() {
+	    return deviceToken;
+	}
+    }
+}
@@ -15,15 +15,17 @@
  */
 package com.sitewhere.sources.decoder.protobuf;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Parser;
 import com.sitewhere.communication.protobuf.proto.SiteWhere;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
@@ -36,26 +38,35 @@ import com.sitewhere.sources.DecodedDeviceRequest;
 import com.sitewhere.sources.spi.EventDecodeException;
 import com.sitewhere.sources.spi.IDecodedDeviceRequest;
 import com.sitewhere.sources.spi.IDeviceEventDecoder;
-import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.AlertLevel;
-import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
-import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
-import com.sitewhere.spi.device.event.request.IDeviceLocationCreateRequest;
-import com.sitewhere.spi.device.event.request.IDeviceMeasurementCreateRequest;
-import com.sitewhere.spi.device.event.request.IDeviceRegistrationRequest;
-import com.sitewhere.spi.device.event.request.IDeviceStreamCreateRequest;
 import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 
 /**
  * Decodes a message payload that was previously encoded using the Google
- * Protocol Buffers with the SiteWhere proto.
+ * Protocol Buffers with the SiteWhere proto. Messages are parsed with a
+ * {@link CodedInputStream} directly over the payload array.
+ * 
+ * A single payload is a length-delimited header followed by the
+ * length-delimited message for the command in the header. If the batch
+ * envelope is enabled, the header is followed by any number of records, each
+ * made up of the command number as a varint and the length-delimited message
+ * for that command. Every record in a batch is decoded for the device and
+ * originator given in the header, and the command in the header is ignored.
  */
 public class ProtobufDeviceEventDecoder extends TenantEngineLifecycleComponent implements IDeviceEventDecoder<byte[]> {
 
+    /** Indicates whether payloads use the batch envelope */
+    private boolean batchEnvelope = false;
+
     public ProtobufDeviceEventDecoder() {
 	super(LifecycleComponentType.DeviceEventDecoder);
     }
 
+    public ProtobufDeviceEventDecoder(boolean batchEnvelope) {
+	this();
+	this.batchEnvelope = batchEnvelope;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -66,232 +77,143 @@ public class ProtobufDeviceEventDecoder extends TenantEngineLifecycleComponent i
     public List<IDecodedDeviceRequest<?>> decode(byte[] payload, Map<String, Object> payloadMetadata)
 	    throws EventDecodeException {
 	try {
-	    ByteArrayInputStream stream = new ByteArrayInputStream(payload);
-
-	    SiteWhere.DeviceEvent.Header header = SiteWhere.DeviceEvent.Header.parseDelimitedFrom(stream);
-
-	    List<IDecodedDeviceRequest<?>> results = new ArrayList<IDecodedDeviceRequest<?>>();
-	    switch (header.getCommand()) {
-	    case SendRegistration: {
-		SiteWhere.DeviceEvent.DeviceRegistrationRequest registration = SiteWhere.DeviceEvent.DeviceRegistrationRequest
-			.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded registration for: " + header.getDeviceToken().getValue());
-		DeviceRegistrationRequest request = new DeviceRegistrationRequest();
-		request.setDeviceTypeToken(registration.getDeviceTypeToken().getValue());
-		if (registration.hasAreaToken()) {
-		    request.setAreaToken(registration.getAreaToken().getValue());
-		}
-		if (registration.hasAssetToken()) {
-		    request.setAssetToken(registration.getAssetToken().getValue());
-		}
-		if (registration.hasCustomerToken()) {
-		    request.setCustomerToken(registration.getCustomerToken().getValue());
-		}
-		Map<String, String> metadata = registration.getMetadataMap();
-		request.setMetadata(metadata);
-
-		DecodedDeviceRequest<IDeviceRegistrationRequest> decoded = new DecodedDeviceRequest<IDeviceRegistrationRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		results.add(decoded);
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		return results;
+	    CodedInputStream input = CodedInputStream.newInstance(payload);
+	    SiteWhere.DeviceEvent.Header header = readDelimited(input, SiteWhere.DeviceEvent.Header.parser());
+	    if (!isBatchEnvelope()) {
+		return Collections.singletonList(decodeMessage(header, header.getCommand(), input));
 	    }
-	    case SendAcknowledgement: {
-		SiteWhere.DeviceEvent.DeviceAcknowledge ack = SiteWhere.DeviceEvent.DeviceAcknowledge
-			.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded acknowledge for: " + header.getDeviceToken().getValue());
-		DeviceCommandResponseCreateRequest request = new DeviceCommandResponseCreateRequest();
-		request.setOriginatingEventId(UUID.fromString(header.getOriginator().getValue()));
-		request.setResponse(ack.getMessage().getValue());
 
-		DecodedDeviceRequest<IDeviceCommandResponseCreateRequest> decoded = new DecodedDeviceRequest<IDeviceCommandResponseCreateRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		results.add(decoded);
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		return results;
+	    List<IDecodedDeviceRequest<?>> results = new ArrayList<IDecodedDeviceRequest<?>>();
+	    while (!input.isAtEnd()) {
+		SiteWhere.DeviceEvent.Command command = SiteWhere.DeviceEvent.Command.forNumber(input.readEnum());
+		results.add(decodeMessage(header, command, input));
 	    }
-	    case SendLocation: {
-		SiteWhere.DeviceEvent.DeviceLocation location = SiteWhere.DeviceEvent.DeviceLocation
-			.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded location for: " + header.getDeviceToken().getValue());
-		DeviceLocationCreateRequest request = new DeviceLocationCreateRequest();
-		request.setLatitude(new BigDecimal(location.getLatitude().getValue()));
-		request.setLongitude(new BigDecimal(location.getLongitude().getValue()));
-		request.setElevation(new BigDecimal(location.getElevation().getValue()));
-
-		if (location.hasUpdateState()) {
-		    request.setUpdateState(location.getUpdateState().getValue());
-		}
-		Map<String, String> metadata = location.getMetadataMap();
-		request.setMetadata(metadata);
-
-		if (location.hasEventDate()) {
-		    request.setEventDate(new Date(location.getEventDate().getValue()));
-		} else {
-		    request.setEventDate(new Date());
-		}
+	    return results;
+	} catch (IOException e) {
+	    throw new EventDecodeException("Unable to decode protobuf message.", e);
+	}
+    }
 
-		DecodedDeviceRequest<IDeviceLocationCreateRequest> decoded = new DecodedDeviceRequest<IDeviceLocationCreateRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		results.add(decoded);
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		return results;
+    /**
+     * Decode the message for a command and build a decoded request for the device
+     * referenced in the header.
+     * 
+     * @param header
+     * @param command
+     * @param input
+     * @return
+     * @throws IOException
+     * @throws EventDecodeException
+     */
+    protected IDecodedDeviceRequest<?> decodeMessage(SiteWhere.DeviceEvent.Header header,
+	    SiteWhere.DeviceEvent.Command command, CodedInputStream input) throws IOException, EventDecodeException {
+	if (command == null) {
+	    throw new EventDecodeException("Unable to decode message. Unknown command number.");
+	}
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug(String.format("Decoding %s for: %s", command.name(), header.getDeviceToken().getValue()));
+	}
+	String originator = header.hasOriginator() ? header.getOriginator().getValue() : null;
+	String deviceToken = header.getDeviceToken().getValue();
+
+	switch (command) {
+	case SendRegistration: {
+	    SiteWhere.DeviceEvent.DeviceRegistrationRequest registration = readDelimited(input,
+		    SiteWhere.DeviceEvent.DeviceRegistrationRequest.parser());
+	    DeviceRegistrationRequest request = new DeviceRegistrationRequest();
+	    request.setDeviceTypeToken(registration.getDeviceTypeToken().getValue());
+	    if (registration.hasAreaToken()) {
+		request.setAreaToken(registration.getAreaToken().getValue());
 	    }
-	    case SendAlert: {
-		SiteWhere.DeviceEvent.DeviceAlert alert = SiteWhere.DeviceEvent.DeviceAlert.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded alert for: " + header.getDeviceToken().getValue());
-		DeviceAlertCreateRequest request = new DeviceAlertCreateRequest();
-		request.setType(alert.getAlertType().getValue());
-		request.setMessage(alert.getAlertMessage().getValue());
-		request.setLevel(fromProtocolBuffer(alert.getLevel()));
-
-		if (alert.hasUpdateState()) {
-		    request.setUpdateState(alert.getUpdateState().getValue());
-		}
-		Map<String, String> metadata = alert.getMetadataMap();
-		request.setMetadata(metadata);
-
-		if (alert.hasEventDate()) {
-		    request.setEventDate(new Date(alert.getEventDate().getValue()));
-		} else {
-		    request.setEventDate(new Date());
-		}
-		DecodedDeviceRequest<IDeviceAlertCreateRequest> decoded = new DecodedDeviceRequest<IDeviceAlertCreateRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		results.add(decoded);
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		return results;
+	    if (registration.hasAssetToken()) {
+		request.setAssetToken(registration.getAssetToken().getValue());
 	    }
-	    case SendMeasurement: {
-		SiteWhere.DeviceEvent.DeviceMeasurement dm = SiteWhere.DeviceEvent.DeviceMeasurement
-			.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded measurement for: " + header.getDeviceToken().getValue());
-
-		DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
-
-		request.setName(dm.getMeasurementName().getValue());
-		request.setValue(new BigDecimal(dm.getMeasurementValue().getValue()));
-
-		if (dm.hasUpdateState()) {
-		    request.setUpdateState(dm.getUpdateState().getValue());
-		}
-
-		Map<String, String> metadata = dm.getMetadataMap();
-		request.setMetadata(metadata);
-
-		if (dm.hasEventDate()) {
-		    request.setEventDate(new Date(dm.getEventDate().getValue()));
-		} else {
-		    request.setEventDate(new Date());
-		}
-		DecodedDeviceRequest<IDeviceMeasurementCreateRequest> decoded = new DecodedDeviceRequest<IDeviceMeasurementCreateRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		results.add(decoded);
-		return results;
+	    if (registration.hasCustomerToken()) {
+		request.setCustomerToken(registration.getCustomerToken().getValue());
 	    }
-	    case CreateStream: {
-		SiteWhere.DeviceEvent.DeviceStream devStream = SiteWhere.DeviceEvent.DeviceStream
-			.parseDelimitedFrom(stream);
-		getLogger().debug("Decoded stream for: " + header.getDeviceToken().getValue());
-		DeviceStreamCreateRequest request = new DeviceStreamCreateRequest();
-		request.setStreamId(devStream.getStreamId().getValue());
-		request.setContentType(devStream.getContentType().getValue());
-
-		Map<String, String> metadata = devStream.getMetadataMap();
-		request.setMetadata(metadata);
-
-		DecodedDeviceRequest<IDeviceStreamCreateRequest> decoded = new DecodedDeviceRequest<IDeviceStreamCreateRequest>();
-		if (header.hasOriginator()) {
-		    decoded.setOriginator(header.getOriginator().getValue());
-		}
-		results.add(decoded);
-		decoded.setDeviceToken(header.getDeviceToken().getValue());
-		decoded.setRequest(request);
-		return results;
+	    request.setMetadata(registration.getMetadataMap());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case SendAcknowledgement: {
+	    SiteWhere.DeviceEvent.DeviceAcknowledge ack = readDelimited(input,
+		    SiteWhere.DeviceEvent.DeviceAcknowledge.parser());
+	    DeviceCommandResponseCreateRequest request = new DeviceCommandResponseCreateRequest();
+	    request.setOriginatingEventId(UUID.fromString(header.getOriginator().getValue()));
+	    request.setResponse(ack.getMessage().getValue());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case SendLocation: {
+	    SiteWhere.DeviceEvent.DeviceLocation location = readDelimited(input,
+		    SiteWhere.DeviceEvent.DeviceLocation.parser());
+	    DeviceLocationCreateRequest request = new DeviceLocationCreateRequest();
+	    request.setLatitude(BigDecimal.valueOf(location.getLatitude().getValue()));
+	    request.setLongitude(BigDecimal.valueOf(location.getLongitude().getValue()));
+	    request.setElevation(BigDecimal.valueOf(location.getElevation().getValue()));
+	    if (location.hasUpdateState()) {
+		request.setUpdateState(location.getUpdateState().getValue());
 	    }
-	    case UNRECOGNIZED:
-	    default: {
-		throw new SiteWhereException(
-			"Unable to decode message. Type not supported: " + header.getCommand().name());
+	    request.setMetadata(location.getMetadataMap());
+	    request.setEventDate(location.hasEventDate() ? new Date(location.getEventDate().getValue()) : new Date());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case SendAlert: {
+	    SiteWhere.DeviceEvent.DeviceAlert alert = readDelimited(input, SiteWhere.DeviceEvent.DeviceAlert.parser());
+	    DeviceAlertCreateRequest request = new DeviceAlertCreateRequest();
+	    request.setType(alert.getAlertType().getValue());
+	    request.setMessage(alert.getAlertMessage().getValue());
+	    request.setLevel(fromProtocolBuffer(alert.getLevel()));
+	    if (alert.hasUpdateState()) {
+		request.setUpdateState(alert.getUpdateState().getValue());
 	    }
-
-	    // case SEND_DEVICE_STREAM_DATA: {
-	    // DeviceStreamData streamData = DeviceStreamData.parseDelimitedFrom(stream);
-	    // getLogger().debug("Decoded stream data for: " + streamData.getHardwareId());
-	    // DeviceStreamDataCreateRequest request = new DeviceStreamDataCreateRequest();
-	    // request.setStreamId(streamData.getStreamId());
-	    // request.setSequenceNumber(streamData.getSequenceNumber());
-	    // request.setData(streamData.getData().toByteArray());
-	    //
-	    // List<Metadata> pbmeta = streamData.getMetadataList();
-	    // Map<String, String> metadata = new HashMap<String, String>();
-	    // for (Metadata meta : pbmeta) {
-	    // metadata.put(meta.getName(), meta.getValue());
-	    // }
-	    // request.setMetadata(metadata);
-	    //
-	    // if (streamData.hasEventDate()) {
-	    // request.setEventDate(new Date(streamData.getEventDate()));
-	    // } else {
-	    // request.setEventDate(new Date());
-	    // }
-	    //
-	    // DecodedDeviceRequest<IDeviceStreamDataCreateRequest> decoded = new
-	    // DecodedDeviceRequest<IDeviceStreamDataCreateRequest>();
-	    // if (header.hasOriginator()) {
-	    // decoded.setOriginator(header.getOriginator());
-	    // }
-	    // results.add(decoded);
-	    // decoded.setDeviceToken(streamData.getHardwareId());
-	    // decoded.setRequest(request);
-	    // return results;
-	    // }
-	    // case REQUEST_DEVICE_STREAM_DATA: {
-	    // DeviceStreamDataRequest request =
-	    // DeviceStreamDataRequest.parseDelimitedFrom(stream);
-	    // getLogger().debug("Decoded stream data request for: " +
-	    // request.getHardwareId());
-	    // SendDeviceStreamDataRequest send = new SendDeviceStreamDataRequest();
-	    // send.setStreamId(request.getStreamId());
-	    // send.setSequenceNumber(request.getSequenceNumber());
-	    //
-	    // DecodedDeviceRequest<ISendDeviceStreamDataRequest> decoded = new
-	    // DecodedDeviceRequest<ISendDeviceStreamDataRequest>();
-	    // if (header.hasOriginator()) {
-	    // decoded.setOriginator(header.getOriginator());
-	    // }
-	    // results.add(decoded);
-	    // decoded.setDeviceToken(request.getHardwareId());
-	    // decoded.setRequest(send);
-	    // return results;
-	    // }
-	    // default: {
-	    // throw new SiteWhereException(
-	    // "Unable to decode message. Type not supported: " +
-	    // header.getCommand().name());
-	    // }
+	    request.setMetadata(alert.getMetadataMap());
+	    request.setEventDate(alert.hasEventDate() ? new Date(alert.getEventDate().getValue()) : new Date());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case SendMeasurement: {
+	    SiteWhere.DeviceEvent.DeviceMeasurement dm = readDelimited(input,
+		    SiteWhere.DeviceEvent.DeviceMeasurement.parser());
+	    DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
+	    request.setName(dm.getMeasurementName().getValue());
+	    request.setValue(BigDecimal.valueOf(dm.getMeasurementValue().getValue()));
+	    if (dm.hasUpdateState()) {
+		request.setUpdateState(dm.getUpdateState().getValue());
 	    }
-	} catch (IOException e) {
-	    throw new EventDecodeException("Unable to decode protobuf message.", e);
+	    request.setMetadata(dm.getMetadataMap());
+	    request.setEventDate(dm.hasEventDate() ? new Date(dm.getEventDate().getValue()) : new Date());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case CreateStream: {
+	    SiteWhere.DeviceEvent.DeviceStream devStream = readDelimited(input,
+		    SiteWhere.DeviceEvent.DeviceStream.parser());
+	    DeviceStreamCreateRequest request = new DeviceStreamCreateRequest();
+	    request.setStreamId(devStream.getStreamId().getValue());
+	    request.setContentType(devStream.getContentType().getValue());
+	    request.setMetadata(devStream.getMetadataMap());
+	    return new DecodedDeviceRequest<>(deviceToken, originator, request);
+	}
+	case UNRECOGNIZED:
+	default: {
+	    throw new EventDecodeException("Unable to decode message. Type not supported: " + command.name());
+	}
 	}
     }
 
+    /**
+     * Read a length-delimited message from the input without copying its bytes.
+     * 
+     * @param input
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    protected static <M> M readDelimited(CodedInputStream input, Parser<M> parser) throws IOException {
+	int length = input.readRawVarint32();
+	int previousLimit = input.pushLimit(length);
+	M message = parser.parseFrom(input);
+	input.popLimit(previousLimit);
+	return message;
+    }
+
     private static AlertLevel fromProtocolBuffer(SiteWhere.DeviceEvent.AlertLevel level) {
 	switch (level) {
 	case Info:
@@ -307,4 +229,12 @@ public class ProtobufDeviceEventDecoder extends TenantEngineLifecycleComponent i
 	    return AlertLevel.Info;
 	}
     }
+
+    public boolean isBatchEnvelope() {
+	return batchEnvelope;
+    }
+
+    public void setBatchEnvelope(boolean batchEnvelope) {
+	this.batchEnvelope = batchEnvelope;
+    }
 }
\ No newline at end of file
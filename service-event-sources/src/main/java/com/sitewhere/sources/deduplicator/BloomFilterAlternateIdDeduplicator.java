@@ -0,0 +1,271 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.deduplicator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.sitewhere.microservice.api.event.IDeviceEventManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.sources.spi.IDeviceEventDeduplicator;
+import com.sitewhere.sources.spi.microservice.IEventSourcesMicroservice;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Implementation of {@link IDeviceEventDeduplicator} that detects events whose
+ * alternate id was already seen within a time window without querying event
+ * management for every event.
+ * 
+ * Recently seen alternate ids are held in an exact LRU cache and in a pair of
+ * rotating Bloom filters that cover a longer span with bounded memory. An id
+ * found in the cache is a duplicate. An id the filters have never seen is not a
+ * duplicate. Only when the filters report a possible hit for an id that is no
+ * longer cached is event management queried to confirm it. Duplicates outside
+ * the window (for instance, after a restart) are not detected.
+ */
+public class BloomFilterAlternateIdDeduplicator extends TenantEngineLifecycleComponent
+	implements IDeviceEventDeduplicator {
+
+    /** Default time window in milliseconds */
+    public static final long DEFAULT_WINDOW_MS = 10 * 60 * 1000;
+
+    /** Default number of ids expected per filter generation */
+    public static final int DEFAULT_EXPECTED_INSERTIONS = 1000000;
+
+    /** Default false positive probability for each filter generation */
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    /** Default maximum number of ids in exact cache */
+    public static final int DEFAULT_CACHE_MAXIMUM_SIZE = 100000;
+
+    /** Counter for duplicates found in exact cache */
+    private static final Counter CACHE_HITS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "dedup_cache_hit_count", "Count of duplicate alternate ids found in exact cache");
+
+    /** Counter for possible duplicates reported by filter */
+    private static final Counter FILTER_HITS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "dedup_filter_hit_count", "Count of alternate ids reported as possible duplicates by filter");
+
+    /** Counter for possible duplicates that were not found remotely */
+    private static final Counter FALSE_POSITIVES = TenantEngineLifecycleComponent.createCounterMetric(
+	    "dedup_false_positive_count", "Count of filter hits not confirmed by event management");
+
+    /** Counter for alternate ids not seen before */
+    private static final Counter MISSES = TenantEngineLifecycleComponent
+	    .createCounterMetric("dedup_miss_count", "Count of alternate ids not seen within window");
+
+    /** Time window in milliseconds */
+    private long windowMs = DEFAULT_WINDOW_MS;
+
+    /** Number of ids expected per filter generation */
+    private int expectedInsertions = DEFAULT_EXPECTED_INSERTIONS;
+
+    /** False positive probability for each filter generation */
+    private double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+
+    /** Maximum number of ids in exact cache */
+    private int cacheMaximumSize = DEFAULT_CACHE_MAXIMUM_SIZE;
+
+    /** Exact cache of recently seen ids */
+    private Cache<String, Boolean> recent;
+
+    /** Filter receiving new ids */
+    private volatile BloomFilter<CharSequence> current;
+
+    /** Filter for ids seen in previous generation */
+    private volatile BloomFilter<CharSequence> previous;
+
+    /** Number of ids added to current filter */
+    private int currentInsertions;
+
+    /** Time at which current filter was created */
+    private long currentCreated;
+
+    public BloomFilterAlternateIdDeduplicator() {
+	super(LifecycleComponentType.DeviceEventDeduplicator);
+    }
+
+    /*
+     * @see com.sitewhere.microservice.lifecycle.LifecycleComponent#initialize(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.initialize(monitor);
+	reset();
+    }
+
+    /*
+     * @see com.sitewhere.sources.spi.IDeviceEventDeduplicator#isDuplicate(com.
+     * sitewhere.sources.spi.IDecodedDeviceRequest)
+     */
+    @Override
+    public boolean isDuplicate(IDecodedDeviceRequest<?> request) throws SiteWhereException {
+	if (!(request.getRequest() instanceof IDeviceEventCreateRequest)) {
+	    return false;
+	}
+	String alternateId = ((IDeviceEventCreateRequest) request.getRequest()).getAlternateId();
+	if (alternateId == null) {
+	    return false;
+	}
+
+	// Exact match within window.
+	if (getRecent().asMap().putIfAbsent(alternateId, Boolean.TRUE) != null) {
+	    increment(CACHE_HITS);
+	    return true;
+	}
+
+	// Filters can only produce false positives, so a miss is definitive.
+	if (!mightHaveSeen(alternateId)) {
+	    increment(MISSES);
+	    remember(alternateId);
+	    return false;
+	}
+
+	// Id was evicted from cache or is a false positive, so confirm remotely.
+	increment(FILTER_HITS);
+	if (findEventByAlternateId(alternateId) != null) {
+	    getLogger().debug("Found event with same alternate id. Will be treated as duplicate.");
+	    return true;
+	}
+	increment(FALSE_POSITIVES);
+	remember(alternateId);
+	return false;
+    }
+
+    /**
+     * Discard all seen ids and start with an empty cache and filters.
+     */
+    protected synchronized void reset() {
+	this.recent = CacheBuilder.newBuilder().maximumSize(getCacheMaximumSize())
+		.expireAfterWrite(getWindowMs(), TimeUnit.MILLISECONDS).build();
+	this.previous = createFilter();
+	this.current = createFilter();
+	this.currentInsertions = 0;
+	this.currentCreated = System.currentTimeMillis();
+    }
+
+    /**
+     * Indicates whether either filter generation may contain an id. A false
+     * result means the id was not remembered within the current or previous
+     * generation.
+     * 
+     * @param alternateId
+     * @return
+     */
+    protected boolean mightHaveSeen(String alternateId) {
+	return current.mightContain(alternateId) || previous.mightContain(alternateId);
+    }
+
+    /**
+     * Add an id to the current filter, rotating filters when the current one is
+     * full or older than the window.
+     * 
+     * @param alternateId
+     */
+    protected synchronized void remember(String alternateId) {
+	long now = System.currentTimeMillis();
+	if ((currentInsertions >= getExpectedInsertions()) || (now - currentCreated >= getWindowMs())) {
+	    this.previous = current;
+	    this.current = createFilter();
+	    this.currentInsertions = 0;
+	    this.currentCreated = now;
+	}
+	current.put(alternateId);
+	currentInsertions++;
+    }
+
+    /**
+     * Create an empty filter generation.
+     * 
+     * @return
+     */
+    protected BloomFilter<CharSequence> createFilter() {
+	return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), getExpectedInsertions(),
+		getFalsePositiveProbability());
+    }
+
+    /**
+     * Look up an existing event by alternate id in event management.
+     * 
+     * @param alternateId
+     * @return
+     * @throws SiteWhereException
+     */
+    protected IDeviceEvent findEventByAlternateId(String alternateId) throws SiteWhereException {
+	return getDeviceEventManagement().getDeviceEventByAlternateId(alternateId);
+    }
+
+    /**
+     * Increment a metric counter for the tenant.
+     * 
+     * @param counter
+     */
+    protected void increment(Counter counter) {
+	counter.labels(buildLabels()).inc();
+    }
+
+    private IDeviceEventManagement getDeviceEventManagement() {
+	return ((IEventSourcesMicroservice) getMicroservice()).getDeviceEventManagementApiChannel();
+    }
+
+    protected Cache<String, Boolean> getRecent() {
+	return recent;
+    }
+
+    public long getWindowMs() {
+	return windowMs;
+    }
+
+    public void setWindowMs(long windowMs) {
+	this.windowMs = windowMs;
+    }
+
+    public int getExpectedInsertions() {
+	return expectedInsertions;
+    }
+
+    public void setExpectedInsertions(int expectedInsertions) {
+	this.expectedInsertions = expectedInsertions;
+    }
+
+    public double getFalsePositiveProbability() {
+	return falsePositiveProbability;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+	this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public int getCacheMaximumSize() {
+	return cacheMaximumSize;
+    }
+
+    public void setCacheMaximumSize(int cacheMaximumSize) {
+	this.cacheMaximumSize = cacheMaximumSize;
+    }
+}
@@ -15,10 +15,14 @@
  */
 package com.sitewhere.sources.deduplicator;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.sitewhere.microservice.api.device.DeviceManagementRequestBuilder;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.microservice.api.event.DeviceEventRequestBuilder;
 import com.sitewhere.microservice.api.event.IDeviceEventManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.scripting.Binding;
 import com.sitewhere.microservice.scripting.ScriptingComponent;
 import com.sitewhere.sources.spi.EventDecodeException;
@@ -26,20 +30,42 @@ import com.sitewhere.sources.spi.IDecodedDeviceRequest;
 import com.sitewhere.sources.spi.IDeviceEventDeduplicator;
 import com.sitewhere.sources.spi.microservice.IEventSourcesMicroservice;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 import com.sitewhere.spi.microservice.scripting.IScriptVariables;
 
+import io.prometheus.client.Histogram;
+
 /**
  * Implementation of {@link IDeviceEventDeduplicator} that uses a script to
  * decide whether an event is a duplicate or not. The script should return a
- * boolean value.
+ * boolean value. Each call runs the script with a new binding. Request builders
+ * are created once for each thread and reused.
  */
 public class ScriptedEventDeduplicator extends ScriptingComponent<Boolean> implements IDeviceEventDeduplicator {
 
+    /** Histogram for script execution time */
+    private static final Histogram SCRIPT_TIMER = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "scripted_deduplicator_timer", "Timer for deduplicator script execution", "script_id");
+
+    /** Variables shared by bindings created on each thread */
+    private ThreadLocal<Map<String, Object>> sharedVariables = new ThreadLocal<>();
+
     public ScriptedEventDeduplicator() {
 	super(LifecycleComponentType.DeviceEventDeduplicator);
     }
 
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.start(monitor);
+	this.sharedVariables = new ThreadLocal<>();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -48,18 +74,41 @@ public class ScriptedEventDeduplicator extends ScriptingComponent<Boolean> imple
      */
     @Override
     public boolean isDuplicate(IDecodedDeviceRequest<?> request) throws SiteWhereException {
+	Histogram.Timer timer = SCRIPT_TIMER.labels(buildLabels(getScriptId())).startTimer();
 	try {
-	    Binding binding = new Binding();
-	    binding.setVariable(IScriptVariables.VAR_DEVICE_MANAGEMENT_BUILDER,
-		    new DeviceManagementRequestBuilder(getDeviceManagement()));
-	    binding.setVariable(IScriptVariables.VAR_EVENT_MANAGEMENT_BUILDER,
-		    new DeviceEventRequestBuilder(getDeviceManagement(), getDeviceEventManagement()));
+	    Binding binding = createBinding();
 	    binding.setVariable(IScriptVariables.VAR_DECODED_DEVICE_REQUEST, request);
-	    binding.setVariable(IScriptVariables.VAR_LOGGER, getLogger());
 	    return run(binding);
 	} catch (SiteWhereException e) {
 	    throw new EventDecodeException("Unable to run deduplicator script.", e);
+	} finally {
+	    timer.close();
+	}
+    }
+
+    /**
+     * Create a binding for a single script run. Variables set by a previous run
+     * are not visible. Request builders are created once for each thread and
+     * shared by its bindings.
+     * 
+     * @return
+     */
+    protected Binding createBinding() {
+	Map<String, Object> shared = sharedVariables.get();
+	if (shared == null) {
+	    shared = new HashMap<>();
+	    shared.put(IScriptVariables.VAR_DEVICE_MANAGEMENT_BUILDER,
+		    new DeviceManagementRequestBuilder(getDeviceManagement()));
+	    shared.put(IScriptVariables.VAR_EVENT_MANAGEMENT_BUILDER,
+		    new DeviceEventRequestBuilder(getDeviceManagement(), getDeviceEventManagement()));
+	    shared.put(IScriptVariables.VAR_LOGGER, getLogger());
+	    sharedVariables.set(shared);
+	}
+	Binding binding = new Binding();
+	for (Map.Entry<String, Object> variable : shared.entrySet()) {
+	    binding.setVariable(variable.getKey(), variable.getValue());
 	}
+	return binding;
     }
 
     private IDeviceManagement getDeviceManagement() {
@@ -0,0 +1,410 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.sources.InboundEventReceiver;
+import com.sitewhere.sources.configuration.eventsource.http.HttpBulkConfiguration;
+import com.sitewhere.sources.kafka.DecodedEventsProducer;
+import com.sitewhere.sources.socket.DelimiterSocketFramer;
+import com.sitewhere.sources.spi.IInboundEventReceiver;
+import com.sitewhere.sources.spi.microservice.IEventSourcesTenantEngine;
+import com.sitewhere.sources.spi.socket.ISocketFramer;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Implementation of {@link IInboundEventReceiver} that accepts bulk uploads of
+ * delimited events (newline-delimited JSON by default) over HTTP. Request
+ * bodies may be sent with chunked transfer encoding. The whole body is read and
+ * split into events before any event is passed on, so an upload that is too
+ * large or holds an oversized event is refused with a 413 status without
+ * delivering part of it. Events are then passed to the event source in batches.
+ * 
+ * A 202 status is sent only after Kafka has acknowledged every decoded event
+ * from the upload. If any event could not be written, a 503 status is sent so
+ * the client can retry.
+ * 
+ * New uploads are refused with a 429 status and a Retry-After header while the
+ * number of decoded events waiting on Kafka is above the configured limit. An
+ * upload that is being delivered waits for the backlog to drain between
+ * batches.
+ */
+public class HttpBulkInboundEventReceiver extends InboundEventReceiver<byte[]> {
+
+    /** Counter for upload requests */
+    private static final Counter RECEIVED_REQUESTS = TenantEngineLifecycleComponent
+	    .createCounterMetric("http_bulk_requests_count", "Count of bulk HTTP upload requests", "source_id");
+
+    /** Counter for upload requests refused due to backpressure */
+    private static final Counter REJECTED_REQUESTS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "http_bulk_requests_rejected_count", "Count of bulk HTTP upload requests refused due to backpressure",
+	    "source_id");
+
+    /** Counter for received events */
+    private static final Counter RECEIVED_EVENTS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "http_bulk_events_received_count", "Count of events received by bulk HTTP uploads", "source_id");
+
+    /** Counter for uploads failed due to framing errors */
+    private static final Counter FRAMING_ERRORS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "http_bulk_framing_error_count", "Count of bulk HTTP uploads failed due to framing errors", "source_id");
+
+    /** Number of seconds to wait for open exchanges on stop */
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /** Maximum number of events passed to the event source together */
+    private static final int DELIVERY_BATCH_SIZE = 1000;
+
+    /** Configuration */
+    private HttpBulkConfiguration configuration;
+
+    /** Splits request bodies into events */
+    private ISocketFramer framer;
+
+    /** HTTP server */
+    private HttpServer server;
+
+    /** Runs request handlers */
+    private ExecutorService executor;
+
+    public HttpBulkInboundEventReceiver(HttpBulkConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.framer = new DelimiterSocketFramer(getConfiguration().getDelimiter().getBytes(StandardCharsets.UTF_8),
+		getConfiguration().getMaxFrameSize());
+
+	int numThreads = getConfiguration().getNumThreads();
+	if (numThreads <= 0) {
+	    numThreads = Runtime.getRuntime().availableProcessors();
+	}
+	try {
+	    this.server = HttpServer.create(
+		    new InetSocketAddress(getConfiguration().getBindAddress(), getConfiguration().getPort()), 0);
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to bind HTTP server for event receiver.", e);
+	}
+	this.executor = Executors.newFixedThreadPool(numThreads, new HttpThreadFactory());
+	server.setExecutor(executor);
+	server.createContext(getConfiguration().getPath(), new BulkUploadHandler());
+	server.start();
+	getLogger().info(String.format("Bulk HTTP receiver listening on %s using %d threads.", getDisplayName(),
+		numThreads));
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (server != null) {
+	    server.stop(SHUTDOWN_TIMEOUT_SECONDS);
+	}
+	if (executor != null) {
+	    executor.shutdown();
+	    try {
+		executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	getLogger().info("Bulk HTTP receiver processing stopped.");
+    }
+
+    /*
+     * @see com.sitewhere.sources.InboundEventReceiver#getDisplayName()
+     */
+    @Override
+    public String getDisplayName() {
+	return "http://" + getConfiguration().getBindAddress() + ":" + getConfiguration().getPort()
+		+ getConfiguration().getPath();
+    }
+
+    /**
+     * Read a request body and split it into events. Nothing is delivered until
+     * the whole body has been read, so size limits are enforced before any event
+     * is passed on.
+     * 
+     * @param input
+     * @return
+     * @throws IOException
+     * @throws SiteWhereException
+     */
+    protected List<byte[]> readEvents(InputStream input) throws IOException, SiteWhereException {
+	ByteBuffer buffer = ByteBuffer.allocate(getConfiguration().getBufferSize());
+	List<byte[]> frames = new ArrayList<>();
+	long total = 0;
+	int read;
+	while ((read = input.read(buffer.array(), buffer.position(), buffer.remaining())) != -1) {
+	    total += read;
+	    if (total > getConfiguration().getMaxRequestSize()) {
+		throw new SiteWhereException(String.format("Upload exceeds maximum of %d bytes.",
+			getConfiguration().getMaxRequestSize()));
+	    }
+	    buffer.position(buffer.position() + read);
+	    buffer.flip();
+	    getFramer().decode(buffer, frames);
+	    buffer.compact();
+	    if (!buffer.hasRemaining()) {
+		buffer = grow(buffer);
+	    }
+	}
+	buffer.flip();
+	getFramer().endOfStream(buffer, frames);
+	return frames;
+    }
+
+    /**
+     * Pass events to the event source in batches, waiting for the decoded events
+     * backlog to drain before each batch.
+     * 
+     * @param frames
+     * @throws IOException
+     */
+    protected void deliver(List<byte[]> frames) throws IOException {
+	for (int i = 0; i < frames.size(); i += DELIVERY_BATCH_SIZE) {
+	    awaitCapacity();
+	    List<byte[]> batch = frames.subList(i, Math.min(i + DELIVERY_BATCH_SIZE, frames.size()));
+	    getEventSource().onEncodedEventsReceived(this, batch, null);
+	    RECEIVED_EVENTS.labels(buildLabels(getEventSource().getSourceId())).inc(batch.size());
+	}
+    }
+
+    /**
+     * Double the size of a full buffer that holds a partial event. The framer
+     * fails before the buffer grows much beyond the maximum event size.
+     * 
+     * @param buffer
+     * @return
+     */
+    protected ByteBuffer grow(ByteBuffer buffer) {
+	ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+	buffer.flip();
+	larger.put(buffer);
+	return larger;
+    }
+
+    /**
+     * Indicates whether too many decoded events are waiting to be written to
+     * Kafka.
+     * 
+     * @return
+     */
+    protected boolean isSaturated() {
+	return getDecodedEventsProducer().getInFlightCount() >= getConfiguration().getMaxInFlightEvents();
+    }
+
+    /**
+     * Block while the decoded events backlog is over the limit.
+     * 
+     * @throws IOException
+     */
+    protected void awaitCapacity() throws IOException {
+	try {
+	    if (!getDecodedEventsProducer().awaitInFlightBelow(getConfiguration().getMaxInFlightEvents(),
+		    getConfiguration().getSendTimeoutSeconds(), TimeUnit.SECONDS)) {
+		throw new IOException("Timed out waiting for event backlog to drain.");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Interrupted while waiting for event backlog to drain.");
+	}
+    }
+
+    /**
+     * Get declared length of a request body, or -1 if not known.
+     * 
+     * @param exchange
+     * @return
+     */
+    protected long getContentLength(HttpExchange exchange) {
+	String header = exchange.getRequestHeaders().getFirst("Content-Length");
+	if (header == null) {
+	    return -1;
+	}
+	try {
+	    return Long.parseLong(header.trim());
+	} catch (NumberFormatException e) {
+	    return -1;
+	}
+    }
+
+    /**
+     * Send a response asking the client to retry later.
+     * 
+     * @param exchange
+     * @param status
+     * @param message
+     * @throws IOException
+     */
+    protected void respondRetry(HttpExchange exchange, int status, String message) throws IOException {
+	exchange.getResponseHeaders().set("Retry-After", String.valueOf(getConfiguration().getRetryAfterSeconds()));
+	respond(exchange, status, message);
+    }
+
+    /**
+     * Send a plain text response.
+     * 
+     * @param exchange
+     * @param status
+     * @param message
+     * @throws IOException
+     */
+    protected void respond(HttpExchange exchange, int status, String message) throws IOException {
+	byte[] body = message.getBytes(StandardCharsets.UTF_8);
+	exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+	exchange.sendResponseHeaders(status, body.length);
+	try (OutputStream output = exchange.getResponseBody()) {
+	    output.write(body);
+	}
+    }
+
+    /**
+     * Answer an upload once Kafka has acknowledged or failed every decoded event
+     * sent for it.
+     * 
+     * @param exchange
+     * @param tracker
+     * @param count
+     * @throws IOException
+     */
+    protected void respondWithSendResult(HttpExchange exchange, DecodedEventsProducer.SendTracker tracker,
+	    int count) throws IOException {
+	try {
+	    if (!tracker.await(getConfiguration().getSendTimeoutSeconds(), TimeUnit.SECONDS)) {
+		respondRetry(exchange, 503, "Timed out waiting for events to be written.");
+		return;
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    respondRetry(exchange, 503, "Interrupted while waiting for events to be written.");
+	    return;
+	}
+	if (tracker.getFailedCount() > 0) {
+	    respondRetry(exchange, 503, String.format("%d of %d decoded events could not be written.",
+		    tracker.getFailedCount(), tracker.getSentCount()));
+	    return;
+	}
+	respond(exchange, 202, String.format("Received %d events.", count));
+    }
+
+    /**
+     * Handles bulk upload requests.
+     */
+    private class BulkUploadHandler implements HttpHandler {
+
+	/*
+	 * @see
+	 * com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.HttpExchange)
+	 */
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+	    try {
+		if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+		    exchange.getResponseHeaders().set("Allow", "POST");
+		    respond(exchange, 405, "Events must be uploaded with POST.");
+		    return;
+		}
+		RECEIVED_REQUESTS.labels(buildLabels(getEventSource().getSourceId())).inc();
+		if (getContentLength(exchange) > getConfiguration().getMaxRequestSize()) {
+		    respond(exchange, 413, String.format("Upload exceeds maximum of %d bytes.",
+			    getConfiguration().getMaxRequestSize()));
+		    return;
+		}
+		if (isSaturated()) {
+		    REJECTED_REQUESTS.labels(buildLabels(getEventSource().getSourceId())).inc();
+		    respondRetry(exchange, 429, "Event processing is behind. Retry later.");
+		    return;
+		}
+		List<byte[]> events;
+		try {
+		    events = readEvents(exchange.getRequestBody());
+		} catch (SiteWhereException e) {
+		    FRAMING_ERRORS.labels(buildLabels(getEventSource().getSourceId())).inc();
+		    getLogger().warn(String.format("Bulk HTTP upload refused: %s", e.getMessage()));
+		    respond(exchange, 413, e.getMessage());
+		    return;
+		}
+		DecodedEventsProducer.SendTracker tracker = getDecodedEventsProducer().startTracking();
+		try {
+		    deliver(events);
+		} catch (IOException e) {
+		    getLogger().warn(String.format("Bulk HTTP upload not fully delivered: %s", e.getMessage()));
+		    respondRetry(exchange, 503, e.getMessage());
+		    return;
+		} finally {
+		    getDecodedEventsProducer().stopTracking();
+		}
+		respondWithSendResult(exchange, tracker, events.size());
+	    } finally {
+		exchange.close();
+	    }
+	}
+    }
+
+    /**
+     * Names request handler threads.
+     */
+    private class HttpThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "SiteWhere HTTP(" + getConfiguration().getPort() + ") " + counter.incrementAndGet());
+	}
+    }
+
+    protected DecodedEventsProducer getDecodedEventsProducer() {
+	return ((IEventSourcesTenantEngine) getTenantEngine()).getEventSourcesManager().getDecodedEventsProducer();
+    }
+
+    protected ISocketFramer getFramer() {
+	return framer;
+    }
+
+    protected HttpBulkConfiguration getConfiguration() {
+	return configuration;
+    }
+}
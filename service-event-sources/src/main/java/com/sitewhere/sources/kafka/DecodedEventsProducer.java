@@ -15,15 +15,253 @@
  */
 package com.sitewhere.sources.kafka;
 
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.record.CompressionType;
+
+import com.sitewhere.grpc.event.EventModelMarshaler;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.rest.model.device.event.kafka.DecodedEventPayload;
+import com.sitewhere.sources.configuration.EventSourcesTenantConfiguration;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+
+import io.prometheus.client.Counter;
 
 /**
  * Kafka producer for a stream of decoded events produced by all event sources
- * for a tenant.
+ * for a tenant. If the tenant enables the throughput profile, linger time,
+ * batch size and compression are taken from the tenant configuration so that
+ * records from many devices are sent in large, compressed batches. The number
+ * of records handed to the producer but not yet acknowledged is tracked so that
+ * receivers can push back on clients when Kafka falls behind. Receivers that
+ * answer clients only after events are durable can track the results of sends
+ * made on the current thread.
  */
 public class DecodedEventsProducer extends MicroserviceKafkaProducer<String, byte[]> {
 
+    /** Counter for records acknowledged by Kafka */
+    private static final Counter SENT_RECORDS = TenantEngineLifecycleComponent
+	    .createCounterMetric("decoded_events_sent_count", "Count of decoded events written to Kafka");
+
+    /** Counter for records that could not be written */
+    private static final Counter FAILED_RECORDS = TenantEngineLifecycleComponent
+	    .createCounterMetric("decoded_events_send_failed_count", "Count of decoded events not written to Kafka");
+
+    /** Tenant configuration */
+    private EventSourcesTenantConfiguration configuration;
+
+    /** Callback that records result of each send */
+    private Callback sendCallback = new SendCallback();
+
+    /** Number of records sent but not yet acknowledged */
+    private AtomicLong inFlightCount = new AtomicLong();
+
+    /** Tracks results of sends made by the current thread, if any */
+    private ThreadLocal<SendTracker> trackers = new ThreadLocal<>();
+
+    /** Lock used to wait for in-flight records to drain */
+    private ReentrantLock drainLock = new ReentrantLock();
+
+    /** Signalled when in-flight records are acknowledged */
+    private Condition drained = drainLock.newCondition();
+
+    /** Number of threads waiting for in-flight records to drain */
+    private AtomicInteger drainWaiters = new AtomicInteger();
+
+    public DecodedEventsProducer(EventSourcesTenantConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.kafka.MicroserviceKafkaProducer#buildConfiguration
+     * ()
+     */
+    @Override
+    protected Properties buildConfiguration() throws SiteWhereException {
+	Properties config = super.buildConfiguration();
+	if (getConfiguration().isDecodedEventsThroughputProfile()) {
+	    config.put(ProducerConfig.LINGER_MS_CONFIG, getConfiguration().getDecodedEventsLingerMs());
+	    config.put(ProducerConfig.BATCH_SIZE_CONFIG, getConfiguration().getDecodedEventsBatchSize());
+	    config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+		    validateCompressionType(getConfiguration().getDecodedEventsCompressionType()));
+	}
+	return config;
+    }
+
+    /**
+     * Verify that the Kafka client on the classpath supports a compression type,
+     * so a bad setting is reported clearly instead of failing inside the client.
+     * 
+     * @param compressionType
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static String validateCompressionType(String compressionType) throws SiteWhereException {
+	if (compressionType == null) {
+	    throw new SiteWhereException("No compression type configured for decoded events.");
+	}
+	try {
+	    CompressionType.forName(compressionType);
+	    return compressionType;
+	} catch (IllegalArgumentException e) {
+	    throw new SiteWhereException(
+		    String.format("Compression type '%s' is not supported by the Kafka client.", compressionType));
+	}
+    }
+
+    /**
+     * Build the decoded event payload message for a request and send it without
+     * waiting for the result.
+     * 
+     * @param sourceUnique
+     * @param decoded
+     * @throws SiteWhereException
+     */
+    public void sendDecodedEvent(String sourceUnique, IDecodedDeviceRequest<?> decoded) throws SiteWhereException {
+	DecodedEventPayload payload = new DecodedEventPayload();
+	payload.setSourceId(sourceUnique);
+	payload.setDeviceToken(decoded.getDeviceToken());
+	payload.setOriginator(decoded.getOriginator());
+	payload.setEventCreateRequest((IDeviceEventCreateRequest) decoded.getRequest());
+	sendAsync(decoded.getDeviceToken(), EventModelMarshaler.buildDecodedEventPayloadMessage(payload));
+    }
+
+    /**
+     * Send a record without waiting for the result. Failures are counted and
+     * logged from the producer I/O thread.
+     * 
+     * @param key
+     * @param value
+     * @throws SiteWhereException
+     */
+    public void sendAsync(String key, byte[] value) throws SiteWhereException {
+	SendTracker tracker = trackers.get();
+	Callback callback = sendCallback;
+	if (tracker != null) {
+	    tracker.onSent();
+	    callback = new TrackedSendCallback(tracker);
+	}
+	inFlightCount.incrementAndGet();
+	try {
+	    getRecordProducer().send(new ProducerRecord<>(getTargetTopicName(), key, value), callback);
+	} catch (RuntimeException | SiteWhereException e) {
+	    onSendCompleted();
+	    if (tracker != null) {
+		tracker.onCompleted(false);
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Get the Kafka producer that records are sent to.
+     * 
+     * @return
+     */
+    protected Producer<String, byte[]> getRecordProducer() {
+	return getProducer();
+    }
+
+    /**
+     * Track results of records sent by the current thread until
+     * {@link #stopTracking()} is called.
+     * 
+     * @return
+     */
+    public SendTracker startTracking() {
+	SendTracker tracker = new SendTracker();
+	trackers.set(tracker);
+	return tracker;
+    }
+
+    /**
+     * Stop tracking results of records sent by the current thread.
+     */
+    public void stopTracking() {
+	trackers.remove();
+    }
+
+    /**
+     * Record an event that could not be handed to the producer against the
+     * tracker for the current thread, if any, so that it is reported as failed.
+     */
+    public void recordFailure() {
+	SendTracker tracker = trackers.get();
+	if (tracker != null) {
+	    tracker.onSent();
+	    tracker.onCompleted(false);
+	}
+    }
+
+    /**
+     * Wait until fewer than the given number of records are in flight.
+     * 
+     * @param limit
+     * @param timeout
+     * @param unit
+     * @return false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitInFlightBelow(long limit, long timeout, TimeUnit unit) throws InterruptedException {
+	if (getInFlightCount() < limit) {
+	    return true;
+	}
+	long remaining = unit.toNanos(timeout);
+	drainWaiters.incrementAndGet();
+	drainLock.lock();
+	try {
+	    while (getInFlightCount() >= limit) {
+		if (remaining <= 0) {
+		    return false;
+		}
+		remaining = drained.awaitNanos(remaining);
+	    }
+	    return true;
+	} finally {
+	    drainLock.unlock();
+	    drainWaiters.decrementAndGet();
+	}
+    }
+
+    /**
+     * Update the in-flight count when a send completes and wake any threads
+     * waiting for it to drop.
+     */
+    protected void onSendCompleted() {
+	inFlightCount.decrementAndGet();
+	if (drainWaiters.get() > 0) {
+	    drainLock.lock();
+	    try {
+		drained.signalAll();
+	    } finally {
+		drainLock.unlock();
+	    }
+	}
+    }
+
+    /**
+     * Get number of records that have been sent but not yet acknowledged.
+     * 
+     * @return
+     */
+    public long getInFlightCount() {
+	return inFlightCount.get();
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer#
      * getTargetTopicName()
@@ -33,4 +271,111 @@ public class DecodedEventsProducer extends MicroserviceKafkaProducer<String, byt
 	return getMicroservice().getKafkaTopicNaming()
 		.getEventSourceDecodedEventsTopic(getTenantEngine().getTenantResource());
     }
-}
\ No newline at end of file
+
+    /**
+     * Records the result of each send.
+     */
+    private class SendCallback implements Callback {
+
+	/*
+	 * @see
+	 * org.apache.kafka.clients.producer.Callback#onCompletion(org.apache.kafka.
+	 * clients.producer.RecordMetadata, java.lang.Exception)
+	 */
+	@Override
+	public void onCompletion(RecordMetadata metadata, Exception exception) {
+	    onSendCompleted();
+	    if (exception == null) {
+		SENT_RECORDS.labels(buildLabels()).inc();
+	    } else {
+		FAILED_RECORDS.labels(buildLabels()).inc();
+		getLogger().error("Unable to write decoded event to Kafka.", exception);
+	    }
+	}
+    }
+
+    /**
+     * Records the result of a send in a tracker as well as the shared metrics.
+     */
+    private class TrackedSendCallback implements Callback {
+
+	/** Tracker for the thread that sent the record */
+	private SendTracker tracker;
+
+	public TrackedSendCallback(SendTracker tracker) {
+	    this.tracker = tracker;
+	}
+
+	/*
+	 * @see
+	 * org.apache.kafka.clients.producer.Callback#onCompletion(org.apache.kafka.
+	 * clients.producer.RecordMetadata, java.lang.Exception)
+	 */
+	@Override
+	public void onCompletion(RecordMetadata metadata, Exception exception) {
+	    sendCallback.onCompletion(metadata, exception);
+	    tracker.onCompleted(exception == null);
+	}
+    }
+
+    /**
+     * Collects results of records sent while tracking was enabled.
+     */
+    public static class SendTracker {
+
+	/** Number of records sent */
+	private int sentCount;
+
+	/** Number of records acknowledged or failed */
+	private int completedCount;
+
+	/** Number of records that failed */
+	private int failedCount;
+
+	protected synchronized void onSent() {
+	    sentCount++;
+	}
+
+	protected synchronized void onCompleted(boolean success) {
+	    completedCount++;
+	    if (!success) {
+		failedCount++;
+	    }
+	    if (completedCount >= sentCount) {
+		notifyAll();
+	    }
+	}
+
+	/**
+	 * Wait for all tracked records to complete.
+	 * 
+	 * @param timeout
+	 * @param unit
+	 * @return false if the timeout elapsed first
+	 * @throws InterruptedException
+	 */
+	public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+	    long deadline = System.nanoTime() + unit.toNanos(timeout);
+	    while (completedCount < sentCount) {
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0) {
+		    return false;
+		}
+		TimeUnit.NANOSECONDS.timedWait(this, remaining);
+	    }
+	    return true;
+	}
+
+	public synchronized int getSentCount() {
+	    return sentCount;
+	}
+
+	public synchronized int getFailedCount() {
+	    return failedCount;
+	}
+    }
+
+    protected EventSourcesTenantConfiguration getConfiguration() {
+	return configuration;
+    }
+}
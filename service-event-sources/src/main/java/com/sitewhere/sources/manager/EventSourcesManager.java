@@ -18,14 +18,13 @@ package com.sitewhere.sources.manager;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.inject.Inject;
 import com.sitewhere.grpc.device.DeviceModelMarshaler;
-import com.sitewhere.grpc.event.EventModelMarshaler;
 import com.sitewhere.microservice.lifecycle.CompositeLifecycleStep;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.util.MarshalUtils;
-import com.sitewhere.rest.model.device.event.kafka.DecodedEventPayload;
 import com.sitewhere.rest.model.device.event.kafka.DeviceRegistrationPayload;
 import com.sitewhere.sources.configuration.EventSourcesTenantConfiguration;
 import com.sitewhere.sources.kafka.DecodedEventsProducer;
@@ -62,6 +61,12 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
     /** Kafka producer for device registation events from event sources */
     private DeviceRegistrationEventsProducer deviceRegistrationEventsProducer;
 
+    /** Random prefix that makes source ids unique across restarts and replicas */
+    private String sourceUniquePrefix = UUID.randomUUID().toString();
+
+    /** Sequence appended to prefix for each decoded request */
+    private AtomicLong sourceUniqueSequence = new AtomicLong();
+
     @Inject
     public EventSourcesManager(EventSourcesTenantConfiguration configuration) {
 	this.configuration = configuration;
@@ -107,7 +112,7 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
      * @throws SiteWhereException
      */
     protected void createKafkaComponents() throws SiteWhereException {
-	this.decodedEventsProducer = new DecodedEventsProducer();
+	this.decodedEventsProducer = new DecodedEventsProducer(getConfiguration());
 	this.failedDecodeEventsProducer = new FailedDecodeEventsProducer();
 	this.deviceRegistrationEventsProducer = new DeviceRegistrationEventsProducer();
     }
@@ -179,26 +184,21 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
 	if (getLogger().isDebugEnabled()) {
 	    getLogger().debug("Processing decoded event...");
 	}
-	String sourceUnique = sourceId + ":" + UUID.randomUUID().toString();
+	String sourceUnique = nextSourceUnique(sourceId);
 	if (decoded.getRequest() instanceof IDeviceEventCreateRequest) {
 	    if (getLogger().isDebugEnabled()) {
 		getLogger().debug("Forwarding decoded event create request to Kafka outbound topic.");
 	    }
-	    DecodedEventPayload payload = new DecodedEventPayload();
-	    payload.setSourceId(sourceUnique);
-	    payload.setDeviceToken(decoded.getDeviceToken());
-	    payload.setOriginator(decoded.getOriginator());
-	    payload.setEventCreateRequest((IDeviceEventCreateRequest) decoded.getRequest());
 	    if (getDecodedEventsProducer().getLifecycleStatus() == LifecycleStatus.Started) {
 		// Build and forward inbound event payload message.
-		getDecodedEventsProducer().send(decoded.getDeviceToken(),
-			EventModelMarshaler.buildDecodedEventPayloadMessage(payload));
-		logPipelineEvent(sourceUnique, payload.getDeviceToken(), getMicroservice().getIdentifier(),
+		getDecodedEventsProducer().sendDecodedEvent(sourceUnique, decoded);
+		logPipelineEvent(sourceUnique, decoded.getDeviceToken(), getMicroservice().getIdentifier(),
 			"Decoded event create request and forwarded to Kafka decoded events topic.", null,
 			EventPipelineLogLevel.Debug);
 	    } else {
 		getLogger().warn("Producer not started. Unable to add decoded event to topic.");
-		logPipelineEvent(sourceUnique, payload.getDeviceToken(), getMicroservice().getIdentifier(),
+		getDecodedEventsProducer().recordFailure();
+		logPipelineEvent(sourceUnique, decoded.getDeviceToken(), getMicroservice().getIdentifier(),
 			"Kafka producer was not started. Unable to forward event.", null, EventPipelineLogLevel.Debug);
 	    }
 	} else if (decoded.getRequest() instanceof IDeviceRegistrationRequest) {
@@ -219,6 +219,7 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
 			EventPipelineLogLevel.Debug);
 	    } else {
 		getLogger().warn("Producer not started. Unable to add device registration event to topic.");
+		getDecodedEventsProducer().recordFailure();
 		logPipelineEvent(sourceUnique, payload.getDeviceToken(), getMicroservice().getIdentifier(),
 			"Kafka producer was not started. Unable to forward event.", null, EventPipelineLogLevel.Debug);
 	    }
@@ -228,6 +229,17 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
 	}
     }
 
+    /**
+     * Build a unique id for a decoded request. A counter appended to a prefix
+     * chosen at startup is much cheaper than a random UUID per request.
+     * 
+     * @param sourceId
+     * @return
+     */
+    protected String nextSourceUnique(String sourceId) {
+	return sourceId + ":" + sourceUniquePrefix + "-" + Long.toHexString(sourceUniqueSequence.incrementAndGet());
+    }
+
     /*
      * @see com.sitewhere.sources.spi.IEventSourcesManager#handleFailedDecode(java.
      * lang.String, byte[], java.util.Map, java.lang.Throwable)
@@ -238,8 +250,9 @@ public class EventSourcesManager extends TenantEngineLifecycleComponent implemen
 	getLogger().warn("Event could not be decoded. Adding to failed decode topic.", t);
 	if (getFailedDecodeEventsProducer().getLifecycleStatus() == LifecycleStatus.Started) {
 	    getFailedDecodeEventsProducer().send(sourceId, encoded);
-	} else if (getLogger().isWarnEnabled()) {
+	} else {
 	    getLogger().warn("Producer not started. Unable to add event to topic.");
+	    getDecodedEventsProducer().recordFailure();
 	}
     }
 
@@ -38,14 +38,19 @@ import com.sitewhere.sources.configuration.eventsource.activemq.ActiveMqBrokerCo
 import com.sitewhere.sources.configuration.eventsource.activemq.ActiveMqClientConfiguration;
 import com.sitewhere.sources.configuration.eventsource.azure.EventHubConfiguration;
 import com.sitewhere.sources.configuration.eventsource.coap.CoapServerConfiguration;
+import com.sitewhere.sources.configuration.eventsource.http.HttpBulkConfiguration;
 import com.sitewhere.sources.configuration.eventsource.mqtt.MqttConfiguration;
 import com.sitewhere.sources.configuration.eventsource.rabbitmq.RabbitMqConfiguration;
+import com.sitewhere.sources.configuration.eventsource.socket.SocketServerConfiguration;
 import com.sitewhere.sources.decoder.ScriptedEventDecoder;
 import com.sitewhere.sources.decoder.ScriptedEventDecoderConfiguration;
 import com.sitewhere.sources.decoder.json.JsonDeviceRequestDecoder;
+import com.sitewhere.sources.decoder.json.JsonStreamingBatchEventDecoder;
 import com.sitewhere.sources.decoder.protobuf.ProtobufDeviceEventDecoder;
+import com.sitewhere.sources.http.HttpBulkInboundEventReceiver;
 import com.sitewhere.sources.mqtt.MqttInboundEventReceiver;
 import com.sitewhere.sources.rabbitmq.RabbitMqInboundEventReceiver;
+import com.sitewhere.sources.socket.NioSocketInboundEventReceiver;
 import com.sitewhere.sources.spi.IDeviceEventDecoder;
 import com.sitewhere.sources.spi.IInboundEventReceiver;
 import com.sitewhere.sources.spi.IInboundEventSource;
@@ -72,18 +77,30 @@ public class EventSourcesParser {
     /** Type for Azure Event Hub event source */
     public static final String TYPE_EVENT_HUB = "eventhub";
 
+    /** Type for bulk HTTP upload event source */
+    public static final String TYPE_HTTP_BULK = "http-bulk";
+
     /** Type for MQTT event source */
     public static final String TYPE_MQTT = "mqtt";
 
     /** Type for RabbitMQ event source */
     public static final String TYPE_RABBITMQ = "rabbitmq";
 
+    /** Type for socket server event source */
+    public static final String TYPE_SOCKET = "socket";
+
     /** Decoder for JSON payloads */
     public static final String DECODER_JSON = "json";
 
+    /** Decoder for batches of JSON events streamed from the payload */
+    public static final String DECODER_JSON_BATCH = "json-batch";
+
     /** Decoder for protocol buffer payloads */
     public static final String DECODER_PROTOBUF = "protobuf";
 
+    /** Decoder for protocol buffer payloads carrying many events per device */
+    public static final String DECODER_PROTOBUF_BATCH = "protobuf-batch";
+
     /** Decoder for scripted payload processing */
     public static final String DECODER_SCRIPTED = "scripted";
 
@@ -124,6 +141,14 @@ public class EventSourcesParser {
 		sources.add(createRabbitMqEventSource(component, sourceConfig));
 		break;
 	    }
+	    case TYPE_SOCKET: {
+		sources.add(createSocketEventSource(component, sourceConfig));
+		break;
+	    }
+	    case TYPE_HTTP_BULK: {
+		sources.add(createHttpBulkEventSource(component, sourceConfig));
+		break;
+	    }
 	    default: {
 		throw new SiteWhereException(String.format("Unknown event source type '%s' for source with id '%s'",
 			sourceConfig.getType(), sourceConfig.getId()));
@@ -256,6 +281,42 @@ public class EventSourcesParser {
 	return binaryEventSourceFor(sourceConfig, Collections.singletonList(receiver));
     }
 
+    /**
+     * Create a socket server event source.
+     * 
+     * @param component
+     * @param sourceConfig
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static IInboundEventSource<?> createSocketEventSource(ITenantEngineLifecycleComponent component,
+	    EventSourceGenericConfiguration sourceConfig) throws SiteWhereException {
+	SocketServerConfiguration config = new SocketServerConfiguration(component);
+	config.apply(sourceConfig);
+	LOGGER.info(String.format("Creating socket server event source with configuration:\n%s\n\n",
+		MarshalUtils.marshalJsonAsPrettyString(config)));
+	NioSocketInboundEventReceiver receiver = new NioSocketInboundEventReceiver(config);
+	return binaryEventSourceFor(sourceConfig, Collections.singletonList(receiver));
+    }
+
+    /**
+     * Create bulk HTTP upload event source.
+     * 
+     * @param component
+     * @param sourceConfig
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static IInboundEventSource<?> createHttpBulkEventSource(ITenantEngineLifecycleComponent component,
+	    EventSourceGenericConfiguration sourceConfig) throws SiteWhereException {
+	HttpBulkConfiguration config = new HttpBulkConfiguration(component);
+	config.apply(sourceConfig);
+	LOGGER.info(String.format("Creating bulk HTTP event source with configuration:\n%s\n\n",
+		MarshalUtils.marshalJsonAsPrettyString(config)));
+	HttpBulkInboundEventReceiver receiver = new HttpBulkInboundEventReceiver(config);
+	return binaryEventSourceFor(sourceConfig, Collections.singletonList(receiver));
+    }
+
     /**
      * Parse decoder type and return a binary decoder instance.
      * 
@@ -278,15 +339,22 @@ public class EventSourcesParser {
 	case DECODER_JSON: {
 	    return new JsonDeviceRequestDecoder();
 	}
+	case DECODER_JSON_BATCH: {
+	    return new JsonStreamingBatchEventDecoder();
+	}
 	case DECODER_PROTOBUF: {
 	    return new ProtobufDeviceEventDecoder();
 	}
+	case DECODER_PROTOBUF_BATCH: {
+	    return new ProtobufDeviceEventDecoder(true);
+	}
 	case DECODER_SCRIPTED: {
 	    ScriptedEventDecoder scripted = new ScriptedEventDecoder();
 	    try {
 		ScriptedEventDecoderConfiguration scriptConfig = MarshalUtils.unmarshalJsonNode(config,
 			ScriptedEventDecoderConfiguration.class);
 		scripted.setScriptId(scriptConfig.getScriptId());
+		scripted.setBatchSupported(scriptConfig.isBatchSupported());
 		return scripted;
 	    } catch (JsonProcessingException e) {
 		throw new SiteWhereException("Invalid JSON configuration provider for scripted event decoder.", e);
@@ -16,10 +16,15 @@
 package com.sitewhere.sources.mqtt;
 
 import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.fusesource.hawtdispatch.ShutdownException;
@@ -32,18 +37,30 @@ import org.fusesource.mqtt.client.Topic;
 import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.sources.configuration.eventsource.mqtt.MqttConfiguration;
+import com.sitewhere.sources.kafka.DecodedEventsProducer;
 import com.sitewhere.sources.messages.EventSourcesMessages;
 import com.sitewhere.sources.spi.IInboundEventReceiver;
 import com.sitewhere.sources.spi.IInboundEventSource;
+import com.sitewhere.sources.spi.microservice.IEventSourcesTenantEngine;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.microservice.lifecycle.LifecycleComponentType;
 
 import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 
 /**
  * Implementation of {@link IInboundEventReceiver} that subscribes to an MQTT
  * topic and pulls the message contents into SiteWhere for processing.
+ * 
+ * Messages are assigned to a processing shard based on the hash of their topic,
+ * so messages from a given device are processed in the order received. Each
+ * shard has a bounded queue. When a queue is full the subscription thread
+ * blocks and stops receiving, which lets the client and broker throttle
+ * delivery rather than buffering messages on the heap. Messages are
+ * acknowledged in batches once Kafka has acknowledged every decoded event sent
+ * for the batch. If processing or any send fails, the batch is not acknowledged
+ * so the broker can deliver it again.
  */
 public class MqttInboundEventReceiver extends MqttLifecycleComponent implements IInboundEventReceiver<byte[]> {
 
@@ -51,6 +68,22 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
     private static final Counter RECEIVED_EVENTS = TenantEngineLifecycleComponent
 	    .createCounterMetric("mqtt_events_received_count", "Count of MQTT events received", "source_id");
 
+    /** Histogram for depth of shard queue when a message is added */
+    private static final Histogram QUEUE_DEPTH = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "mqtt_queue_depth", "Number of MQTT messages waiting in shard queue", "source_id");
+
+    /** Histogram for time messages wait in shard queue */
+    private static final Histogram QUEUE_WAIT_TIMER = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "mqtt_queue_wait_timer", "Time MQTT messages wait in shard queue before processing", "source_id");
+
+    /** Histogram for number of messages acknowledged together */
+    private static final Histogram ACK_BATCH_SIZE = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "mqtt_ack_batch_size", "Number of MQTT messages acknowledged together", "source_id");
+
+    /** Counter for messages not acknowledged because processing failed */
+    private static final Counter UNACKNOWLEDGED = TenantEngineLifecycleComponent.createCounterMetric(
+	    "mqtt_unacknowledged_count", "Count of MQTT messages not acknowledged due to failures", "source_id");
+
     /** Parent event source */
     private IInboundEventSource<byte[]> eventSource;
 
@@ -66,6 +99,9 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
     /** Used to process MQTT events in a thread pool */
     private ExecutorService processorsExecutor;
 
+    /** Shards that process messages */
+    private MqttProcessingShard[] shards;
+
     public MqttInboundEventReceiver(MqttConfiguration configuration) {
 	super(LifecycleComponentType.InboundEventReceiver, configuration);
 	this.configuration = configuration;
@@ -83,8 +119,14 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
 	super.start(monitor);
 
 	this.subscriptionExecutor = Executors.newSingleThreadExecutor(new SubscribersThreadFactory());
-	this.processorsExecutor = Executors.newFixedThreadPool(getConfiguration().getNumThreads(),
-		new ProcessorsThreadFactory());
+	int numShards = Math.max(1, getConfiguration().getNumThreads());
+	int shardCapacity = Math.max(1, getConfiguration().getQueueCapacity() / numShards);
+	this.shards = new MqttProcessingShard[numShards];
+	this.processorsExecutor = Executors.newFixedThreadPool(numShards, new ProcessorsThreadFactory());
+	for (int i = 0; i < numShards; i++) {
+	    shards[i] = new MqttProcessingShard(shardCapacity);
+	    processorsExecutor.execute(shards[i]);
+	}
 
 	getLogger().info("Receiver connecting to MQTT broker at '" + getBrokerInfo() + "'...");
 	connection = getConnection();
@@ -171,7 +213,7 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
 		try {
 		    Future<Message> future = connection.receive();
 		    Message message = future.await();
-		    processorsExecutor.execute(new MqttPayloadProcessor(message));
+		    shardFor(message).enqueue(message);
 		} catch (EOFException e) {
 		    getLogger().error("Connection terminated by remote. Subscription processor terminating.", e);
 		    return;
@@ -186,26 +228,129 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
     }
 
     /**
-     * Processes MQTT message payloads in a separate thread.
+     * Choose the shard for a message based on its topic.
+     * 
+     * @param message
+     * @return
+     */
+    protected MqttProcessingShard shardFor(Message message) {
+	int hash = message.getTopic().hashCode() & Integer.MAX_VALUE;
+	return shards[hash % shards.length];
+    }
+
+    /**
+     * Message waiting in a shard queue.
      */
-    private class MqttPayloadProcessor implements Runnable {
+    private static class QueuedMessage {
 
 	/** MQTT message */
 	private Message message;
 
-	public MqttPayloadProcessor(Message message) {
+	/** Time at which message was queued */
+	private long queuedNanos;
+
+	public QueuedMessage(Message message) {
 	    this.message = message;
+	    this.queuedNanos = System.nanoTime();
+	}
+    }
+
+    /**
+     * Processes messages for a subset of topics in order on a single thread.
+     */
+    private class MqttProcessingShard implements Runnable {
+
+	/** Messages waiting to be processed */
+	private BlockingQueue<QueuedMessage> queue;
+
+	public MqttProcessingShard(int capacity) {
+	    this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Add a message to the queue, blocking while the queue is full.
+	 * 
+	 * @param message
+	 * @throws InterruptedException
+	 */
+	public void enqueue(Message message) throws InterruptedException {
+	    queue.put(new QueuedMessage(message));
+	    QUEUE_DEPTH.labels(buildLabels(getEventSource().getSourceId())).observe(queue.size());
 	}
 
 	@Override
 	public void run() {
+	    int batchSize = Math.max(1, getConfiguration().getAckBatchSize());
+	    List<QueuedMessage> batch = new ArrayList<>(batchSize);
+	    while (true) {
+		try {
+		    batch.add(queue.take());
+		    queue.drainTo(batch, batchSize - 1);
+		    if (process(batch)) {
+			acknowledge(batch);
+		    } else {
+			UNACKNOWLEDGED.labels(buildLabels(getEventSource().getSourceId())).inc(batch.size());
+		    }
+		} catch (InterruptedException e) {
+		    getLogger().info("MQTT processing shard shutdown requested.");
+		    return;
+		} catch (Throwable e) {
+		    getLogger().error("Error in MQTT processing.", e);
+		} finally {
+		    batch.clear();
+		}
+	    }
+	}
+
+	/**
+	 * Pass message payloads to the event source together so that decoders which
+	 * support batches can decode them in a single call, then wait for Kafka to
+	 * acknowledge every decoded event sent for them.
+	 * 
+	 * @param batch
+	 * @return false if processing failed or any event was not written
+	 * @throws InterruptedException
+	 */
+	protected boolean process(List<QueuedMessage> batch) throws InterruptedException {
+	    String sourceId = getEventSource().getSourceId();
+	    long now = System.nanoTime();
+	    List<byte[]> payloads = new ArrayList<>(batch.size());
+	    for (QueuedMessage queued : batch) {
+		QUEUE_WAIT_TIMER.labels(buildLabels(sourceId)).observe((now - queued.queuedNanos) / 1e9);
+		payloads.add(queued.message.getPayload());
+	    }
+	    DecodedEventsProducer.SendTracker tracker = getDecodedEventsProducer().startTracking();
 	    try {
-		RECEIVED_EVENTS.labels(buildLabels(getEventSource().getSourceId())).inc();
-		byte[] payload = message.getPayload();
-		getEventSource().onEncodedEventReceived(MqttInboundEventReceiver.this, payload, null);
-		message.ack();
-	    } catch (Throwable e) {
-		getLogger().error("Error in MQTT processing.", e);
+		RECEIVED_EVENTS.labels(buildLabels(sourceId)).inc(batch.size());
+		getEventSource().onEncodedEventsReceived(MqttInboundEventReceiver.this, payloads, null);
+	    } catch (RuntimeException e) {
+		getLogger().error("Error in MQTT processing. Messages will not be acknowledged.", e);
+		return false;
+	    } finally {
+		getDecodedEventsProducer().stopTracking();
+	    }
+	    if (!tracker.await(getConfiguration().getSendTimeoutSeconds(), TimeUnit.SECONDS)) {
+		getLogger().warn(
+			String.format("Timed out writing events. %d messages not acknowledged.", batch.size()));
+		return false;
+	    }
+	    if (tracker.getFailedCount() > 0) {
+		getLogger().warn(String.format("%d of %d events could not be written. %d messages not acknowledged.",
+			tracker.getFailedCount(), tracker.getSentCount(), batch.size()));
+		return false;
+	    }
+	    return true;
+	}
+
+	/**
+	 * Acknowledge all messages in a processed batch.
+	 * 
+	 * @param batch
+	 */
+	protected void acknowledge(List<QueuedMessage> batch) {
+	    ACK_BATCH_SIZE.labels(buildLabels(getEventSource().getSourceId())).observe(batch.size());
+	    for (QueuedMessage queued : batch) {
+		queued.message.ack();
 	    }
 	}
     }
@@ -257,6 +402,10 @@ public class MqttInboundEventReceiver extends MqttLifecycleComponent implements
 	this.eventSource = eventSource;
     }
 
+    protected DecodedEventsProducer getDecodedEventsProducer() {
+	return ((IEventSourcesTenantEngine) getTenantEngine()).getEventSourcesManager().getDecodedEventsProducer();
+    }
+
     protected MqttConfiguration getConfiguration() {
 	return configuration;
     }
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.rabbitmq;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * Shares RabbitMQ connections between event sources in a tenant that use the
+ * same broker URI. Each consumer uses its own channel on the shared connection.
+ * Connections are reference counted and closed when the last receiver releases
+ * them.
+ */
+public class RabbitMqConnectionPool {
+
+    /** Shared connections by tenant and connection URI */
+    private static final Map<String, SharedConnection> CONNECTIONS = new HashMap<>();
+
+    /**
+     * Get an open connection for the tenant, creating it with the given factory
+     * if no usable connection is shared.
+     * 
+     * @param tenant
+     * @param connectionUri
+     * @param factory
+     * @return
+     * @throws IOException
+     * @throws TimeoutException
+     */
+    public static synchronized Connection acquire(String tenant, String connectionUri, ConnectionFactory factory)
+	    throws IOException, TimeoutException {
+	String key = getKey(tenant, connectionUri);
+	SharedConnection shared = CONNECTIONS.get(key);
+	if ((shared == null) || !shared.connection.isOpen()) {
+	    shared = new SharedConnection(factory.newConnection());
+	    CONNECTIONS.put(key, shared);
+	}
+	shared.references++;
+	return shared.connection;
+    }
+
+    /**
+     * Release a connection acquired from the pool. The connection is closed once
+     * no receivers reference it.
+     * 
+     * @param tenant
+     * @param connectionUri
+     * @param connection
+     * @throws IOException
+     */
+    public static synchronized void release(String tenant, String connectionUri, Connection connection)
+	    throws IOException {
+	String key = getKey(tenant, connectionUri);
+	SharedConnection shared = CONNECTIONS.get(key);
+	if ((shared == null) || (shared.connection != connection)) {
+	    // Connection was replaced after failure.
+	    if (connection.isOpen()) {
+		connection.close();
+	    }
+	    return;
+	}
+	if (--shared.references == 0) {
+	    CONNECTIONS.remove(key);
+	    if (connection.isOpen()) {
+		connection.close();
+	    }
+	}
+    }
+
+    protected static String getKey(String tenant, String connectionUri) {
+	return tenant + "|" + connectionUri;
+    }
+
+    /**
+     * Connection with count of receivers using it.
+     */
+    private static class SharedConnection {
+
+	/** Connection */
+	private Connection connection;
+
+	/** Number of receivers using connection */
+	private int references;
+
+	public SharedConnection(Connection connection) {
+	    this.connection = connection;
+	}
+    }
+}
@@ -16,6 +16,8 @@
 package com.sitewhere.sources.rabbitmq;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -38,6 +40,11 @@ import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
 
 /**
  * Binary inbound event source that consumes messages from a RabbitMQ broker.
+ * Each consumer reads from its own channel so that messages are processed in
+ * parallel. By default messages are acknowledged automatically. If an
+ * acknowledgement batch size is configured, each channel limits unacknowledged
+ * deliveries to the prefetch count and acknowledges all processed messages at
+ * once when the batch is full or the acknowledgement interval has passed.
  */
 public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
 
@@ -50,8 +57,17 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
     /** RabbitMQ connection */
     private Connection connection;
 
-    /** RabbitMQ channel */
-    private Channel channel;
+    /** RabbitMQ channels (one per consumer) */
+    private List<Channel> channels = new ArrayList<>();
+
+    /** Batches acknowledgements for each channel */
+    private List<BatchAcknowledger> acknowledgers = new ArrayList<>();
+
+    /** Listens for unexpected connection shutdown */
+    private ShutdownListener shutdownListener = new ConnectionShutdownListener();
+
+    /** Tenant used to share connection */
+    private String tenant;
 
     /** Used for consumer thread pool */
     private ExecutorService executors;
@@ -62,6 +78,9 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
     /** Shedules reconnection attempts */
     private ScheduledExecutorService connectionExecutor;
 
+    /** Holds reference to periodic acknowledgement task */
+    private ScheduledFuture<?> acknowledgeFuture;
+
     public RabbitMqInboundEventReceiver(RabbitMqConfiguration configuration) {
 	this.configuration = configuration;
     }
@@ -75,8 +94,11 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
      */
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	executors = Executors.newFixedThreadPool(getConfiguration().getNumConsumers());
+	if (!getConfiguration().isSharedConnection()) {
+	    executors = Executors.newFixedThreadPool(getConfiguration().getNumConsumers());
+	}
 	connectionExecutor = Executors.newScheduledThreadPool(1);
+	tenant = getTenantEngine().getTenantResource().getMetadata().getName();
 	factory = new ConnectionFactory();
 
 	try {
@@ -86,6 +108,12 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
 	}
 
 	connect();
+
+	if (isBatchAcknowledge()) {
+	    int interval = getConfiguration().getAckIntervalMs();
+	    acknowledgeFuture = connectionExecutor.scheduleAtFixedRate(() -> flushAcknowledgements(), interval,
+		    interval, TimeUnit.MILLISECONDS);
+	}
     }
 
     /*
@@ -112,48 +140,88 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
 
 	try {
 
-	    this.connection = factory.newConnection(executors);
-
-	    connection.addShutdownListener(new ShutdownListener() {
-		public void shutdownCompleted(ShutdownSignalException cause) {
-		    getLogger().info("shutdown signal received", cause);
-
-		    // Do nothing if SiteWhere initiated the connection close
-		    if (!cause.isInitiatedByApplication()) {
-			connection = null;
-			scheduleReconnect();
-		    }
-		}
-	    });
-
-	    this.channel = connection.createChannel();
+	    releaseConnection();
+	    if (getConfiguration().isSharedConnection()) {
+		this.connection = RabbitMqConnectionPool.acquire(tenant, getConfiguration().getConnectionUri(),
+			factory);
+	    } else {
+		this.connection = factory.newConnection(executors);
+	    }
+	    connection.addShutdownListener(shutdownListener);
 
 	    getLogger().info("RabbitMQ receiver connected to: " + getConfiguration().getConnectionUri());
 
-	    channel.queueDeclare(getConfiguration().getQueueName(), getConfiguration().isDurable(), false, false, null);
-
-	    getLogger().info("RabbitMQ receiver using " + (getConfiguration().isDurable() ? "durable " : "") + "queue: "
-		    + getConfiguration().getQueueName());
-
-	    // Add consumer callback for channel.
-	    Consumer consumer = new DefaultConsumer(channel) {
-		@Override
-		public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties,
-			byte[] body) throws IOException {
-		    onEventPayloadReceived(body, null);
+	    for (int i = 0; i < getConfiguration().getNumConsumers(); i++) {
+		Channel channel = connection.createChannel();
+		channels.add(channel);
+		if (i == 0) {
+		    channel.queueDeclare(getConfiguration().getQueueName(), getConfiguration().isDurable(), false,
+			    false, null);
+		}
+		if (isBatchAcknowledge()) {
+		    BatchAcknowledger acknowledger = new BatchAcknowledger(channel);
+		    acknowledgers.add(acknowledger);
+		    channel.basicQos(getConfiguration().getPrefetchCount());
+		    channel.basicConsume(getConfiguration().getQueueName(), false, new BatchConsumer(acknowledger));
+		} else {
+		    // Add consumer callback for channel.
+		    Consumer consumer = new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope,
+				AMQP.BasicProperties properties, byte[] body) throws IOException {
+			    onEventPayloadReceived(body, null);
+			}
+		    };
+		    channel.basicConsume(getConfiguration().getQueueName(), true, consumer);
 		}
-	    };
+	    }
 
-	    channel.basicConsume(getConfiguration().getQueueName(), true, consumer);
+	    getLogger().info("RabbitMQ receiver using " + (getConfiguration().isDurable() ? "durable " : "") + "queue: "
+		    + getConfiguration().getQueueName() + " with " + channels.size() + " consumers"
+		    + (isBatchAcknowledge() ? " (prefetch " + getConfiguration().getPrefetchCount() + ")." : "."));
 
 	} catch (Exception e) {
 	    getLogger().error("Connection Error", e);
-	    connection = null;
 	    scheduleReconnect();
 	}
 
     }
 
+    /**
+     * Release channels and connection from a previous connect.
+     */
+    private void releaseConnection() {
+	channels.clear();
+	acknowledgers.clear();
+	if (connection == null) {
+	    return;
+	}
+	connection.removeShutdownListener(shutdownListener);
+	try {
+	    if (getConfiguration().isSharedConnection()) {
+		RabbitMqConnectionPool.release(tenant, getConfiguration().getConnectionUri(), connection);
+	    } else if (connection.isOpen()) {
+		connection.close();
+	    }
+	} catch (Exception e) {
+	    getLogger().warn("Error releasing RabbitMQ connection.", e);
+	}
+	connection = null;
+    }
+
+    /**
+     * Acknowledge messages processed on all channels.
+     */
+    private synchronized void flushAcknowledgements() {
+	for (BatchAcknowledger acknowledger : acknowledgers) {
+	    try {
+		acknowledger.flush();
+	    } catch (Exception e) {
+		getLogger().warn("Unable to acknowledge RabbitMQ messages.", e);
+	    }
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -169,19 +237,27 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
 	    connectionFuture.cancel(true);
 	}
 
+	if (acknowledgeFuture != null) {
+	    acknowledgeFuture.cancel(false);
+	}
+	flushAcknowledgements();
+
 	try {
-	    if (channel != null) {
-		channel.close();
-	    }
-	    if (connection != null) {
-		connection.close();
+	    for (Channel channel : channels) {
+		if (channel.isOpen()) {
+		    channel.close();
+		}
 	    }
 	} catch (Exception e) {
 	    throw new SiteWhereException("Error stopping RabbitMQ event receiver.", e);
+	} finally {
+	    releaseConnection();
 	}
 
 	connectionExecutor.shutdownNow();
-	executors.shutdownNow();
+	if (executors != null) {
+	    executors.shutdownNow();
+	}
     }
 
     /*
@@ -195,6 +271,96 @@ public class RabbitMqInboundEventReceiver extends InboundEventReceiver<byte[]> {
 	return "RabbitMQ uri=" + getConfiguration().getConnectionUri() + " queue=" + getConfiguration().getQueueName();
     }
 
+    /**
+     * Acknowledges processed messages for a channel. Deliveries on a channel are
+     * processed in order, so acknowledging the latest delivery tag with the
+     * multiple flag set covers every message processed before it.
+     */
+    private class BatchAcknowledger {
+
+	/** Channel messages were delivered on */
+	private Channel channel;
+
+	/** Tag of last processed delivery */
+	private long lastDeliveryTag;
+
+	/** Number of processed deliveries not yet acknowledged */
+	private int pending;
+
+	public BatchAcknowledger(Channel channel) {
+	    this.channel = channel;
+	}
+
+	public synchronized void processed(long deliveryTag) throws IOException {
+	    lastDeliveryTag = deliveryTag;
+	    if (++pending >= getConfiguration().getAckBatchSize()) {
+		flush();
+	    }
+	}
+
+	public synchronized void flush() throws IOException {
+	    if ((pending > 0) && channel.isOpen()) {
+		channel.basicAck(lastDeliveryTag, true);
+		pending = 0;
+	    }
+	}
+
+	public Channel getChannel() {
+	    return channel;
+	}
+    }
+
+    /**
+     * Consumer that records processed deliveries for batch acknowledgement.
+     */
+    private class BatchConsumer extends DefaultConsumer {
+
+	/** Acknowledger for channel */
+	private BatchAcknowledger acknowledger;
+
+	public BatchConsumer(BatchAcknowledger acknowledger) {
+	    super(acknowledger.getChannel());
+	    this.acknowledger = acknowledger;
+	}
+
+	/*
+	 * @see com.rabbitmq.client.DefaultConsumer#handleDelivery(java.lang.String,
+	 * com.rabbitmq.client.Envelope, com.rabbitmq.client.AMQP.BasicProperties,
+	 * byte[])
+	 */
+	@Override
+	public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+		throws IOException {
+	    onEventPayloadReceived(body, null);
+	    acknowledger.processed(envelope.getDeliveryTag());
+	}
+    }
+
+    /**
+     * Reconnects if the connection is closed by the broker or the network.
+     */
+    private class ConnectionShutdownListener implements ShutdownListener {
+
+	/*
+	 * @see
+	 * com.rabbitmq.client.ShutdownListener#shutdownCompleted(com.rabbitmq.client.
+	 * ShutdownSignalException)
+	 */
+	@Override
+	public void shutdownCompleted(ShutdownSignalException cause) {
+	    getLogger().info("shutdown signal received", cause);
+
+	    // Do nothing if SiteWhere initiated the connection close
+	    if (!cause.isInitiatedByApplication()) {
+		scheduleReconnect();
+	    }
+	}
+    }
+
+    protected boolean isBatchAcknowledge() {
+	return getConfiguration().getAckBatchSize() > 0;
+    }
+
     protected RabbitMqConfiguration getConfiguration() {
 	return configuration;
     }
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.sitewhere.sources.spi.socket.ISocketFramer;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Implementation of {@link ISocketFramer} for frames that are terminated by a
+ * delimiter sequence such as a newline. The delimiter is not included in the
+ * frame and empty frames are skipped. Trailing bytes without a delimiter are
+ * passed on as a final frame when the connection is closed.
+ */
+public class DelimiterSocketFramer implements ISocketFramer {
+
+    /** Delimiter sequence */
+    private byte[] delimiter;
+
+    /** Maximum number of bytes allowed in a frame */
+    private int maxFrameSize;
+
+    public DelimiterSocketFramer(byte[] delimiter, int maxFrameSize) throws SiteWhereException {
+	if ((delimiter == null) || (delimiter.length == 0)) {
+	    throw new SiteWhereException("Frame delimiter must contain at least one byte.");
+	}
+	this.delimiter = delimiter;
+	this.maxFrameSize = maxFrameSize;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#decode(java.nio.ByteBuffer,
+     * java.util.List)
+     */
+    @Override
+    public void decode(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	int index;
+	while ((index = indexOfDelimiter(buffer)) != -1) {
+	    addFrame(buffer, index - buffer.position(), frames);
+	    buffer.position(buffer.position() + getDelimiter().length);
+	}
+	if (buffer.remaining() > getMaxFrameSize() + getDelimiter().length) {
+	    throw new SiteWhereException(
+		    String.format("No delimiter found within maximum frame size of %d bytes.", getMaxFrameSize()));
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#endOfStream(java.nio.
+     * ByteBuffer, java.util.List)
+     */
+    @Override
+    public void endOfStream(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	decode(buffer, frames);
+	addFrame(buffer, buffer.remaining(), frames);
+    }
+
+    /**
+     * Find absolute index of the next delimiter at or after the current position.
+     * 
+     * @param buffer
+     * @return
+     */
+    protected int indexOfDelimiter(ByteBuffer buffer) {
+	byte first = getDelimiter()[0];
+	int last = buffer.limit() - getDelimiter().length;
+	for (int i = buffer.position(); i <= last; i++) {
+	    if (buffer.get(i) != first) {
+		continue;
+	    }
+	    int matched = 1;
+	    while ((matched < getDelimiter().length) && (buffer.get(i + matched) == getDelimiter()[matched])) {
+		matched++;
+	    }
+	    if (matched == getDelimiter().length) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Copy a frame of the given length from the buffer, skipping empty frames.
+     * 
+     * @param buffer
+     * @param length
+     * @param frames
+     * @throws SiteWhereException
+     */
+    protected void addFrame(ByteBuffer buffer, int length, List<byte[]> frames) throws SiteWhereException {
+	if (length > getMaxFrameSize()) {
+	    throw new SiteWhereException(
+		    String.format("Frame length %d exceeds maximum of %d bytes.", length, getMaxFrameSize()));
+	}
+	if (length > 0) {
+	    byte[] frame = new byte[length];
+	    buffer.get(frame);
+	    frames.add(frame);
+	}
+    }
+
+    public byte[] getDelimiter() {
+	return delimiter;
+    }
+
+    public int getMaxFrameSize() {
+	return maxFrameSize;
+    }
+}
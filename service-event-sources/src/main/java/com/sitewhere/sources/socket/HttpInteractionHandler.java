@@ -15,10 +15,7 @@
  */
 package com.sitewhere.sources.socket;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.Socket;
 
 import org.apache.http.HttpEntity;
@@ -30,6 +27,7 @@ import org.apache.http.HttpVersion;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.DefaultBHttpServerConnection;
 import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
 
 import com.sitewhere.microservice.lifecycle.LifecycleComponent;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
@@ -63,14 +61,7 @@ public class HttpInteractionHandler extends TenantEngineLifecycleComponent
 		conn.receiveRequestEntity((HttpEntityEnclosingRequest) request);
 		HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
 		if (entity != null) {
-		    int data;
-		    BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent()));
-		    ByteArrayOutputStream out = new ByteArrayOutputStream();
-		    while ((data = reader.read()) != -1) {
-			out.write(data);
-		    }
-		    out.close();
-		    receiver.onEventPayloadReceived(out.toByteArray(), null);
+		    receiver.onEventPayloadReceived(EntityUtils.toByteArray(entity), null);
 		}
 	    }
 	    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.sitewhere.sources.spi.socket.ISocketFramer;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Implementation of {@link ISocketFramer} for frames that start with a
+ * big-endian length field of one, two or four bytes. The length field is not
+ * included in the frame passed on for decoding.
+ */
+public class LengthPrefixSocketFramer implements ISocketFramer {
+
+    /** Number of bytes in length field */
+    private int lengthFieldSize;
+
+    /** Maximum number of bytes allowed in a frame */
+    private int maxFrameSize;
+
+    public LengthPrefixSocketFramer(int lengthFieldSize, int maxFrameSize) throws SiteWhereException {
+	if ((lengthFieldSize != 1) && (lengthFieldSize != 2) && (lengthFieldSize != 4)) {
+	    throw new SiteWhereException(String.format("Unsupported length field size: %d", lengthFieldSize));
+	}
+	this.lengthFieldSize = lengthFieldSize;
+	this.maxFrameSize = maxFrameSize;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#decode(java.nio.ByteBuffer,
+     * java.util.List)
+     */
+    @Override
+    public void decode(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	while (buffer.remaining() >= getLengthFieldSize()) {
+	    int start = buffer.position();
+	    int length = readLength(buffer);
+	    if ((length < 0) || (length > getMaxFrameSize())) {
+		throw new SiteWhereException(
+			String.format("Frame length %d exceeds maximum of %d bytes.", length, getMaxFrameSize()));
+	    }
+	    if (buffer.remaining() < length) {
+		buffer.position(start);
+		return;
+	    }
+	    byte[] frame = new byte[length];
+	    buffer.get(frame);
+	    frames.add(frame);
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#endOfStream(java.nio.
+     * ByteBuffer, java.util.List)
+     */
+    @Override
+    public void endOfStream(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	decode(buffer, frames);
+    }
+
+    /**
+     * Read length field at the current position.
+     * 
+     * @param buffer
+     * @return
+     */
+    protected int readLength(ByteBuffer buffer) {
+	switch (getLengthFieldSize()) {
+	case 1:
+	    return buffer.get() & 0xff;
+	case 2:
+	    return buffer.getShort() & 0xffff;
+	default:
+	    return buffer.getInt();
+	}
+    }
+
+    public int getLengthFieldSize() {
+	return lengthFieldSize;
+    }
+
+    public int getMaxFrameSize() {
+	return maxFrameSize;
+    }
+}
@@ -0,0 +1,623 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.sources.InboundEventReceiver;
+import com.sitewhere.sources.configuration.eventsource.socket.SocketServerConfiguration;
+import com.sitewhere.sources.spi.IInboundEventReceiver;
+import com.sitewhere.sources.spi.socket.ISocketFramer;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Implementation of {@link IInboundEventReceiver} that accepts device
+ * connections on a non-blocking server socket. Accepted connections are
+ * distributed across a small number of event loops (one per processor by
+ * default), each of which multiplexes its connections with a single selector.
+ * Each event loop reads into one reusable direct buffer. Bytes that do not yet
+ * form a complete frame are kept in a pooled buffer attached to the connection,
+ * so idle connections hold no buffer at all. Complete frames are queued to a
+ * processing shard that passes them to the event source on its own thread.
+ * Each connection is bound to one shard so its frames are processed in order.
+ * A full shard queue blocks the event loop, which stops reading until the
+ * shard catches up.
+ */
+public class NioSocketInboundEventReceiver extends InboundEventReceiver<byte[]> {
+
+    /** Counter for accepted connections */
+    private static final Counter ACCEPTED_CONNECTIONS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "socket_connections_accepted_count", "Count of socket connections accepted", "source_id");
+
+    /** Counter for received frames */
+    private static final Counter RECEIVED_FRAMES = TenantEngineLifecycleComponent
+	    .createCounterMetric("socket_frames_received_count", "Count of socket frames received", "source_id");
+
+    /** Counter for connections closed due to framing errors */
+    private static final Counter FRAMING_ERRORS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "socket_framing_error_count", "Count of socket connections closed due to framing errors", "source_id");
+
+    /** Number of seconds to wait for threads on stop */
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /** Configuration */
+    private SocketServerConfiguration configuration;
+
+    /** Splits received data into frames */
+    private ISocketFramer framer;
+
+    /** Pool for partial frame buffers */
+    private SocketBufferPool bufferPool;
+
+    /** Server channel */
+    private ServerSocketChannel server;
+
+    /** Event loops that service connections */
+    private EventLoop[] eventLoops;
+
+    /** Runs acceptor and event loops */
+    private ExecutorService executor;
+
+    /** Shards that process received frames */
+    private FrameProcessingShard[] shards;
+
+    /** Runs processing shards */
+    private ExecutorService processorsExecutor;
+
+    /** Used to assign connections to shards in turn */
+    private AtomicInteger nextShard = new AtomicInteger();
+
+    /** Number of open connections */
+    private AtomicInteger connectionCount = new AtomicInteger();
+
+    public NioSocketInboundEventReceiver(SocketServerConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.framer = createFramer();
+	this.bufferPool = new SocketBufferPool(getConfiguration().getBufferSize(),
+		getConfiguration().getMaxFrameSize() + (2 * getConfiguration().getBufferSize()),
+		getConfiguration().getMaxPooledBuffers());
+
+	int numShards = Math.max(1, getConfiguration().getNumThreads());
+	int shardCapacity = Math.max(1, getConfiguration().getQueueCapacity() / numShards);
+	this.shards = new FrameProcessingShard[numShards];
+	this.processorsExecutor = Executors.newFixedThreadPool(numShards, new ProcessorsThreadFactory());
+	for (int i = 0; i < numShards; i++) {
+	    shards[i] = new FrameProcessingShard(shardCapacity);
+	    processorsExecutor.execute(shards[i]);
+	}
+
+	int numLoops = getConfiguration().getNumEventLoops();
+	if (numLoops <= 0) {
+	    numLoops = Runtime.getRuntime().availableProcessors();
+	}
+	try {
+	    this.eventLoops = new EventLoop[numLoops];
+	    for (int i = 0; i < numLoops; i++) {
+		eventLoops[i] = new EventLoop();
+	    }
+	    this.server = ServerSocketChannel.open();
+	    server.bind(new InetSocketAddress(getConfiguration().getBindAddress(), getConfiguration().getPort()));
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to bind server socket for event receiver.", e);
+	}
+
+	this.executor = Executors.newFixedThreadPool(numLoops + 1, new SocketThreadFactory());
+	for (EventLoop loop : eventLoops) {
+	    executor.execute(loop);
+	}
+	executor.execute(new Acceptor());
+	getLogger().info(String.format(
+		"Socket receiver listening on %s using %d event loops and %d processing threads with '%s' framing.",
+		getDisplayName(), numLoops, numShards, getConfiguration().getFraming()));
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (server != null) {
+	    try {
+		server.close();
+	    } catch (IOException e) {
+		getLogger().warn("Error closing server socket for event receiver.", e);
+	    }
+	}
+	if (eventLoops != null) {
+	    for (EventLoop loop : eventLoops) {
+		loop.shutdown();
+	    }
+	}
+	if (executor != null) {
+	    executor.shutdown();
+	    try {
+		executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	if (processorsExecutor != null) {
+	    processorsExecutor.shutdownNow();
+	}
+	getLogger().info("Socket receiver processing stopped.");
+    }
+
+    /*
+     * @see com.sitewhere.sources.InboundEventReceiver#getDisplayName()
+     */
+    @Override
+    public String getDisplayName() {
+	return getConfiguration().getBindAddress() + ":" + getConfiguration().getPort();
+    }
+
+    /**
+     * Create framer based on configuration.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    protected ISocketFramer createFramer() throws SiteWhereException {
+	String framing = getConfiguration().getFraming();
+	int maxFrameSize = getConfiguration().getMaxFrameSize();
+	switch (framing) {
+	case SocketServerConfiguration.FRAMING_LENGTH_PREFIX: {
+	    return new LengthPrefixSocketFramer(getConfiguration().getLengthFieldSize(), maxFrameSize);
+	}
+	case SocketServerConfiguration.FRAMING_DELIMITER: {
+	    byte[] delimiter = getConfiguration().getDelimiter().getBytes(StandardCharsets.UTF_8);
+	    return new DelimiterSocketFramer(delimiter, maxFrameSize);
+	}
+	case SocketServerConfiguration.FRAMING_READ_TO_CLOSE: {
+	    return new ReadToCloseSocketFramer(maxFrameSize);
+	}
+	default: {
+	    throw new SiteWhereException(String.format("Unknown socket framing '%s'.", framing));
+	}
+	}
+    }
+
+    /**
+     * Accepts connections and hands them to event loops in turn.
+     */
+    private class Acceptor implements Runnable {
+
+	@Override
+	public void run() {
+	    int next = 0;
+	    while (server.isOpen()) {
+		try {
+		    SocketChannel channel = server.accept();
+		    channel.configureBlocking(false);
+		    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		    channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+		    ACCEPTED_CONNECTIONS.labels(buildLabels(getEventSource().getSourceId())).inc();
+		    eventLoops[next].register(channel);
+		    next = (next + 1) % eventLoops.length;
+		} catch (ClosedChannelException e) {
+		    return;
+		} catch (IOException e) {
+		    if (server.isOpen()) {
+			getLogger().error("Exception while accepting connection in socket event receiver.", e);
+		    }
+		}
+	    }
+	}
+    }
+
+    /**
+     * Services reads for a set of connections using a single selector.
+     */
+    private class EventLoop implements Runnable {
+
+	/** Selector for connections owned by this loop */
+	private Selector selector;
+
+	/** Connections waiting to be registered with the selector */
+	private Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+	/** Buffer reused for every read on this loop */
+	private ByteBuffer readBuffer;
+
+	/** Frames produced by the current read */
+	private List<byte[]> frames = new ArrayList<>();
+
+	/** Indicates loop should exit */
+	private volatile boolean terminate;
+
+	public EventLoop() throws IOException {
+	    this.selector = Selector.open();
+	    this.readBuffer = ByteBuffer.allocateDirect(getConfiguration().getBufferSize());
+	}
+
+	/**
+	 * Queue a newly accepted channel for registration on the loop thread.
+	 * 
+	 * @param channel
+	 */
+	public void register(SocketChannel channel) {
+	    registrations.add(channel);
+	    selector.wakeup();
+	}
+
+	/**
+	 * Request that the loop exit and close its connections.
+	 */
+	public void shutdown() {
+	    this.terminate = true;
+	    selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+	    try {
+		while (!terminate) {
+		    selector.select();
+		    registerPending();
+		    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		    while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (key.isValid() && key.isReadable()) {
+			    read(key);
+			}
+		    }
+		}
+	    } catch (Throwable t) {
+		getLogger().error("Unhandled exception in socket event loop.", t);
+	    } finally {
+		closeAll();
+	    }
+	}
+
+	/**
+	 * Register channels accepted since the last pass.
+	 */
+	protected void registerPending() {
+	    SocketChannel channel;
+	    while ((channel = registrations.poll()) != null) {
+		try {
+		    channel.register(selector, SelectionKey.OP_READ, new Connection(nextShard()));
+		    connectionCount.incrementAndGet();
+		} catch (ClosedChannelException e) {
+		    getLogger().debug("Connection closed before it could be registered.");
+		}
+	    }
+	}
+
+	/**
+	 * Read available data from a connection and pass on complete frames.
+	 * 
+	 * @param key
+	 */
+	protected void read(SelectionKey key) {
+	    SocketChannel channel = (SocketChannel) key.channel();
+	    Connection connection = (Connection) key.attachment();
+	    try {
+		readBuffer.clear();
+		int count = channel.read(readBuffer);
+		if (count > 0) {
+		    readBuffer.flip();
+		    connection.onData(readBuffer, frames);
+		} else if (count < 0) {
+		    connection.onEndOfStream(frames);
+		    close(key);
+		}
+	    } catch (SiteWhereException e) {
+		FRAMING_ERRORS.labels(buildLabels(getEventSource().getSourceId())).inc();
+		getLogger().warn(String.format("Closing socket connection: %s", e.getMessage()));
+		close(key);
+	    } catch (IOException e) {
+		close(key);
+	    } finally {
+		deliver(connection, frames);
+	    }
+	}
+
+	/**
+	 * Queue frames to the shard for their connection and clear the list. Blocks
+	 * while the shard queue is full.
+	 * 
+	 * @param connection
+	 * @param frames
+	 */
+	protected void deliver(Connection connection, List<byte[]> frames) {
+	    try {
+		for (byte[] frame : frames) {
+		    connection.getShard().enqueue(frame);
+		}
+	    } catch (InterruptedException e) {
+		getLogger().warn("Interrupted while queueing socket frames. Stopping event loop.");
+		this.terminate = true;
+	    } finally {
+		frames.clear();
+	    }
+	}
+
+	/**
+	 * Close a connection and release its buffer.
+	 * 
+	 * @param key
+	 */
+	protected void close(SelectionKey key) {
+	    ((Connection) key.attachment()).release();
+	    key.cancel();
+	    try {
+		key.channel().close();
+	    } catch (IOException e) {
+		getLogger().debug("Error closing socket connection.", e);
+	    }
+	    connectionCount.decrementAndGet();
+	}
+
+	/**
+	 * Close all connections and the selector.
+	 */
+	protected void closeAll() {
+	    for (SelectionKey key : selector.keys()) {
+		close(key);
+	    }
+	    SocketChannel channel;
+	    while ((channel = registrations.poll()) != null) {
+		try {
+		    channel.close();
+		} catch (IOException e) {
+		    getLogger().debug("Error closing socket connection.", e);
+		}
+	    }
+	    try {
+		selector.close();
+	    } catch (IOException e) {
+		getLogger().debug("Error closing selector.", e);
+	    }
+	}
+    }
+
+    /**
+     * Per-connection framing state. Only accessed from the owning event loop.
+     */
+    private class Connection {
+
+	/** Shard that processes frames for this connection */
+	private FrameProcessingShard shard;
+
+	/** Bytes of an incomplete frame (write mode), or null if none */
+	private ByteBuffer pending;
+
+	public Connection(FrameProcessingShard shard) {
+	    this.shard = shard;
+	}
+
+	/**
+	 * Handle data read from the connection. The input buffer is only valid for
+	 * the duration of the call.
+	 * 
+	 * @param input
+	 * @param frames
+	 * @throws SiteWhereException
+	 */
+	public void onData(ByteBuffer input, List<byte[]> frames) throws SiteWhereException {
+	    if (pending == null) {
+		getFramer().decode(input, frames);
+		if (input.hasRemaining()) {
+		    pending = getBufferPool().acquire(input.remaining());
+		    pending.put(input);
+		}
+		return;
+	    }
+	    ensureCapacity(input.remaining());
+	    pending.put(input);
+	    pending.flip();
+	    getFramer().decode(pending, frames);
+	    keepRemainder();
+	}
+
+	/**
+	 * Handle the remote side closing the connection.
+	 * 
+	 * @param frames
+	 * @throws SiteWhereException
+	 */
+	public void onEndOfStream(List<byte[]> frames) throws SiteWhereException {
+	    if (pending == null) {
+		return;
+	    }
+	    pending.flip();
+	    getFramer().endOfStream(pending, frames);
+	    if (pending.hasRemaining()) {
+		getLogger().debug(String.format("Discarded %d bytes of incomplete frame.", pending.remaining()));
+	    }
+	    release();
+	}
+
+	/**
+	 * Release buffer held for an incomplete frame.
+	 */
+	public void release() {
+	    if (pending != null) {
+		getBufferPool().release(pending);
+		pending = null;
+	    }
+	}
+
+	/**
+	 * Make sure the pending buffer can take the given number of bytes.
+	 * 
+	 * @param count
+	 */
+	protected void ensureCapacity(int count) {
+	    if (pending.remaining() >= count) {
+		return;
+	    }
+	    ByteBuffer larger = getBufferPool().acquire(pending.position() + count);
+	    pending.flip();
+	    larger.put(pending);
+	    getBufferPool().release(pending);
+	    pending = larger;
+	}
+
+	/**
+	 * Compact unconsumed bytes after decoding, or release the buffer if all bytes
+	 * were consumed.
+	 */
+	protected void keepRemainder() {
+	    if (pending.hasRemaining()) {
+		pending.compact();
+	    } else {
+		release();
+	    }
+	}
+
+	public FrameProcessingShard getShard() {
+	    return shard;
+	}
+    }
+
+    /**
+     * Processes frames for a subset of connections in order on a single thread.
+     */
+    private class FrameProcessingShard implements Runnable {
+
+	/** Frames waiting to be processed */
+	private BlockingQueue<byte[]> queue;
+
+	public FrameProcessingShard(int capacity) {
+	    this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Add a frame to the queue, blocking while the queue is full.
+	 * 
+	 * @param frame
+	 * @throws InterruptedException
+	 */
+	public void enqueue(byte[] frame) throws InterruptedException {
+	    queue.put(frame);
+	    RECEIVED_FRAMES.labels(buildLabels(getEventSource().getSourceId())).inc();
+	}
+
+	@Override
+	public void run() {
+	    List<byte[]> batch = new ArrayList<>();
+	    while (true) {
+		try {
+		    batch.add(queue.take());
+		    queue.drainTo(batch);
+		    getEventSource().onEncodedEventsReceived(NioSocketInboundEventReceiver.this, batch, null);
+		} catch (InterruptedException e) {
+		    getLogger().info("Socket processing shard shutdown requested.");
+		    return;
+		} catch (Throwable t) {
+		    getLogger().error("Error processing socket frames.", t);
+		} finally {
+		    batch.clear();
+		}
+	    }
+	}
+    }
+
+    /**
+     * Choose the shard for a new connection.
+     * 
+     * @return
+     */
+    protected FrameProcessingShard nextShard() {
+	return shards[(nextShard.getAndIncrement() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * Used for naming socket threads.
+     */
+    private class SocketThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "SiteWhere Socket(" + getConfiguration().getPort() + ") " + counter.incrementAndGet());
+	}
+    }
+
+    /**
+     * Used for naming processor threads.
+     */
+    private class ProcessorsThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r,
+		    "SiteWhere Socket(" + getConfiguration().getPort() + ") Processor " + counter.incrementAndGet());
+	}
+    }
+
+    /**
+     * Get number of open connections.
+     * 
+     * @return
+     */
+    public int getConnectionCount() {
+	return connectionCount.get();
+    }
+
+    protected SocketServerConfiguration getConfiguration() {
+	return configuration;
+    }
+
+    protected ISocketFramer getFramer() {
+	return framer;
+    }
+
+    protected SocketBufferPool getBufferPool() {
+	return bufferPool;
+    }
+}
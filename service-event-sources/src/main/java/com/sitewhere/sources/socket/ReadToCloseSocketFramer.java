@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.sitewhere.sources.spi.socket.ISocketFramer;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Implementation of {@link ISocketFramer} that treats everything sent on a
+ * connection as a single frame, which is passed on once the remote side closes
+ * the connection. This matches the behavior of
+ * {@link ReadAllInteractionHandler}.
+ */
+public class ReadToCloseSocketFramer implements ISocketFramer {
+
+    /** Maximum number of bytes allowed in a frame */
+    private int maxFrameSize;
+
+    public ReadToCloseSocketFramer(int maxFrameSize) {
+	this.maxFrameSize = maxFrameSize;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#decode(java.nio.ByteBuffer,
+     * java.util.List)
+     */
+    @Override
+    public void decode(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	if (buffer.remaining() > getMaxFrameSize()) {
+	    throw new SiteWhereException(
+		    String.format("Connection sent more than maximum of %d bytes.", getMaxFrameSize()));
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.sources.spi.socket.ISocketFramer#endOfStream(java.nio.
+     * ByteBuffer, java.util.List)
+     */
+    @Override
+    public void endOfStream(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException {
+	if (buffer.hasRemaining()) {
+	    byte[] frame = new byte[buffer.remaining()];
+	    buffer.get(frame);
+	    frames.add(frame);
+	}
+    }
+
+    public int getMaxFrameSize() {
+	return maxFrameSize;
+    }
+}
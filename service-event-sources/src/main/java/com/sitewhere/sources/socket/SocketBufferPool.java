@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Pool of direct buffers used to hold partial frames between reads. Buffers
+ * come in size classes that double from the base buffer size up to the largest
+ * size needed for a frame, so a connection receiving a large frame reuses a
+ * pooled buffer rather than allocating a new one. Fewer idle buffers are kept
+ * for larger classes so that each class pins about the same amount of direct
+ * memory. Requests larger than the largest class are served with heap buffers
+ * that are left to the garbage collector when released.
+ */
+public class SocketBufferPool {
+
+    /** Capacity of buffers in the smallest size class */
+    private int bufferSize;
+
+    /** Maximum number of idle buffers kept for the smallest size class */
+    private int maxPooled;
+
+    /** Number of size classes */
+    private int sizeClassCount;
+
+    /** Idle buffers for each size class */
+    private List<ConcurrentLinkedQueue<ByteBuffer>> idle = new ArrayList<>();
+
+    /** Number of idle buffers for each size class */
+    private AtomicIntegerArray idleCounts;
+
+    public SocketBufferPool(int bufferSize, int maxBufferSize, int maxPooled) {
+	this.bufferSize = bufferSize;
+	this.maxPooled = maxPooled;
+	int count = 1;
+	while (((long) bufferSize << (count - 1)) < maxBufferSize) {
+	    count++;
+	}
+	this.sizeClassCount = count;
+	for (int i = 0; i < count; i++) {
+	    idle.add(new ConcurrentLinkedQueue<>());
+	}
+	this.idleCounts = new AtomicIntegerArray(count);
+    }
+
+    /**
+     * Get a cleared buffer with at least the given capacity.
+     * 
+     * @param minCapacity
+     * @return
+     */
+    public ByteBuffer acquire(int minCapacity) {
+	int sizeClass = getSizeClass(minCapacity);
+	if (sizeClass < 0) {
+	    return ByteBuffer.allocate(minCapacity);
+	}
+	ByteBuffer buffer = idle.get(sizeClass).poll();
+	if (buffer == null) {
+	    return ByteBuffer.allocateDirect(getCapacity(sizeClass));
+	}
+	idleCounts.decrementAndGet(sizeClass);
+	buffer.clear();
+	return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool.
+     * 
+     * @param buffer
+     */
+    public void release(ByteBuffer buffer) {
+	if (!buffer.isDirect()) {
+	    return;
+	}
+	int sizeClass = getSizeClass(buffer.capacity());
+	if ((sizeClass < 0) || (getCapacity(sizeClass) != buffer.capacity())) {
+	    return;
+	}
+	if (idleCounts.incrementAndGet(sizeClass) > getMaxPooled(sizeClass)) {
+	    idleCounts.decrementAndGet(sizeClass);
+	    return;
+	}
+	idle.get(sizeClass).offer(buffer);
+    }
+
+    /**
+     * Get the smallest size class that holds the given capacity, or -1 if it is
+     * larger than the largest class.
+     * 
+     * @param capacity
+     * @return
+     */
+    protected int getSizeClass(int capacity) {
+	int sizeClass = 0;
+	long classCapacity = getBufferSize();
+	while (classCapacity < capacity) {
+	    classCapacity <<= 1;
+	    sizeClass++;
+	}
+	return (sizeClass < getSizeClassCount()) ? sizeClass : -1;
+    }
+
+    /**
+     * Get capacity of buffers in a size class.
+     * 
+     * @param sizeClass
+     * @return
+     */
+    protected int getCapacity(int sizeClass) {
+	return getBufferSize() << sizeClass;
+    }
+
+    /**
+     * Get maximum number of idle buffers kept for a size class.
+     * 
+     * @param sizeClass
+     * @return
+     */
+    protected int getMaxPooled(int sizeClass) {
+	return Math.max(1, getMaxPooled() >> sizeClass);
+    }
+
+    /**
+     * Get number of idle buffers currently held for a size class.
+     * 
+     * @param sizeClass
+     * @return
+     */
+    public int getIdleCount(int sizeClass) {
+	return idleCounts.get(sizeClass);
+    }
+
+    public int getBufferSize() {
+	return bufferSize;
+    }
+
+    public int getMaxPooled() {
+	return maxPooled;
+    }
+
+    public int getSizeClassCount() {
+	return sizeClassCount;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.spi;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Device event decoder that can decode several payloads in a single call.
+ */
+public interface IBatchDeviceEventDecoder<T> extends IDeviceEventDecoder<T> {
+
+    /**
+     * Indicates whether batches are decoded in a single call. If false, event
+     * sources decode payloads one at a time.
+     * 
+     * @return
+     */
+    public boolean isBatchSupported();
+
+    /**
+     * Decodes a list of payloads into {@link IDecodedDeviceRequest} objects.
+     * Requests are not associated with the payload they were decoded from.
+     * 
+     * @param payloads
+     *                     the payloads that will be decoded
+     * @param metadata
+     *                     extra information associated with each payload (may be
+     *                     null)
+     * @return a list of decoded device requests to be processed
+     * @throws EventDecodeException
+     *                                  if the batch can not be decoded
+     */
+    public List<IDecodedDeviceRequest<?>> decodeBatch(List<T> payloads, List<Map<String, Object>> metadata)
+	    throws EventDecodeException;
+}
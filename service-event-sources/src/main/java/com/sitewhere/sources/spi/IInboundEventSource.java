@@ -70,4 +70,17 @@ public interface IInboundEventSource<T> extends ITenantEngineLifecycleComponent
      * @param metadata
      */
     public void onEncodedEventReceived(IInboundEventReceiver<T> receiver, T encodedEvent, Map<String, Object> metadata);
+
+    /**
+     * Called by {@link IInboundEventReceiver} when several encoded events have
+     * been received together. Events are decoded in a single call if supported by
+     * the decoder.
+     * 
+     * @param receiver
+     * @param encodedEvents
+     * @param metadata
+     *                          metadata for each event (may be null)
+     */
+    public void onEncodedEventsReceived(IInboundEventReceiver<T> receiver, List<T> encodedEvents,
+	    List<Map<String, Object>> metadata);
 }
\ No newline at end of file
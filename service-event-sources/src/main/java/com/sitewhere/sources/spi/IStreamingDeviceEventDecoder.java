@@ -0,0 +1,59 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.spi;
+
+import java.util.Map;
+
+/**
+ * Device event decoder that can pass decoded requests to a handler as they are
+ * read rather than collecting them in a list. Event sources use this method
+ * when available so that memory use does not grow with the number of events in
+ * a payload.
+ */
+public interface IStreamingDeviceEventDecoder<T> extends IDeviceEventDecoder<T> {
+
+    /**
+     * Decodes a payload, passing each {@link IDecodedDeviceRequest} to the handler
+     * as soon as it has been read. Requests passed to the handler before an
+     * exception is thrown have already been processed, so a failure after the
+     * first request is reported with a {@link PartialEventDecodeException} that
+     * holds only the part of the payload that was not processed.
+     * 
+     * @param payload
+     *                     the payload that will be decoded
+     * @param metadata
+     *                     extra information associated with the payload
+     * @param handler
+     *                     receives each decoded request
+     * @throws EventDecodeException
+     *                                  if the payload can not be decoded
+     */
+    public void decode(T payload, Map<String, Object> metadata, IDecodedRequestHandler handler)
+	    throws EventDecodeException;
+
+    /**
+     * Receives decoded requests from a streaming decoder.
+     */
+    public static interface IDecodedRequestHandler {
+
+	/**
+	 * Called for each decoded request.
+	 * 
+	 * @param decoded
+	 */
+	public void onDecodedRequest(IDecodedDeviceRequest<?> decoded);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.spi;
+
+/**
+ * Exception thrown by a streaming decoder when a payload fails to decode after
+ * some of its requests were already passed on. Holds the part of the payload
+ * that was not processed so that only that part is reported as failed.
+ */
+public class PartialEventDecodeException extends EventDecodeException {
+
+    /** Serial version UID */
+    private static final long serialVersionUID = -3121865477610295380L;
+
+    /** Part of the payload that was not processed */
+    private transient Object remainingPayload;
+
+    /** Number of requests passed on before the failure */
+    private int processedCount;
+
+    public PartialEventDecodeException(String message, Throwable cause, Object remainingPayload,
+	    int processedCount) {
+	super(message, cause);
+	this.remainingPayload = remainingPayload;
+	this.processedCount = processedCount;
+    }
+
+    public Object getRemainingPayload() {
+	return remainingPayload;
+    }
+
+    public int getProcessedCount() {
+	return processedCount;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.spi.socket;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Splits bytes read from a non-blocking socket into message frames. A single
+ * framer instance is shared by all connections of a receiver, so
+ * implementations must not hold per-connection state. Bytes that do not yet
+ * form a complete frame are left in the buffer and presented again, with more
+ * data appended, on the next read.
+ */
+public interface ISocketFramer {
+
+    /**
+     * Remove all complete frames from the buffer. The buffer is in read mode and
+     * its position is advanced past the bytes of each frame that is added.
+     * 
+     * @param buffer
+     * @param frames
+     * @throws SiteWhereException if the data can not be framed and the
+     *                            connection should be closed
+     */
+    public void decode(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException;
+
+    /**
+     * Called when the remote side has closed its end of the connection. Any bytes
+     * that make up a final frame should be removed from the buffer.
+     * 
+     * @param buffer
+     * @param frames
+     * @throws SiteWhereException
+     */
+    public void endOfStream(ByteBuffer buffer, List<byte[]> frames) throws SiteWhereException;
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.decoder.protobuf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.DeviceEvent;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.DeviceEvent.Command;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalDouble;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalFixed64;
+import com.sitewhere.communication.protobuf.proto.SiteWhere.GOptionalString;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.sources.spi.EventDecodeException;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+
+/**
+ * Tests for decoding single protobuf payloads and payloads that use the batch
+ * envelope.
+ */
+public class ProtobufDeviceEventDecoderTests {
+
+    /** Token for device in header */
+    private static final String DEVICE_TOKEN = "device-001";
+
+    /** Originator in header */
+    private static final String ORIGINATOR = "originator-001";
+
+    @Test
+    public void testSingleMeasurement() throws Exception {
+	Payload payload = new Payload(Command.SendMeasurement);
+	payload.add(null, measurement("temperature", 20.1, 1589470861123L));
+
+	List<IDecodedDeviceRequest<?>> decoded = new ProtobufDeviceEventDecoder().decode(payload.toByteArray(),
+		null);
+	assertEquals(1, decoded.size());
+	assertEquals(DEVICE_TOKEN, decoded.get(0).getDeviceToken());
+	assertEquals(ORIGINATOR, decoded.get(0).getOriginator());
+	DeviceMeasurementCreateRequest request = (DeviceMeasurementCreateRequest) decoded.get(0).getRequest();
+	assertEquals("temperature", request.getName());
+	assertEquals(new BigDecimal("20.1"), request.getValue());
+	assertEquals(new Date(1589470861123L), request.getEventDate());
+    }
+
+    @Test
+    public void testBatchKeepsRecordOrder() throws Exception {
+	Payload payload = new Payload(Command.SendMeasurement);
+	payload.add(Command.SendMeasurement, measurement("temperature", 20.1, 1000L));
+	payload.add(Command.SendLocation,
+		DeviceEvent.DeviceLocation.newBuilder().setLatitude(GOptionalDouble.newBuilder().setValue(33.75))
+			.setLongitude(GOptionalDouble.newBuilder().setValue(-84.39))
+			.setElevation(GOptionalDouble.newBuilder().setValue(0.0)).build());
+	payload.add(Command.SendAlert,
+		DeviceEvent.DeviceAlert.newBuilder().setAlertType(GOptionalString.newBuilder().setValue("engine"))
+			.setAlertMessage(GOptionalString.newBuilder().setValue("Overheating")).build());
+	payload.add(Command.SendMeasurement, measurement("pressure", 1.5, 2000L));
+
+	List<IDecodedDeviceRequest<?>> decoded = new ProtobufDeviceEventDecoder(true)
+		.decode(payload.toByteArray(), null);
+	assertEquals(4, decoded.size());
+	for (IDecodedDeviceRequest<?> request : decoded) {
+	    assertEquals(DEVICE_TOKEN, request.getDeviceToken());
+	    assertEquals(ORIGINATOR, request.getOriginator());
+	}
+	assertEquals("temperature", ((DeviceMeasurementCreateRequest) decoded.get(0).getRequest()).getName());
+	DeviceLocationCreateRequest location = (DeviceLocationCreateRequest) decoded.get(1).getRequest();
+	assertEquals(new BigDecimal("33.75"), location.getLatitude());
+	assertEquals(new BigDecimal("-84.39"), location.getLongitude());
+	assertEquals("Overheating", ((DeviceAlertCreateRequest) decoded.get(2).getRequest()).getMessage());
+	DeviceMeasurementCreateRequest last = (DeviceMeasurementCreateRequest) decoded.get(3).getRequest();
+	assertEquals("pressure", last.getName());
+	assertEquals(new Date(2000L), last.getEventDate());
+    }
+
+    @Test
+    public void testBatchWithoutRecords() throws Exception {
+	Payload payload = new Payload(Command.SendMeasurement);
+	assertTrue(new ProtobufDeviceEventDecoder(true).decode(payload.toByteArray(), null).isEmpty());
+    }
+
+    @Test(expected = EventDecodeException.class)
+    public void testUnknownCommandRejected() throws Exception {
+	Payload payload = new Payload(Command.SendMeasurement);
+	payload.coded.writeEnumNoTag(999);
+	payload.add(null, measurement("temperature", 20.1, 1000L));
+	new ProtobufDeviceEventDecoder(true).decode(payload.toByteArray(), null);
+    }
+
+    @Test(expected = EventDecodeException.class)
+    public void testTruncatedRecordRejected() throws Exception {
+	Payload payload = new Payload(Command.SendMeasurement);
+	payload.add(Command.SendMeasurement, measurement("temperature", 20.1, 1000L));
+	byte[] bytes = payload.toByteArray();
+	new ProtobufDeviceEventDecoder(true).decode(Arrays.copyOf(bytes, bytes.length - 3), null);
+    }
+
+    /**
+     * Build a measurement message.
+     * 
+     * @param name
+     * @param value
+     * @param eventDate
+     * @return
+     */
+    protected static DeviceEvent.DeviceMeasurement measurement(String name, double value, long eventDate) {
+	return DeviceEvent.DeviceMeasurement.newBuilder()
+		.setMeasurementName(GOptionalString.newBuilder().setValue(name))
+		.setMeasurementValue(GOptionalDouble.newBuilder().setValue(value))
+		.setEventDate(GOptionalFixed64.newBuilder().setValue(eventDate)).build();
+    }
+
+    /**
+     * Payload made up of a delimited header followed by delimited messages.
+     */
+    private static class Payload {
+
+	/** Encoded bytes */
+	private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	/** Output over encoded bytes */
+	private CodedOutputStream coded = CodedOutputStream.newInstance(out);
+
+	public Payload(Command command) throws IOException {
+	    writeDelimited(DeviceEvent.Header.newBuilder().setCommand(command)
+		    .setDeviceToken(GOptionalString.newBuilder().setValue(DEVICE_TOKEN))
+		    .setOriginator(GOptionalString.newBuilder().setValue(ORIGINATOR)).build());
+	}
+
+	/**
+	 * Add a message, preceded by its command number for the batch envelope.
+	 * 
+	 * @param command
+	 * @param message
+	 * @throws IOException
+	 */
+	public void add(Command command, MessageLite message) throws IOException {
+	    if (command != null) {
+		coded.writeEnumNoTag(command.getNumber());
+	    }
+	    writeDelimited(message);
+	}
+
+	protected void writeDelimited(MessageLite message) throws IOException {
+	    coded.writeUInt32NoTag(message.getSerializedSize());
+	    message.writeTo(coded);
+	}
+
+	public byte[] toByteArray() throws IOException {
+	    coded.flush();
+	    return out.toByteArray();
+	}
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.deduplicator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.sources.DecodedDeviceRequest;
+import com.sitewhere.sources.spi.IDecodedDeviceRequest;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Tests for rotating Bloom filters used to detect recently seen alternate ids
+ * and for the cache, filter and remote lookup checks made for each event.
+ */
+public class BloomFilterAlternateIdDeduplicatorTests {
+
+    @Test
+    public void testRememberedIdsAreAlwaysFound() {
+	BloomFilterAlternateIdDeduplicator dedup = create(10000, 60000);
+	for (int i = 0; i < 1000; i++) {
+	    dedup.remember("event-" + i);
+	}
+	for (int i = 0; i < 1000; i++) {
+	    assertTrue("Filter must not report false negatives.", dedup.mightHaveSeen("event-" + i));
+	}
+    }
+
+    @Test
+    public void testFalsePositiveRateIsBounded() {
+	BloomFilterAlternateIdDeduplicator dedup = create(1000, 60000);
+	for (int i = 0; i < 1000; i++) {
+	    dedup.remember("seen-" + i);
+	}
+	int falsePositives = 0;
+	for (int i = 0; i < 10000; i++) {
+	    if (dedup.mightHaveSeen("unseen-" + i)) {
+		falsePositives++;
+	    }
+	}
+	assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void testIdsSurviveOneRotation() {
+	BloomFilterAlternateIdDeduplicator dedup = create(100, 60000);
+	for (int i = 0; i < 100; i++) {
+	    dedup.remember("old-" + i);
+	}
+
+	// Current generation is full, so this rotates it to previous.
+	dedup.remember("new-0");
+	for (int i = 0; i < 100; i++) {
+	    assertTrue(dedup.mightHaveSeen("old-" + i));
+	}
+    }
+
+    @Test
+    public void testIdsForgottenAfterTwoRotations() {
+	BloomFilterAlternateIdDeduplicator dedup = create(100, 60000);
+	for (int i = 0; i < 100; i++) {
+	    dedup.remember("old-" + i);
+	}
+	for (int i = 0; i < 200; i++) {
+	    dedup.remember("new-" + i);
+	}
+	int found = 0;
+	for (int i = 0; i < 100; i++) {
+	    if (dedup.mightHaveSeen("old-" + i)) {
+		found++;
+	    }
+	}
+	assertTrue("Ids from two generations ago should be dropped: " + found, found < 10);
+    }
+
+    @Test
+    public void testFiltersRotateWhenWindowExpires() throws Exception {
+	BloomFilterAlternateIdDeduplicator dedup = create(1000, 20);
+	dedup.remember("first");
+	Thread.sleep(40);
+	dedup.remember("second");
+	assertTrue(dedup.mightHaveSeen("first"));
+	Thread.sleep(40);
+	dedup.remember("third");
+	assertFalse(dedup.mightHaveSeen("first"));
+	assertTrue(dedup.mightHaveSeen("second"));
+    }
+
+    @Test
+    public void testResetForgetsIds() {
+	BloomFilterAlternateIdDeduplicator dedup = create(1000, 60000);
+	dedup.remember("event-1");
+	dedup.getRecent().put("event-1", Boolean.TRUE);
+	dedup.reset();
+	assertFalse(dedup.mightHaveSeen("event-1"));
+	assertEquals(0, dedup.getRecent().size());
+    }
+
+    @Test
+    public void testNewIdIsNotDuplicateWithoutLookup() throws Exception {
+	StubDeduplicator dedup = create(1000, 60000);
+	assertFalse(dedup.isDuplicate(request("event-1")));
+	assertTrue(dedup.mightHaveSeen("event-1"));
+	assertTrue("New ids must not be looked up remotely.", dedup.getLookups().isEmpty());
+    }
+
+    @Test
+    public void testCachedIdIsDuplicateWithoutLookup() throws Exception {
+	StubDeduplicator dedup = create(1000, 60000);
+	assertFalse(dedup.isDuplicate(request("event-1")));
+	assertTrue(dedup.isDuplicate(request("event-1")));
+	assertTrue(dedup.isDuplicate(request("event-1")));
+	assertTrue("Cached ids must not be looked up remotely.", dedup.getLookups().isEmpty());
+    }
+
+    @Test
+    public void testEvictedIdIsConfirmedByLookup() throws Exception {
+	StubDeduplicator dedup = create(1000, 60000);
+	assertFalse(dedup.isDuplicate(request("event-1")));
+	dedup.getStored().add("event-1");
+	dedup.getRecent().invalidate("event-1");
+
+	assertTrue(dedup.isDuplicate(request("event-1")));
+	assertEquals(1, dedup.getLookups().size());
+	assertEquals("event-1", dedup.getLookups().get(0));
+    }
+
+    @Test
+    public void testFalsePositiveFallsThroughToLookup() throws Exception {
+	StubDeduplicator dedup = create(1000, 60000);
+
+	// Id is in the filter but was never cached or stored, as for a false positive.
+	dedup.remember("event-1");
+	assertFalse(dedup.isDuplicate(request("event-1")));
+	assertEquals(1, dedup.getLookups().size());
+
+	// Id is cached after the lookup, so a repeat is found without another lookup.
+	assertTrue(dedup.isDuplicate(request("event-1")));
+	assertEquals(1, dedup.getLookups().size());
+    }
+
+    @Test
+    public void testRequestsWithoutAlternateIdAreNotDuplicates() throws Exception {
+	StubDeduplicator dedup = create(1000, 60000);
+	assertFalse(dedup.isDuplicate(request(null)));
+	assertFalse(dedup.isDuplicate(request(null)));
+	assertFalse(dedup.isDuplicate(new DecodedDeviceRequest<String>("device", null, "not an event")));
+	assertTrue(dedup.getLookups().isEmpty());
+    }
+
+    @Test
+    public void testIdsWithinOneRotationAreLookedUp() throws Exception {
+	StubDeduplicator dedup = create(100, 60000);
+	for (int i = 0; i < 100; i++) {
+	    assertFalse(dedup.isDuplicate(request("old-" + i)));
+	    dedup.getStored().add("old-" + i);
+	}
+
+	// Current generation is full, so this rotates it to previous.
+	assertFalse(dedup.isDuplicate(request("new-0")));
+	dedup.getRecent().invalidateAll();
+	dedup.getLookups().clear();
+	for (int i = 0; i < 100; i++) {
+	    assertTrue(dedup.isDuplicate(request("old-" + i)));
+	}
+	assertEquals(100, dedup.getLookups().size());
+    }
+
+    @Test
+    public void testIdsAfterTwoRotationsAreNotLookedUp() throws Exception {
+	StubDeduplicator dedup = create(100, 60000);
+	for (int i = 0; i < 100; i++) {
+	    dedup.isDuplicate(request("old-" + i));
+	}
+	for (int i = 0; i < 200; i++) {
+	    dedup.isDuplicate(request("new-" + i));
+	}
+	dedup.getRecent().invalidateAll();
+	dedup.getLookups().clear();
+	for (int i = 0; i < 100; i++) {
+	    assertFalse(dedup.isDuplicate(request("old-" + i)));
+	}
+	assertTrue("Ids from two generations ago should not be looked up: " + dedup.getLookups().size(),
+		dedup.getLookups().size() < 10);
+    }
+
+    @Test
+    public void testIdsWithinOneWindowAreLookedUp() throws Exception {
+	StubDeduplicator dedup = create(1000, 50);
+	assertFalse(dedup.isDuplicate(request("first")));
+	dedup.getStored().add("first");
+	Thread.sleep(70);
+
+	// Window expired, so this rotates filters and the cache no longer holds the id.
+	assertFalse(dedup.isDuplicate(request("second")));
+	assertTrue(dedup.isDuplicate(request("first")));
+	assertEquals(1, dedup.getLookups().size());
+    }
+
+    @Test
+    public void testIdsAfterTwoWindowsAreNotLookedUp() throws Exception {
+	StubDeduplicator dedup = create(1000, 50);
+	assertFalse(dedup.isDuplicate(request("first")));
+	dedup.getStored().add("first");
+	Thread.sleep(70);
+	assertFalse(dedup.isDuplicate(request("second")));
+	Thread.sleep(70);
+	assertFalse(dedup.isDuplicate(request("third")));
+
+	// Duplicates older than the window are not detected.
+	assertFalse(dedup.isDuplicate(request("first")));
+	assertTrue(dedup.getLookups().isEmpty());
+    }
+
+    /**
+     * Create a decoded measurement request with the given alternate id.
+     * 
+     * @param alternateId
+     * @return
+     */
+    protected static IDecodedDeviceRequest<?> request(String alternateId) {
+	DeviceMeasurementCreateRequest measurement = new DeviceMeasurementCreateRequest();
+	measurement.setAlternateId(alternateId);
+	return new DecodedDeviceRequest<DeviceMeasurementCreateRequest>("device", null, measurement);
+    }
+
+    /**
+     * Create deduplicator with empty filters without starting a tenant engine.
+     * 
+     * @param expectedInsertions
+     * @param windowMs
+     * @return
+     */
+    protected StubDeduplicator create(int expectedInsertions, long windowMs) {
+	StubDeduplicator dedup = new StubDeduplicator();
+	dedup.setExpectedInsertions(expectedInsertions);
+	dedup.setWindowMs(windowMs);
+	dedup.reset();
+	return dedup;
+    }
+
+    /**
+     * Deduplicator that looks up alternate ids in a local set instead of event
+     * management and records each lookup.
+     */
+    protected static class StubDeduplicator extends BloomFilterAlternateIdDeduplicator {
+
+	/** Alternate ids of stored events */
+	private Set<String> stored = new HashSet<>();
+
+	/** Alternate ids looked up in order */
+	private List<String> lookups = new ArrayList<>();
+
+	/*
+	 * @see com.sitewhere.sources.deduplicator.BloomFilterAlternateIdDeduplicator#
+	 * findEventByAlternateId(java.lang.String)
+	 */
+	@Override
+	protected IDeviceEvent findEventByAlternateId(String alternateId) throws SiteWhereException {
+	    lookups.add(alternateId);
+	    if (!stored.contains(alternateId)) {
+		return null;
+	    }
+	    DeviceMeasurement event = new DeviceMeasurement();
+	    event.setAlternateId(alternateId);
+	    return event;
+	}
+
+	/*
+	 * @see com.sitewhere.sources.deduplicator.BloomFilterAlternateIdDeduplicator#
+	 * increment(io.prometheus.client.Counter)
+	 */
+	@Override
+	protected void increment(Counter counter) {
+	}
+
+	public Set<String> getStored() {
+	    return stored;
+	}
+
+	public List<String> getLookups() {
+	    return lookups;
+	}
+    }
+}
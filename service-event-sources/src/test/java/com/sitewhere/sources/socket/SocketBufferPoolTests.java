@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests for pooling of partial frame buffers.
+ */
+public class SocketBufferPoolTests {
+
+    @Test
+    public void testSizeClasses() {
+	SocketBufferPool pool = new SocketBufferPool(1024, 5000, 8);
+	assertEquals(4, pool.getSizeClassCount());
+	assertEquals(0, pool.getSizeClass(1));
+	assertEquals(0, pool.getSizeClass(1024));
+	assertEquals(1, pool.getSizeClass(1025));
+	assertEquals(3, pool.getSizeClass(8192));
+	assertEquals(-1, pool.getSizeClass(8193));
+    }
+
+    @Test
+    public void testLargeBufferReused() {
+	SocketBufferPool pool = new SocketBufferPool(1024, 8192, 8);
+	ByteBuffer first = pool.acquire(3000);
+	assertTrue(first.isDirect());
+	assertEquals(4096, first.capacity());
+	first.put((byte) 1);
+	pool.release(first);
+	assertEquals(1, pool.getIdleCount(2));
+
+	ByteBuffer second = pool.acquire(2049);
+	assertSame(first, second);
+	assertEquals("Reused buffer should be cleared.", 0, second.position());
+	assertEquals(0, pool.getIdleCount(2));
+    }
+
+    @Test
+    public void testOversizedBufferNotPooled() {
+	SocketBufferPool pool = new SocketBufferPool(1024, 2048, 8);
+	ByteBuffer buffer = pool.acquire(4096);
+	assertFalse(buffer.isDirect());
+	pool.release(buffer);
+	for (int i = 0; i < pool.getSizeClassCount(); i++) {
+	    assertEquals(0, pool.getIdleCount(i));
+	}
+    }
+
+    @Test
+    public void testIdleLimitPerSizeClass() {
+	SocketBufferPool pool = new SocketBufferPool(1024, 4096, 4);
+	for (int i = 0; i < 4; i++) {
+	    pool.release(ByteBuffer.allocateDirect(1024));
+	    pool.release(ByteBuffer.allocateDirect(4096));
+	}
+	assertEquals(4, pool.getIdleCount(0));
+	assertEquals("Larger classes keep fewer idle buffers.", 1, pool.getIdleCount(2));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.sources.socket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Tests for splitting socket data into frames.
+ */
+public class SocketFramingTests {
+
+    /** Maximum frame size used by tests */
+    private static final int MAX_FRAME_SIZE = 16;
+
+    @Test
+    public void testLengthPrefixFrames() throws Exception {
+	LengthPrefixSocketFramer framer = new LengthPrefixSocketFramer(2, MAX_FRAME_SIZE);
+	ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 0, 2, 'a', 'b', 0, 1, 'c' });
+	List<byte[]> frames = new ArrayList<>();
+	framer.decode(buffer, frames);
+	assertEquals(2, frames.size());
+	assertArrayEquals(bytes("ab"), frames.get(0));
+	assertArrayEquals(bytes("c"), frames.get(1));
+	assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    public void testLengthPrefixPartialFrame() throws Exception {
+	LengthPrefixSocketFramer framer = new LengthPrefixSocketFramer(1, MAX_FRAME_SIZE);
+	ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 3, 'a', 'b' });
+	List<byte[]> frames = new ArrayList<>();
+	framer.decode(buffer, frames);
+	assertEquals(0, frames.size());
+	assertEquals("Partial frame should be left in buffer.", 0, buffer.position());
+	assertEquals(3, buffer.remaining());
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testLengthPrefixFrameTooLarge() throws Exception {
+	LengthPrefixSocketFramer framer = new LengthPrefixSocketFramer(4, MAX_FRAME_SIZE);
+	ByteBuffer buffer = ByteBuffer.allocate(4).putInt(MAX_FRAME_SIZE + 1);
+	buffer.flip();
+	framer.decode(buffer, new ArrayList<>());
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testLengthPrefixInvalidFieldSize() throws Exception {
+	new LengthPrefixSocketFramer(3, MAX_FRAME_SIZE);
+    }
+
+    @Test
+    public void testDelimiterFrames() throws Exception {
+	DelimiterSocketFramer framer = new DelimiterSocketFramer(bytes("\r\n"), MAX_FRAME_SIZE);
+	ByteBuffer buffer = ByteBuffer.wrap(bytes("one\r\n\r\ntwo\r\nthr"));
+	List<byte[]> frames = new ArrayList<>();
+	framer.decode(buffer, frames);
+	assertEquals("Empty frames should be skipped.", 2, frames.size());
+	assertArrayEquals(bytes("one"), frames.get(0));
+	assertArrayEquals(bytes("two"), frames.get(1));
+	assertEquals(3, buffer.remaining());
+
+	framer.endOfStream(buffer, frames);
+	assertEquals(3, frames.size());
+	assertArrayEquals(bytes("thr"), frames.get(2));
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testDelimiterMissing() throws Exception {
+	DelimiterSocketFramer framer = new DelimiterSocketFramer(bytes("\n"), MAX_FRAME_SIZE);
+	framer.decode(ByteBuffer.wrap(new byte[MAX_FRAME_SIZE + 2]), new ArrayList<>());
+    }
+
+    @Test
+    public void testReadToClose() throws Exception {
+	ReadToCloseSocketFramer framer = new ReadToCloseSocketFramer(MAX_FRAME_SIZE);
+	ByteBuffer buffer = ByteBuffer.wrap(bytes("all\nof it"));
+	List<byte[]> frames = new ArrayList<>();
+	framer.decode(buffer, frames);
+	assertEquals("No frame until connection closes.", 0, frames.size());
+	framer.endOfStream(buffer, frames);
+	assertEquals(1, frames.size());
+	assertArrayEquals(bytes("all\nof it"), frames.get(0));
+    }
+
+    @Test(expected = SiteWhereException.class)
+    public void testReadToCloseTooLarge() throws Exception {
+	ReadToCloseSocketFramer framer = new ReadToCloseSocketFramer(MAX_FRAME_SIZE);
+	framer.decode(ByteBuffer.wrap(new byte[MAX_FRAME_SIZE + 1]), new ArrayList<>());
+    }
+
+    /**
+     * Get UTF-8 bytes for a string.
+     * 
+     * @param value
+     * @return
+     */
+    protected static byte[] bytes(String value) {
+	return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.inbound.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sitewhere.grpc.event.EventModelConverter;
+import com.sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload;
+import com.sitewhere.inbound.grpc.DeviceBatchLookupClient;
+import com.sitewhere.inbound.grpc.DeviceBatchLookupClient.DeviceLookup;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
+import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
+import com.sitewhere.microservice.api.device.IDeviceManagement;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Bounded, per-tenant cache that maps device token to device and device id to
+ * active assignments. Entries expire after a configurable interval.
+ * <p>
+ * Explicit invalidation is best effort. Device management does not publish
+ * model changes, so the only signal seen here is a state change event generated
+ * by SiteWhere (e.g. assignment created or ended) that arrives on the partition
+ * consumed by this replica. Such an event may be consumed by another replica,
+ * and device create, update and delete operations produce no event at all. In
+ * those cases a replica may use stale device or assignment data until the entry
+ * expires, so the expiration interval is the upper bound on staleness.
+ */
+public class DeviceLookupCache extends TenantEngineLifecycleComponent implements IDeviceLookupCache {
+
+    /** Prefix for source id of events generated by SiteWhere microservices */
+    private static final String SYSTEM_SOURCE_PREFIX = "system:";
+
+    /** Counter for device cache hits */
+    private static final Counter DEVICE_CACHE_HITS = TenantEngineLifecycleComponent
+	    .createCounterMetric("inbound_device_cache_hit_count", "Count of device lookups served from cache");
+
+    /** Counter for device cache misses */
+    private static final Counter DEVICE_CACHE_MISSES = TenantEngineLifecycleComponent
+	    .createCounterMetric("inbound_device_cache_miss_count", "Count of device lookups not found in cache");
+
+    /** Counter for assignment cache hits */
+    private static final Counter ASSIGNMENT_CACHE_HITS = TenantEngineLifecycleComponent.createCounterMetric(
+	    "inbound_assignment_cache_hit_count", "Count of assignment lookups served from cache");
+
+    /** Counter for assignment cache misses */
+    private static final Counter ASSIGNMENT_CACHE_MISSES = TenantEngineLifecycleComponent.createCounterMetric(
+	    "inbound_assignment_cache_miss_count", "Count of assignment lookups not found in cache");
+
+    /** Cache of devices by token */
+    private Cache<String, IDevice> devicesByToken;
+
+    /** Cache of active assignments by device id */
+    private Cache<UUID, List<? extends IDeviceAssignment>> assignmentsByDeviceId;
+
+    /*
+     * @see com.sitewhere.microservice.lifecycle.LifecycleComponent#initialize(com.
+     * sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.initialize(monitor);
+
+	IInboundProcessingConfiguration config = getConfiguration();
+	this.devicesByToken = CacheBuilder.newBuilder().maximumSize(config.getDeviceCacheMaximumSize())
+		.expireAfterWrite(config.getDeviceCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+	this.assignmentsByDeviceId = CacheBuilder.newBuilder().maximumSize(config.getDeviceCacheMaximumSize())
+		.expireAfterWrite(config.getDeviceCacheExpirationSeconds(), TimeUnit.SECONDS).build();
+	getLogger().info(String.format("Device lookup cache will hold up to %d devices for %d seconds.",
+		config.getDeviceCacheMaximumSize(), config.getDeviceCacheExpirationSeconds()));
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	invalidateAll();
+	super.stop(monitor);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.cache.IDeviceLookupCache#getDeviceByToken(java.lang
+     * .String)
+     */
+    @Override
+    public IDevice getDeviceByToken(String token) throws SiteWhereException {
+	IDevice device = getDevicesByToken().getIfPresent(token);
+	if (device != null) {
+	    DEVICE_CACHE_HITS.labels(buildLabels()).inc();
+	    return device;
+	}
+	DEVICE_CACHE_MISSES.labels(buildLabels()).inc();
+
+	// Unregistered devices are not cached so that registration is seen at once.
+	device = getDeviceManagement().getDeviceByToken(token);
+	if (device != null) {
+	    getDevicesByToken().put(token, device);
+	}
+	return device;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.cache.IDeviceLookupCache#getDevicesByTokens(java.
+     * util.Collection)
+     */
+    @Override
+    public Map<String, IDevice> getDevicesByTokens(Collection<String> tokens) throws SiteWhereException {
+	Map<String, IDevice> devices = new HashMap<>();
+	List<String> missing = new ArrayList<>();
+	for (String token : tokens) {
+	    IDevice device = getDevicesByToken().getIfPresent(token);
+	    if (device != null) {
+		DEVICE_CACHE_HITS.labels(buildLabels()).inc();
+		devices.put(token, device);
+	    } else {
+		DEVICE_CACHE_MISSES.labels(buildLabels()).inc();
+		missing.add(token);
+	    }
+	}
+	if (missing.isEmpty()) {
+	    return devices;
+	}
+
+	// Unregistered devices are not cached so that registration is seen at once.
+	Map<String, DeviceLookup> loaded = getDeviceBatchLookupClient().getDevicesWithActiveAssignments(missing);
+	for (Map.Entry<String, DeviceLookup> entry : loaded.entrySet()) {
+	    IDevice device = entry.getValue().getDevice();
+	    getDevicesByToken().put(entry.getKey(), device);
+	    getAssignmentsByDeviceId().put(device.getId(), entry.getValue().getActiveAssignments());
+	    devices.put(entry.getKey(), device);
+	}
+	return devices;
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.cache.IDeviceLookupCache#
+     * getActiveDeviceAssignments(com.sitewhere.spi.device.IDevice)
+     */
+    @Override
+    public List<? extends IDeviceAssignment> getActiveDeviceAssignments(IDevice device) throws SiteWhereException {
+	List<? extends IDeviceAssignment> assignments = getAssignmentsByDeviceId().getIfPresent(device.getId());
+	if (assignments != null) {
+	    ASSIGNMENT_CACHE_HITS.labels(buildLabels()).inc();
+	    return assignments;
+	}
+	ASSIGNMENT_CACHE_MISSES.labels(buildLabels()).inc();
+
+	assignments = getDeviceManagement().getActiveDeviceAssignments(device.getId());
+	if (assignments != null) {
+	    getAssignmentsByDeviceId().put(device.getId(), assignments);
+	}
+	return assignments;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.cache.IDeviceLookupCache#onDecodedEvent(com.
+     * sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload)
+     */
+    @Override
+    public void onDecodedEvent(GDecodedEventPayload payload) throws SiteWhereException {
+	// Only state changes generated by device management (e.g. assignment created
+	// or ended) affect cached lookup data. Changes handled by other replicas are
+	// only picked up when the entry expires.
+	if (!payload.getSourceId().startsWith(SYSTEM_SOURCE_PREFIX)) {
+	    return;
+	}
+	IDeviceEventCreateRequest request = EventModelConverter.asApiDeviceEventCreateRequest(payload.getEvent());
+	if (request.getEventType() == DeviceEventType.StateChange) {
+	    invalidate(payload.getDeviceToken());
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.cache.IDeviceLookupCache#invalidate(java.lang.
+     * String)
+     */
+    @Override
+    public void invalidate(String token) {
+	IDevice device = getDevicesByToken().getIfPresent(token);
+	if (device != null) {
+	    getAssignmentsByDeviceId().invalidate(device.getId());
+	}
+	getDevicesByToken().invalidate(token);
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.cache.IDeviceLookupCache#invalidateAll()
+     */
+    @Override
+    public void invalidateAll() {
+	if (getDevicesByToken() != null) {
+	    getDevicesByToken().invalidateAll();
+	}
+	if (getAssignmentsByDeviceId() != null) {
+	    getAssignmentsByDeviceId().invalidateAll();
+	}
+    }
+
+    /**
+     * Get inbound processing configuration.
+     * 
+     * @return
+     */
+    protected IInboundProcessingConfiguration getConfiguration() {
+	return ((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration();
+    }
+
+    /**
+     * Get device management implementation.
+     * 
+     * @return
+     */
+    protected IDeviceManagement getDeviceManagement() {
+	return ((IInboundProcessingMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
+    }
+
+    /**
+     * Get client used to load devices for many tokens in one call.
+     * 
+     * @return
+     */
+    protected DeviceBatchLookupClient getDeviceBatchLookupClient() {
+	return ((IInboundProcessingMicroservice) getTenantEngine().getMicroservice()).getDeviceBatchLookupClient();
+    }
+
+    protected Cache<String, IDevice> getDevicesByToken() {
+	return devicesByToken;
+    }
+
+    protected Cache<UUID, List<? extends IDeviceAssignment>> getAssignmentsByDeviceId() {
+	return assignmentsByDeviceId;
+    }
+}
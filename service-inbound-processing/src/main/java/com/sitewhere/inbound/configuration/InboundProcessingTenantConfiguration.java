@@ -27,9 +27,33 @@ public class InboundProcessingTenantConfiguration
     /** Default number of threads used for concurrent processing of events */
     private static final int DEFAULT_PROCESSING_THREAD_COUNT = 10;
 
+    /** Default maximum number of devices held in lookup cache */
+    private static final int DEFAULT_DEVICE_CACHE_MAXIMUM_SIZE = 10000;
+
+    /** Default number of seconds a device lookup cache entry is valid */
+    private static final int DEFAULT_DEVICE_CACHE_EXPIRATION_SECONDS = 300;
+
+    /** Default maximum number of records in a lookup batch (batching disabled) */
+    private static final int DEFAULT_LOOKUP_BATCH_SIZE = 1;
+
+    /** Default number of milliseconds a record waits for its lookup batch */
+    private static final int DEFAULT_LOOKUP_BATCH_LINGER_MS = 20;
+
     /** Number of threads used for concurrent processing of events */
     private int processingThreadCount = DEFAULT_PROCESSING_THREAD_COUNT;
 
+    /** Maximum number of devices held in lookup cache */
+    private int deviceCacheMaximumSize = DEFAULT_DEVICE_CACHE_MAXIMUM_SIZE;
+
+    /** Number of seconds a device lookup cache entry is valid */
+    private int deviceCacheExpirationSeconds = DEFAULT_DEVICE_CACHE_EXPIRATION_SECONDS;
+
+    /** Maximum number of records in a lookup batch */
+    private int lookupBatchSize = DEFAULT_LOOKUP_BATCH_SIZE;
+
+    /** Number of milliseconds a record waits for its lookup batch */
+    private int lookupBatchLingerMs = DEFAULT_LOOKUP_BATCH_LINGER_MS;
+
     /*
      * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
      * getProcessingThreadCount()
@@ -42,4 +66,56 @@ public class InboundProcessingTenantConfiguration
     public void setProcessingThreadCount(int processingThreadCount) {
 	this.processingThreadCount = processingThreadCount;
     }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getDeviceCacheMaximumSize()
+     */
+    @Override
+    public int getDeviceCacheMaximumSize() {
+	return deviceCacheMaximumSize;
+    }
+
+    public void setDeviceCacheMaximumSize(int deviceCacheMaximumSize) {
+	this.deviceCacheMaximumSize = deviceCacheMaximumSize;
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getDeviceCacheExpirationSeconds()
+     */
+    @Override
+    public int getDeviceCacheExpirationSeconds() {
+	return deviceCacheExpirationSeconds;
+    }
+
+    public void setDeviceCacheExpirationSeconds(int deviceCacheExpirationSeconds) {
+	this.deviceCacheExpirationSeconds = deviceCacheExpirationSeconds;
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getLookupBatchSize()
+     */
+    @Override
+    public int getLookupBatchSize() {
+	return lookupBatchSize;
+    }
+
+    public void setLookupBatchSize(int lookupBatchSize) {
+	this.lookupBatchSize = lookupBatchSize;
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getLookupBatchLingerMs()
+     */
+    @Override
+    public int getLookupBatchLingerMs() {
+	return lookupBatchLingerMs;
+    }
+
+    public void setLookupBatchLingerMs(int lookupBatchLingerMs) {
+	this.lookupBatchLingerMs = lookupBatchLingerMs;
+    }
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.inbound.grpc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.grpc.device.DeviceModelConverter;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBatchLookupResponse;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignment;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCalls;
+
+/**
+ * Resolves devices and their active assignments for many device tokens in a
+ * single call to device management. Calls are made from the blocking stub of
+ * the API channel, so they carry the same channel interceptors and call options
+ * as the generated API methods, plus a deadline.
+ */
+public class DeviceBatchLookupClient {
+
+    /** Default deadline for calls in milliseconds */
+    private static final long DEFAULT_DEADLINE_MS = 30 * 1000;
+
+    /** Device management API channel */
+    private IDeviceManagementApiChannel<?> apiChannel;
+
+    /** Deadline for calls in milliseconds */
+    private long deadlineMs;
+
+    public DeviceBatchLookupClient(IDeviceManagementApiChannel<?> apiChannel) {
+	this(apiChannel, DEFAULT_DEADLINE_MS);
+    }
+
+    public DeviceBatchLookupClient(IDeviceManagementApiChannel<?> apiChannel, long deadlineMs) {
+	this.apiChannel = apiChannel;
+	this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * Get devices and their active assignments for a list of device tokens.
+     * Tokens that do not match a device are left out of the result.
+     * 
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    public Map<String, DeviceLookup> getDevicesWithActiveAssignments(Collection<String> tokens)
+	    throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(getApiChannel(),
+		    DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS);
+	    DeviceBatchLookupRequest request = DeviceBatchLookupRequest.newBuilder().addAllTokens(tokens).build();
+	    AbstractStub<?> stub = getStub();
+	    DeviceBatchLookupResponse response = ClientCalls.blockingUnaryCall(stub.getChannel(),
+		    DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS, stub.getCallOptions(), request);
+	    Map<String, DeviceLookup> results = new HashMap<>();
+	    for (DeviceBatchLookupResponse.Entry entry : response.getEntriesList()) {
+		List<IDeviceAssignment> assignments = new ArrayList<>();
+		for (GDeviceAssignment assignment : entry.getActiveAssignmentsList()) {
+		    assignments.add(DeviceModelConverter.asApiDeviceAssignment(assignment));
+		}
+		results.put(entry.getToken(),
+			new DeviceLookup(DeviceModelConverter.asApiDevice(entry.getDevice()), assignments));
+	    }
+	    return results;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(DeviceBatchLookupGrpc.GET_DEVICES_WITH_ACTIVE_ASSIGNMENTS, t);
+	}
+    }
+
+    /**
+     * Get the blocking stub used by the API channel for generated methods with a
+     * deadline applied. The stub channel includes the tenant and authentication
+     * interceptors added by the API channel.
+     * 
+     * @return
+     */
+    protected AbstractStub<?> getStub() {
+	AbstractStub<?> stub = (AbstractStub<?>) getApiChannel().getGrpcChannel().getBlockingStub();
+	return stub.withDeadlineAfter(getDeadlineMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public IDeviceManagementApiChannel<?> getApiChannel() {
+	return apiChannel;
+    }
+
+    public long getDeadlineMs() {
+	return deadlineMs;
+    }
+
+    /**
+     * Device with its active assignments.
+     */
+    public static class DeviceLookup {
+
+	/** Device */
+	private IDevice device;
+
+	/** Active assignments for device */
+	private List<? extends IDeviceAssignment> activeAssignments;
+
+	public DeviceLookup(IDevice device, List<? extends IDeviceAssignment> activeAssignments) {
+	    this.device = device;
+	    this.activeAssignments = activeAssignments;
+	}
+
+	public IDevice getDevice() {
+	    return device;
+	}
+
+	public List<? extends IDeviceAssignment> getActiveAssignments() {
+	    return activeAssignments;
+	}
+    }
+}
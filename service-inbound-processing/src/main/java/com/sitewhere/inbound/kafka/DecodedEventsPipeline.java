@@ -28,6 +28,7 @@ import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Predicate;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
 
 import com.sitewhere.grpc.kafka.serdes.SiteWhereSerdes;
 import com.sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload;
@@ -50,6 +51,9 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
     /** Mapper that looks up active assignments for a device */
     private DeviceAssignmentsLookupMapper deviceAssignmentsLookupMapper;
 
+    /** Supplies transformers for batched device and assignment lookups */
+    private DeviceLookupBatchTransformerSupplier deviceLookupBatchTransformerSupplier;
+
     /** Mapper that builds preprocessed events from lookup data */
     private PreprocessedEventMapper preprocessedEventMapper;
 
@@ -97,8 +101,18 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
 	KStream<String, GDecodedEventPayload> input = builder.stream(getSourceTopicNames(),
 		Consumed.with(Serdes.String(), SiteWhereSerdes.forDecodedEventPayload()));
 
-	// Attempt to resolve device and split stream based on resolution.
-	KStream<UUID, InboundEventContext> deviceResolver = input.map(getDeviceLookupMapper());
+	// Attempt to resolve device and split stream based on resolution. Batched
+	// lookups buffer records in a state store until they are resolved.
+	KStream<UUID, InboundEventContext> deviceResolver;
+	if (isBatchedLookup()) {
+	    builder.addStateStore(Stores.keyValueStoreBuilder(
+		    Stores.inMemoryKeyValueStore(DeviceLookupBatchTransformerSupplier.STORE_NAME), Serdes.Long(),
+		    SiteWhereSerdes.forDecodedEventPayload()));
+	    deviceResolver = input.transform(getDeviceLookupBatchTransformerSupplier(),
+		    DeviceLookupBatchTransformerSupplier.STORE_NAME);
+	} else {
+	    deviceResolver = input.map(getDeviceLookupMapper());
+	}
 
 	// Create branches based on whether device was resolved.
 	Predicate<UUID, InboundEventContext> deviceFound = (key, value) -> value.getDevice() != null;
@@ -117,8 +131,10 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
 	// forward to inbound events topic.
 	String inboundEventsTopic = getMicroservice().getKafkaTopicNaming()
 		.getInboundEventsTopic(getTenantEngine().getTenantResource());
-	deviceFoundBranch.map(getDeviceAssignmentsLookupMapper()).map(getPreprocessedEventMapper())
-		.flatMapValues((key, value) -> value)
+	// Batched lookups resolve assignments along with the device.
+	KStream<UUID, InboundEventContext> assignmentsResolver = isBatchedLookup() ? deviceFoundBranch
+		: deviceFoundBranch.map(getDeviceAssignmentsLookupMapper());
+	assignmentsResolver.map(getPreprocessedEventMapper()).flatMapValues((key, value) -> value)
 		.to(inboundEventsTopic, Produced.with(Serdes.UUID(), SiteWhereSerdes.forPreprocessedEventPayload()));
     }
 
@@ -133,15 +149,27 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
 		((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration());
 	this.deviceAssignmentsLookupMapper = new DeviceAssignmentsLookupMapper(
 		((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration());
+	this.deviceLookupBatchTransformerSupplier = new DeviceLookupBatchTransformerSupplier(
+		((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration());
 	this.preprocessedEventMapper = new PreprocessedEventMapper(
 		((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration());
 
 	super.initialize(monitor);
 	initializeNestedComponent(getDeviceLookupMapper(), monitor, true);
 	initializeNestedComponent(getDeviceAssignmentsLookupMapper(), monitor, true);
+	initializeNestedComponent(getDeviceLookupBatchTransformerSupplier(), monitor, true);
 	initializeNestedComponent(getPreprocessedEventMapper(), monitor, true);
     }
 
+    /**
+     * Indicates whether device and assignment lookups are resolved in batches.
+     * 
+     * @return
+     */
+    protected boolean isBatchedLookup() {
+	return ((IInboundProcessingTenantEngine) getTenantEngine()).getActiveConfiguration().getLookupBatchSize() > 1;
+    }
+
     /**
      * Wait for Kafka topics to be validated/created.
      * 
@@ -175,6 +203,7 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
 	super.start(monitor);
 	startNestedComponent(getDeviceLookupMapper(), monitor, true);
 	startNestedComponent(getDeviceAssignmentsLookupMapper(), monitor, true);
+	startNestedComponent(getDeviceLookupBatchTransformerSupplier(), monitor, true);
 	startNestedComponent(getPreprocessedEventMapper(), monitor, true);
 
 	// Wait for Kafka topics to be created/validated.
@@ -190,6 +219,7 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.stop(monitor);
 	stopNestedComponent(getPreprocessedEventMapper(), monitor);
+	stopNestedComponent(getDeviceLookupBatchTransformerSupplier(), monitor);
 	stopNestedComponent(getDeviceAssignmentsLookupMapper(), monitor);
 	stopNestedComponent(getDeviceLookupMapper(), monitor);
     }
@@ -240,6 +270,10 @@ public class DecodedEventsPipeline extends KafkaStreamPipeline implements IDecod
 	return deviceAssignmentsLookupMapper;
     }
 
+    protected DeviceLookupBatchTransformerSupplier getDeviceLookupBatchTransformerSupplier() {
+	return deviceLookupBatchTransformerSupplier;
+    }
+
     protected PreprocessedEventMapper getPreprocessedEventMapper() {
 	return preprocessedEventMapper;
     }
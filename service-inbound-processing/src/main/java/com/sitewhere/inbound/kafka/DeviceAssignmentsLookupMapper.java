@@ -21,9 +21,9 @@ import java.util.UUID;
 
 import org.apache.kafka.streams.KeyValue;
 
-import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
-import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.microservice.kafka.KeyValueMapperComponent;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.security.SystemUserCallable;
@@ -95,8 +95,8 @@ public class DeviceAssignmentsLookupMapper
 	    final Histogram.Timer assignmentLookupTime = ASSIGNMENT_LOOKUP_TIMER.labels(getTenantEngine().buildLabels())
 		    .startTimer();
 	    try {
-		List<? extends IDeviceAssignment> assignments = getDeviceManagement()
-			.getActiveDeviceAssignments(context.getDevice().getId());
+		List<? extends IDeviceAssignment> assignments = getDeviceLookupCache()
+			.getActiveDeviceAssignments(context.getDevice());
 		InboundEventContext updated = new InboundEventContext(context.getDecodedEventPayload());
 		updated.setDevice(context.getDevice());
 		updated.setDeviceAssignments(assignments);
@@ -122,11 +122,11 @@ public class DeviceAssignmentsLookupMapper
     }
 
     /**
-     * Get device management implementation.
+     * Get cache used for assignment lookups.
      * 
      * @return
      */
-    protected IDeviceManagement getDeviceManagement() {
-	return ((IInboundProcessingMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
+    protected IDeviceLookupCache getDeviceLookupCache() {
+	return ((IInboundProcessingTenantEngine) getTenantEngine()).getDeviceLookupCache();
     }
 }
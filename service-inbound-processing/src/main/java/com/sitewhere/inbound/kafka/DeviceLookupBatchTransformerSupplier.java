@@ -0,0 +1,397 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.inbound.kafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.kstream.TransformerSupplier;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import com.sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
+import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
+import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.microservice.security.SystemUserCallable;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.microservice.instance.EventPipelineLogLevel;
+import com.sitewhere.spi.microservice.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.spi.microservice.lifecycle.ITenantEngineLifecycleComponent;
+
+import io.prometheus.client.Histogram;
+
+/**
+ * Supplies transformers that buffer decoded events polled together, resolve
+ * device and active assignments for all distinct device tokens with a single
+ * batch call to device management and emit the resulting contexts in their
+ * original order. If the batch call fails, each distinct token is resolved
+ * individually. A batch is flushed when it
+ * reaches the configured size or when the oldest buffered record has waited
+ * for the configured linger time.
+ * 
+ * Records are buffered in a changelogged state store, so records whose offsets
+ * were committed before they were forwarded are restored after a failure and
+ * forwarded from the restored buffer. Records are only forwarded while
+ * processing or punctuating, never when a task is closed.
+ */
+public class DeviceLookupBatchTransformerSupplier extends TenantEngineLifecycleComponent
+	implements TransformerSupplier<String, GDecodedEventPayload, KeyValue<UUID, InboundEventContext>> {
+
+    /** Name of state store used to buffer records */
+    public static final String STORE_NAME = "lookup-batch";
+
+    /** Histogram for batched device and assignment lookup */
+    private static final Histogram BATCH_LOOKUP_TIMER = TenantEngineLifecycleComponent.createHistogramMetric(
+	    "inbound_batch_lookup_timer", "Timer for batched device and assignment lookup on inbound events");
+
+    /** Histogram for number of records in each lookup batch */
+    private static final Histogram BATCH_LOOKUP_SIZE = TenantEngineLifecycleComponent
+	    .createHistogramMetric("inbound_batch_lookup_size", "Number of records in each inbound lookup batch");
+
+    /** Configuration */
+    private IInboundProcessingConfiguration configuration;
+
+    /** Executor used to resolve distinct tokens concurrently if batch lookup fails */
+    private ExecutorService lookupExecutor;
+
+    public DeviceLookupBatchTransformerSupplier(IInboundProcessingConfiguration configuration) {
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#start(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.start(monitor);
+	this.lookupExecutor = Executors.newFixedThreadPool(getConfiguration().getProcessingThreadCount(),
+		new LookupThreadFactory());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.lifecycle.LifecycleComponent#stop(com.sitewhere.
+     * spi.microservice.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (getLookupExecutor() != null) {
+	    getLookupExecutor().shutdownNow();
+	}
+	super.stop(monitor);
+    }
+
+    /*
+     * @see org.apache.kafka.streams.kstream.TransformerSupplier#get()
+     */
+    @Override
+    public Transformer<String, GDecodedEventPayload, KeyValue<UUID, InboundEventContext>> get() {
+	return new Transformer<String, GDecodedEventPayload, KeyValue<UUID, InboundEventContext>>() {
+
+	    /** Processor context */
+	    private ProcessorContext context;
+
+	    /** Store that holds records waiting to be resolved keyed by arrival sequence */
+	    private KeyValueStore<Long, GDecodedEventPayload> store;
+
+	    /** Next sequence number */
+	    private long sequence;
+
+	    /** Number of records in buffer */
+	    private int buffered;
+
+	    /** Time at which oldest record in buffer was received */
+	    private long firstBufferedTime;
+
+	    /*
+	     * @see
+	     * org.apache.kafka.streams.kstream.Transformer#init(org.apache.kafka.streams.
+	     * processor.ProcessorContext)
+	     */
+	    @Override
+	    @SuppressWarnings("unchecked")
+	    public void init(ProcessorContext context) {
+		this.context = context;
+		this.store = (KeyValueStore<Long, GDecodedEventPayload>) context.getStateStore(STORE_NAME);
+
+		// Pick up records restored from changelog so they are forwarded first.
+		try (KeyValueIterator<Long, GDecodedEventPayload> it = store.all()) {
+		    while (it.hasNext()) {
+			sequence = Math.max(sequence, it.next().key + 1);
+			buffered++;
+		    }
+		}
+		if (buffered > 0) {
+		    getLogger().info(String.format("Restored %d unresolved records from lookup buffer.", buffered));
+		}
+
+		long linger = getConfiguration().getLookupBatchLingerMs();
+		context.schedule(Duration.ofMillis(linger), PunctuationType.WALL_CLOCK_TIME, (timestamp) -> {
+		    if ((buffered > 0) && (timestamp - firstBufferedTime >= linger)) {
+			flush();
+		    }
+		});
+	    }
+
+	    /*
+	     * @see org.apache.kafka.streams.kstream.Transformer#transform(java.lang.Object,
+	     * java.lang.Object)
+	     */
+	    @Override
+	    public KeyValue<UUID, InboundEventContext> transform(String key, GDecodedEventPayload payload) {
+		if (buffered == 0) {
+		    firstBufferedTime = System.currentTimeMillis();
+		}
+		store.put(sequence++, payload);
+		buffered++;
+		if (buffered >= getConfiguration().getLookupBatchSize()) {
+		    flush();
+		}
+		return null;
+	    }
+
+	    /**
+	     * Resolve buffered records, forward them in original order and remove them
+	     * from the buffer.
+	     */
+	    protected void flush() {
+		List<KeyValue<Long, GDecodedEventPayload>> entries = new ArrayList<>(buffered);
+		try (KeyValueIterator<Long, GDecodedEventPayload> it = store.all()) {
+		    while (it.hasNext()) {
+			entries.add(it.next());
+		    }
+		}
+
+		List<GDecodedEventPayload> batch = new ArrayList<>(entries.size());
+		for (KeyValue<Long, GDecodedEventPayload> entry : entries) {
+		    batch.add(entry.value);
+		}
+		for (InboundEventContext resolved : resolve(batch)) {
+		    UUID uuid = resolved.getDevice() != null ? resolved.getDevice().getId() : new UUID(0, 0);
+		    context.forward(uuid, resolved);
+		}
+
+		for (KeyValue<Long, GDecodedEventPayload> entry : entries) {
+		    store.delete(entry.key);
+		}
+		buffered = 0;
+	    }
+
+	    /*
+	     * @see org.apache.kafka.streams.kstream.Transformer#close()
+	     */
+	    @Override
+	    public void close() {
+	    }
+	};
+    }
+
+    /**
+     * Resolve device and active assignments for a batch of payloads. Tokens not in
+     * the cache are loaded with a single batch call. Results are returned in
+     * payload order.
+     * 
+     * @param payloads
+     * @return
+     */
+    protected List<InboundEventContext> resolve(List<GDecodedEventPayload> payloads) {
+	final Histogram.Timer batchLookupTime = BATCH_LOOKUP_TIMER.labels(buildLabels()).startTimer();
+	BATCH_LOOKUP_SIZE.labels(buildLabels()).observe(payloads.size());
+	try {
+	    // Invalidate cache entries before any lookups in the batch are started.
+	    for (GDecodedEventPayload payload : payloads) {
+		try {
+		    getDeviceLookupCache().onDecodedEvent(payload);
+		} catch (SiteWhereException e) {
+		    getLogger().warn("Unable to check decoded event for device changes.", e);
+		}
+	    }
+
+	    Map<String, GDecodedEventPayload> firstByToken = new LinkedHashMap<>();
+	    for (GDecodedEventPayload payload : payloads) {
+		firstByToken.putIfAbsent(payload.getDeviceToken(), payload);
+	    }
+
+	    Map<String, InboundEventContext> resolved = null;
+	    try {
+		resolved = new BatchLookupProcessor(this, firstByToken).call();
+	    } catch (Exception e) {
+		getLogger().warn(String.format("Batch lookup of %d device tokens failed. Resolving individually.",
+			firstByToken.size()), e);
+	    }
+
+	    Map<String, Future<InboundEventContext>> pending = new HashMap<>();
+	    if (resolved == null) {
+		for (GDecodedEventPayload payload : firstByToken.values()) {
+		    pending.put(payload.getDeviceToken(),
+			    getLookupExecutor().submit(new TokenLookupProcessor(this, payload)));
+		}
+	    }
+
+	    List<InboundEventContext> results = new ArrayList<>(payloads.size());
+	    for (GDecodedEventPayload payload : payloads) {
+		InboundEventContext context = new InboundEventContext(payload);
+		try {
+		    InboundEventContext found = (resolved != null) ? resolved.get(payload.getDeviceToken())
+			    : pending.get(payload.getDeviceToken()).get();
+		    context.setDevice(found.getDevice());
+		    context.setDeviceAssignments(found.getDeviceAssignments());
+		} catch (ExecutionException e) {
+		    logPipelineException(payload.getSourceId(), payload.getDeviceToken(),
+			    getMicroservice().getIdentifier(), "Unable to process batched device lookup.", e,
+			    EventPipelineLogLevel.Error);
+		    context.setException(e);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    context.setException(e);
+		}
+		results.add(context);
+	    }
+	    return results;
+	} finally {
+	    batchLookupTime.close();
+	}
+    }
+
+    /**
+     * Build context for a payload from its device and the active assignments for
+     * the device.
+     * 
+     * @param payload
+     * @param device
+     * @return
+     * @throws SiteWhereException
+     */
+    protected InboundEventContext buildContext(GDecodedEventPayload payload, IDevice device)
+	    throws SiteWhereException {
+	InboundEventContext context = new InboundEventContext(payload);
+	context.setDevice(device);
+	if (device != null) {
+	    List<? extends IDeviceAssignment> assignments = getDeviceLookupCache().getActiveDeviceAssignments(device);
+	    context.setDeviceAssignments(assignments);
+	} else {
+	    logPipelineEvent(payload.getSourceId(), payload.getDeviceToken(), getMicroservice().getIdentifier(),
+		    "Unable to locate device for token.", null, EventPipelineLogLevel.Warning);
+	}
+	return context;
+    }
+
+    /**
+     * Resolves device and active assignments for all distinct device tokens in a
+     * batch with a single call to device management.
+     */
+    private class BatchLookupProcessor extends SystemUserCallable<Map<String, InboundEventContext>> {
+
+	/** First payload for each distinct device token */
+	private Map<String, GDecodedEventPayload> firstByToken;
+
+	public BatchLookupProcessor(ITenantEngineLifecycleComponent component,
+		Map<String, GDecodedEventPayload> firstByToken) {
+	    super(component);
+	    this.firstByToken = firstByToken;
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public Map<String, InboundEventContext> runAsSystemUser() throws SiteWhereException {
+	    Map<String, IDevice> devices = getDeviceLookupCache().getDevicesByTokens(firstByToken.keySet());
+	    Map<String, InboundEventContext> contexts = new HashMap<>();
+	    for (GDecodedEventPayload payload : firstByToken.values()) {
+		contexts.put(payload.getDeviceToken(), buildContext(payload, devices.get(payload.getDeviceToken())));
+	    }
+	    return contexts;
+	}
+    }
+
+    /**
+     * Resolves device and active assignments for a single device token.
+     */
+    private class TokenLookupProcessor extends SystemUserCallable<InboundEventContext> {
+
+	private GDecodedEventPayload payload;
+
+	public TokenLookupProcessor(ITenantEngineLifecycleComponent component, GDecodedEventPayload payload) {
+	    super(component);
+	    this.payload = payload;
+	}
+
+	/*
+	 * @see com.sitewhere.microservice.security.SystemUserRunnable#runAsSystemUser()
+	 */
+	@Override
+	public InboundEventContext runAsSystemUser() throws SiteWhereException {
+	    return buildContext(payload, getDeviceLookupCache().getDeviceByToken(payload.getDeviceToken()));
+	}
+    }
+
+    /**
+     * Used for naming lookup threads.
+     */
+    private class LookupThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "SiteWhere Inbound Lookup " + counter.incrementAndGet());
+	}
+    }
+
+    /**
+     * Get inbound processing configuration.
+     * 
+     * @return
+     */
+    protected IInboundProcessingConfiguration getConfiguration() {
+	return configuration;
+    }
+
+    /**
+     * Get cache used for device and assignment lookups.
+     * 
+     * @return
+     */
+    protected IDeviceLookupCache getDeviceLookupCache() {
+	return ((IInboundProcessingTenantEngine) getTenantEngine()).getDeviceLookupCache();
+    }
+
+    protected ExecutorService getLookupExecutor() {
+	return lookupExecutor;
+    }
+}
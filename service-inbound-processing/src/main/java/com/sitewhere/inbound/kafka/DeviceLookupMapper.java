@@ -20,9 +20,9 @@ import java.util.UUID;
 import org.apache.kafka.streams.KeyValue;
 
 import com.sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload;
-import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
-import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.microservice.kafka.KeyValueMapperComponent;
 import com.sitewhere.microservice.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.microservice.security.SystemUserCallable;
@@ -94,7 +94,8 @@ public class DeviceLookupMapper
 		    .startTimer();
 	    try {
 		InboundEventContext context = new InboundEventContext(payload);
-		IDevice existing = getDeviceManagement().getDeviceByToken(payload.getDeviceToken());
+		getDeviceLookupCache().onDecodedEvent(payload);
+		IDevice existing = getDeviceLookupCache().getDeviceByToken(payload.getDeviceToken());
 		context.setDevice(existing);
 
 		if (existing != null) {
@@ -123,11 +124,11 @@ public class DeviceLookupMapper
     }
 
     /**
-     * Get device management implementation.
+     * Get cache used for device lookups.
      * 
      * @return
      */
-    protected IDeviceManagement getDeviceManagement() {
-	return ((IInboundProcessingMicroservice) getTenantEngine().getMicroservice()).getDeviceManagement();
+    protected IDeviceLookupCache getDeviceLookupCache() {
+	return ((IInboundProcessingTenantEngine) getTenantEngine()).getDeviceLookupCache();
     }
 }
\ No newline at end of file
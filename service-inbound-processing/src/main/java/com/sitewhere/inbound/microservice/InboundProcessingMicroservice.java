@@ -24,6 +24,7 @@ import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
 import com.sitewhere.inbound.configuration.InboundProcessingConfiguration;
 import com.sitewhere.inbound.configuration.InboundProcessingModule;
+import com.sitewhere.inbound.grpc.DeviceBatchLookupClient;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
@@ -48,6 +49,9 @@ public class InboundProcessingMicroservice extends
     /** Device management API demux */
     private CachedDeviceManagementApiChannel deviceManagement;
 
+    /** Resolves devices for many tokens in one call */
+    private DeviceBatchLookupClient deviceBatchLookupClient;
+
     /** Device event management API channel */
     private IDeviceEventManagementApiChannel<?> deviceEventManagementApiChannel;
 
@@ -169,6 +173,7 @@ public class InboundProcessingMicroservice extends
 	IDeviceManagementApiChannel<?> wrapped = new DeviceManagementApiChannel(getInstanceSettings());
 	this.deviceManagement = new CachedDeviceManagementApiChannel(wrapped,
 		new CachedDeviceManagementApiChannel.CacheSettings());
+	this.deviceBatchLookupClient = new DeviceBatchLookupClient(wrapped);
 
 	// Device event management.
 	this.deviceEventManagementApiChannel = new DeviceEventManagementApiChannel(getInstanceSettings());
@@ -183,6 +188,15 @@ public class InboundProcessingMicroservice extends
 	return deviceManagement;
     }
 
+    /*
+     * @see com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice#
+     * getDeviceBatchLookupClient()
+     */
+    @Override
+    public DeviceBatchLookupClient getDeviceBatchLookupClient() {
+	return deviceBatchLookupClient;
+    }
+
     /*
      * @see com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice#
      * getDeviceEventManagementApiChannel()
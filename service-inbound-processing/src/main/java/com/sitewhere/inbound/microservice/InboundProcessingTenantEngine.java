@@ -15,9 +15,11 @@
  */
 package com.sitewhere.inbound.microservice;
 
+import com.sitewhere.inbound.cache.DeviceLookupCache;
 import com.sitewhere.inbound.configuration.InboundProcessingTenantConfiguration;
 import com.sitewhere.inbound.configuration.InboundProcessingTenantEngineModule;
 import com.sitewhere.inbound.kafka.DecodedEventsPipeline;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
 import com.sitewhere.inbound.spi.kafka.IDecodedEventsPipeline;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.microservice.lifecycle.CompositeLifecycleStep;
@@ -37,6 +39,9 @@ import io.sitewhere.k8s.crd.tenant.engine.SiteWhereTenantEngine;
 public class InboundProcessingTenantEngine extends MicroserviceTenantEngine<InboundProcessingTenantConfiguration>
 	implements IInboundProcessingTenantEngine {
 
+    /** Cache for device and assignment lookups */
+    private IDeviceLookupCache deviceLookupCache;
+
     /** Kafka Streams pipeline that handles inbound decoded events */
     private IDecodedEventsPipeline decodedEventsPipeline;
 
@@ -68,6 +73,7 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine<Inbo
      */
     @Override
     public void loadEngineComponents() throws SiteWhereException {
+	this.deviceLookupCache = new DeviceLookupCache();
 	this.decodedEventsPipeline = new DecodedEventsPipeline();
     }
 
@@ -81,6 +87,9 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine<Inbo
 	// Create step that will initialize components.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getComponentName());
 
+	// Initialize device lookup cache.
+	init.addInitializeStep(this, getDeviceLookupCache(), true);
+
 	// Initialize decoded events pipeline.
 	init.addInitializeStep(this, getDecodedEventsPipeline(), true);
 
@@ -98,6 +107,9 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine<Inbo
 	// Create step that will start components.
 	ICompositeLifecycleStep start = new CompositeLifecycleStep("Start " + getComponentName());
 
+	// Start device lookup cache.
+	start.addStartStep(this, getDeviceLookupCache(), true);
+
 	// Start decoded events pipeline.
 	start.addStartStep(this, getDecodedEventsPipeline(), true);
 
@@ -118,10 +130,22 @@ public class InboundProcessingTenantEngine extends MicroserviceTenantEngine<Inbo
 	// Stop decoded events pipeline.
 	stop.addStopStep(this, getDecodedEventsPipeline());
 
+	// Stop device lookup cache.
+	stop.addStopStep(this, getDeviceLookupCache());
+
 	// Execute shutdown steps.
 	stop.execute(monitor);
     }
 
+    /*
+     * @see com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine#
+     * getDeviceLookupCache()
+     */
+    @Override
+    public IDeviceLookupCache getDeviceLookupCache() {
+	return deviceLookupCache;
+    }
+
     /*
      * @see com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine#
      * getDecodedEventsPipeline()
@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.inbound.spi.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.sitewhere.grpc.model.DeviceEventModel.GDecodedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.microservice.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Tenant-local cache of devices and their active assignments used to avoid
+ * remote device management calls for every inbound event.
+ */
+public interface IDeviceLookupCache extends ITenantEngineLifecycleComponent {
+
+    /**
+     * Get device by token, loading it from device management if not cached.
+     * 
+     * @param token
+     * @return
+     * @throws SiteWhereException
+     */
+    IDevice getDeviceByToken(String token) throws SiteWhereException;
+
+    /**
+     * Get devices for a list of tokens. Tokens that are not cached are loaded from
+     * device management in a single call that also returns active assignments,
+     * which are cached along with the devices. Tokens that do not match a device
+     * are left out of the result.
+     * 
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    Map<String, IDevice> getDevicesByTokens(Collection<String> tokens) throws SiteWhereException;
+
+    /**
+     * Get active assignments for a device, loading them from device management if
+     * not cached.
+     * 
+     * @param device
+     * @return
+     * @throws SiteWhereException
+     */
+    List<? extends IDeviceAssignment> getActiveDeviceAssignments(IDevice device) throws SiteWhereException;
+
+    /**
+     * Inspect a decoded event and invalidate cached entries for its device if it
+     * indicates a device or assignment change. Only changes seen by this replica
+     * are detected, so entries may remain stale until they expire.
+     * 
+     * @param payload
+     * @throws SiteWhereException
+     */
+    void onDecodedEvent(GDecodedEventPayload payload) throws SiteWhereException;
+
+    /**
+     * Remove cached device and assignment information for a device token.
+     * 
+     * @param token
+     */
+    void invalidate(String token);
+
+    /**
+     * Remove all cached entries.
+     */
+    void invalidateAll();
+}
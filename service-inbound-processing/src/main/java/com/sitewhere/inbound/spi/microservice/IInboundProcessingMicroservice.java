@@ -17,6 +17,7 @@ package com.sitewhere.inbound.spi.microservice;
 
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
 import com.sitewhere.inbound.configuration.InboundProcessingConfiguration;
+import com.sitewhere.inbound.grpc.DeviceBatchLookupClient;
 import com.sitewhere.microservice.api.device.IDeviceManagement;
 import com.sitewhere.spi.microservice.MicroserviceIdentifier;
 import com.sitewhere.spi.microservice.multitenant.IMultitenantMicroservice;
@@ -34,6 +35,13 @@ public interface IInboundProcessingMicroservice extends
      */
     public IDeviceManagement getDeviceManagement();
 
+    /**
+     * Get client that resolves devices for many tokens in one call.
+     * 
+     * @return
+     */
+    public DeviceBatchLookupClient getDeviceBatchLookupClient();
+
     /**
      * Get device event management API access via GRPC channel.
      * 
@@ -16,6 +16,7 @@
 package com.sitewhere.inbound.spi.microservice;
 
 import com.sitewhere.inbound.configuration.InboundProcessingTenantConfiguration;
+import com.sitewhere.inbound.spi.cache.IDeviceLookupCache;
 import com.sitewhere.inbound.spi.kafka.IDecodedEventsPipeline;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
 
@@ -26,6 +27,13 @@ import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
 public interface IInboundProcessingTenantEngine
 	extends IMicroserviceTenantEngine<InboundProcessingTenantConfiguration> {
 
+    /**
+     * Get cache used for device and assignment lookups.
+     * 
+     * @return
+     */
+    public IDeviceLookupCache getDeviceLookupCache();
+
     /**
      * Get Kafka Streams pipeline that handles decoded event processing.
      * 
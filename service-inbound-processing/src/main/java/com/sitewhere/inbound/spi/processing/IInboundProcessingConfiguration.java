@@ -26,4 +26,35 @@ public interface IInboundProcessingConfiguration {
      * @return
      */
     int getProcessingThreadCount();
+
+    /**
+     * Get maximum number of devices held in the device lookup cache.
+     * 
+     * @return
+     */
+    int getDeviceCacheMaximumSize();
+
+    /**
+     * Get number of seconds a device lookup cache entry is valid. This is also
+     * the longest time a replica may use stale device or assignment data.
+     * 
+     * @return
+     */
+    int getDeviceCacheExpirationSeconds();
+
+    /**
+     * Get maximum number of records resolved in a single lookup batch. A value of
+     * one disables batched lookups.
+     * 
+     * @return
+     */
+    int getLookupBatchSize();
+
+    /**
+     * Get maximum number of milliseconds a record waits for its lookup batch to
+     * fill.
+     * 
+     * @return
+     */
+    int getLookupBatchLingerMs();
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.instance.grpc.device;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.grpc.device.DeviceModelConverter;
+import com.sitewhere.grpc.extensions.BulkCreateRow;
+import com.sitewhere.grpc.extensions.device.BulkCreateResponse;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentBulkCreateRequest;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceBulkCreateRequest;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
+import com.sitewhere.spi.device.request.IDeviceCreateRequest;
+
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCalls;
+
+/**
+ * Calls the device management methods that create many devices or assignments
+ * in one call over the existing device management channel. Calls are made from
+ * the blocking stub of the API channel, so they carry the same channel
+ * interceptors and call options as the generated API methods, plus a deadline.
+ */
+public class DeviceBulkCreateClient {
+
+    /** Default deadline for calls in milliseconds */
+    private static final long DEFAULT_DEADLINE_MS = 120 * 1000;
+
+    /** Device management API channel */
+    private IDeviceManagementApiChannel<?> apiChannel;
+
+    /** Deadline for calls in milliseconds */
+    private long deadlineMs;
+
+    public DeviceBulkCreateClient(IDeviceManagementApiChannel<?> apiChannel) {
+	this(apiChannel, DEFAULT_DEADLINE_MS);
+    }
+
+    public DeviceBulkCreateClient(IDeviceManagementApiChannel<?> apiChannel, long deadlineMs) {
+	this.apiChannel = apiChannel;
+	this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * Create (or update if upsert is set) many devices. A result is returned for
+     * every request in request order.
+     * 
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<BulkCreateRow<IDevice>> createDevices(List<? extends IDeviceCreateRequest> requests, boolean upsert)
+	    throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(getApiChannel(), DeviceBulkCreateGrpc.BULK_CREATE_DEVICES);
+	    DeviceBulkCreateRequest.Builder request = DeviceBulkCreateRequest.newBuilder();
+	    for (IDeviceCreateRequest api : requests) {
+		request.addRequests(DeviceModelConverter.asGrpcDeviceCreateRequest(api));
+	    }
+	    request.setUpsert(upsert);
+	    AbstractStub<?> stub = getStub();
+	    BulkCreateResponse response = ClientCalls.blockingUnaryCall(stub.getChannel(),
+		    DeviceBulkCreateGrpc.BULK_CREATE_DEVICES, stub.getCallOptions(), request.build());
+	    List<BulkCreateRow<IDevice>> rows = new ArrayList<>();
+	    for (BulkCreateResponse.Result result : response.getResultsList()) {
+		BulkCreateRow<IDevice> row = asRow(result);
+		if (result.hasDevice()) {
+		    row.setEntity(DeviceModelConverter.asApiDevice(result.getDevice()));
+		}
+		rows.add(row);
+	    }
+	    return rows;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(DeviceBulkCreateGrpc.BULK_CREATE_DEVICES, t);
+	}
+    }
+
+    /**
+     * Create (or update if upsert is set) many device assignments. A result is
+     * returned for every request in request order.
+     * 
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<BulkCreateRow<IDeviceAssignment>> createDeviceAssignments(
+	    List<? extends IDeviceAssignmentCreateRequest> requests, boolean upsert) throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(getApiChannel(), DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS);
+	    DeviceAssignmentBulkCreateRequest.Builder request = DeviceAssignmentBulkCreateRequest.newBuilder();
+	    for (IDeviceAssignmentCreateRequest api : requests) {
+		request.addRequests(DeviceModelConverter.asGrpcDeviceAssignmentCreateRequest(api));
+	    }
+	    request.setUpsert(upsert);
+	    AbstractStub<?> stub = getStub();
+	    BulkCreateResponse response = ClientCalls.blockingUnaryCall(stub.getChannel(),
+		    DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS, stub.getCallOptions(), request.build());
+	    List<BulkCreateRow<IDeviceAssignment>> rows = new ArrayList<>();
+	    for (BulkCreateResponse.Result result : response.getResultsList()) {
+		BulkCreateRow<IDeviceAssignment> row = asRow(result);
+		if (result.hasAssignment()) {
+		    row.setEntity(DeviceModelConverter.asApiDeviceAssignment(result.getAssignment()));
+		}
+		rows.add(row);
+	    }
+	    return rows;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(DeviceBulkCreateGrpc.BULK_CREATE_DEVICE_ASSIGNMENTS, t);
+	}
+    }
+
+    /**
+     * Copy fields common to all entity types from a gRPC result. Empty token and
+     * error message are returned as null.
+     * 
+     * @param result
+     * @return
+     */
+    protected static <T> BulkCreateRow<T> asRow(BulkCreateResponse.Result result) {
+	BulkCreateRow<T> row = new BulkCreateRow<>();
+	row.setIndex(result.getIndex());
+	row.setToken(result.getToken().isEmpty() ? null : result.getToken());
+	row.setOutcome(result.getOutcome());
+	row.setErrorMessage(result.getErrorMessage().isEmpty() ? null : result.getErrorMessage());
+	return row;
+    }
+
+    /**
+     * Get the blocking stub used by the API channel for generated methods with a
+     * deadline applied. The stub channel includes the tenant and authentication
+     * interceptors added by the API channel.
+     * 
+     * @return
+     */
+    protected AbstractStub<?> getStub() {
+	AbstractStub<?> stub = (AbstractStub<?>) getApiChannel().getGrpcChannel().getBlockingStub();
+	return stub.withDeadlineAfter(getDeadlineMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public IDeviceManagementApiChannel<?> getApiChannel() {
+	return apiChannel;
+    }
+
+    public long getDeadlineMs() {
+	return deadlineMs;
+    }
+}
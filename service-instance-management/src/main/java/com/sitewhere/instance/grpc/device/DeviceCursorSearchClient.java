@@ -0,0 +1,165 @@
+/**
+ * Copyright © 2014-2021 The SiteWhere Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sitewhere.instance.grpc.device;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
+import com.sitewhere.grpc.device.DeviceModelConverter;
+import com.sitewhere.grpc.extensions.CursorSearchResults;
+import com.sitewhere.grpc.extensions.device.CursorSearchResponse;
+import com.sitewhere.grpc.extensions.device.DeviceAssignmentCursorSearchRequest;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchGrpc;
+import com.sitewhere.grpc.extensions.device.DeviceCursorSearchRequest;
+import com.sitewhere.grpc.model.DeviceModel.GDevice;
+import com.sitewhere.grpc.model.DeviceModel.GDeviceAssignment;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.search.device.IDeviceAssignmentSearchCriteria;
+import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
+
+import io.grpc.stub.AbstractStub;
+import io.grpc.stub.ClientCalls;
+
+/**
+ * Calls the device management searches that page by continuation token over
+ * the existing device management channel. Calls are made from the blocking
+ * stub of the API channel, so they carry the same channel interceptors and
+ * call options as the generated API methods, plus a deadline.
+ */
+public class DeviceCursorSearchClient {
+
+    /** Default deadline for calls in milliseconds */
+    private static final long DEFAULT_DEADLINE_MS = 30 * 1000;
+
+    /** Device management API channel */
+    private IDeviceManagementApiChannel<?> apiChannel;
+
+    /** Deadline for calls in milliseconds */
+    private long deadlineMs;
+
+    public DeviceCursorSearchClient(IDeviceManagementApiChannel<?> apiChannel) {
+	this(apiChannel, DEFAULT_DEADLINE_MS);
+    }
+
+    public DeviceCursorSearchClient(IDeviceManagementApiChannel<?> apiChannel, long deadlineMs) {
+	this.apiChannel = apiChannel;
+	this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * List a page of devices that match criteria. The page number in the criteria
+     * is ignored.
+     * 
+     * @param criteria
+     * @param continuationToken
+     * @param countRequested
+     * @return
+     * @throws SiteWhereException
+     */
+    public CursorSearchResults<IDevice> listDevices(IDeviceSearchCriteria criteria, String continuationToken,
+	    boolean countRequested) throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(getApiChannel(), DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR);
+	    DeviceCursorSearchRequest.Builder request = DeviceCursorSearchRequest.newBuilder();
+	    request.setCriteria(DeviceModelConverter.asGrpcDeviceSearchCriteria(criteria));
+	    if (continuationToken != null) {
+		request.setContinuationToken(continuationToken);
+	    }
+	    request.setCountRequested(countRequested);
+	    AbstractStub<?> stub = getStub();
+	    CursorSearchResponse response = ClientCalls.blockingUnaryCall(stub.getChannel(),
+		    DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR, stub.getCallOptions(), request.build());
+	    List<IDevice> results = new ArrayList<>();
+	    for (GDevice device : response.getDevicesList()) {
+		results.add(DeviceModelConverter.asApiDevice(device));
+	    }
+	    return new CursorSearchResults<IDevice>(results, response.getCount(), getContinuationToken(response));
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(DeviceCursorSearchGrpc.LIST_DEVICES_WITH_CURSOR, t);
+	}
+    }
+
+    /**
+     * List a page of device assignments that match criteria. The page number in
+     * the criteria is ignored.
+     * 
+     * @param criteria
+     * @param continuationToken
+     * @param countRequested
+     * @return
+     * @throws SiteWhereException
+     */
+    public CursorSearchResults<IDeviceAssignment> listDeviceAssignments(IDeviceAssignmentSearchCriteria criteria,
+	    String continuationToken, boolean countRequested) throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(getApiChannel(),
+		    DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR);
+	    DeviceAssignmentCursorSearchRequest.Builder request = DeviceAssignmentCursorSearchRequest.newBuilder();
+	    request.setCriteria(DeviceModelConverter.asGrpcDeviceAssignmentSearchCriteria(criteria));
+	    if (continuationToken != null) {
+		request.setContinuationToken(continuationToken);
+	    }
+	    request.setCountRequested(countRequested);
+	    AbstractStub<?> stub = getStub();
+	    CursorSearchResponse response = ClientCalls.blockingUnaryCall(stub.getChannel(),
+		    DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR, stub.getCallOptions(), request.build());
+	    List<IDeviceAssignment> results = new ArrayList<>();
+	    for (GDeviceAssignment assignment : response.getAssignmentsList()) {
+		results.add(DeviceModelConverter.asApiDeviceAssignment(assignment));
+	    }
+	    return new CursorSearchResults<IDeviceAssignment>(results, response.getCount(),
+		    getContinuationToken(response));
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(DeviceCursorSearchGrpc.LIST_DEVICE_ASSIGNMENTS_WITH_CURSOR, t);
+	}
+    }
+
+    /**
+     * Get continuation token from a response. The token is empty on the last page
+     * and is returned as null.
+     * 
+     * @param response
+     * @return
+     */
+    protected static String getContinuationToken(CursorSearchResponse response) {
+	return response.getContinuationToken().isEmpty() ? null : response.getContinuationToken();
+    }
+
+    /**
+     * Get the blocking stub used by the API channel for generated methods with a
+     * deadline applied. The stub channel includes the tenant and authentication
+     * interceptors added by the API channel.
+     * 
+     * @return
+     */
+    protected AbstractStub<?> getStub() {
+	AbstractStub<?> stub = (AbstractStub<?>) getApiChannel().getGrpcChannel().getBlockingStub();
+	return stub.withDeadlineAfter(getDeadlineMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public IDeviceManagementApiChannel<?> getApiChannel() {
+	return apiChannel;
+    }
+
+    public long getDeadlineMs() {
+	return deadlineMs;
+    }
+}
@@ -35,6 +35,8 @@ import com.sitewhere.grpc.client.spi.client.ILabelGenerationApiChannel;
 import com.sitewhere.grpc.client.spi.client.IScheduleManagementApiChannel;
 import com.sitewhere.instance.configuration.InstanceManagementConfiguration;
 import com.sitewhere.instance.configuration.InstanceManagementModule;
+import com.sitewhere.instance.grpc.device.DeviceBulkCreateClient;
+import com.sitewhere.instance.grpc.device.DeviceCursorSearchClient;
 import com.sitewhere.instance.grpc.tenant.TenantManagementGrpcServer;
 import com.sitewhere.instance.grpc.user.UserManagementGrpcServer;
 import com.sitewhere.instance.spi.microservice.IInstanceBootstrapper;
@@ -74,6 +76,12 @@ public class InstanceManagementMicroservice extends
     /** Device management API channel */
     private CachedDeviceManagementApiChannel deviceManagementApiChannel;
 
+    /** Device searches that page by continuation token */
+    private DeviceCursorSearchClient deviceCursorSearchClient;
+
+    /** Creates many devices or assignments in one call */
+    private DeviceBulkCreateClient deviceBulkCreateClient;
+
     /** Device event management API channel */
     private IDeviceEventManagementApiChannel<?> deviceEventManagementApiChannel;
 
@@ -201,6 +209,8 @@ public class InstanceManagementMicroservice extends
 	IDeviceManagementApiChannel<?> deviceManagement = new DeviceManagementApiChannel(getInstanceSettings());
 	this.deviceManagementApiChannel = new CachedDeviceManagementApiChannel(deviceManagement,
 		new CachedDeviceManagementApiChannel.CacheSettings());
+	this.deviceCursorSearchClient = new DeviceCursorSearchClient(deviceManagement);
+	this.deviceBulkCreateClient = new DeviceBulkCreateClient(deviceManagement);
 
 	// Device event management.
 	this.deviceEventManagementApiChannel = new DeviceEventManagementApiChannel(getInstanceSettings());
@@ -351,6 +361,24 @@ public class InstanceManagementMicroservice extends
 	return deviceManagementApiChannel;
     }
 
+    /*
+     * @see com.sitewhere.instance.spi.microservice.IInstanceManagementMicroservice#
+     * getDeviceCursorSearchClient()
+     */
+    @Override
+    public DeviceCursorSearchClient getDeviceCursorSearchClient() {
+	return deviceCursorSearchClient;
+    }
+
+    /*
+     * @see com.sitewhere.instance.spi.microservice.IInstanceManagementMicroservice#
+     * getDeviceBulkCreateClient()
+     */
+    @Override
+    public DeviceBulkCreateClient getDeviceBulkCreateClient() {
+	return deviceBulkCreateClient;
+    }
+
     /*
      * @see com.sitewhere.instance.spi.microservice.IInstanceManagementMicroservice#
      * getDeviceEventManagementApiChannel()
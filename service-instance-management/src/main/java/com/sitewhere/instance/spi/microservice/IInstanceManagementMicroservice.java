@@ -21,6 +21,8 @@ import com.sitewhere.grpc.client.spi.client.IDeviceStateApiChannel;
 import com.sitewhere.grpc.client.spi.client.ILabelGenerationApiChannel;
 import com.sitewhere.grpc.client.spi.client.IScheduleManagementApiChannel;
 import com.sitewhere.instance.configuration.InstanceManagementConfiguration;
+import com.sitewhere.instance.grpc.device.DeviceBulkCreateClient;
+import com.sitewhere.instance.grpc.device.DeviceCursorSearchClient;
 import com.sitewhere.instance.spi.tenant.grpc.ITenantManagementGrpcServer;
 import com.sitewhere.instance.spi.user.grpc.IUserManagementGrpcServer;
 import com.sitewhere.microservice.api.asset.IAssetManagement;
@@ -62,6 +64,22 @@ public interface IInstanceManagementMicroservice extends
      */
     public IDeviceManagement getDeviceManagement();
 
+    /**
+     * Device searches that page by continuation token. Uses the device management
+     * channel without caching.
+     * 
+     * @return
+     */
+    public DeviceCursorSearchClient getDeviceCursorSearchClient();
+
+    /**
+     * Bulk device and assignment creation with per-row results. Uses the device
+     * management channel without caching.
+     * 
+     * @return
+     */
+    public DeviceBulkCreateClient getDeviceBulkCreateClient();
+
     /**
      * Device event management API access via GRPC channel.
      * 
@@ -51,6 +51,8 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
+import com.sitewhere.grpc.extensions.BulkCreateRow;
+import com.sitewhere.grpc.extensions.CursorSearchResults;
 import com.sitewhere.instance.spi.microservice.IInstanceManagementMicroservice;
 import com.sitewhere.microservice.api.asset.IAssetManagement;
 import com.sitewhere.microservice.api.device.ChartBuilder;
@@ -135,6 +137,27 @@ public class Assignments {
 	return Response.ok(helper.convert(created, getAssetManagement())).build();
     }
 
+    /**
+     * Create (or update) many device assignments in one call. A result is returned
+     * for every request in request order, so rows that fail do not prevent the
+     * others from being stored.
+     * 
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    @POST
+    @Path("/bulk")
+    @Operation(summary = "Create many device assignments", description = "Create or update many device assignments with a result for each request")
+    public Response createDeviceAssignments(@RequestBody List<DeviceAssignmentCreateRequest> requests,
+	    @Parameter(description = "Update assignments that already exist", required = false) @QueryParam("upsert") @DefaultValue("false") boolean upsert)
+	    throws SiteWhereException {
+	List<BulkCreateRow<IDeviceAssignment>> results = getMicroservice().getDeviceBulkCreateClient()
+		.createDeviceAssignments(requests, upsert);
+	return Response.ok(results).build();
+    }
+
     /**
      * Get device assignment by token.
      * 
@@ -239,6 +262,9 @@ public class Assignments {
      * @param includeAsset
      * @param page
      * @param pageSize
+     * @param useCursor
+     * @param continuationToken
+     * @param includeCount
      * @return
      * @throws SiteWhereException
      */
@@ -254,7 +280,10 @@ public class Assignments {
 	    @Parameter(description = "Include area information", required = false) @QueryParam("includeArea") @DefaultValue("false") boolean includeArea,
 	    @Parameter(description = "Include asset information", required = false) @QueryParam("includeAsset") @DefaultValue("false") boolean includeAsset,
 	    @Parameter(description = "Page number", required = false) @QueryParam("page") @DefaultValue("1") int page,
-	    @Parameter(description = "Page size", required = false) @QueryParam("pageSize") @DefaultValue("100") int pageSize)
+	    @Parameter(description = "Page size", required = false) @QueryParam("pageSize") @DefaultValue("100") int pageSize,
+	    @Parameter(description = "Page by continuation token instead of page number", required = false) @QueryParam("useCursor") @DefaultValue("false") boolean useCursor,
+	    @Parameter(description = "Continuation token returned with previous page", required = false) @QueryParam("continuationToken") String continuationToken,
+	    @Parameter(description = "Include total count when paging by continuation token", required = false) @QueryParam("includeCount") @DefaultValue("false") boolean includeCount)
 	    throws SiteWhereException {
 	// Build criteria.
 	DeviceAssignmentSearchCriteria criteria = new DeviceAssignmentSearchCriteria(page, pageSize);
@@ -281,7 +310,11 @@ public class Assignments {
 	}
 
 	// Perform search.
-	ISearchResults<? extends IDeviceAssignment> matches = getDeviceManagement().listDeviceAssignments(criteria);
+	boolean cursor = useCursor || (continuationToken != null);
+	ISearchResults<? extends IDeviceAssignment> matches = cursor
+		? getMicroservice().getDeviceCursorSearchClient().listDeviceAssignments(criteria, continuationToken,
+			includeCount)
+		: getDeviceManagement().listDeviceAssignments(criteria);
 	DeviceAssignmentMarshalHelper helper = new DeviceAssignmentMarshalHelper(getDeviceManagement());
 	helper.setIncludeDevice(includeDevice);
 	helper.setIncludeCustomer(includeCustomer);
@@ -292,6 +325,11 @@ public class Assignments {
 	for (IDeviceAssignment assn : matches.getResults()) {
 	    results.add(helper.convert(assn, getAssetManagement()));
 	}
+	if (cursor) {
+	    String next = ((CursorSearchResults<?>) matches).getContinuationToken();
+	    return Response.ok(new CursorSearchResults<IDeviceAssignment>(results, matches.getNumResults(), next))
+		    .build();
+	}
 	return Response.ok(new SearchResults<IDeviceAssignment>(results, matches.getNumResults())).build();
     }
 
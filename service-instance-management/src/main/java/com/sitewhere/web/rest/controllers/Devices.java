@@ -46,6 +46,8 @@ import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement
 import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirements;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import com.sitewhere.grpc.extensions.BulkCreateRow;
+import com.sitewhere.grpc.extensions.CursorSearchResults;
 import com.sitewhere.instance.spi.microservice.IInstanceManagementMicroservice;
 import com.sitewhere.microservice.api.asset.IAssetManagement;
 import com.sitewhere.microservice.api.device.DeviceAssignmentMarshalHelper;
@@ -122,6 +124,27 @@ public class Devices {
 	return Response.ok(helper.convert(result, getAssetManagement())).build();
     }
 
+    /**
+     * Create (or update) many devices in one call. A result is returned for every
+     * request in request order, so rows that fail do not prevent the others from
+     * being stored.
+     * 
+     * @param requests
+     * @param upsert
+     * @return
+     * @throws SiteWhereException
+     */
+    @POST
+    @Path("/bulk")
+    @Operation(summary = "Create many devices", description = "Create or update many devices with a result for each request")
+    public Response createDevices(@RequestBody List<DeviceCreateRequest> requests,
+	    @Parameter(description = "Update devices that already exist", required = false) @QueryParam("upsert") @DefaultValue("false") boolean upsert)
+	    throws SiteWhereException {
+	List<BulkCreateRow<IDevice>> results = getMicroservice().getDeviceBulkCreateClient().createDevices(requests,
+		upsert);
+	return Response.ok(results).build();
+    }
+
     /**
      * Get device by unique token.
      * 
@@ -350,6 +373,9 @@ public class Devices {
      * @param pageSize
      * @param startDate
      * @param endDate
+     * @param useCursor
+     * @param continuationToken
+     * @param includeCount
      * @return
      * @throws SiteWhereException
      */
@@ -363,11 +389,17 @@ public class Devices {
 	    @Parameter(description = "Page number", required = false) @QueryParam("page") @DefaultValue("1") int page,
 	    @Parameter(description = "Page size", required = false) @QueryParam("pageSize") @DefaultValue("100") int pageSize,
 	    @Parameter(description = "Start date", required = false) @QueryParam("startDate") String startDate,
-	    @Parameter(description = "End date", required = false) @QueryParam("endDate") String endDate)
+	    @Parameter(description = "End date", required = false) @QueryParam("endDate") String endDate,
+	    @Parameter(description = "Page by continuation token instead of page number", required = false) @QueryParam("useCursor") @DefaultValue("false") boolean useCursor,
+	    @Parameter(description = "Continuation token returned with previous page", required = false) @QueryParam("continuationToken") String continuationToken,
+	    @Parameter(description = "Include total count when paging by continuation token", required = false) @QueryParam("includeCount") @DefaultValue("false") boolean includeCount)
 	    throws SiteWhereException {
 	IDeviceSearchCriteria criteria = new DeviceSearchCriteria(deviceType, excludeAssigned, page, pageSize,
 		Assignments.parseDateOrFail(startDate), Assignments.parseDateOrFail(endDate));
-	ISearchResults<? extends IDevice> results = getDeviceManagement().listDevices(criteria);
+	boolean cursor = useCursor || (continuationToken != null);
+	ISearchResults<? extends IDevice> results = cursor
+		? getMicroservice().getDeviceCursorSearchClient().listDevices(criteria, continuationToken, includeCount)
+		: getDeviceManagement().listDevices(criteria);
 	DeviceMarshalHelper helper = new DeviceMarshalHelper(getDeviceManagement());
 	helper.setIncludeDeviceType(includeDeviceType);
 	helper.setIncludeAssignments(includeAssignment);
@@ -375,6 +407,10 @@ public class Devices {
 	for (IDevice device : results.getResults()) {
 	    devicesConv.add(helper.convert(device, getAssetManagement()));
 	}
+	if (cursor) {
+	    String next = ((CursorSearchResults<?>) results).getContinuationToken();
+	    return Response.ok(new CursorSearchResults<IDevice>(devicesConv, results.getNumResults(), next)).build();
+	}
 	return Response.ok(new SearchResults<IDevice>(devicesConv, results.getNumResults())).build();
     }
 